@@ -0,0 +1,83 @@
+package com.controltower.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the threads the application starts itself, following the threading
+ * mode of the rest of the application.
+ *
+ * With {@code spring.threads.virtual.enabled=true} on Java 21 or later,
+ * Spring Boot runs Tomcat requests, async tasks and scheduled tasks on
+ * virtual threads, and so do the threads created here. Otherwise they are
+ * named daemon platform threads, as before. Threads doing CPU-bound work on a
+ * bounded pool, like batch evaluation, do not use this. Requesting virtual
+ * threads on an older JVM logs a warning at startup, since Spring Boot then
+ * silently keeps platform threads everywhere.
+ */
+@Component
+public class BackgroundThreads {
+
+  private static final Logger log = LoggerFactory.getLogger(BackgroundThreads.class);
+
+  private final boolean virtual;
+
+  public BackgroundThreads(Environment environment) {
+    this.virtual = Threading.VIRTUAL.isActive(environment);
+    if (!virtual && environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+      log.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads (Java 21 or later"
+          + " is required): requests, async and scheduled tasks run on platform threads",
+          Runtime.version().feature());
+    }
+  }
+
+  /**
+   * Tells whether the application runs on virtual threads.
+   *
+   * @return true if virtual threads are enabled and supported by the JVM
+   */
+  public boolean isVirtual() {
+    return virtual;
+  }
+
+  /**
+   * Gets a factory of threads all named after a task.
+   *
+   * @param name The thread name
+   * @return A factory of virtual or daemon platform threads
+   */
+  public ThreadFactory factory(String name) {
+    if (virtual) {
+      ThreadFactory threads = new VirtualThreadTaskExecutor().getVirtualThreadFactory();
+      return runnable -> {
+        Thread thread = threads.newThread(runnable);
+        thread.setName(name);
+        return thread;
+      };
+    }
+    return runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Starts a long-running background task on its own thread.
+   *
+   * @param name The thread name
+   * @param task The task
+   * @return The started thread
+   */
+  public Thread start(String name, Runnable task) {
+    Thread thread = factory(name).newThread(task);
+    thread.start();
+    return thread;
+  }
+}
@@ -0,0 +1,23 @@
+package com.controltower.config;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the application ObjectMapper.
+ *
+ * DTOs supporting sparse fields declare a Jackson filter; unless a response
+ * sets its own filters, every property is written.
+ */
+@Configuration
+public class JacksonConfig {
+
+  @Bean
+  public Jackson2ObjectMapperBuilderCustomizer serializeAllByDefault() {
+    return builder -> builder.filters(new SimpleFilterProvider()
+        .setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()));
+  }
+}
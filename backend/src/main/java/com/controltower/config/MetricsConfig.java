@@ -0,0 +1,23 @@
+package com.controltower.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for application metrics.
+ *
+ * Services annotated with {@code @Timed} get a timer per public method,
+ * tagged with the class and method names. HTTP endpoints are timed by Spring
+ * Boot as {@code http.server.requests}; snapshot and evaluation meters are
+ * bound by the components of the {@code metrics} package.
+ */
+@Configuration
+public class MetricsConfig {
+
+  @Bean
+  public TimedAspect timedAspect(MeterRegistry registry) {
+    return new TimedAspect(registry);
+  }
+}
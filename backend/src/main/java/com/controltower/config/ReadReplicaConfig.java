@@ -0,0 +1,67 @@
+package com.controltower.config;
+
+import com.controltower.datasource.ReadReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DataSource configuration when read replicas are configured.
+ *
+ * The primary pool is configured as usual through {@code spring.datasource.*};
+ * read-only transactions are routed to the replicas listed in
+ * {@code controltower.replicas.urls} by {@link ReadReplicaRoutingDataSource}.
+ * Without replicas, Spring Boot's single pool is used.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "controltower.replicas", name = "urls")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReadReplicaRoutingDataSource readReplicaRoutingDataSource(HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            @Value("${controltower.replicas.urls}") List<String> urls,
+            @Value("${controltower.replicas.username:}") String username,
+            @Value("${controltower.replicas.password:}") String password,
+            @Value("${controltower.replicas.pool-size:10}") int poolSize,
+            @Value("${controltower.replicas.connection-timeout:1000}") long connectionTimeout,
+            @Value("${controltower.replicas.max-lag:5000}") long maxLag) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username.isEmpty() ? properties.determineUsername() : username);
+            replica.setPassword(username.isEmpty() ? properties.determinePassword() : password);
+            replica.setMaximumPoolSize(poolSize);
+            // Fail over to the primary quickly rather than wait for a replica
+            replica.setConnectionTimeout(connectionTimeout);
+            replica.setInitializationFailTimeout(-1);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReadReplicaRoutingDataSource(primaryDataSource, replicas, maxLag);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadReplicaRoutingDataSource readReplicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readReplicaRoutingDataSource);
+    }
+}
@@ -44,6 +44,7 @@ public class SecurityConfig {
                 "https://controltower.vercel.app"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setExposedHeaders(Arrays.asList("ETag", "X-Flags-Version", "X-Flags-Stale", "X-Write-Position")); // Let browser SDKs read flag versions and staleness and send conditional GETs
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L); // Cache preflight for 1 hour
 
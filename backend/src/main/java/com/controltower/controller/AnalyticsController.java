@@ -0,0 +1,42 @@
+package com.controltower.controller;
+
+import com.controltower.dto.FlagUsageResponse;
+import com.controltower.service.AnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller for flag usage analytics.
+ * 
+ * Reports how often each flag was evaluated, so that flags nobody evaluates
+ * any more can be found and retired.
+ */
+@RestController
+@RequestMapping("/admin/analytics")
+public class AnalyticsController {
+
+    private static final int MAX_HOURS = 24 * 365;
+
+    private final AnalyticsService analyticsService;
+
+    @Autowired
+    public AnalyticsController(AnalyticsService analyticsService) {
+        this.analyticsService = analyticsService;
+    }
+
+    /**
+     * Retrieves the evaluation counts of every flag, least evaluated first.
+     * 
+     * @param hours The length of the window in hours, 30 days by default and
+     *              one year at most
+     * @return ResponseEntity containing one entry per flag
+     */
+    @GetMapping("/flags")
+    public ResponseEntity<List<FlagUsageResponse>> getFlagUsage(
+            @RequestParam(defaultValue = "720") int hours) {
+        return ResponseEntity.ok(analyticsService.getFlagUsage(Math.max(1, Math.min(hours, MAX_HOURS))));
+    }
+}
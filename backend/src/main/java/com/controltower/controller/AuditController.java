@@ -0,0 +1,56 @@
+package com.controltower.controller;
+
+import com.controltower.dto.FlagAuditPage;
+import com.controltower.service.AuditLogService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * REST controller for the flag audit log.
+ * 
+ * Lists who created, toggled, updated or deleted flags, when, and what the
+ * flags looked like before and after.
+ */
+@RestController
+@RequestMapping("/admin/audit")
+public class AuditController {
+
+    private static final int DEFAULT_DAYS = 7;
+
+    private final AuditLogService auditLogService;
+
+    @Autowired
+    public AuditController(AuditLogService auditLogService) {
+        this.auditLogService = auditLogService;
+    }
+
+    /**
+     * Retrieves one page of the audit log entries made in a time range,
+     * oldest first.
+     * 
+     * @param from   Start of the range, an ISO date-time; seven days before the end by default
+     * @param to     End of the range, exclusive, an ISO date-time; now by default
+     * @param flagId Only entries of this flag
+     * @param actor  Only entries of this user
+     * @param after  The nextCursor of the previous page
+     * @param limit  The page size, 100 by default and 1000 at most
+     * @return ResponseEntity containing the page
+     */
+    @GetMapping
+    public ResponseEntity<FlagAuditPage> getEntries(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(required = false) Long flagId,
+            @RequestParam(required = false) String actor,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int limit) {
+        OffsetDateTime end = to != null ? to : OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime start = from != null ? from : end.minusDays(DEFAULT_DAYS);
+        return ResponseEntity.ok(auditLogService.getEntries(start, end, flagId, actor, after, limit));
+    }
+}
@@ -0,0 +1,88 @@
+package com.controltower.controller;
+
+import com.controltower.dto.EnvironmentFlagResponse;
+import com.controltower.dto.EnvironmentRequest;
+import com.controltower.dto.EnvironmentResponse;
+import com.controltower.service.EnvironmentService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller for environment management.
+ * 
+ * Environments hold their own active state for every flag of their project,
+ * served to public API clients sending the environment's SDK key.
+ */
+@RestController
+@RequestMapping("/admin")
+public class EnvironmentController {
+
+    private final EnvironmentService environmentService;
+
+    @Autowired
+    public EnvironmentController(EnvironmentService environmentService) {
+        this.environmentService = environmentService;
+    }
+
+    /**
+     * Creates a new environment.
+     * 
+     * @param request The environment creation request
+     * @return ResponseEntity containing the created environment and its SDK key
+     */
+    @PostMapping("/environments")
+    public ResponseEntity<EnvironmentResponse> createEnvironment(@Valid @RequestBody EnvironmentRequest request) {
+        EnvironmentResponse response = environmentService.createEnvironment(request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * Retrieves all environments.
+     * 
+     * @return ResponseEntity containing a list of all environments
+     */
+    @GetMapping("/environments")
+    public ResponseEntity<List<EnvironmentResponse>> getAllEnvironments() {
+        return ResponseEntity.ok(environmentService.getAllEnvironments());
+    }
+
+    /**
+     * Deletes an environment by ID.
+     * 
+     * @param id The ID of the environment to delete
+     * @return ResponseEntity with no content
+     */
+    @DeleteMapping("/environments/{id}")
+    public ResponseEntity<Void> deleteEnvironment(@PathVariable Long id) {
+        environmentService.deleteEnvironment(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Retrieves the state of every flag of the project in an environment.
+     * 
+     * @param id The ID of the environment
+     * @return ResponseEntity containing the flags and their state in the environment
+     */
+    @GetMapping("/environments/{id}/flags")
+    public ResponseEntity<List<EnvironmentFlagResponse>> getFlags(@PathVariable Long id) {
+        return ResponseEntity.ok(environmentService.getFlags(id));
+    }
+
+    /**
+     * Toggles the active state of a flag in an environment.
+     * 
+     * @param id     The ID of the environment
+     * @param flagId The ID of the flag to toggle
+     * @return ResponseEntity containing the new state of the flag in the environment
+     */
+    @PatchMapping("/environments/{id}/flags/{flagId}")
+    public ResponseEntity<EnvironmentFlagResponse> toggleFlag(@PathVariable Long id, @PathVariable Long flagId) {
+        return ResponseEntity.ok(environmentService.toggleFlag(id, flagId));
+    }
+}
@@ -0,0 +1,94 @@
+package com.controltower.controller;
+
+import com.controltower.dto.EvaluationRequest;
+import com.controltower.dto.EvaluationResponse;
+import com.controltower.service.BatchEvaluationService;
+import com.controltower.service.EvaluationService;
+import com.controltower.service.FlagService;
+import com.controltower.snapshot.FlagSnapshot;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Controller for the public flag evaluation endpoint.
+ * 
+ * Unlike GET /api/v1/flags/active, which lists flags that are on for
+ * everyone, evaluation applies each flag's targeting rules and percentage
+ * rollouts to a given context.
+ */
+@RestController
+@RequestMapping("/api/v1")
+public class EvaluationController {
+
+    private final EvaluationService evaluationService;
+    private final BatchEvaluationService batchEvaluationService;
+    private final FlagService flagService;
+
+    @Autowired
+    public EvaluationController(EvaluationService evaluationService,
+            BatchEvaluationService batchEvaluationService,
+            FlagService flagService) {
+        this.evaluationService = evaluationService;
+        this.batchEvaluationService = batchEvaluationService;
+        this.flagService = flagService;
+    }
+
+    /**
+     * Evaluates flags for a context, in the environment of the SDK key if one
+     * is given.
+     * 
+     * @param sdkKey  The X-SDK-Key header, if any
+     * @param request The context, and optionally the names of the flags to evaluate
+     * @return ResponseEntity containing the result of each flag
+     */
+    @PostMapping("/evaluate")
+    public ResponseEntity<EvaluationResponse> evaluate(
+            @RequestHeader(value = PublicFlagController.SDK_KEY_HEADER, required = false) String sdkKey,
+            @RequestBody EvaluationRequest request) {
+        EvaluationResponse response = sdkKey != null
+                ? evaluationService.evaluate(flagService.getSnapshot(sdkKey), request)
+                : evaluationService.evaluate(request);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .header(PublicFlagController.VERSION_HEADER, String.valueOf(response.getVersion()));
+        PublicFlagController.addStaleness(builder, flagService.getSnapshotStaleness(sdkKey));
+        return builder.body(response);
+    }
+
+    /**
+     * Evaluates flags for many contexts in one request.
+     * 
+     * The body is either a JSON array of contexts, answered with a JSON
+     * array, or newline-delimited JSON, answered with newline-delimited JSON.
+     * Results are streamed in input order while later contexts are still
+     * being read, and all of them are computed from the snapshot whose
+     * version is sent in the X-Flags-Version header. With an SDK key, the
+     * snapshot of the key's environment is used.
+     * 
+     * @param sdkKey  The X-SDK-Key header, if any
+     * @param request The HTTP request, whose body is read as it is evaluated
+     * @return ResponseEntity streaming one result per context
+     */
+    @PostMapping(value = "/evaluate/batch",
+            consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<StreamingResponseBody> evaluateBatch(
+            @RequestHeader(value = PublicFlagController.SDK_KEY_HEADER, required = false) String sdkKey,
+            HttpServletRequest request) {
+        boolean ndjson = MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()));
+        FlagSnapshot snapshot = flagService.getSnapshot(sdkKey);
+        StreamingResponseBody body = output ->
+                batchEvaluationService.evaluate(snapshot, request.getInputStream(), output, !ndjson);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .header(PublicFlagController.VERSION_HEADER, String.valueOf(snapshot.getVersion()));
+        PublicFlagController.addStaleness(builder, flagService.getSnapshotStaleness(sdkKey));
+        return builder.body(body);
+    }
+}
@@ -1,22 +1,38 @@
 package com.controltower.controller;
 
+import com.controltower.dto.BulkFlagRequest;
+import com.controltower.dto.BulkFlagResponse;
 import com.controltower.dto.CreateFlagRequest;
+import com.controltower.dto.FlagPage;
 import com.controltower.dto.FlagResponse;
+import com.controltower.dto.TargetingRules;
 import com.controltower.dto.UpdateFlagRequest;
+import com.controltower.exception.FlagRevisionMismatchException;
 import com.controltower.service.FlagService;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.util.List;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * REST controller for feature flag management.
  * 
  * This controller handles all HTTP requests related to feature flags,
  * providing endpoints for CRUD operations and flag state management.
+ * 
+ * Single flags are returned with their revision as entity tag. Changes to a
+ * flag accept it back in an If-Match header and are rejected with 412
+ * Precondition Failed if the flag changed in the meantime.
  */
 @RestController
 @RequestMapping("/admin")
@@ -42,37 +58,104 @@ public class FlagController {
     }
 
     /**
-     * Retrieves all feature flags.
+     * Retrieves a feature flag by ID.
      * 
-     * @return ResponseEntity containing a list of all flags
+     * @param id The ID of the flag
+     * @return ResponseEntity containing the flag response, tagged with its revision
+     */
+    @GetMapping("/flags/{id}")
+    public ResponseEntity<FlagResponse> getFlag(@PathVariable Long id) {
+        return tagged(flagService.getFlag(id));
+    }
+
+    /**
+     * Retrieves feature flags in ID order.
+     * 
+     * Without a limit every flag is returned, as before pagination existed.
+     * With one, the body holds a page and a Link header with rel="next"
+     * points to the next page, until the last one.
+     * 
+     * @param after  The cursor of the page, taken from the previous Link header
+     * @param limit  The page size, at most {@value FlagService#MAX_PAGE_SIZE}
+     * @param project Only flags of this project
+     * @param active Only flags in this state
+     * @param prefix Only flags whose name starts with this prefix
+     * @param fields The properties to return, all by default; the ID is always returned
+     * @return ResponseEntity containing the list of flags
      */
     @GetMapping("/flags")
-    public ResponseEntity<List<FlagResponse>> getAllFlags() {
-        List<FlagResponse> flags = flagService.getAllFlags();
-        return ResponseEntity.ok(flags);
+    public ResponseEntity<MappingJacksonValue> getFlags(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String project,
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(required = false) String prefix,
+            @RequestParam(required = false) Set<String> fields) {
+        FlagPage page = flagService.getFlags(after, limit, project, active, prefix, fields);
+
+        MappingJacksonValue body = new MappingJacksonValue(page.getFlags());
+        if (fields != null && !fields.isEmpty()) {
+            Set<String> properties = new HashSet<>(fields);
+            properties.add("id");
+            body.setFilters(new SimpleFilterProvider().addFilter(FlagResponse.FIELDS_FILTER,
+                    SimpleBeanPropertyFilter.filterOutAllExcept(properties)));
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequestUri()
+                    .queryParam("after", page.getNextCursor())
+                    .queryParam("limit", limit)
+                    .queryParamIfPresent("project", Optional.ofNullable(project))
+                    .queryParamIfPresent("active", Optional.ofNullable(active))
+                    .queryParamIfPresent("prefix", Optional.ofNullable(prefix))
+                    .queryParamIfPresent("fields", Optional.ofNullable(fields).map(f -> String.join(",", f)))
+                    .encode()
+                    .build()
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Creates, toggles and deletes several flags in one transaction, published
+     * as a single flag set version.
+     * 
+     * @param request The operations to apply
+     * @return ResponseEntity containing the created and toggled flags and the new version
+     */
+    @PostMapping("/flags/bulk")
+    public ResponseEntity<BulkFlagResponse> applyBulk(@Valid @RequestBody BulkFlagRequest request) {
+        BulkFlagResponse response = flagService.applyBulk(request);
+        return ResponseEntity.ok(response);
     }
 
     /**
      * Toggles the active state of a feature flag.
      * 
-     * @param id The ID of the flag to toggle
+     * @param id      The ID of the flag to toggle
+     * @param ifMatch The revision the flag must be at, if any
      * @return ResponseEntity containing the updated flag response
      */
     @PatchMapping("/flags/{id}")
-    public ResponseEntity<FlagResponse> toggleFlag(@PathVariable Long id) {
-        FlagResponse response = flagService.toggleFlag(id);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<FlagResponse> toggleFlag(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        FlagResponse response = flagService.toggleFlag(id, expectedRevision(ifMatch));
+        return tagged(response);
     }
 
     /**
      * Deletes a feature flag by ID.
      * 
-     * @param id The ID of the flag to delete
+     * @param id      The ID of the flag to delete
+     * @param ifMatch The revision the flag must be at, if any
      * @return ResponseEntity with no content
      */
     @DeleteMapping("/flags/{id}")
-    public ResponseEntity<Void> deleteFlag(@PathVariable Long id) {
-        flagService.deleteFlag(id);
+    public ResponseEntity<Void> deleteFlag(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        flagService.deleteFlag(id, expectedRevision(ifMatch));
         return ResponseEntity.noContent().build();
     }
 
@@ -81,12 +164,73 @@ public class FlagController {
      * 
      * @param id            The ID of the flag to update
      * @param updateRequest The update request containing new values
+     * @param ifMatch       The revision the flag must be at, if any
      * @return ResponseEntity containing the updated flag response
      */
     @PutMapping("/flags/{id}")
     public ResponseEntity<FlagResponse> updateFlag(@PathVariable Long id,
-            @RequestBody UpdateFlagRequest updateRequest) {
-        FlagResponse response = flagService.updateFlag(id, updateRequest);
-        return ResponseEntity.ok(response);
+            @RequestBody UpdateFlagRequest updateRequest,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        FlagResponse response = flagService.updateFlag(id, updateRequest, expectedRevision(ifMatch));
+        return tagged(response);
+    }
+
+    /**
+     * Sets the targeting rules of a feature flag.
+     * 
+     * @param id        The ID of the flag
+     * @param targeting The targeting rules
+     * @param ifMatch   The revision the flag must be at, if any
+     * @return ResponseEntity containing the updated flag response
+     */
+    @PutMapping("/flags/{id}/targeting")
+    public ResponseEntity<FlagResponse> updateTargeting(@PathVariable Long id,
+            @Valid @RequestBody TargetingRules targeting,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        FlagResponse response = flagService.updateTargeting(id, targeting, expectedRevision(ifMatch));
+        return tagged(response);
+    }
+
+    /**
+     * Removes the targeting rules of a feature flag, so that it is on or off
+     * for everyone again.
+     * 
+     * @param id      The ID of the flag
+     * @param ifMatch The revision the flag must be at, if any
+     * @return ResponseEntity containing the updated flag response
+     */
+    @DeleteMapping("/flags/{id}/targeting")
+    public ResponseEntity<FlagResponse> clearTargeting(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        FlagResponse response = flagService.updateTargeting(id, null, expectedRevision(ifMatch));
+        return tagged(response);
+    }
+
+    private static ResponseEntity<FlagResponse> tagged(FlagResponse response) {
+        return ResponseEntity.ok()
+                .eTag("\"" + response.getRevision() + "\"")
+                .body(response);
+    }
+
+    /**
+     * Parses an If-Match header into the revision a flag must be at.
+     * 
+     * @param ifMatch The header value, as sent with an entity tag of this controller
+     * @return The expected revision, or null if any revision will do
+     * @throws FlagRevisionMismatchException if the header cannot match any revision
+     */
+    private static Long expectedRevision(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ex) {
+                // Falls through, not one of our entity tags
+            }
+        }
+        throw new FlagRevisionMismatchException("If-Match does not hold a flag revision: " + ifMatch);
     }
 }
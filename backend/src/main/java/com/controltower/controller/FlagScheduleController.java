@@ -0,0 +1,65 @@
+package com.controltower.controller;
+
+import com.controltower.dto.FlagScheduleRequest;
+import com.controltower.dto.FlagScheduleResponse;
+import com.controltower.service.FlagScheduleService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller for scheduled flag changes, e.g. enabling a flag at 09:00
+ * UTC or disabling it two hours from now.
+ */
+@RestController
+@RequestMapping("/admin")
+public class FlagScheduleController {
+
+    private final FlagScheduleService flagScheduleService;
+
+    @Autowired
+    public FlagScheduleController(FlagScheduleService flagScheduleService) {
+        this.flagScheduleService = flagScheduleService;
+    }
+
+    /**
+     * Schedules a change of a feature flag.
+     * 
+     * @param id      The ID of the flag
+     * @param request The change, and either its time or its delay from now
+     * @return ResponseEntity containing the pending schedule
+     */
+    @PostMapping("/flags/{id}/schedules")
+    public ResponseEntity<FlagScheduleResponse> createSchedule(@PathVariable Long id,
+            @Valid @RequestBody FlagScheduleRequest request) {
+        FlagScheduleResponse response = flagScheduleService.createSchedule(id, request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * Retrieves the schedules of a feature flag, past ones included.
+     * 
+     * @param id The ID of the flag
+     * @return ResponseEntity containing the schedules in execution order
+     */
+    @GetMapping("/flags/{id}/schedules")
+    public ResponseEntity<List<FlagScheduleResponse>> getSchedules(@PathVariable Long id) {
+        return ResponseEntity.ok(flagScheduleService.getSchedules(id));
+    }
+
+    /**
+     * Cancels a pending schedule.
+     * 
+     * @param id The ID of the schedule
+     * @return ResponseEntity with no content
+     */
+    @DeleteMapping("/schedules/{id}")
+    public ResponseEntity<Void> cancelSchedule(@PathVariable Long id) {
+        flagScheduleService.cancelSchedule(id);
+        return ResponseEntity.noContent().build();
+    }
+}
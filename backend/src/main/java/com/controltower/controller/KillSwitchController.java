@@ -0,0 +1,37 @@
+package com.controltower.controller;
+
+import com.controltower.dto.FlagStatusResponse;
+import com.controltower.service.KillSwitchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller for kill switches, turning a misbehaving flag off before
+ * the change is persisted.
+ */
+@RestController
+@RequestMapping("/admin")
+public class KillSwitchController {
+
+    private final KillSwitchService killSwitchService;
+
+    @Autowired
+    public KillSwitchController(KillSwitchService killSwitchService) {
+        this.killSwitchService = killSwitchService;
+    }
+
+    /**
+     * Kills a feature flag of the default project. The flag is served as off
+     * once this returns; it is turned off in the database in the background.
+     *
+     * @param id The ID of the flag
+     * @return ResponseEntity containing the state of the flag now served
+     */
+    @PostMapping("/flags/{id}/kill")
+    public ResponseEntity<FlagStatusResponse> killFlag(@PathVariable Long id) {
+        FlagStatusResponse response = killSwitchService.kill(id);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+}
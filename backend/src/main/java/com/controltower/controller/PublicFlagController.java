@@ -1,11 +1,31 @@
 package com.controltower.controller;
 
+import com.controltower.dto.FlagDeltaResponse;
+import com.controltower.exception.FlagNotFoundException;
+import com.controltower.exception.StreamingUnavailableException;
+import com.controltower.service.FlagChangeLogService;
 import com.controltower.service.FlagService;
+import com.controltower.service.FlagStreamService;
+import com.controltower.snapshot.BinaryFlagSet;
+import com.controltower.snapshot.ContentCoding;
+import com.controltower.snapshot.EncodedPayload;
+import com.controltower.snapshot.FlagSnapshot;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionException;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -19,11 +39,35 @@ import java.util.List;
 @RequestMapping("/api/v1")
 public class PublicFlagController {
 
+    /**
+     * Response header carrying the flag set version a response was built from.
+     */
+    public static final String VERSION_HEADER = "X-Flags-Version";
+
+    /**
+     * Request header selecting the environment whose flags are served. Without
+     * it, the base state of the default project's flags is served.
+     */
+    public static final String SDK_KEY_HEADER = "X-SDK-Key";
+
+    /**
+     * Response header sent while the flags are served from a snapshot that
+     * could not be checked against the database, e.g. during an outage. Its
+     * value is the number of seconds since the snapshot was last known to be
+     * up to date.
+     */
+    public static final String STALE_HEADER = "X-Flags-Stale";
+
     private final FlagService flagService;
+    private final FlagStreamService flagStreamService;
+    private final FlagChangeLogService flagChangeLogService;
 
     @Autowired
-    public PublicFlagController(FlagService flagService) {
+    public PublicFlagController(FlagService flagService, FlagStreamService flagStreamService,
+            FlagChangeLogService flagChangeLogService) {
         this.flagService = flagService;
+        this.flagStreamService = flagStreamService;
+        this.flagChangeLogService = flagChangeLogService;
     }
 
     /**
@@ -31,12 +75,192 @@ public class PublicFlagController {
      * 
      * This endpoint is optimized for performance and should respond in less than 50ms.
      * It returns only the names of active flags, not the complete flag objects.
+     * The JSON body is written from pre-serialized bytes, compressed with the
+     * best coding the client accepts. Clients sending the ETag they already
+     * hold in If-None-Match get 304 Not Modified with an empty body while the
+     * active flags have not changed. The X-Flags-Version header carries the
+     * version to pass to the delta sync endpoint. With an SDK key, the flags
+     * active in the key's environment are returned, under that environment's
+     * version. Without one, the last known flags keep being served while the
+     * database is down, marked with the X-Flags-Stale header.
      * 
-     * @return ResponseEntity containing a list of active flag names
+     * Clients preferring {@value BinaryFlagSet#MEDIA_TYPE_VALUE} in Accept get
+     * every flag name with its active state in the compact
+     * {@link BinaryFlagSet} format instead, under its own ETags.
+     * 
+     * @param sdkKey         The X-SDK-Key header, if any
+     * @param accept         The Accept header, if any
+     * @param acceptEncoding The Accept-Encoding header, if any
+     * @param ifNoneMatch    The If-None-Match header, if any
+     * @param servletResponse The response, for the Vary header
+     * @return ResponseEntity containing a JSON array of active flag names
      */
     @GetMapping("/flags/active")
-    public ResponseEntity<List<String>> getActiveFlags() {
-        List<String> activeFlagNames = flagService.getActiveFlagNames();
-        return ResponseEntity.ok(activeFlagNames);
+    public ResponseEntity<byte[]> getActiveFlags(
+            @RequestHeader(value = SDK_KEY_HEADER, required = false) String sdkKey,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletResponse servletResponse) {
+        FlagSnapshot snapshot = flagService.getSnapshot(sdkKey);
+        // Added on its own, as the entity's Vary values are merged into a single header
+        servletResponse.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (BinaryFlagSet.isPreferred(accept)) {
+            return serve(snapshot, snapshot.getBinaryFlagsPayload(), BinaryFlagSet.MEDIA_TYPE, sdkKey,
+                    acceptEncoding, ifNoneMatch);
+        }
+        return serve(snapshot, snapshot.getActiveFlagsPayload(), MediaType.APPLICATION_JSON, sdkKey,
+                acceptEncoding, ifNoneMatch);
+    }
+
+    /**
+     * Gets the state of a single flag, as {"name": ..., "active": ...}.
+     * 
+     * The body is pre-serialized in the snapshot and found through its name
+     * index, without touching the database. Its ETag only changes when the
+     * flag does, so clients and caches can revalidate each flag separately
+     * with If-None-Match. Flags named like the other endpoints under
+     * /flags, e.g. "active", are looked up with the multi-get endpoint.
+     * 
+     * @param sdkKey      The X-SDK-Key header, if any
+     * @param name        The flag name
+     * @param ifNoneMatch The If-None-Match header, if any
+     * @return ResponseEntity containing the flag state
+     */
+    @GetMapping("/flags/{name}")
+    public ResponseEntity<byte[]> getFlag(
+            @RequestHeader(value = SDK_KEY_HEADER, required = false) String sdkKey,
+            @PathVariable String name,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        FlagSnapshot snapshot = flagService.getSnapshot(sdkKey);
+        EncodedPayload payload = snapshot.getStatusPayload(name);
+        if (payload == null) {
+            throw new FlagNotFoundException("Flag not found with name: " + name);
+        }
+        return serve(snapshot, payload, MediaType.APPLICATION_JSON, sdkKey, null, ifNoneMatch);
+    }
+
+    /**
+     * Gets the state of several flags, as a JSON array of the objects
+     * returned for a single flag, in the order requested. Names repeated are
+     * listed once; names that match no flag are left out.
+     * 
+     * @param sdkKey      The X-SDK-Key header, if any
+     * @param names       The flag names, comma-separated or repeated
+     * @param ifNoneMatch The If-None-Match header, if any
+     * @return ResponseEntity containing the flag states
+     */
+    @GetMapping("/flags")
+    public ResponseEntity<byte[]> getFlags(
+            @RequestHeader(value = SDK_KEY_HEADER, required = false) String sdkKey,
+            @RequestParam List<String> names,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        FlagSnapshot snapshot = flagService.getSnapshot(sdkKey);
+        return serve(snapshot, snapshot.getStatusesPayload(names), MediaType.APPLICATION_JSON, sdkKey, null,
+                ifNoneMatch);
+    }
+
+    private ResponseEntity<byte[]> serve(FlagSnapshot snapshot, EncodedPayload payload, MediaType contentType,
+            String sdkKey, String acceptEncoding, String ifNoneMatch) {
+        ContentCoding coding = payload.negotiate(acceptEncoding);
+        boolean notModified = payload.matches(ifNoneMatch);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .eTag(payload.entityTag(coding))
+                .cacheControl(CacheControl.noCache())
+                .varyBy(sdkKey != null
+                        ? new String[] {HttpHeaders.ACCEPT_ENCODING, SDK_KEY_HEADER}
+                        : new String[] {HttpHeaders.ACCEPT_ENCODING})
+                .header(VERSION_HEADER, String.valueOf(snapshot.getVersion()));
+        addStaleness(response, flagService.getSnapshotStaleness(sdkKey));
+        if (notModified) {
+            return response.build();
+        }
+
+        response.contentType(contentType);
+        if (coding != ContentCoding.IDENTITY) {
+            response.header(HttpHeaders.CONTENT_ENCODING, coding.getToken());
+        }
+        return response.body(payload.bytes(coding));
+    }
+
+    /**
+     * Gets the changes to the active flags since a version.
+     * 
+     * The response lists the names that became active and the ones that are
+     * no longer active, so its size depends on the change rate rather than on
+     * the number of flags. Clients too far behind get every active flag name
+     * instead, flagged as a full response.
+     * 
+     * Only the default flags have a change log; with an SDK key, the full
+     * list of the environment is returned unless the client is up to date.
+     * The same goes for the default flags while the change log cannot be
+     * read, the list then coming from the last known snapshot.
+     * 
+     * @param sdkKey The X-SDK-Key header, if any
+     * @param since  The version the client holds
+     * @return ResponseEntity containing the delta or the full list
+     */
+    @GetMapping("/flags/changes")
+    public ResponseEntity<FlagDeltaResponse> getChangesSince(
+            @RequestHeader(value = SDK_KEY_HEADER, required = false) String sdkKey,
+            @RequestParam long since) {
+        FlagDeltaResponse delta;
+        if (sdkKey == null) {
+            try {
+                delta = flagChangeLogService.getChangesSince(since);
+            } catch (DataAccessException | TransactionException ex) {
+                delta = fullOrEmpty(flagService.getCurrentSnapshot(), since);
+            }
+        } else {
+            delta = fullOrEmpty(flagService.getSnapshot(sdkKey), since);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache());
+        addStaleness(response, flagService.getSnapshotStaleness(sdkKey));
+        return response.body(delta);
+    }
+
+    /**
+     * Streams flag changes as Server-Sent Events.
+     * 
+     * The stream starts with a "snapshot" event holding the active flag names,
+     * followed by "created", "toggled", "renamed" and "deleted" events as flags
+     * change. Event IDs are snapshot versions; a client reconnecting with
+     * Last-Event-ID only receives the events it missed.
+     * 
+     * Streams carry the default flags only; requests with an SDK key are
+     * rejected, so environment clients poll the other endpoints instead.
+     * 
+     * @param sdkKey      The X-SDK-Key header, if any
+     * @param lastEventId The Last-Event-ID header, if any
+     * @return The event stream
+     */
+    @GetMapping(path = "/flags/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFlags(
+            @RequestHeader(value = SDK_KEY_HEADER, required = false) String sdkKey,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        if (sdkKey != null) {
+            throw new StreamingUnavailableException("Flag streams are not available per environment");
+        }
+        return flagStreamService.subscribe(lastEventId);
+    }
+
+    /**
+     * Marks a response as built from a stale snapshot, if it is.
+     * 
+     * @param response  The response being built
+     * @param staleness The staleness of the snapshot in seconds, -1 if up to date
+     */
+    static void addStaleness(ResponseEntity.HeadersBuilder<?> response, long staleness) {
+        if (staleness >= 0) {
+            response.header(STALE_HEADER, String.valueOf(staleness));
+        }
+    }
+
+    private static FlagDeltaResponse fullOrEmpty(FlagSnapshot snapshot, long since) {
+        return since == snapshot.getVersion()
+                ? FlagDeltaResponse.delta(since, List.of(), List.of())
+                : FlagDeltaResponse.full(snapshot.getVersion(), snapshot.getActiveFlagNames());
     }
 }
@@ -0,0 +1,77 @@
+package com.controltower.controller;
+
+import com.controltower.dto.SegmentRequest;
+import com.controltower.dto.SegmentResponse;
+import com.controltower.service.SegmentService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller for segment management.
+ * 
+ * Segments are reusable groups of contexts referenced by flag targeting
+ * rules.
+ */
+@RestController
+@RequestMapping("/admin")
+public class SegmentController {
+
+    private final SegmentService segmentService;
+
+    @Autowired
+    public SegmentController(SegmentService segmentService) {
+        this.segmentService = segmentService;
+    }
+
+    /**
+     * Creates a new segment.
+     * 
+     * @param request The segment creation request
+     * @return ResponseEntity containing the created segment response
+     */
+    @PostMapping("/segments")
+    public ResponseEntity<SegmentResponse> createSegment(@Valid @RequestBody SegmentRequest request) {
+        SegmentResponse response = segmentService.createSegment(request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    /**
+     * Retrieves all segments.
+     * 
+     * @return ResponseEntity containing a list of all segments
+     */
+    @GetMapping("/segments")
+    public ResponseEntity<List<SegmentResponse>> getAllSegments() {
+        return ResponseEntity.ok(segmentService.getAllSegments());
+    }
+
+    /**
+     * Updates a segment.
+     * 
+     * @param id      The ID of the segment to update
+     * @param request The update request
+     * @return ResponseEntity containing the updated segment response
+     */
+    @PutMapping("/segments/{id}")
+    public ResponseEntity<SegmentResponse> updateSegment(@PathVariable Long id,
+            @Valid @RequestBody SegmentRequest request) {
+        return ResponseEntity.ok(segmentService.updateSegment(id, request));
+    }
+
+    /**
+     * Deletes a segment by ID.
+     * 
+     * @param id The ID of the segment to delete
+     * @return ResponseEntity with no content
+     */
+    @DeleteMapping("/segments/{id}")
+    public ResponseEntity<Void> deleteSegment(@PathVariable Long id) {
+        segmentService.deleteSegment(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,314 @@
+package com.controltower.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * DataSource sending read-only transactions to PostgreSQL streaming replicas
+ * and everything else to the primary.
+ *
+ * Replicas are checked periodically. A replica is only used while it
+ * answers, is still in recovery, lags the primary by at most the configured
+ * time and has replayed the last write of the client. A replica that
+ * cannot be connected to is set aside until its next successful check. When
+ * no replica qualifies, the transaction runs on the primary.
+ *
+ * The last write of a client is the WAL position of the primary right after
+ * a read-write transaction committed. It is returned in the
+ * {@value #WRITE_POSITION_HEADER} response header of the request that made
+ * it; a client sending it back in the same request header, on any node and
+ * authenticated or not, only reads from replicas that replayed it. Without
+ * the header, the writes of an authenticated user are also remembered by
+ * user name, on this node only, so anonymous clients not sending it back and
+ * users moving between nodes do not get read-your-writes.
+ *
+ * Transactions are only known to be read-only once they began, so this must
+ * be used behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    /**
+     * Header carrying the WAL position of the last write of a client, e.g.
+     * "16/B374D848": set on the response of a write, sent back on reads.
+     */
+    public static final String WRITE_POSITION_HEADER = "X-Write-Position";
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicaRoutingDataSource.class);
+
+    private static final String CURRENT_POSITION = "SELECT pg_current_wal_lsn()::text";
+    // The replay timestamp is the commit time of the last replayed transaction:
+    // how far a replica behind the primary lags, whether it is still receiving or not
+    private static final String REPLICA_STATUS = "SELECT pg_is_in_recovery(), pg_last_wal_replay_lsn()::text,"
+            + " EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000";
+
+    private static final ThreadLocal<Boolean> primaryOnly = new ThreadLocal<>();
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final Map<String, Long> lastWritePositions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    /**
+     * Creates a routing data source.
+     *
+     * @param primary      The pool of the primary
+     * @param replicas     The pools of the replicas; closed along with this data source
+     * @param maxLagMillis The replication lag above which a replica is not used
+     */
+    public ReadReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+            long maxLagMillis) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    /**
+     * Runs work whose read-only transactions must see the latest committed
+     * state, such as snapshot rebuilds, on the primary.
+     *
+     * @param work The work, starting its own transactions
+     * @return The result of the work
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        Boolean previous = primaryOnly.get();
+        primaryOnly.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                primaryOnly.remove();
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            trackWritePosition();
+            return primary.getConnection();
+        }
+        Replica replica = primaryOnly.get() == null ? chooseReplica() : null;
+        if (replica != null) {
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException ex) {
+                replica.markUnhealthy(ex.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // The pool only holds connections of its own credentials
+        return DriverManager.getConnection(primary.getJdbcUrl(), username, password);
+    }
+
+    /**
+     * Refreshes the status of every replica, and forgets the writes every
+     * replica has replayed.
+     */
+    @Scheduled(fixedDelayString = "${controltower.replicas.health-check-interval:1000}")
+    public void checkReplicas() {
+        long primaryPosition = currentPosition();
+        long replayed = Long.MAX_VALUE;
+        for (Replica replica : replicas) {
+            replica.check(primaryPosition);
+            replayed = Math.min(replayed, replica.replayPosition);
+        }
+        long allReplayed = replayed;
+        lastWritePositions.values().removeIf(position -> position <= allReplayed);
+    }
+
+    @Override
+    public void close() {
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+    }
+
+    private Replica chooseReplica() {
+        String client = currentClient();
+        long required = Math.max(client != null ? lastWritePositions.getOrDefault(client, 0L) : 0L,
+                requestedPosition());
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy && replica.lagMillis <= maxLagMillis && replica.replayPosition >= required) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private void trackWritePosition() {
+        String client = currentClient();
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if ((client == null && !(request instanceof ServletRequestAttributes))
+                || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void afterCommit() {
+                long position = currentPosition();
+                if (client != null) {
+                    lastWritePositions.merge(client, position, Math::max);
+                }
+                // Committed before the handler returns, so the response is not written yet
+                if (request instanceof ServletRequestAttributes servletRequest
+                        && servletRequest.getResponse() != null && position != Long.MAX_VALUE) {
+                    servletRequest.getResponse().setHeader(WRITE_POSITION_HEADER, formatPosition(position));
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ReadReplicaRoutingDataSource.this);
+            }
+        });
+    }
+
+    private long currentPosition() {
+        try (Connection connection = primary.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet result = statement.executeQuery(CURRENT_POSITION)) {
+            result.next();
+            return parsePosition(result.getString(1));
+        } catch (SQLException ex) {
+            // Unknown, so the reads of the client stay on the primary
+            log.warn("Could not read the WAL position of the primary: {}", ex.getMessage());
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static long requestedPosition() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes request)) {
+            return 0L;
+        }
+        String position = request.getRequest().getHeader(WRITE_POSITION_HEADER);
+        if (position == null) {
+            return 0L;
+        }
+        try {
+            return parsePosition(position.trim());
+        } catch (RuntimeException ex) {
+            log.debug("Ignored malformed {} header: {}", WRITE_POSITION_HEADER, position);
+            return 0L;
+        }
+    }
+
+    private static String currentClient() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * Parses a PostgreSQL log sequence number, e.g. "16/B374D848".
+     */
+    static long parsePosition(String lsn) {
+        int slash = lsn.indexOf('/');
+        return (Long.parseLong(lsn.substring(0, slash), 16) << 32) | Long.parseLong(lsn.substring(slash + 1), 16);
+    }
+
+    /**
+     * Formats a log sequence number the way PostgreSQL does.
+     */
+    static String formatPosition(long position) {
+        return Long.toHexString(position >>> 32).toUpperCase() + "/" + Long.toHexString(position & 0xFFFFFFFFL).toUpperCase();
+    }
+
+    /**
+     * A replica and its status as of its last check.
+     */
+    private static final class Replica {
+
+        private final HikariDataSource dataSource;
+        private volatile boolean healthy;
+        private volatile long replayPosition;
+        private volatile double lagMillis = Double.MAX_VALUE;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        /**
+         * Checks the replica. It does not lag when it replayed the position
+         * the primary had before the check; otherwise its lag is the age of
+         * the last transaction it replayed, so a replica no longer receiving
+         * anything from an advancing primary is seen lagging more and more.
+         *
+         * @param primaryPosition The current WAL position of the primary,
+         *                        or Long.MAX_VALUE when unknown
+         */
+        private void check(long primaryPosition) {
+            try (Connection connection = dataSource.getConnection();
+                    Statement statement = connection.createStatement();
+                    ResultSet result = statement.executeQuery(REPLICA_STATUS)) {
+                result.next();
+                boolean inRecovery = result.getBoolean(1);
+                String position = result.getString(2);
+                double lag = result.getDouble(3);
+                boolean lagKnown = !result.wasNull();
+                if (!inRecovery || position == null) {
+                    // Promoted, or not a replica at all: its data may diverge
+                    markUnhealthy("not in recovery");
+                    return;
+                }
+                replayPosition = parsePosition(position);
+                if (replayPosition >= primaryPosition) {
+                    lagMillis = 0;
+                } else {
+                    // Nothing replayed yet since it started counts as lagging
+                    lagMillis = lagKnown ? lag : Double.MAX_VALUE;
+                }
+                if (!healthy) {
+                    log.info("Replica {} is available", dataSource.getJdbcUrl());
+                }
+                healthy = true;
+            } catch (SQLException ex) {
+                markUnhealthy(ex.getMessage());
+            }
+        }
+
+        private void markUnhealthy(String reason) {
+            if (healthy) {
+                log.warn("Replica {} is not used until its next successful check: {}",
+                        dataSource.getJdbcUrl(), reason);
+            }
+            healthy = false;
+        }
+    }
+}
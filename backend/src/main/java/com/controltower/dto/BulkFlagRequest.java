@@ -0,0 +1,60 @@
+package com.controltower.dto;
+
+import jakarta.validation.Valid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for applying several flag operations at once.
+ * 
+ * This DTO represents the request payload for the POST /admin/flags/bulk
+ * endpoint. All operations are applied in one transaction and published as
+ * one flag set version; a flag ID may appear in only one of the lists.
+ */
+public class BulkFlagRequest {
+
+    @Valid
+    private List<CreateFlagRequest> create = new ArrayList<>();
+
+    private List<Long> toggle = new ArrayList<>();
+
+    private List<Long> delete = new ArrayList<>();
+
+    // Default constructor for JSON deserialization
+    public BulkFlagRequest() {
+    }
+
+    public List<CreateFlagRequest> getCreate() {
+        return create;
+    }
+
+    public void setCreate(List<CreateFlagRequest> create) {
+        this.create = create != null ? create : new ArrayList<>();
+    }
+
+    public List<Long> getToggle() {
+        return toggle;
+    }
+
+    public void setToggle(List<Long> toggle) {
+        this.toggle = toggle != null ? toggle : new ArrayList<>();
+    }
+
+    public List<Long> getDelete() {
+        return delete;
+    }
+
+    public void setDelete(List<Long> delete) {
+        this.delete = delete != null ? delete : new ArrayList<>();
+    }
+
+    @Override
+    public String toString() {
+        return "BulkFlagRequest{" +
+                "create=" + create.size() +
+                ", toggle=" + toggle.size() +
+                ", delete=" + delete.size() +
+                '}';
+    }
+}
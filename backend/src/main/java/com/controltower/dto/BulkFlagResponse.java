@@ -0,0 +1,73 @@
+package com.controltower.dto;
+
+import java.util.List;
+
+/**
+ * DTO for the result of a bulk flag operation.
+ */
+public class BulkFlagResponse {
+
+    private long version;
+    private List<FlagResponse> created;
+    private List<FlagResponse> toggled;
+    private List<Long> deleted;
+
+    // Default constructor for JSON serialization
+    public BulkFlagResponse() {
+    }
+
+    public BulkFlagResponse(long version, List<FlagResponse> created, List<FlagResponse> toggled,
+                            List<Long> deleted) {
+        this.version = version;
+        this.created = created;
+        this.toggled = toggled;
+        this.deleted = deleted;
+    }
+
+    /**
+     * Gets the flag set version all operations were committed with.
+     * 
+     * @return The version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public List<FlagResponse> getCreated() {
+        return created;
+    }
+
+    public void setCreated(List<FlagResponse> created) {
+        this.created = created;
+    }
+
+    public List<FlagResponse> getToggled() {
+        return toggled;
+    }
+
+    public void setToggled(List<FlagResponse> toggled) {
+        this.toggled = toggled;
+    }
+
+    public List<Long> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<Long> deleted) {
+        this.deleted = deleted;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkFlagResponse{" +
+                "version=" + version +
+                ", created=" + created.size() +
+                ", toggled=" + toggled.size() +
+                ", deleted=" + deleted.size() +
+                '}';
+    }
+}
@@ -1,6 +1,7 @@
 package com.controltower.dto;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
 /**
@@ -18,6 +19,10 @@ public class CreateFlagRequest {
     @Size(max = 255, message = "Description must have at most 255 characters")
     private String description;
 
+    @Size(max = 50, message = "Project must have at most 50 characters")
+    @Pattern(regexp = "[a-z0-9][a-z0-9_-]*", message = "Project must be lowercase letters, digits, '-' or '_'")
+    private String project;
+
     // Default constructor for JSON deserialization
     public CreateFlagRequest() {
     }
@@ -43,11 +48,25 @@ public class CreateFlagRequest {
         this.description = description;
     }
 
+    /**
+     * Gets the project of the flag.
+     * 
+     * @return The project key, or null for the default project
+     */
+    public String getProject() {
+        return project;
+    }
+
+    public void setProject(String project) {
+        this.project = project;
+    }
+
     @Override
     public String toString() {
         return "CreateFlagRequest{" +
                 "name='" + name + '\'' +
                 ", description='" + description + '\'' +
+                ", project='" + project + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,54 @@
+package com.controltower.dto;
+
+/**
+ * DTO for the state of a flag in an environment.
+ */
+public class EnvironmentFlagResponse {
+
+    private Long id;
+    private String name;
+    private Boolean isActive;
+
+    // Default constructor for JSON serialization
+    public EnvironmentFlagResponse() {
+    }
+
+    public EnvironmentFlagResponse(Long id, String name, Boolean isActive) {
+        this.id = id;
+        this.name = name;
+        this.isActive = isActive;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Boolean getIsActive() {
+        return isActive;
+    }
+
+    public void setIsActive(Boolean isActive) {
+        this.isActive = isActive;
+    }
+
+    @Override
+    public String toString() {
+        return "EnvironmentFlagResponse{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", isActive=" + isActive +
+                '}';
+    }
+}
@@ -0,0 +1,74 @@
+package com.controltower.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+/**
+ * DTO for creating an environment.
+ * 
+ * An environment belongs to a project and is identified by a key unique
+ * within it, e.g. "staging" or "production". Its SDK key is generated.
+ */
+public class EnvironmentRequest {
+
+    @Size(max = 50, message = "Project must have at most 50 characters")
+    @Pattern(regexp = "[a-z0-9][a-z0-9_-]*", message = "Project must be lowercase letters, digits, '-' or '_'")
+    private String project;
+
+    @NotBlank(message = "Environment key is required")
+    @Size(max = 50, message = "Environment key must have at most 50 characters")
+    @Pattern(regexp = "[a-z0-9][a-z0-9_-]*", message = "Environment key must be lowercase letters, digits, '-' or '_'")
+    private String key;
+
+    @Size(max = 100, message = "Environment name must have at most 100 characters")
+    private String name;
+
+    // Default constructor for JSON deserialization
+    public EnvironmentRequest() {
+    }
+
+    public EnvironmentRequest(String project, String key, String name) {
+        this.project = project;
+        this.key = key;
+        this.name = name;
+    }
+
+    /**
+     * Gets the project of the environment.
+     * 
+     * @return The project key, or null for the default project
+     */
+    public String getProject() {
+        return project;
+    }
+
+    public void setProject(String project) {
+        this.project = project;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return "EnvironmentRequest{" +
+                "project='" + project + '\'' +
+                ", key='" + key + '\'' +
+                ", name='" + name + '\'' +
+                '}';
+    }
+}
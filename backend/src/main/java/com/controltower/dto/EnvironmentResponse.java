@@ -0,0 +1,102 @@
+package com.controltower.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * DTO for environment responses.
+ * 
+ * The SDK key is what public API clients send in the X-SDK-Key header to be
+ * served this environment's flags.
+ */
+public class EnvironmentResponse {
+
+    private Long id;
+    private String project;
+    private String key;
+    private String name;
+    private String sdkKey;
+    private Long version;
+    private OffsetDateTime createdAt;
+
+    // Default constructor for JSON serialization
+    public EnvironmentResponse() {
+    }
+
+    public EnvironmentResponse(Long id, String project, String key, String name, String sdkKey, Long version, OffsetDateTime createdAt) {
+        this.id = id;
+        this.project = project;
+        this.key = key;
+        this.name = name;
+        this.sdkKey = sdkKey;
+        this.version = version;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getProject() {
+        return project;
+    }
+
+    public void setProject(String project) {
+        this.project = project;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getSdkKey() {
+        return sdkKey;
+    }
+
+    public void setSdkKey(String sdkKey) {
+        this.sdkKey = sdkKey;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(OffsetDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "EnvironmentResponse{" +
+                "id=" + id +
+                ", project='" + project + '\'' +
+                ", key='" + key + '\'' +
+                ", name='" + name + '\'' +
+                ", version=" + version +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
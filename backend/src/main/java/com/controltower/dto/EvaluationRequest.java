@@ -0,0 +1,65 @@
+package com.controltower.dto;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO for the request payload of the POST /api/v1/evaluate endpoint.
+ * 
+ * It describes the context flags are evaluated for: a stable key, usually a
+ * user ID, and free-form string attributes used by targeting rules.
+ */
+public class EvaluationRequest {
+
+    private String key;
+    private Map<String, String> attributes = new HashMap<>();
+    private List<String> flags;
+
+    // Default constructor for JSON deserialization
+    public EvaluationRequest() {
+    }
+
+    public EvaluationRequest(String key, Map<String, String> attributes) {
+        this.key = key;
+        this.attributes = attributes;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(Map<String, String> attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * Gets the names of the flags to evaluate.
+     * 
+     * @return The flag names, or null to evaluate every flag
+     */
+    public List<String> getFlags() {
+        return flags;
+    }
+
+    public void setFlags(List<String> flags) {
+        this.flags = flags;
+    }
+
+    @Override
+    public String toString() {
+        return "EvaluationRequest{" +
+                "key='" + key + '\'' +
+                ", attributes=" + attributes +
+                ", flags=" + flags +
+                '}';
+    }
+}
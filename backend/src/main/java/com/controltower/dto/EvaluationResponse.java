@@ -0,0 +1,48 @@
+package com.controltower.dto;
+
+import java.util.Map;
+
+/**
+ * DTO for the response of the POST /api/v1/evaluate endpoint.
+ * 
+ * It maps each evaluated flag name to its result for the context, along with
+ * the flag set version the results were computed from.
+ */
+public class EvaluationResponse {
+
+    private long version;
+    private Map<String, Boolean> flags;
+
+    // Default constructor for JSON serialization
+    public EvaluationResponse() {
+    }
+
+    public EvaluationResponse(long version, Map<String, Boolean> flags) {
+        this.version = version;
+        this.flags = flags;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public Map<String, Boolean> getFlags() {
+        return flags;
+    }
+
+    public void setFlags(Map<String, Boolean> flags) {
+        this.flags = flags;
+    }
+
+    @Override
+    public String toString() {
+        return "EvaluationResponse{" +
+                "version=" + version +
+                ", flags=" + flags +
+                '}';
+    }
+}
@@ -0,0 +1,132 @@
+package com.controltower.dto;
+
+import com.controltower.entity.FlagChangeEntry.ChangeType;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.OffsetDateTime;
+
+/**
+ * DTO for one entry of the flag audit log.
+ */
+public class FlagAuditEntryResponse {
+
+    private Long id;
+    private OffsetDateTime occurredAt;
+    private String actor;
+    private ChangeType action;
+    private Long flagId;
+    private String flagName;
+    private Long version;
+    private JsonNode before;
+    private JsonNode after;
+
+    // Default constructor for JSON serialization
+    public FlagAuditEntryResponse() {
+    }
+
+    public FlagAuditEntryResponse(Long id, OffsetDateTime occurredAt, String actor, ChangeType action, Long flagId,
+            String flagName, Long version, JsonNode before, JsonNode after) {
+        this.id = id;
+        this.occurredAt = occurredAt;
+        this.actor = actor;
+        this.action = action;
+        this.flagId = flagId;
+        this.flagName = flagName;
+        this.version = version;
+        this.before = before;
+        this.after = after;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public OffsetDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(OffsetDateTime occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+
+    public String getActor() {
+        return actor;
+    }
+
+    public void setActor(String actor) {
+        this.actor = actor;
+    }
+
+    public ChangeType getAction() {
+        return action;
+    }
+
+    public void setAction(ChangeType action) {
+        this.action = action;
+    }
+
+    public Long getFlagId() {
+        return flagId;
+    }
+
+    public void setFlagId(Long flagId) {
+        this.flagId = flagId;
+    }
+
+    public String getFlagName() {
+        return flagName;
+    }
+
+    public void setFlagName(String flagName) {
+        this.flagName = flagName;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * Gets the flag before the change.
+     *
+     * @return The flag state, or null if the flag was created
+     */
+    public JsonNode getBefore() {
+        return before;
+    }
+
+    public void setBefore(JsonNode before) {
+        this.before = before;
+    }
+
+    /**
+     * Gets the flag after the change.
+     *
+     * @return The flag state, or null if the flag was deleted
+     */
+    public JsonNode getAfter() {
+        return after;
+    }
+
+    public void setAfter(JsonNode after) {
+        this.after = after;
+    }
+
+    @Override
+    public String toString() {
+        return "FlagAuditEntryResponse{" +
+                "id=" + id +
+                ", occurredAt=" + occurredAt +
+                ", actor='" + actor + '\'' +
+                ", action=" + action +
+                ", flagId=" + flagId +
+                '}';
+    }
+}
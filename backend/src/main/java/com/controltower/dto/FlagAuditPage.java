@@ -0,0 +1,51 @@
+package com.controltower.dto;
+
+import java.util.List;
+
+/**
+ * One page of a flag audit log query.
+ */
+public class FlagAuditPage {
+
+    private List<FlagAuditEntryResponse> entries;
+    private String nextCursor;
+
+    // Default constructor for JSON serialization
+    public FlagAuditPage() {
+    }
+
+    public FlagAuditPage(List<FlagAuditEntryResponse> entries, String nextCursor) {
+        this.entries = entries;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<FlagAuditEntryResponse> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<FlagAuditEntryResponse> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Gets the cursor of the next page, which identifies the last entry of
+     * this one.
+     *
+     * @return The cursor, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    @Override
+    public String toString() {
+        return "FlagAuditPage{" +
+                "entries=" + entries.size() +
+                ", nextCursor=" + nextCursor +
+                '}';
+    }
+}
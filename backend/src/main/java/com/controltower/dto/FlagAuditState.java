@@ -0,0 +1,70 @@
+package com.controltower.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+/**
+ * DTO for the state of a flag before or after a change, as stored in the
+ * audit log.
+ *
+ * The targeting rules are kept as the JSON text stored with the flag, so
+ * recording a change never parses them.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"name", "project", "isActive", "description", "targeting"})
+public class FlagAuditState {
+
+    private final String name;
+    private final String project;
+    private final Boolean isActive;
+    private final String description;
+    private final String targeting;
+
+    public FlagAuditState(String name, String project, Boolean isActive, String description, String targeting) {
+        this.name = name;
+        this.project = project;
+        this.isActive = isActive;
+        this.description = description;
+        this.targeting = targeting;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getProject() {
+        return project;
+    }
+
+    public Boolean getIsActive() {
+        return isActive;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @JsonRawValue
+    public String getTargeting() {
+        return targeting;
+    }
+
+    /**
+     * Gets the same state with the opposite active state.
+     *
+     * @return The toggled state
+     */
+    public FlagAuditState toggled() {
+        return new FlagAuditState(name, project, !isActive, description, targeting);
+    }
+
+    @Override
+    public String toString() {
+        return "FlagAuditState{" +
+                "name='" + name + '\'' +
+                ", project='" + project + '\'' +
+                ", isActive=" + isActive +
+                '}';
+    }
+}
@@ -0,0 +1,111 @@
+package com.controltower.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * DTO for the response of the delta sync endpoint.
+ * 
+ * A delta lists the flag names that became active and the ones that stopped
+ * being active since the client's version; clients apply removals first,
+ * then additions. When the requested version is no longer covered by the
+ * change log, a full response carrying every active flag name is returned
+ * instead.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FlagDeltaResponse {
+
+    private long version;
+    private boolean full;
+    private List<String> active;
+    private List<String> added;
+    private List<String> removed;
+
+    // Default constructor for JSON serialization
+    public FlagDeltaResponse() {
+    }
+
+    /**
+     * Creates a response holding the net changes since a version.
+     * 
+     * @param version The version the client is at after applying the delta
+     * @param added   Names that became active
+     * @param removed Names that are no longer active
+     * @return The delta response
+     */
+    public static FlagDeltaResponse delta(long version, List<String> added, List<String> removed) {
+        FlagDeltaResponse response = new FlagDeltaResponse();
+        response.version = version;
+        response.full = false;
+        response.added = added;
+        response.removed = removed;
+        return response;
+    }
+
+    /**
+     * Creates a response holding every active flag name.
+     * 
+     * @param version The version of the active flag names
+     * @param active  All active flag names
+     * @return The full response
+     */
+    public static FlagDeltaResponse full(long version, List<String> active) {
+        FlagDeltaResponse response = new FlagDeltaResponse();
+        response.version = version;
+        response.full = true;
+        response.active = active;
+        return response;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public void setFull(boolean full) {
+        this.full = full;
+    }
+
+    public List<String> getActive() {
+        return active;
+    }
+
+    public void setActive(List<String> active) {
+        this.active = active;
+    }
+
+    public List<String> getAdded() {
+        return added;
+    }
+
+    public void setAdded(List<String> added) {
+        this.added = added;
+    }
+
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public void setRemoved(List<String> removed) {
+        this.removed = removed;
+    }
+
+    @Override
+    public String toString() {
+        return "FlagDeltaResponse{" +
+                "version=" + version +
+                ", full=" + full +
+                ", active=" + active +
+                ", added=" + added +
+                ", removed=" + removed +
+                '}';
+    }
+}
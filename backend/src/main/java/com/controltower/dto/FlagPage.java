@@ -0,0 +1,50 @@
+package com.controltower.dto;
+
+import java.util.List;
+
+/**
+ * One page of a flag listing.
+ */
+public class FlagPage {
+
+    private List<FlagResponse> flags;
+    private Long nextCursor;
+
+    // Default constructor for JSON serialization
+    public FlagPage() {
+    }
+
+    public FlagPage(List<FlagResponse> flags, Long nextCursor) {
+        this.flags = flags;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<FlagResponse> getFlags() {
+        return flags;
+    }
+
+    public void setFlags(List<FlagResponse> flags) {
+        this.flags = flags;
+    }
+
+    /**
+     * Gets the cursor of the next page, the ID of the last flag of this one.
+     * 
+     * @return The cursor, or null if this is the last page
+     */
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    @Override
+    public String toString() {
+        return "FlagPage{" +
+                "flags=" + flags.size() +
+                ", nextCursor=" + nextCursor +
+                '}';
+    }
+}
@@ -1,5 +1,7 @@
 package com.controltower.dto;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
+
 import java.time.OffsetDateTime;
 
 /**
@@ -7,16 +9,28 @@ import java.time.OffsetDateTime;
  * 
  * This DTO represents the response payload for feature flag operations.
  * It contains all the information about a feature flag that should be
- * exposed to API consumers.
+ * exposed to API consumers. Listings can return a subset of the properties
+ * through the {@value #FIELDS_FILTER} filter; everywhere else every property
+ * is written.
  */
+@JsonFilter(FlagResponse.FIELDS_FILTER)
 public class FlagResponse {
 
+    /**
+     * Name of the Jackson filter selecting the properties written.
+     */
+    public static final String FIELDS_FILTER = "flagFields";
+
+
     private Long id;
     private String name;
+    private String project;
     private Boolean isActive;
     private String description;
+    private TargetingRules targeting;
     private OffsetDateTime createdAt;
     private OffsetDateTime updatedAt;
+    private Long revision;
 
     // Default constructor for JSON serialization
     public FlagResponse() {
@@ -48,6 +62,19 @@ public class FlagResponse {
         this.name = name;
     }
 
+    /**
+     * Gets the project of the flag.
+     * 
+     * @return The project key
+     */
+    public String getProject() {
+        return project;
+    }
+
+    public void setProject(String project) {
+        this.project = project;
+    }
+
     public Boolean getIsActive() {
         return isActive;
     }
@@ -64,6 +91,19 @@ public class FlagResponse {
         this.description = description;
     }
 
+    /**
+     * Gets the targeting rules of the flag.
+     * 
+     * @return The targeting rules, or null if the flag has none
+     */
+    public TargetingRules getTargeting() {
+        return targeting;
+    }
+
+    public void setTargeting(TargetingRules targeting) {
+        this.targeting = targeting;
+    }
+
     public OffsetDateTime getCreatedAt() {
         return createdAt;
     }
@@ -80,15 +120,32 @@ public class FlagResponse {
         this.updatedAt = updatedAt;
     }
 
+    /**
+     * Gets the revision of the flag, incremented by every change and sent as
+     * its entity tag.
+     * 
+     * @return The revision
+     */
+    public Long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+
     @Override
     public String toString() {
         return "FlagResponse{" +
                 "id=" + id +
                 ", name='" + name + '\'' +
+                ", project='" + project + '\'' +
                 ", isActive=" + isActive +
                 ", description='" + description + '\'' +
+                ", targeting=" + targeting +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
+                ", revision=" + revision +
                 '}';
     }
 }
@@ -0,0 +1,66 @@
+package com.controltower.dto;
+
+import com.controltower.entity.FlagSchedule.Action;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+/**
+ * DTO for scheduling a change of a feature flag.
+ * 
+ * The time of the change is given either as an absolute {@code executeAt}
+ * or as a {@code delay} from now, an ISO-8601 duration such as "PT2H".
+ */
+public class FlagScheduleRequest {
+
+    @NotNull(message = "Action is required")
+    private Action action;
+
+    private OffsetDateTime executeAt;
+
+    private Duration delay;
+
+    // Default constructor for JSON deserialization
+    public FlagScheduleRequest() {
+    }
+
+    public FlagScheduleRequest(Action action, OffsetDateTime executeAt, Duration delay) {
+        this.action = action;
+        this.executeAt = executeAt;
+        this.delay = delay;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public void setAction(Action action) {
+        this.action = action;
+    }
+
+    public OffsetDateTime getExecuteAt() {
+        return executeAt;
+    }
+
+    public void setExecuteAt(OffsetDateTime executeAt) {
+        this.executeAt = executeAt;
+    }
+
+    public Duration getDelay() {
+        return delay;
+    }
+
+    public void setDelay(Duration delay) {
+        this.delay = delay;
+    }
+
+    @Override
+    public String toString() {
+        return "FlagScheduleRequest{" +
+                "action=" + action +
+                ", executeAt=" + executeAt +
+                ", delay=" + delay +
+                '}';
+    }
+}
@@ -0,0 +1,122 @@
+package com.controltower.dto;
+
+import com.controltower.entity.FlagSchedule.Action;
+import com.controltower.entity.FlagSchedule.Status;
+
+import java.time.OffsetDateTime;
+
+/**
+ * DTO for a scheduled flag change.
+ */
+public class FlagScheduleResponse {
+
+    private Long id;
+    private Long flagId;
+    private Action action;
+    private OffsetDateTime executeAt;
+    private Status status;
+    private String createdBy;
+    private OffsetDateTime createdAt;
+    private OffsetDateTime completedAt;
+    private String error;
+
+    // Default constructor for JSON serialization
+    public FlagScheduleResponse() {
+    }
+
+    public FlagScheduleResponse(Long id, Long flagId, Action action, OffsetDateTime executeAt, Status status,
+            String createdBy, OffsetDateTime createdAt, OffsetDateTime completedAt, String error) {
+        this.id = id;
+        this.flagId = flagId;
+        this.action = action;
+        this.executeAt = executeAt;
+        this.status = status;
+        this.createdBy = createdBy;
+        this.createdAt = createdAt;
+        this.completedAt = completedAt;
+        this.error = error;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getFlagId() {
+        return flagId;
+    }
+
+    public void setFlagId(Long flagId) {
+        this.flagId = flagId;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public void setAction(Action action) {
+        this.action = action;
+    }
+
+    public OffsetDateTime getExecuteAt() {
+        return executeAt;
+    }
+
+    public void setExecuteAt(OffsetDateTime executeAt) {
+        this.executeAt = executeAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(OffsetDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public OffsetDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(OffsetDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "FlagScheduleResponse{" +
+                "id=" + id +
+                ", flagId=" + flagId +
+                ", action=" + action +
+                ", executeAt=" + executeAt +
+                ", status=" + status +
+                '}';
+    }
+}
@@ -0,0 +1,50 @@
+package com.controltower.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * DTO for the state of a single flag returned by the public lookup
+ * endpoints.
+ *
+ * Its shape does not depend on the flag set version, so the body of a flag,
+ * and its entity tag, only change when the flag itself does.
+ */
+@JsonPropertyOrder({"name", "active"})
+public class FlagStatusResponse {
+
+    private String name;
+    private boolean active;
+
+    // Default constructor for JSON serialization
+    public FlagStatusResponse() {
+    }
+
+    public FlagStatusResponse(String name, boolean active) {
+        this.name = name;
+        this.active = active;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    @Override
+    public String toString() {
+        return "FlagStatusResponse{" +
+                "name='" + name + '\'' +
+                ", active=" + active +
+                '}';
+    }
+}
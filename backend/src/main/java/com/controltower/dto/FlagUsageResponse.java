@@ -0,0 +1,116 @@
+package com.controltower.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * DTO for the evaluation counts of one flag over a time window.
+ */
+public class FlagUsageResponse {
+
+    private Long id;
+    private String project;
+    private String name;
+    private boolean isActive;
+    private long enabledCount;
+    private long disabledCount;
+    private OffsetDateTime lastEvaluatedAt;
+
+    // Default constructor for JSON serialization
+    public FlagUsageResponse() {
+    }
+
+    public FlagUsageResponse(Long id, String project, String name, boolean isActive, long enabledCount,
+                             long disabledCount, OffsetDateTime lastEvaluatedAt) {
+        this.id = id;
+        this.project = project;
+        this.name = name;
+        this.isActive = isActive;
+        this.enabledCount = enabledCount;
+        this.disabledCount = disabledCount;
+        this.lastEvaluatedAt = lastEvaluatedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getProject() {
+        return project;
+    }
+
+    public void setProject(String project) {
+        this.project = project;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public boolean getIsActive() {
+        return isActive;
+    }
+
+    public void setIsActive(boolean isActive) {
+        this.isActive = isActive;
+    }
+
+    public long getEnabledCount() {
+        return enabledCount;
+    }
+
+    public void setEnabledCount(long enabledCount) {
+        this.enabledCount = enabledCount;
+    }
+
+    public long getDisabledCount() {
+        return disabledCount;
+    }
+
+    public void setDisabledCount(long disabledCount) {
+        this.disabledCount = disabledCount;
+    }
+
+    /**
+     * Gets the total number of evaluations in the window.
+     * 
+     * @return The evaluation count
+     */
+    public long getEvaluationCount() {
+        return enabledCount + disabledCount;
+    }
+
+    /**
+     * Gets the end of the last flush period in which the flag was evaluated,
+     * at most one flush interval after the evaluation itself.
+     * 
+     * @return The instant, or null if the flag was not evaluated in the window
+     */
+    public OffsetDateTime getLastEvaluatedAt() {
+        return lastEvaluatedAt;
+    }
+
+    public void setLastEvaluatedAt(OffsetDateTime lastEvaluatedAt) {
+        this.lastEvaluatedAt = lastEvaluatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "FlagUsageResponse{" +
+                "id=" + id +
+                ", project='" + project + '\'' +
+                ", name='" + name + '\'' +
+                ", isActive=" + isActive +
+                ", enabledCount=" + enabledCount +
+                ", disabledCount=" + disabledCount +
+                ", lastEvaluatedAt=" + lastEvaluatedAt +
+                '}';
+    }
+}
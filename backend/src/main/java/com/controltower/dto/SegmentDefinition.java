@@ -0,0 +1,47 @@
+package com.controltower.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The matching part of a segment, stored as JSON with the segment and
+ * compiled into every flag snapshot.
+ */
+public class SegmentDefinition {
+
+    private List<String> included = new ArrayList<>();
+    private List<TargetingClause> clauses = new ArrayList<>();
+
+    // Default constructor for JSON deserialization
+    public SegmentDefinition() {
+    }
+
+    public SegmentDefinition(List<String> included, List<TargetingClause> clauses) {
+        this.included = included;
+        this.clauses = clauses;
+    }
+
+    public List<String> getIncluded() {
+        return included;
+    }
+
+    public void setIncluded(List<String> included) {
+        this.included = included;
+    }
+
+    public List<TargetingClause> getClauses() {
+        return clauses;
+    }
+
+    public void setClauses(List<TargetingClause> clauses) {
+        this.clauses = clauses;
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentDefinition{" +
+                "included=" + included +
+                ", clauses=" + clauses +
+                '}';
+    }
+}
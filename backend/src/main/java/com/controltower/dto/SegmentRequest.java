@@ -0,0 +1,82 @@
+package com.controltower.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for creating or updating a segment.
+ * 
+ * A segment is a reusable group of contexts: those whose key is listed in
+ * "included", plus those matching all of its clauses when any are given.
+ * Segment clauses cannot reference other segments.
+ */
+public class SegmentRequest {
+
+    @NotBlank(message = "Segment name is required")
+    @Size(max = 100, message = "Segment name must have at most 100 characters")
+    private String name;
+
+    @Size(max = 255, message = "Description must have at most 255 characters")
+    private String description;
+
+    private List<String> included = new ArrayList<>();
+
+    private List<@Valid TargetingClause> clauses = new ArrayList<>();
+
+    // Default constructor for JSON deserialization
+    public SegmentRequest() {
+    }
+
+    public SegmentRequest(String name, String description, List<String> included, List<TargetingClause> clauses) {
+        this.name = name;
+        this.description = description;
+        this.included = included;
+        this.clauses = clauses;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public List<String> getIncluded() {
+        return included;
+    }
+
+    public void setIncluded(List<String> included) {
+        this.included = included;
+    }
+
+    public List<TargetingClause> getClauses() {
+        return clauses;
+    }
+
+    public void setClauses(List<TargetingClause> clauses) {
+        this.clauses = clauses;
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentRequest{" +
+                "name='" + name + '\'' +
+                ", description='" + description + '\'' +
+                ", included=" + included +
+                ", clauses=" + clauses +
+                '}';
+    }
+}
@@ -0,0 +1,102 @@
+package com.controltower.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * DTO for segment responses.
+ */
+public class SegmentResponse {
+
+    private Long id;
+    private String name;
+    private String description;
+    private List<String> included;
+    private List<TargetingClause> clauses;
+    private OffsetDateTime createdAt;
+    private OffsetDateTime updatedAt;
+
+    // Default constructor for JSON serialization
+    public SegmentResponse() {
+    }
+
+    public SegmentResponse(Long id, String name, String description, List<String> included,
+                           List<TargetingClause> clauses, OffsetDateTime createdAt, OffsetDateTime updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.included = included;
+        this.clauses = clauses;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public List<String> getIncluded() {
+        return included;
+    }
+
+    public void setIncluded(List<String> included) {
+        this.included = included;
+    }
+
+    public List<TargetingClause> getClauses() {
+        return clauses;
+    }
+
+    public void setClauses(List<TargetingClause> clauses) {
+        this.clauses = clauses;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(OffsetDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public OffsetDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(OffsetDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentResponse{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", description='" + description + '\'' +
+                ", included=" + included +
+                ", clauses=" + clauses +
+                ", createdAt=" + createdAt +
+                ", updatedAt=" + updatedAt +
+                '}';
+    }
+}
@@ -0,0 +1,93 @@
+package com.controltower.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+/**
+ * DTO for a single condition of a targeting rule.
+ * 
+ * A clause compares a context attribute with its values using an operator.
+ * SEGMENT clauses match contexts belonging to any of the named segments and
+ * do not use an attribute.
+ */
+public class TargetingClause {
+
+    /**
+     * Operators supported by targeting clauses.
+     */
+    public enum Operator {
+        /** Attribute equals the single value. */
+        EQUALS,
+        /** Attribute is one of the values. */
+        IN,
+        /** Attribute fully matches the single regular expression. */
+        REGEX,
+        /** Context belongs to one of the named segments. */
+        SEGMENT
+    }
+
+    private String attribute;
+
+    @NotNull(message = "Clause operator is required")
+    private Operator operator;
+
+    @NotEmpty(message = "Clause values are required")
+    private List<String> values;
+
+    private boolean negate;
+
+    // Default constructor for JSON deserialization
+    public TargetingClause() {
+    }
+
+    public TargetingClause(String attribute, Operator operator, List<String> values, boolean negate) {
+        this.attribute = attribute;
+        this.operator = operator;
+        this.values = values;
+        this.negate = negate;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    public void setAttribute(String attribute) {
+        this.attribute = attribute;
+    }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    public void setOperator(Operator operator) {
+        this.operator = operator;
+    }
+
+    public List<String> getValues() {
+        return values;
+    }
+
+    public void setValues(List<String> values) {
+        this.values = values;
+    }
+
+    public boolean isNegate() {
+        return negate;
+    }
+
+    public void setNegate(boolean negate) {
+        this.negate = negate;
+    }
+
+    @Override
+    public String toString() {
+        return "TargetingClause{" +
+                "attribute='" + attribute + '\'' +
+                ", operator=" + operator +
+                ", values=" + values +
+                ", negate=" + negate +
+                '}';
+    }
+}
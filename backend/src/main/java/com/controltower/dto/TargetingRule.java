@@ -0,0 +1,57 @@
+package com.controltower.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/**
+ * DTO for a targeting rule.
+ * 
+ * A rule matches a context when all of its clauses match. A matching context
+ * gets the flag if it falls within the rule's rollout percentage.
+ */
+public class TargetingRule {
+
+    @NotEmpty(message = "Rule clauses are required")
+    private List<@Valid TargetingClause> clauses;
+
+    @DecimalMin(value = "0.0", message = "Rollout must be between 0 and 100")
+    @DecimalMax(value = "100.0", message = "Rollout must be between 0 and 100")
+    private Double rollout = 100.0;
+
+    // Default constructor for JSON deserialization
+    public TargetingRule() {
+    }
+
+    public TargetingRule(List<TargetingClause> clauses, Double rollout) {
+        this.clauses = clauses;
+        this.rollout = rollout;
+    }
+
+    public List<TargetingClause> getClauses() {
+        return clauses;
+    }
+
+    public void setClauses(List<TargetingClause> clauses) {
+        this.clauses = clauses;
+    }
+
+    public Double getRollout() {
+        return rollout;
+    }
+
+    public void setRollout(Double rollout) {
+        this.rollout = rollout;
+    }
+
+    @Override
+    public String toString() {
+        return "TargetingRule{" +
+                "clauses=" + clauses +
+                ", rollout=" + rollout +
+                '}';
+    }
+}
@@ -0,0 +1,76 @@
+package com.controltower.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for the targeting of a feature flag, as set through
+ * PUT /admin/flags/{id}/targeting and stored with the flag.
+ * 
+ * Rules are tried in order and the first matching one decides. Contexts
+ * matching no rule get the flag if they fall within the default rollout.
+ * Percentage rollouts are sticky: a context key always lands in the same
+ * bucket for a given flag. Inactive flags are off regardless of targeting.
+ */
+public class TargetingRules {
+
+    private List<@Valid TargetingRule> rules = new ArrayList<>();
+
+    @DecimalMin(value = "0.0", message = "Default rollout must be between 0 and 100")
+    @DecimalMax(value = "100.0", message = "Default rollout must be between 0 and 100")
+    private Double defaultRollout = 100.0;
+
+    private String bucketBy;
+
+    // Default constructor for JSON deserialization
+    public TargetingRules() {
+    }
+
+    public TargetingRules(List<TargetingRule> rules, Double defaultRollout, String bucketBy) {
+        this.rules = rules;
+        this.defaultRollout = defaultRollout;
+        this.bucketBy = bucketBy;
+    }
+
+    public List<TargetingRule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<TargetingRule> rules) {
+        this.rules = rules;
+    }
+
+    public Double getDefaultRollout() {
+        return defaultRollout;
+    }
+
+    public void setDefaultRollout(Double defaultRollout) {
+        this.defaultRollout = defaultRollout;
+    }
+
+    /**
+     * Gets the attribute hashed for percentage rollouts.
+     * 
+     * @return The attribute name, or null to use the context key
+     */
+    public String getBucketBy() {
+        return bucketBy;
+    }
+
+    public void setBucketBy(String bucketBy) {
+        this.bucketBy = bucketBy;
+    }
+
+    @Override
+    public String toString() {
+        return "TargetingRules{" +
+                "rules=" + rules +
+                ", defaultRollout=" + defaultRollout +
+                ", bucketBy='" + bucketBy + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,95 @@
+package com.controltower.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.OffsetDateTime;
+
+/**
+ * JPA entity representing an environment of a project, e.g. staging or
+ * production.
+ * 
+ * Each environment keeps its own active state for every flag of its project
+ * and its own version, so its public snapshot is cached and invalidated
+ * independently of the other environments. Public API clients select it with
+ * its SDK key.
+ */
+@Entity
+@Table(name = "environments",
+    uniqueConstraints = @UniqueConstraint(name = "uk_environments_project_key", columnNames = {"project", "env_key"}))
+public class Environment {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "project", nullable = false, length = 50)
+  private String project;
+
+  @Column(name = "env_key", nullable = false, length = 50)
+  private String key;
+
+  @Column(name = "name", length = 100)
+  private String name;
+
+  @Column(name = "sdk_key", nullable = false, unique = true, length = 64)
+  private String sdkKey;
+
+  /**
+   * Incremented by every change to the environment's flags.
+   */
+  @Column(name = "version", nullable = false)
+  private Long version = 0L;
+
+  @CreationTimestamp
+  @Column(name = "created_at", nullable = false, updatable = false)
+  private OffsetDateTime createdAt;
+
+  public Environment() {
+  }
+
+  public Environment(String project, String key, String name, String sdkKey) {
+    this.project = project;
+    this.key = key;
+    this.name = name;
+    this.sdkKey = sdkKey;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public String getProject() {
+    return project;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getSdkKey() {
+    return sdkKey;
+  }
+
+  public Long getVersion() {
+    return version;
+  }
+
+  public OffsetDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  @Override
+  public String toString() {
+    return "Environment{" +
+        "id=" + id +
+        ", project='" + project + '\'' +
+        ", key='" + key + '\'' +
+        ", version=" + version +
+        '}';
+  }
+}
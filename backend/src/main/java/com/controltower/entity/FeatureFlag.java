@@ -13,20 +13,35 @@ import java.time.OffsetDateTime;
  * 
  * A feature flag is a mechanism that allows enabling/disabling
  * functionalities in real-time without code deployment.
+ * 
+ * Flags belong to a project and their names are unique within it. The active
+ * state kept here is the flag's base state, served by the public API when no
+ * SDK key is given; environments of the project keep their own state in
+ * {@link FlagEnvironmentState}.
  */
 @Entity
-@Table(name = "feature_flags")
+@Table(name = "feature_flags",
+    uniqueConstraints = @UniqueConstraint(name = "uk_feature_flags_project_name", columnNames = {"project", "name"}))
 public class FeatureFlag {
 
+  /**
+   * Project of the flags created without one, the only project served
+   * without an SDK key.
+   */
+  public static final String DEFAULT_PROJECT = "default";
+
   @Id
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
 
   @NotBlank(message = "Flag name is required")
   @Size(max = 100, message = "Flag name must have at most 100 characters")
-  @Column(name = "name", nullable = false, unique = true, length = 100)
+  @Column(name = "name", nullable = false, length = 100)
   private String name;
 
+  @Column(name = "project", nullable = false, length = 50)
+  private String project = DEFAULT_PROJECT;
+
   @Column(name = "is_active", nullable = false)
   private Boolean isActive = false;
 
@@ -34,6 +49,12 @@ public class FeatureFlag {
   @Column(name = "description", length = 255)
   private String description;
 
+  /**
+   * Targeting rules as JSON, null when the flag is on or off for everyone.
+   */
+  @Column(name = "targeting", columnDefinition = "TEXT")
+  private String targeting;
+
   @CreationTimestamp
   @Column(name = "created_at", nullable = false, updatable = false)
   private OffsetDateTime createdAt;
@@ -42,6 +63,15 @@ public class FeatureFlag {
   @Column(name = "updated_at", nullable = false)
   private OffsetDateTime updatedAt;
 
+  /**
+   * Incremented by every change to the flag; checked on update so that a
+   * change based on a stale read fails instead of overwriting another one.
+   * Sent to admin clients as the flag's entity tag.
+   */
+  @Version
+  @Column(name = "revision", nullable = false)
+  private Long revision;
+
   public FeatureFlag() {
   }
 
@@ -73,6 +103,14 @@ public class FeatureFlag {
     this.name = name;
   }
 
+  public String getProject() {
+    return project;
+  }
+
+  public void setProject(String project) {
+    this.project = project;
+  }
+
   public Boolean getIsActive() {
     return isActive;
   }
@@ -89,6 +127,14 @@ public class FeatureFlag {
     this.description = description;
   }
 
+  public String getTargeting() {
+    return targeting;
+  }
+
+  public void setTargeting(String targeting) {
+    this.targeting = targeting;
+  }
+
   public OffsetDateTime getCreatedAt() {
     return createdAt;
   }
@@ -105,15 +151,21 @@ public class FeatureFlag {
     this.updatedAt = updatedAt;
   }
 
+  public Long getRevision() {
+    return revision;
+  }
+
   @Override
   public String toString() {
     return "FeatureFlag{" +
         "id=" + id +
         ", name='" + name + '\'' +
+        ", project='" + project + '\'' +
         ", isActive=" + isActive +
         ", description='" + description + '\'' +
         ", createdAt=" + createdAt +
         ", updatedAt=" + updatedAt +
+        ", revision=" + revision +
         '}';
   }
 }
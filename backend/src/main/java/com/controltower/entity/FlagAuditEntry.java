@@ -0,0 +1,131 @@
+package com.controltower.entity;
+
+import com.controltower.entity.FlagChangeEntry.ChangeType;
+import jakarta.persistence.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * JPA entity representing one entry of the flag audit log.
+ *
+ * An entry records who changed a flag, when, and the state of the flag
+ * before and after the change, as JSON. Entries are only ever inserted, in
+ * batches, after the change committed; on PostgreSQL the table is
+ * partitioned by month of {@code occurred_at}.
+ */
+@Entity
+@Table(name = "flag_audit_log", indexes = {
+    @Index(name = "idx_flag_audit_log_occurred_at", columnList = "occurred_at"),
+    @Index(name = "idx_flag_audit_log_flag_id", columnList = "flag_id, occurred_at")
+})
+public class FlagAuditEntry {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "occurred_at", nullable = false)
+  private OffsetDateTime occurredAt;
+
+  @Column(name = "actor", nullable = false, length = 100)
+  private String actor;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "action", nullable = false, length = 16)
+  private ChangeType action;
+
+  @Column(name = "flag_id", nullable = false)
+  private Long flagId;
+
+  @Column(name = "flag_name", length = 100)
+  private String flagName;
+
+  @Column(name = "version", nullable = false)
+  private Long version;
+
+  @Column(name = "before_state", columnDefinition = "TEXT")
+  private String beforeState;
+
+  @Column(name = "after_state", columnDefinition = "TEXT")
+  private String afterState;
+
+  public FlagAuditEntry() {
+  }
+
+  /**
+   * Creates an audit log entry.
+   *
+   * @param occurredAt  When the change was made
+   * @param actor       The user who made the change
+   * @param action      The kind of change
+   * @param flagId      The ID of the changed flag
+   * @param flagName    The name of the flag after the change, or before it if deleted
+   * @param version     The flag set version the change was committed with
+   * @param beforeState The flag before the change as JSON, null if created
+   * @param afterState  The flag after the change as JSON, null if deleted
+   */
+  public FlagAuditEntry(OffsetDateTime occurredAt, String actor, ChangeType action, Long flagId, String flagName,
+      Long version, String beforeState, String afterState) {
+    this.occurredAt = occurredAt;
+    this.actor = actor;
+    this.action = action;
+    this.flagId = flagId;
+    this.flagName = flagName;
+    this.version = version;
+    this.beforeState = beforeState;
+    this.afterState = afterState;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public OffsetDateTime getOccurredAt() {
+    return occurredAt;
+  }
+
+  public String getActor() {
+    return actor;
+  }
+
+  public ChangeType getAction() {
+    return action;
+  }
+
+  public Long getFlagId() {
+    return flagId;
+  }
+
+  public String getFlagName() {
+    return flagName;
+  }
+
+  public Long getVersion() {
+    return version;
+  }
+
+  public String getBeforeState() {
+    return beforeState;
+  }
+
+  public String getAfterState() {
+    return afterState;
+  }
+
+  @Override
+  public String toString() {
+    return "FlagAuditEntry{" +
+        "id=" + id +
+        ", occurredAt=" + occurredAt +
+        ", actor='" + actor + '\'' +
+        ", action=" + action +
+        ", flagId=" + flagId +
+        ", flagName='" + flagName + '\'' +
+        ", version=" + version +
+        '}';
+  }
+}
@@ -0,0 +1,133 @@
+package com.controltower.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.OffsetDateTime;
+
+/**
+ * JPA entity representing one entry of the flag change log.
+ * 
+ * An entry is written in the same transaction as the mutation it records and
+ * keeps the flag state before and after it, so clients can be sent the net
+ * difference between any two versions.
+ */
+@Entity
+@Table(name = "flag_changes", indexes = @Index(name = "idx_flag_changes_version", columnList = "version"))
+public class FlagChangeEntry {
+
+  /**
+   * Kinds of mutation recorded in the change log.
+   */
+  public enum ChangeType {
+    CREATED,
+    TOGGLED,
+    UPDATED,
+    DELETED
+  }
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "version", nullable = false)
+  private Long version;
+
+  @Column(name = "flag_id", nullable = false)
+  private Long flagId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "change_type", nullable = false, length = 16)
+  private ChangeType changeType;
+
+  @Column(name = "previous_name", length = 100)
+  private String previousName;
+
+  @Column(name = "was_active")
+  private Boolean wasActive;
+
+  @Column(name = "name", length = 100)
+  private String name;
+
+  @Column(name = "is_active")
+  private Boolean isActive;
+
+  @CreationTimestamp
+  @Column(name = "created_at", nullable = false, updatable = false)
+  private OffsetDateTime createdAt;
+
+  public FlagChangeEntry() {
+  }
+
+  /**
+   * Creates a change log entry.
+   * 
+   * @param version      The flag set version the change belongs to
+   * @param flagId       The ID of the changed flag
+   * @param changeType   The kind of change
+   * @param previousName The flag name before the change, null if created
+   * @param wasActive    The active state before the change, null if created
+   * @param name         The flag name after the change, null if deleted
+   * @param isActive     The active state after the change, null if deleted
+   */
+  public FlagChangeEntry(Long version, Long flagId, ChangeType changeType,
+      String previousName, Boolean wasActive, String name, Boolean isActive) {
+    this.version = version;
+    this.flagId = flagId;
+    this.changeType = changeType;
+    this.previousName = previousName;
+    this.wasActive = wasActive;
+    this.name = name;
+    this.isActive = isActive;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public Long getVersion() {
+    return version;
+  }
+
+  public Long getFlagId() {
+    return flagId;
+  }
+
+  public ChangeType getChangeType() {
+    return changeType;
+  }
+
+  public String getPreviousName() {
+    return previousName;
+  }
+
+  public Boolean getWasActive() {
+    return wasActive;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Boolean getIsActive() {
+    return isActive;
+  }
+
+  public OffsetDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  @Override
+  public String toString() {
+    return "FlagChangeEntry{" +
+        "id=" + id +
+        ", version=" + version +
+        ", flagId=" + flagId +
+        ", changeType=" + changeType +
+        ", previousName='" + previousName + '\'' +
+        ", wasActive=" + wasActive +
+        ", name='" + name + '\'' +
+        ", isActive=" + isActive +
+        '}';
+  }
+}
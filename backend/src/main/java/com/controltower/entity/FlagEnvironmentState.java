@@ -0,0 +1,77 @@
+package com.controltower.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.OffsetDateTime;
+
+/**
+ * JPA entity representing the active state of a flag in one environment.
+ * 
+ * A flag without a row for an environment is inactive there.
+ */
+@Entity
+@Table(name = "flag_environment_states",
+    uniqueConstraints = @UniqueConstraint(name = "uk_flag_environment_states",
+        columnNames = {"environment_id", "flag_id"}))
+public class FlagEnvironmentState {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "environment_id", nullable = false)
+  private Long environmentId;
+
+  @Column(name = "flag_id", nullable = false)
+  private Long flagId;
+
+  @Column(name = "is_active", nullable = false)
+  private Boolean isActive = false;
+
+  @UpdateTimestamp
+  @Column(name = "updated_at", nullable = false)
+  private OffsetDateTime updatedAt;
+
+  public FlagEnvironmentState() {
+  }
+
+  public FlagEnvironmentState(Long environmentId, Long flagId, Boolean isActive) {
+    this.environmentId = environmentId;
+    this.flagId = flagId;
+    this.isActive = isActive;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public Long getEnvironmentId() {
+    return environmentId;
+  }
+
+  public Long getFlagId() {
+    return flagId;
+  }
+
+  public Boolean getIsActive() {
+    return isActive;
+  }
+
+  public void setIsActive(Boolean isActive) {
+    this.isActive = isActive;
+  }
+
+  public OffsetDateTime getUpdatedAt() {
+    return updatedAt;
+  }
+
+  @Override
+  public String toString() {
+    return "FlagEnvironmentState{" +
+        "environmentId=" + environmentId +
+        ", flagId=" + flagId +
+        ", isActive=" + isActive +
+        '}';
+  }
+}
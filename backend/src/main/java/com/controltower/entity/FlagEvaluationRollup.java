@@ -0,0 +1,76 @@
+package com.controltower.entity;
+
+import jakarta.persistence.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * JPA entity representing the evaluation counts of one flag over one flush
+ * period of one node.
+ * 
+ * Rows are only ever inserted, in batches, by the analytics flush; totals are
+ * sums over the rows of a time window, so rows written by several nodes add
+ * up without coordination.
+ */
+@Entity
+@Table(name = "flag_evaluation_rollups",
+    indexes = @Index(name = "idx_flag_evaluation_rollups_period_end", columnList = "period_end"))
+public class FlagEvaluationRollup {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "flag_id", nullable = false)
+  private Long flagId;
+
+  @Column(name = "period_start", nullable = false)
+  private OffsetDateTime periodStart;
+
+  @Column(name = "period_end", nullable = false)
+  private OffsetDateTime periodEnd;
+
+  @Column(name = "enabled_count", nullable = false)
+  private Long enabledCount;
+
+  @Column(name = "disabled_count", nullable = false)
+  private Long disabledCount;
+
+  public FlagEvaluationRollup() {
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public Long getFlagId() {
+    return flagId;
+  }
+
+  public OffsetDateTime getPeriodStart() {
+    return periodStart;
+  }
+
+  public OffsetDateTime getPeriodEnd() {
+    return periodEnd;
+  }
+
+  public Long getEnabledCount() {
+    return enabledCount;
+  }
+
+  public Long getDisabledCount() {
+    return disabledCount;
+  }
+
+  @Override
+  public String toString() {
+    return "FlagEvaluationRollup{" +
+        "flagId=" + flagId +
+        ", periodStart=" + periodStart +
+        ", periodEnd=" + periodEnd +
+        ", enabledCount=" + enabledCount +
+        ", disabledCount=" + disabledCount +
+        '}';
+  }
+}
@@ -0,0 +1,171 @@
+package com.controltower.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.OffsetDateTime;
+
+/**
+ * JPA entity representing a flag change scheduled for a given time.
+ * 
+ * A schedule is pending until the scheduler of the leading node executes it,
+ * or until it is cancelled. Executing it sets the base active state of the
+ * flag through the regular flag service path and marks it executed in the
+ * same transaction.
+ */
+@Entity
+@Table(name = "flag_schedules", indexes = {
+    @Index(name = "idx_flag_schedules_status_execute_at", columnList = "status, execute_at"),
+    @Index(name = "idx_flag_schedules_flag_id", columnList = "flag_id")
+})
+public class FlagSchedule {
+
+  /**
+   * Changes a schedule can make.
+   */
+  public enum Action {
+    ENABLE,
+    DISABLE
+  }
+
+  /**
+   * States of a schedule.
+   */
+  public enum Status {
+    PENDING,
+    EXECUTED,
+    CANCELLED,
+    FAILED
+  }
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @Column(name = "flag_id", nullable = false)
+  private Long flagId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "action", nullable = false, length = 16)
+  private Action action;
+
+  @Column(name = "execute_at", nullable = false)
+  private OffsetDateTime executeAt;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "status", nullable = false, length = 16)
+  private Status status = Status.PENDING;
+
+  @Column(name = "created_by", nullable = false, length = 100)
+  private String createdBy;
+
+  @CreationTimestamp
+  @Column(name = "created_at", nullable = false, updatable = false)
+  private OffsetDateTime createdAt;
+
+  @Column(name = "completed_at")
+  private OffsetDateTime completedAt;
+
+  @Column(name = "error", length = 255)
+  private String error;
+
+  @Column(name = "attempts", nullable = false)
+  private int attempts;
+
+  public FlagSchedule() {
+  }
+
+  /**
+   * Creates a pending schedule.
+   * 
+   * @param flagId    The ID of the flag to change
+   * @param action    The change to make
+   * @param executeAt When to make it
+   * @param createdBy The user who scheduled it
+   */
+  public FlagSchedule(Long flagId, Action action, OffsetDateTime executeAt, String createdBy) {
+    this.flagId = flagId;
+    this.action = action;
+    this.executeAt = executeAt;
+    this.createdBy = createdBy;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public Long getFlagId() {
+    return flagId;
+  }
+
+  public Action getAction() {
+    return action;
+  }
+
+  public OffsetDateTime getExecuteAt() {
+    return executeAt;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public void setStatus(Status status) {
+    this.status = status;
+  }
+
+  public String getCreatedBy() {
+    return createdBy;
+  }
+
+  public OffsetDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  /**
+   * Gets when the schedule was executed, cancelled or failed.
+   * 
+   * @return The time, or null while pending
+   */
+  public OffsetDateTime getCompletedAt() {
+    return completedAt;
+  }
+
+  public void setCompletedAt(OffsetDateTime completedAt) {
+    this.completedAt = completedAt;
+  }
+
+  /**
+   * Gets why the schedule failed.
+   * 
+   * @return The error message, or null unless failed
+   */
+  public String getError() {
+    return error;
+  }
+
+  public void setError(String error) {
+    this.error = error;
+  }
+
+  /**
+   * Gets how many executions of the schedule failed with an unexpected
+   * error, and were retried.
+   * 
+   * @return The number of failed attempts
+   */
+  public int getAttempts() {
+    return attempts;
+  }
+
+  @Override
+  public String toString() {
+    return "FlagSchedule{" +
+        "id=" + id +
+        ", flagId=" + flagId +
+        ", action=" + action +
+        ", executeAt=" + executeAt +
+        ", status=" + status +
+        '}';
+  }
+}
@@ -0,0 +1,62 @@
+package com.controltower.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * JPA entity for the single-row counter holding the version of the flag set.
+ * 
+ * Every mutation increments the counter inside its own transaction. The row
+ * lock taken by the increment is held until commit, so versions are assigned
+ * in commit order and the change log never has gaps.
+ */
+@Entity
+@Table(name = "flag_set_version")
+public class FlagSetVersion {
+
+  /**
+   * ID of the only row in the table.
+   */
+  public static final short SINGLETON_ID = 1;
+
+  @Id
+  @Column(name = "id")
+  private Short id;
+
+  @Column(name = "version", nullable = false)
+  private Long version;
+
+  public FlagSetVersion() {
+  }
+
+  public FlagSetVersion(Short id, Long version) {
+    this.id = id;
+    this.version = version;
+  }
+
+  public Short getId() {
+    return id;
+  }
+
+  public void setId(Short id) {
+    this.id = id;
+  }
+
+  public Long getVersion() {
+    return version;
+  }
+
+  public void setVersion(Long version) {
+    this.version = version;
+  }
+
+  @Override
+  public String toString() {
+    return "FlagSetVersion{" +
+        "id=" + id +
+        ", version=" + version +
+        '}';
+  }
+}
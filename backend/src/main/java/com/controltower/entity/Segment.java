@@ -0,0 +1,113 @@
+package com.controltower.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.OffsetDateTime;
+
+/**
+ * JPA entity representing a segment: a named, reusable group of contexts
+ * that targeting rules can refer to.
+ * 
+ * The matching part of the segment is stored as JSON and compiled into every
+ * flag snapshot, like flag targeting rules.
+ */
+@Entity
+@Table(name = "segments")
+public class Segment {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Long id;
+
+  @NotBlank(message = "Segment name is required")
+  @Size(max = 100, message = "Segment name must have at most 100 characters")
+  @Column(name = "name", nullable = false, unique = true, length = 100)
+  private String name;
+
+  @Size(max = 255, message = "Description must have at most 255 characters")
+  @Column(name = "description", length = 255)
+  private String description;
+
+  @Column(name = "definition", nullable = false, columnDefinition = "TEXT")
+  private String definition;
+
+  @CreationTimestamp
+  @Column(name = "created_at", nullable = false, updatable = false)
+  private OffsetDateTime createdAt;
+
+  @UpdateTimestamp
+  @Column(name = "updated_at", nullable = false)
+  private OffsetDateTime updatedAt;
+
+  public Segment() {
+  }
+
+  public Segment(String name, String description, String definition) {
+    this.name = name;
+    this.description = description;
+    this.definition = definition;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public void setDescription(String description) {
+    this.description = description;
+  }
+
+  public String getDefinition() {
+    return definition;
+  }
+
+  public void setDefinition(String definition) {
+    this.definition = definition;
+  }
+
+  public OffsetDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(OffsetDateTime createdAt) {
+    this.createdAt = createdAt;
+  }
+
+  public OffsetDateTime getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(OffsetDateTime updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+
+  @Override
+  public String toString() {
+    return "Segment{" +
+        "id=" + id +
+        ", name='" + name + '\'' +
+        ", description='" + description + '\'' +
+        ", createdAt=" + createdAt +
+        ", updatedAt=" + updatedAt +
+        '}';
+  }
+}
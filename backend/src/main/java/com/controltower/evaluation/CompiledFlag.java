@@ -0,0 +1,95 @@
+package com.controltower.evaluation;
+
+/**
+ * Evaluator tree of a single flag, compiled from its state and targeting.
+ * 
+ * Instances are immutable and shared by every request using the snapshot
+ * they belong to. Evaluation walks pre-built nodes only and does not
+ * allocate; every result is recorded in the flag's {@link EvaluationCounter}.
+ */
+public final class CompiledFlag {
+
+    private final long id;
+    private final String name;
+    private final boolean active;
+    private final Condition[] ruleConditions;
+    private final Rollout[] ruleRollouts;
+    private final Rollout defaultRollout;
+    private final EvaluationCounter counter;
+
+    CompiledFlag(long id, String name, boolean active, Condition[] ruleConditions,
+            Rollout[] ruleRollouts, Rollout defaultRollout, EvaluationCounter counter) {
+        this.id = id;
+        this.name = name;
+        this.active = active;
+        this.ruleConditions = ruleConditions;
+        this.ruleRollouts = ruleRollouts;
+        this.defaultRollout = defaultRollout;
+        this.counter = counter;
+    }
+
+    /**
+     * Creates an evaluator for a flag without targeting: on for everyone when
+     * active, off otherwise.
+     * 
+     * @param id      The flag ID
+     * @param name    The flag name
+     * @param active  The flag state
+     * @param counter The counter recording the flag's evaluations
+     * @return The evaluator
+     */
+    public static CompiledFlag untargeted(long id, String name, boolean active, EvaluationCounter counter) {
+        return new CompiledFlag(id, name, active, new Condition[0], new Rollout[0], Rollout.of(100, null, id),
+                counter);
+    }
+
+    /**
+     * Evaluates the flag for a context.
+     * 
+     * @param context The evaluation context
+     * @return true if the flag is on for the context
+     */
+    public boolean evaluate(EvaluationContext context) {
+        boolean result = decide(context);
+        counter.record(result);
+        return result;
+    }
+
+    private boolean decide(EvaluationContext context) {
+        if (!active) {
+            return false;
+        }
+        for (int i = 0; i < ruleConditions.length; i++) {
+            if (ruleConditions[i].matches(context)) {
+                return ruleRollouts[i].includes(context);
+            }
+        }
+        return defaultRollout.includes(context);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public EvaluationCounter getCounter() {
+        return counter;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledFlag{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", active=" + active +
+                ", rules=" + ruleConditions.length +
+                '}';
+    }
+}
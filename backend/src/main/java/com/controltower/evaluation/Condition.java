@@ -0,0 +1,25 @@
+package com.controltower.evaluation;
+
+/**
+ * A compiled, immutable predicate over an {@link EvaluationContext}.
+ * 
+ * Conditions form the nodes of a flag's evaluator tree. They are built once
+ * when a flag changes and must not allocate when matched.
+ */
+@FunctionalInterface
+public interface Condition {
+
+    /**
+     * Condition that never matches, used in place of references that cannot
+     * be resolved, such as a deleted segment.
+     */
+    Condition NEVER = context -> false;
+
+    /**
+     * Tests the condition against a context.
+     * 
+     * @param context The evaluation context
+     * @return true if the context matches
+     */
+    boolean matches(EvaluationContext context);
+}
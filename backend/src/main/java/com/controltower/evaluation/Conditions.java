@@ -0,0 +1,112 @@
+package com.controltower.evaluation;
+
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Factory for the {@link Condition} node types.
+ */
+public final class Conditions {
+
+    /**
+     * Longest attribute value matched against a regular expression; longer
+     * values never match, which bounds the time of a match.
+     */
+    public static final int MAX_MATCHED_LENGTH = 1024;
+
+    private Conditions() {
+    }
+
+    /**
+     * Matches when the attribute equals the value.
+     * 
+     * @param attribute The attribute name
+     * @param value     The expected value
+     * @return The condition
+     */
+    public static Condition equalTo(String attribute, String value) {
+        return context -> value.equals(context.attribute(attribute));
+    }
+
+    /**
+     * Matches when the attribute is one of the values.
+     * 
+     * @param attribute The attribute name
+     * @param values    The accepted values
+     * @return The condition
+     */
+    public static Condition in(String attribute, Set<String> values) {
+        Set<String> accepted = Set.copyOf(values);
+        return context -> {
+            String actual = context.attribute(attribute);
+            return actual != null && accepted.contains(actual);
+        };
+    }
+
+    /**
+     * Matches when the whole attribute value matches the pattern, and is at
+     * most {@link #MAX_MATCHED_LENGTH} characters long.
+     * 
+     * @param attribute The attribute name
+     * @param pattern   The compiled pattern
+     * @return The condition
+     */
+    public static Condition matching(String attribute, Pattern pattern) {
+        return context -> {
+            String actual = context.attribute(attribute);
+            return actual != null && actual.length() <= MAX_MATCHED_LENGTH && pattern.matcher(actual).matches();
+        };
+    }
+
+    /**
+     * Matches when the condition does not.
+     * 
+     * @param condition The negated condition
+     * @return The condition
+     */
+    public static Condition not(Condition condition) {
+        return context -> !condition.matches(context);
+    }
+
+    /**
+     * Matches when every condition matches; an empty list always matches.
+     * 
+     * @param conditions The conditions
+     * @return The condition
+     */
+    public static Condition allOf(Condition... conditions) {
+        if (conditions.length == 1) {
+            return conditions[0];
+        }
+        Condition[] all = conditions.clone();
+        return context -> {
+            for (Condition condition : all) {
+                if (!condition.matches(context)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Matches when any condition matches; an empty list never matches.
+     * 
+     * @param conditions The conditions
+     * @return The condition
+     */
+    public static Condition anyOf(Condition... conditions) {
+        if (conditions.length == 1) {
+            return conditions[0];
+        }
+        Condition[] any = conditions.clone();
+        return context -> {
+            for (Condition condition : any) {
+                if (condition.matches(context)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.controltower.evaluation;
+
+/**
+ * The subject a flag is evaluated for, typically a user.
+ * 
+ * Implementations must be cheap to query: evaluating a context against every
+ * flag looks attributes up many times.
+ */
+public interface EvaluationContext {
+
+    /**
+     * Name of the pseudo-attribute resolving to the context key.
+     */
+    String KEY_ATTRIBUTE = "key";
+
+    /**
+     * Gets the stable key identifying the subject, e.g. a user ID. Percentage
+     * rollouts hash it, so the same key always lands in the same bucket.
+     * 
+     * @return The context key, may be null for anonymous contexts
+     */
+    String key();
+
+    /**
+     * Gets the value of an attribute. The "key" attribute resolves to
+     * {@link #key()}.
+     * 
+     * @param name The attribute name
+     * @return The attribute value, or null if absent
+     */
+    String attribute(String name);
+}
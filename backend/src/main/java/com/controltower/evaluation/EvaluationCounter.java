@@ -0,0 +1,44 @@
+package com.controltower.evaluation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running count of the evaluations of one flag, by result.
+ * 
+ * A counter belongs to a flag ID and is handed over from one compiled
+ * evaluator to the next when the flag changes, so counts are cumulative for
+ * the life of the process. Recording is a striped, allocation-free
+ * increment, cheap enough for every evaluation.
+ */
+public final class EvaluationCounter {
+
+    private final LongAdder enabled = new LongAdder();
+    private final LongAdder disabled = new LongAdder();
+
+    /**
+     * Records one evaluation.
+     * 
+     * @param result The evaluation result
+     */
+    public void record(boolean result) {
+        (result ? enabled : disabled).increment();
+    }
+
+    /**
+     * Gets the number of evaluations that returned true.
+     * 
+     * @return The count
+     */
+    public long enabledCount() {
+        return enabled.sum();
+    }
+
+    /**
+     * Gets the number of evaluations that returned false.
+     * 
+     * @return The count
+     */
+    public long disabledCount() {
+        return disabled.sum();
+    }
+}
@@ -0,0 +1,30 @@
+package com.controltower.evaluation;
+
+import java.util.Map;
+
+/**
+ * {@link EvaluationContext} backed by a key and an attribute map.
+ */
+public final class MapEvaluationContext implements EvaluationContext {
+
+    private final String key;
+    private final Map<String, String> attributes;
+
+    public MapEvaluationContext(String key, Map<String, String> attributes) {
+        this.key = key;
+        this.attributes = attributes != null ? attributes : Map.of();
+    }
+
+    @Override
+    public String key() {
+        return key;
+    }
+
+    @Override
+    public String attribute(String name) {
+        if (KEY_ATTRIBUTE.equals(name)) {
+            return key;
+        }
+        return attributes.get(name);
+    }
+}
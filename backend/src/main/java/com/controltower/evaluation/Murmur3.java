@@ -0,0 +1,55 @@
+package com.controltower.evaluation;
+
+/**
+ * 32-bit MurmurHash3 over the UTF-16 code units of a string.
+ * 
+ * Used for percentage rollouts: it is fast, well distributed and, unlike
+ * {@link String#hashCode()}, mixes short keys thoroughly. Two chars are
+ * packed into each 32-bit block, so hashing never allocates.
+ */
+public final class Murmur3 {
+
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+
+    private Murmur3() {
+    }
+
+    /**
+     * Hashes a string with a seed.
+     * 
+     * @param value The string to hash
+     * @param seed  The seed, e.g. the hash of a flag name
+     * @return The 32-bit hash
+     */
+    public static int hash(String value, int seed) {
+        int h = seed;
+        int length = value.length();
+        int i = 0;
+        for (; i + 1 < length; i += 2) {
+            int k = value.charAt(i) | (value.charAt(i + 1) << 16);
+            h ^= mixK(k);
+            h = Integer.rotateLeft(h, 13);
+            h = h * 5 + 0xe6546b64;
+        }
+        if (i < length) {
+            h ^= mixK(value.charAt(i));
+        }
+        return fmix(h ^ (length * 2));
+    }
+
+    private static int mixK(int k) {
+        k *= C1;
+        k = Integer.rotateLeft(k, 15);
+        return k * C2;
+    }
+
+    private static int fmix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
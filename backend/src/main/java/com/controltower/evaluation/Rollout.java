@@ -0,0 +1,77 @@
+package com.controltower.evaluation;
+
+/**
+ * A sticky percentage rollout.
+ * 
+ * Contexts are hashed into one of {@value #BUCKETS} buckets, seeded per flag
+ * so that the same users are not always the first to get every feature. The
+ * seed comes from the flag ID, so renaming a flag keeps its buckets.
+ */
+public final class Rollout {
+
+    /**
+     * Number of buckets, giving a precision of a thousandth of a percent.
+     */
+    public static final int BUCKETS = 100_000;
+
+    private static final Rollout ALL = new Rollout(BUCKETS, null, 0);
+    private static final Rollout NONE = new Rollout(0, null, 0);
+
+    private final int threshold;
+    private final String bucketBy;
+    private final int seed;
+
+    private Rollout(int threshold, String bucketBy, int seed) {
+        this.threshold = threshold;
+        this.bucketBy = bucketBy;
+        this.seed = seed;
+    }
+
+    /**
+     * Creates a rollout.
+     * 
+     * @param percentage The share of contexts included, between 0 and 100
+     * @param bucketBy   The attribute to hash, or null for the context key
+     * @param flagId     The ID of the flag the rollout belongs to
+     * @return The rollout
+     */
+    public static Rollout of(double percentage, String bucketBy, long flagId) {
+        int threshold = (int) Math.round(percentage * (BUCKETS / 100));
+        if (threshold >= BUCKETS) {
+            return ALL;
+        }
+        if (threshold <= 0) {
+            return NONE;
+        }
+        return new Rollout(threshold, bucketBy, Murmur3.hash(Long.toString(flagId), 0));
+    }
+
+    /**
+     * Tests whether a context falls within the rollout. Contexts without the
+     * bucketing value are only included in a full rollout.
+     * 
+     * @param context The evaluation context
+     * @return true if the context is included
+     */
+    public boolean includes(EvaluationContext context) {
+        if (threshold >= BUCKETS) {
+            return true;
+        }
+        if (threshold <= 0) {
+            return false;
+        }
+        String value = bucketBy == null ? context.key() : context.attribute(bucketBy);
+        return value != null && bucket(value, seed) < threshold;
+    }
+
+    /**
+     * Computes the bucket of a value.
+     * 
+     * @param value The hashed value
+     * @param seed  The per-flag seed
+     * @return The bucket, between 0 and {@value #BUCKETS} exclusive
+     */
+    static int bucket(String value, int seed) {
+        return (Murmur3.hash(value, seed) & 0x7fffffff) % BUCKETS;
+    }
+}
@@ -0,0 +1,362 @@
+package com.controltower.evaluation;
+
+import com.controltower.dto.SegmentDefinition;
+import com.controltower.dto.TargetingClause;
+import com.controltower.dto.TargetingRule;
+import com.controltower.dto.TargetingRules;
+import com.controltower.exception.InvalidTargetingException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiles targeting rules and segments into evaluator trees.
+ * 
+ * A compiler is bound to one set of segments; segment conditions are
+ * compiled once and shared by every flag referencing them.
+ * 
+ * Regular expressions run on attributes sent by anonymous clients, with the
+ * backtracking engine of java.util.regex. Patterns repeating a group that
+ * itself repeats, such as {@code (a+)+}, can take exponential time on a
+ * crafted value and are rejected, as are patterns longer than
+ * {@link #MAX_PATTERN_LENGTH}; matched values are capped at
+ * {@link Conditions#MAX_MATCHED_LENGTH}.
+ */
+public final class RuleCompiler {
+
+    /**
+     * Longest regular expression accepted in a clause.
+     */
+    public static final int MAX_PATTERN_LENGTH = 256;
+
+    private final Map<String, Condition> segments;
+
+    private RuleCompiler(Map<String, Condition> segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Creates a compiler for the given segments.
+     * 
+     * @param definitions The segment definitions by name
+     * @return The compiler
+     * @throws InvalidTargetingException if a segment cannot be compiled
+     */
+    public static RuleCompiler withSegments(Map<String, SegmentDefinition> definitions) {
+        Map<String, Condition> segments = new HashMap<>();
+        RuleCompiler noSegments = new RuleCompiler(Map.of());
+        for (Map.Entry<String, SegmentDefinition> entry : definitions.entrySet()) {
+            segments.put(entry.getKey(), noSegments.compileSegment(entry.getKey(), entry.getValue()));
+        }
+        return new RuleCompiler(segments);
+    }
+
+    /**
+     * Validates a segment definition without keeping the result.
+     * 
+     * @param name       The segment name
+     * @param definition The segment definition
+     * @throws InvalidTargetingException if the segment cannot be compiled
+     */
+    public static void validateSegment(String name, SegmentDefinition definition) {
+        new RuleCompiler(Map.of()).compileSegment(name, definition);
+    }
+
+    /**
+     * Validates targeting rules without keeping the result. Segment
+     * references are not resolved; see {@link #segmentsReferencedBy}.
+     * 
+     * @param targeting The targeting rules
+     * @throws InvalidTargetingException if the rules cannot be compiled
+     */
+    public static void validateTargeting(TargetingRules targeting) {
+        new RuleCompiler(Map.of()).compile(0L, "", true, targeting, new EvaluationCounter());
+    }
+
+    /**
+     * Collects the names of the segments targeting rules refer to.
+     * 
+     * @param targeting The targeting rules
+     * @return The segment names, in order of first reference
+     */
+    public static Set<String> segmentsReferencedBy(TargetingRules targeting) {
+        Set<String> names = new LinkedHashSet<>();
+        if (targeting == null || targeting.getRules() == null) {
+            return names;
+        }
+        for (TargetingRule rule : targeting.getRules()) {
+            if (rule.getClauses() == null) {
+                continue;
+            }
+            for (TargetingClause clause : rule.getClauses()) {
+                if (clause.getOperator() == TargetingClause.Operator.SEGMENT && clause.getValues() != null) {
+                    names.addAll(clause.getValues());
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Checks whether a segment is known to this compiler.
+     * 
+     * @param name The segment name
+     * @return true if the segment exists
+     */
+    public boolean hasSegment(String name) {
+        return segments.containsKey(name);
+    }
+
+    /**
+     * Compiles the evaluator of a flag.
+     * 
+     * References to unknown segments compile to conditions that never match,
+     * so deleting a segment cannot break evaluation of the flags using it.
+     * 
+     * @param id        The flag ID
+     * @param name      The flag name
+     * @param active    The flag state
+     * @param targeting The flag targeting, may be null
+     * @param counter   The counter recording the flag's evaluations
+     * @return The evaluator
+     * @throws InvalidTargetingException if the targeting cannot be compiled
+     */
+    public CompiledFlag compile(long id, String name, boolean active, TargetingRules targeting,
+            EvaluationCounter counter) {
+        if (targeting == null) {
+            return CompiledFlag.untargeted(id, name, active, counter);
+        }
+
+        List<TargetingRule> rules = targeting.getRules() != null ? targeting.getRules() : List.of();
+        Condition[] conditions = new Condition[rules.size()];
+        Rollout[] rollouts = new Rollout[rules.size()];
+        for (int i = 0; i < rules.size(); i++) {
+            TargetingRule rule = rules.get(i);
+            if (rule.getClauses() == null || rule.getClauses().isEmpty()) {
+                throw new InvalidTargetingException("Rule " + (i + 1) + " has no clauses");
+            }
+            conditions[i] = compileClauses(rule.getClauses(), true);
+            rollouts[i] = Rollout.of(percentage(rule.getRollout()), targeting.getBucketBy(), id);
+        }
+        Rollout defaultRollout = Rollout.of(percentage(targeting.getDefaultRollout()), targeting.getBucketBy(), id);
+        return new CompiledFlag(id, name, active, conditions, rollouts, defaultRollout, counter);
+    }
+
+    private Condition compileSegment(String name, SegmentDefinition definition) {
+        List<String> included = definition.getIncluded() != null ? definition.getIncluded() : List.of();
+        List<TargetingClause> clauses = definition.getClauses() != null ? definition.getClauses() : List.of();
+        for (TargetingClause clause : clauses) {
+            if (clause.getOperator() == TargetingClause.Operator.SEGMENT) {
+                throw new InvalidTargetingException("Segment " + name + " cannot reference other segments");
+            }
+        }
+
+        if (clauses.isEmpty()) {
+            return included.isEmpty()
+                    ? Condition.NEVER
+                    : Conditions.in(EvaluationContext.KEY_ATTRIBUTE, new HashSet<>(included));
+        }
+        Condition matchesClauses = compileClauses(clauses, false);
+        return included.isEmpty()
+                ? matchesClauses
+                : Conditions.anyOf(Conditions.in(EvaluationContext.KEY_ATTRIBUTE, new HashSet<>(included)),
+                        matchesClauses);
+    }
+
+    private Condition compileClauses(List<TargetingClause> clauses, boolean allowSegments) {
+        Condition[] conditions = new Condition[clauses.size()];
+        for (int i = 0; i < clauses.size(); i++) {
+            TargetingClause clause = clauses.get(i);
+            Condition condition = compileClause(clause, allowSegments);
+            conditions[i] = clause.isNegate() ? Conditions.not(condition) : condition;
+        }
+        return Conditions.allOf(conditions);
+    }
+
+    private Condition compileClause(TargetingClause clause, boolean allowSegments) {
+        TargetingClause.Operator operator = clause.getOperator();
+        List<String> values = clause.getValues();
+        if (operator == null) {
+            throw new InvalidTargetingException("Clause operator is required");
+        }
+        if (values == null || values.isEmpty()) {
+            throw new InvalidTargetingException("Clause values are required");
+        }
+        if (operator != TargetingClause.Operator.SEGMENT
+                && (clause.getAttribute() == null || clause.getAttribute().isBlank())) {
+            throw new InvalidTargetingException("Clause attribute is required for operator " + operator);
+        }
+
+        if ((operator == TargetingClause.Operator.EQUALS || operator == TargetingClause.Operator.REGEX)
+                && values.size() > 1) {
+            throw new InvalidTargetingException("Operator " + operator + " takes a single value, use IN for several");
+        }
+
+        switch (operator) {
+            case EQUALS:
+                return Conditions.equalTo(clause.getAttribute(), values.get(0));
+            case IN:
+                return Conditions.in(clause.getAttribute(), new HashSet<>(values));
+            case REGEX:
+                return Conditions.matching(clause.getAttribute(), compilePattern(values.get(0)));
+            case SEGMENT:
+                if (!allowSegments) {
+                    throw new InvalidTargetingException("Segments cannot reference other segments");
+                }
+                Condition[] members = new Condition[values.size()];
+                for (int i = 0; i < values.size(); i++) {
+                    members[i] = segments.getOrDefault(values.get(i), Condition.NEVER);
+                }
+                return Conditions.anyOf(members);
+            default:
+                throw new InvalidTargetingException("Unsupported operator: " + operator);
+        }
+    }
+
+    private static Pattern compilePattern(String regex) {
+        if (regex.length() > MAX_PATTERN_LENGTH) {
+            throw new InvalidTargetingException("Regular expressions are limited to " + MAX_PATTERN_LENGTH
+                    + " characters");
+        }
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex);
+        } catch (PatternSyntaxException ex) {
+            throw new InvalidTargetingException("Invalid regular expression: " + regex, ex);
+        }
+        String repeated = findRepeatedAmbiguousGroup(regex);
+        if (repeated != null) {
+            throw new InvalidTargetingException("Regular expression repeats a group with " + repeated + ": " + regex);
+        }
+        return pattern;
+    }
+
+    /**
+     * Checks whether a valid pattern applies an unbounded quantifier to a
+     * group that can match the same input in several ways: one containing a
+     * quantifier, e.g. {@code (a+)*} or {@code (\w+\.?){2,}}, or alternatives,
+     * e.g. {@code (a|aa)*}. Either makes a failing match backtrack
+     * exponentially.
+     *
+     * @return What the repeated group contains, null if there is no such group
+     */
+    private static String findRepeatedAmbiguousGroup(String regex) {
+        // One entry per open group: whether it contains a quantifier, alternatives
+        Deque<boolean[]> groups = new ArrayDeque<>();
+        boolean[] current = new boolean[2];
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += skipEscape(regex, i);
+                continue;
+            }
+            if (c == '[') {
+                i = skipClass(regex, i);
+                continue;
+            }
+            if (c == '(') {
+                groups.push(current);
+                current = new boolean[2];
+            } else if (c == ')') {
+                boolean quantified = current[0];
+                boolean alternated = current[1];
+                current = groups.pop();
+                current[0] |= quantified;
+                current[1] |= alternated;
+                if ((quantified || alternated) && i + 1 < regex.length() && isUnboundedRepetition(regex, i + 1)) {
+                    return quantified ? "a quantifier" : "alternatives";
+                }
+            } else if (c == '|') {
+                current[1] = true;
+            } else if (isRepetition(regex, i)) {
+                current[0] = true;
+            }
+            i++;
+        }
+        return null;
+    }
+
+    private static boolean isRepetition(String regex, int i) {
+        char c = regex.charAt(i);
+        return c == '*' || c == '+' || (c == '{' && !regex.startsWith("{1}", i));
+    }
+
+    private static boolean isUnboundedRepetition(String regex, int i) {
+        char c = regex.charAt(i);
+        if (c == '*' || c == '+') {
+            return true;
+        }
+        if (c != '{') {
+            return false;
+        }
+        int end = regex.indexOf('}', i);
+        int comma = regex.indexOf(',', i);
+        if (end < 0 || comma < 0 || comma > end) {
+            return false;
+        }
+        // {n,} is unbounded, and so is in effect any large bound; compared
+        // digit by digit, as a bound may not fit an int
+        String max = regex.substring(comma + 1, end).trim();
+        return max.isEmpty() || max.length() > 2 || !max.chars().allMatch(Character::isDigit)
+                || Integer.parseInt(max) > 10;
+    }
+
+    /**
+     * Gets the length of an escape sequence: a quoted section, a property or
+     * code point with its braces, or a single escaped character.
+     */
+    private static int skipEscape(String regex, int i) {
+        if (regex.startsWith("\\Q", i)) {
+            int end = regex.indexOf("\\E", i + 2);
+            return (end < 0 ? regex.length() : end + 2) - i;
+        }
+        if (i + 2 < regex.length() && "pPxN".indexOf(regex.charAt(i + 1)) >= 0 && regex.charAt(i + 2) == '{') {
+            int end = regex.indexOf('}', i + 2);
+            return (end < 0 ? regex.length() : end + 1) - i;
+        }
+        return 2;
+    }
+
+    private static int skipClass(String regex, int i) {
+        int depth = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+                // A ']' right after the opening bracket is a literal
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+                    i++;
+                } else if (i + 2 < regex.length() && regex.charAt(i + 1) == '^' && regex.charAt(i + 2) == ']') {
+                    i += 2;
+                }
+            } else if (c == ']' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static double percentage(Double value) {
+        if (value == null) {
+            return 100.0;
+        }
+        if (value < 0 || value > 100) {
+            throw new InvalidTargetingException("Rollout must be between 0 and 100");
+        }
+        return value;
+    }
+}
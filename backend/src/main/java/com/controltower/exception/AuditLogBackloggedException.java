@@ -0,0 +1,16 @@
+package com.controltower.exception;
+
+/**
+ * Exception thrown when a flag change is rejected because the audit log
+ * cannot take its entries until the queued ones are written.
+ */
+public class AuditLogBackloggedException extends RuntimeException {
+
+    public AuditLogBackloggedException(String message) {
+        super(message);
+    }
+
+    public AuditLogBackloggedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,15 @@
+package com.controltower.exception;
+
+/**
+ * Exception thrown when an environment with the same key already exists in the project.
+ */
+public class EnvironmentAlreadyExistsException extends RuntimeException {
+
+    public EnvironmentAlreadyExistsException(String message) {
+        super(message);
+    }
+
+    public EnvironmentAlreadyExistsException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
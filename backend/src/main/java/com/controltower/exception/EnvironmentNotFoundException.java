@@ -0,0 +1,15 @@
+package com.controltower.exception;
+
+/**
+ * Exception thrown when an environment with the specified ID is not found.
+ */
+public class EnvironmentNotFoundException extends RuntimeException {
+
+    public EnvironmentNotFoundException(String message) {
+        super(message);
+    }
+
+    public EnvironmentNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
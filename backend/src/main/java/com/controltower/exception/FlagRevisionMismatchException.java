@@ -0,0 +1,16 @@
+package com.controltower.exception;
+
+/**
+ * Exception thrown when a flag mutation is conditioned on a revision of the
+ * flag (If-Match) that is no longer its current one.
+ */
+public class FlagRevisionMismatchException extends RuntimeException {
+
+    public FlagRevisionMismatchException(String message) {
+        super(message);
+    }
+
+    public FlagRevisionMismatchException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
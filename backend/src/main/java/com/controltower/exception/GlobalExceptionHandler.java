@@ -1,11 +1,13 @@
 package com.controltower.exception;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -43,6 +45,51 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
+    /**
+     * Handles request parameters that cannot be converted to the expected type.
+     * 
+     * @param ex The type mismatch exception
+     * @return ResponseEntity with bad request error details
+     */
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<Map<String, Object>> handleTypeMismatchException(MethodArgumentTypeMismatchException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Invalid parameter");
+        response.put("message", "Invalid value for parameter: " + ex.getName());
+        
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    /**
+     * Handles flag listing parameters that are out of range or unknown.
+     * 
+     * @param ex The invalid flag query exception
+     * @return ResponseEntity with bad request error details
+     */
+    @ExceptionHandler(InvalidFlagQueryException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidFlagQueryException(InvalidFlagQueryException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Invalid parameter");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    /**
+     * Handles bulk flag requests that cannot be applied as a whole.
+     * 
+     * @param ex The invalid bulk request exception
+     * @return ResponseEntity with bad request error details
+     */
+    @ExceptionHandler(InvalidBulkRequestException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidBulkRequestException(InvalidBulkRequestException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Invalid bulk request");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
     /**
      * Handles business rule violations when a flag already exists.
      * 
@@ -73,6 +120,187 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
+    /**
+     * Handles FlagRevisionMismatchException.
+     * 
+     * @param ex The flag revision mismatch exception
+     * @return ResponseEntity with precondition failed error details
+     */
+    @ExceptionHandler(FlagRevisionMismatchException.class)
+    public ResponseEntity<Map<String, Object>> handleFlagRevisionMismatchException(FlagRevisionMismatchException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Precondition failed");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(response);
+    }
+
+    /**
+     * Handles OptimisticLockingFailureException, raised when a flag changed
+     * between the moment it was read and the moment the change was written.
+     * 
+     * @param ex The optimistic locking failure exception
+     * @return ResponseEntity with conflict error details
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Concurrent modification");
+        response.put("message", "The resource was modified concurrently, read it again and retry");
+        
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    /**
+     * Handles targeting rules or segments that cannot be compiled.
+     * 
+     * @param ex The invalid targeting exception
+     * @return ResponseEntity with bad request error details
+     */
+    @ExceptionHandler(InvalidTargetingException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidTargetingException(InvalidTargetingException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Invalid targeting");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    /**
+     * Handles business rule violations when a segment already exists.
+     * 
+     * @param ex The segment already exists exception
+     * @return ResponseEntity with conflict error details
+     */
+    @ExceptionHandler(SegmentAlreadyExistsException.class)
+    public ResponseEntity<Map<String, Object>> handleSegmentAlreadyExistsException(SegmentAlreadyExistsException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Segment already exists");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    /**
+     * Handles cases when a segment is not found.
+     * 
+     * @param ex The segment not found exception
+     * @return ResponseEntity with not found error details
+     */
+    @ExceptionHandler(SegmentNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleSegmentNotFoundException(SegmentNotFoundException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Segment not found");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    /**
+     * Handles EnvironmentAlreadyExistsException.
+     * 
+     * @param ex The environment already exists exception
+     * @return ResponseEntity with conflict error details
+     */
+    @ExceptionHandler(EnvironmentAlreadyExistsException.class)
+    public ResponseEntity<Map<String, Object>> handleEnvironmentAlreadyExistsException(EnvironmentAlreadyExistsException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Environment already exists");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    /**
+     * Handles EnvironmentNotFoundException.
+     * 
+     * @param ex The environment not found exception
+     * @return ResponseEntity with not found error details
+     */
+    @ExceptionHandler(EnvironmentNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleEnvironmentNotFoundException(EnvironmentNotFoundException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Environment not found");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    /**
+     * Handles UnknownSdkKeyException.
+     * 
+     * @param ex The unknown SDK key exception
+     * @return ResponseEntity with unauthorized error details
+     */
+    @ExceptionHandler(UnknownSdkKeyException.class)
+    public ResponseEntity<Map<String, Object>> handleUnknownSdkKeyException(UnknownSdkKeyException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Invalid SDK key");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+    }
+
+    /**
+     * Handles StreamingUnavailableException.
+     * 
+     * @param ex The streaming unavailable exception
+     * @return ResponseEntity with bad request error details
+     */
+    @ExceptionHandler(StreamingUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleStreamingUnavailableException(StreamingUnavailableException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Streaming unavailable");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    /**
+     * Handles cases when a flag schedule is not found or no longer pending.
+     * 
+     * @param ex The schedule not found exception
+     * @return ResponseEntity with not found error details
+     */
+    @ExceptionHandler(ScheduleNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleScheduleNotFoundException(ScheduleNotFoundException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Schedule not found");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    /**
+     * Handles InvalidScheduleException.
+     * 
+     * @param ex The invalid schedule exception
+     * @return ResponseEntity with bad request error details
+     */
+    @ExceptionHandler(InvalidScheduleException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidScheduleException(InvalidScheduleException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Invalid schedule");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    /**
+     * Handles AuditLogBackloggedException.
+     * 
+     * @param ex The audit log backlogged exception
+     * @return ResponseEntity with service unavailable error details
+     */
+    @ExceptionHandler(AuditLogBackloggedException.class)
+    public ResponseEntity<Map<String, Object>> handleAuditLogBackloggedException(AuditLogBackloggedException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", "Audit log backlogged");
+        response.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
     /**
      * Handles general runtime exceptions.
      * 
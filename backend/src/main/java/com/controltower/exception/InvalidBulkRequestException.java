@@ -0,0 +1,16 @@
+package com.controltower.exception;
+
+/**
+ * Exception thrown when a bulk flag request is too large or lists a flag
+ * more than once.
+ */
+public class InvalidBulkRequestException extends RuntimeException {
+
+    public InvalidBulkRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidBulkRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
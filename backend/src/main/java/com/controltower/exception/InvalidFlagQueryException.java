@@ -0,0 +1,15 @@
+package com.controltower.exception;
+
+/**
+ * Exception thrown when the parameters of a flag listing are invalid.
+ */
+public class InvalidFlagQueryException extends RuntimeException {
+
+    public InvalidFlagQueryException(String message) {
+        super(message);
+    }
+
+    public InvalidFlagQueryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,16 @@
+package com.controltower.exception;
+
+/**
+ * Exception thrown when a flag schedule cannot be created, e.g. because its
+ * time is in the past.
+ */
+public class InvalidScheduleException extends RuntimeException {
+
+    public InvalidScheduleException(String message) {
+        super(message);
+    }
+
+    public InvalidScheduleException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,17 @@
+package com.controltower.exception;
+
+/**
+ * Exception thrown when targeting rules or a segment definition cannot be
+ * compiled, e.g. because of an invalid regular expression or an unknown
+ * segment.
+ */
+public class InvalidTargetingException extends RuntimeException {
+
+    public InvalidTargetingException(String message) {
+        super(message);
+    }
+
+    public InvalidTargetingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
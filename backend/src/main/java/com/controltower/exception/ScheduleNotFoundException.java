@@ -0,0 +1,16 @@
+package com.controltower.exception;
+
+/**
+ * Exception thrown when a flag schedule with the specified ID is not found,
+ * or is no longer pending.
+ */
+public class ScheduleNotFoundException extends RuntimeException {
+
+    public ScheduleNotFoundException(String message) {
+        super(message);
+    }
+
+    public ScheduleNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
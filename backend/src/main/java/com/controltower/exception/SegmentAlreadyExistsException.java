@@ -0,0 +1,16 @@
+package com.controltower.exception;
+
+/**
+ * Exception thrown when attempting to create or rename a segment to a name
+ * that is already taken.
+ */
+public class SegmentAlreadyExistsException extends RuntimeException {
+
+    public SegmentAlreadyExistsException(String message) {
+        super(message);
+    }
+
+    public SegmentAlreadyExistsException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
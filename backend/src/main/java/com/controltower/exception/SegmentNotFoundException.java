@@ -0,0 +1,15 @@
+package com.controltower.exception;
+
+/**
+ * Exception thrown when a segment with the specified ID is not found.
+ */
+public class SegmentNotFoundException extends RuntimeException {
+
+    public SegmentNotFoundException(String message) {
+        super(message);
+    }
+
+    public SegmentNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
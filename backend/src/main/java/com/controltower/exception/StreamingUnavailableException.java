@@ -0,0 +1,16 @@
+package com.controltower.exception;
+
+/**
+ * Exception thrown when a flag stream is requested for flags that are not
+ * streamed, e.g. those of an environment.
+ */
+public class StreamingUnavailableException extends RuntimeException {
+
+    public StreamingUnavailableException(String message) {
+        super(message);
+    }
+
+    public StreamingUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
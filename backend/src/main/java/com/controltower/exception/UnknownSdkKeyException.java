@@ -0,0 +1,15 @@
+package com.controltower.exception;
+
+/**
+ * Exception thrown when a public API request carries an SDK key that belongs to no environment.
+ */
+public class UnknownSdkKeyException extends RuntimeException {
+
+    public UnknownSdkKeyException(String message) {
+        super(message);
+    }
+
+    public UnknownSdkKeyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,29 @@
+package com.controltower.metrics;
+
+import com.controltower.service.AuditLogService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters describing the audit log writes.
+ */
+@Component
+public class AuditLogMetrics implements MeterBinder {
+
+    private final AuditLogService auditLogService;
+
+    @Autowired
+    public AuditLogMetrics(AuditLogService auditLogService) {
+        this.auditLogService = auditLogService;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("controltower.audit.dropped", auditLogService, AuditLogService::getDroppedCount)
+                .description("Audit log entries given up because the database rejected them")
+                .register(registry);
+    }
+}
@@ -0,0 +1,153 @@
+package com.controltower.metrics;
+
+import com.controltower.evaluation.CompiledFlag;
+import com.controltower.evaluation.EvaluationCounter;
+import com.controltower.snapshot.EnvironmentSnapshotPublishedEvent;
+import com.controltower.snapshot.FlagSnapshot;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.controltower.snapshot.FlagSnapshotPublishedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Per-flag evaluation counts, as {@code controltower.flag.evaluations} tagged
+ * with the flag name, the result and the environment: {@code base} for the
+ * default snapshot, {@code <project>/<key>} for evaluations made with the SDK
+ * key of an environment.
+ *
+ * Meters are registered up front for every flag of each published snapshot
+ * and read the {@link EvaluationCounter} of the flag's compiled evaluator, so
+ * evaluating a flag never looks up or creates a meter. Meters of deleted or
+ * renamed flags are removed, and those of an environment once it is deleted.
+ * With many flags this adds two series per flag;
+ * set {@code controltower.metrics.flag-evaluations.enabled=false} to turn it
+ * off.
+ */
+@Component
+@ConditionalOnProperty(name = "controltower.metrics.flag-evaluations.enabled", matchIfMissing = true)
+public class FlagEvaluationMetrics {
+
+    static final String METER_NAME = "controltower.flag.evaluations";
+    static final String BASE_ENVIRONMENT = "base";
+
+    private final MeterRegistry registry;
+    private final FlagSnapshotCache flagSnapshotCache;
+
+    // Guarded by this
+    private final Map<String, Map<Long, Registration>> registrations = new HashMap<>();
+
+    @Autowired
+    public FlagEvaluationMetrics(MeterRegistry registry, FlagSnapshotCache flagSnapshotCache) {
+        this.registry = registry;
+        this.flagSnapshotCache = flagSnapshotCache;
+    }
+
+    /**
+     * Registers the flags of a snapshot published before this component was
+     * created.
+     */
+    @PostConstruct
+    public void registerLoadedSnapshot() {
+        FlagSnapshot snapshot = flagSnapshotCache.peek();
+        if (snapshot != null) {
+            register(BASE_ENVIRONMENT, snapshot);
+        }
+    }
+
+    /**
+     * Brings the registered meters in line with a newly published snapshot.
+     *
+     * @param event The snapshot published event
+     */
+    @EventListener
+    public void onSnapshotPublished(FlagSnapshotPublishedEvent event) {
+        register(BASE_ENVIRONMENT, event.getCurrent());
+    }
+
+    /**
+     * Brings the registered meters of an environment in line with its newly
+     * published snapshot, or removes them if it was deleted.
+     *
+     * @param event The environment snapshot published event
+     */
+    @EventListener
+    public void onEnvironmentSnapshotPublished(EnvironmentSnapshotPublishedEvent event) {
+        register(event.getEnvironment(), event.getCurrent());
+    }
+
+    private synchronized void register(String environment, FlagSnapshot snapshot) {
+        Map<Long, CompiledFlag> flags = new HashMap<>();
+        if (snapshot != null) {
+            for (CompiledFlag flag : snapshot.getEvaluators()) {
+                flags.put(flag.getId(), flag);
+            }
+        }
+        Map<Long, Registration> registered = registrations.computeIfAbsent(environment, key -> new HashMap<>());
+        // Remove stale meters first: a new flag may take the name of a
+        // renamed or deleted one, and must not pick up its meters.
+        registered.entrySet().removeIf(entry -> {
+            CompiledFlag flag = flags.get(entry.getKey());
+            if (flag != null && entry.getValue().isFor(flag)) {
+                return false;
+            }
+            entry.getValue().remove(registry);
+            return true;
+        });
+        for (CompiledFlag flag : flags.values()) {
+            registered.computeIfAbsent(flag.getId(), id -> new Registration(flag, List.of(
+                    counter(environment, flag, "enabled", EvaluationCounter::enabledCount),
+                    counter(environment, flag, "disabled", EvaluationCounter::disabledCount))));
+        }
+        if (registered.isEmpty()) {
+            registrations.remove(environment);
+        }
+    }
+
+    private Meter counter(String environment, CompiledFlag flag, String result,
+            ToDoubleFunction<EvaluationCounter> count) {
+        return FunctionCounter.builder(METER_NAME, flag.getCounter(), count)
+                .tag("flag", flag.getName())
+                .tag("result", result)
+                .tag("environment", environment)
+                .description("Flag evaluations by result")
+                .register(registry);
+    }
+
+    /**
+     * The meters registered for one flag, with the name and counter they
+     * were registered for.
+     */
+    private static final class Registration {
+
+        private final String name;
+        private final EvaluationCounter counter;
+        private final List<Meter> meters;
+
+        private Registration(CompiledFlag flag, List<Meter> meters) {
+            this.name = flag.getName();
+            this.counter = flag.getCounter();
+            this.meters = meters;
+        }
+
+        private boolean isFor(CompiledFlag flag) {
+            return counter == flag.getCounter() && name.equals(flag.getName());
+        }
+
+        private void remove(MeterRegistry registry) {
+            for (Meter meter : meters) {
+                registry.remove(meter);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.controltower.metrics;
+
+import com.controltower.service.FlagStreamService;
+import com.controltower.snapshot.ContentCoding;
+import com.controltower.snapshot.FlagSnapshot;
+import com.controltower.snapshot.FlagSnapshotCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Meters describing the flag snapshot cache and the flag stream.
+ *
+ * Every meter reads state the cache and the stream service keep anyway, when
+ * the registry is scraped; nothing is recorded on the read path beyond the
+ * cache's own hit and miss counters.
+ */
+@Component
+public class SnapshotMetrics implements MeterBinder {
+
+    private final FlagSnapshotCache flagSnapshotCache;
+    private final FlagStreamService flagStreamService;
+
+    @Autowired
+    public SnapshotMetrics(FlagSnapshotCache flagSnapshotCache, FlagStreamService flagStreamService) {
+        this.flagSnapshotCache = flagSnapshotCache;
+        this.flagStreamService = flagStreamService;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("controltower.snapshot.reads", flagSnapshotCache, FlagSnapshotCache::getHitCount)
+                .tag("result", "hit")
+                .description("Snapshot reads served by the published snapshot")
+                .register(registry);
+        FunctionCounter.builder("controltower.snapshot.reads", flagSnapshotCache, FlagSnapshotCache::getMissCount)
+                .tag("result", "miss")
+                .description("Snapshot reads that had to load the snapshot first")
+                .register(registry);
+        FunctionTimer.builder("controltower.snapshot.rebuilds", flagSnapshotCache,
+                        FlagSnapshotCache::getRebuildCount, FlagSnapshotCache::getRebuildNanos, TimeUnit.NANOSECONDS)
+                .description("Snapshot rebuilds, including rule compilation and payload encoding")
+                .register(registry);
+
+        Gauge.builder("controltower.snapshot.version", snapshotValue(FlagSnapshot::getVersion))
+                .description("Flag set version of the published snapshot")
+                .register(registry);
+        Gauge.builder("controltower.snapshot.version.lag", flagSnapshotCache, FlagSnapshotCache::getVersionLag)
+                .description("Committed versions not yet published to readers")
+                .register(registry);
+        Gauge.builder("controltower.snapshot.flags", snapshotValue(snapshot -> snapshot.getFlags().size()))
+                .tag("state", "all")
+                .description("Flags in the published snapshot")
+                .register(registry);
+        Gauge.builder("controltower.snapshot.flags", snapshotValue(snapshot -> snapshot.getActiveFlagNames().size()))
+                .tag("state", "active")
+                .description("Flags in the published snapshot")
+                .register(registry);
+        for (ContentCoding coding : ContentCoding.values()) {
+            Gauge.builder("controltower.snapshot.payload.size",
+                            snapshotValue(snapshot -> snapshot.getActiveFlagsPayload().bytes(coding).length))
+                    .tag("coding", coding.name().toLowerCase(Locale.ROOT))
+                    .baseUnit("bytes")
+                    .description("Size of the public active flags payload")
+                    .register(registry);
+        }
+
+        Gauge.builder("controltower.stream.subscribers", flagStreamService, FlagStreamService::getSubscriberCount)
+                .description("Open flag streams on this node")
+                .register(registry);
+    }
+
+    private Supplier<Number> snapshotValue(ToDoubleFunction<FlagSnapshot> value) {
+        return () -> {
+            FlagSnapshot snapshot = flagSnapshotCache.peek();
+            return snapshot != null ? value.applyAsDouble(snapshot) : Double.NaN;
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package com.controltower.repository;
+
+import com.controltower.entity.Environment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for Environment entity operations.
+ */
+@Repository
+public interface EnvironmentRepository extends JpaRepository<Environment, Long> {
+
+  /**
+   * Checks if a project already has an environment with a key.
+   * 
+   * @param project The project key
+   * @param key     The environment key
+   * @return true if exists, false otherwise
+   */
+  boolean existsByProjectAndKey(String project, String key);
+
+  /**
+   * Finds every environment, ordered by project and key.
+   * 
+   * @return List with every environment
+   */
+  List<Environment> findAllByOrderByProjectAscKeyAsc();
+
+  /**
+   * Increments the version of an environment. The row stays locked until the
+   * calling transaction ends, which serializes concurrent changes to the
+   * environment's flags.
+   * 
+   * @param id The environment ID
+   * @return The number of updated rows, 0 if the environment does not exist
+   */
+  @Modifying
+  @Query("UPDATE Environment e SET e.version = e.version + 1 WHERE e.id = :id")
+  int incrementVersion(Long id);
+
+  /**
+   * Increments the version of every environment of the given projects.
+   * 
+   * @param projects The project keys
+   * @return The number of updated rows
+   */
+  @Modifying
+  @Query("UPDATE Environment e SET e.version = e.version + 1 WHERE e.project IN :projects")
+  int incrementVersionsOfProjects(Collection<String> projects);
+
+  /**
+   * Increments the version of every environment.
+   * 
+   * @return The number of updated rows
+   */
+  @Modifying
+  @Query("UPDATE Environment e SET e.version = e.version + 1")
+  int incrementAllVersions();
+}
@@ -1,10 +1,14 @@
 package com.controltower.repository;
 
 import com.controltower.entity.FeatureFlag;
+import com.controltower.snapshot.FlagState;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,44 +19,127 @@ import java.util.Optional;
  * for the feature flags system.
  */
 @Repository
-public interface FeatureFlagRepository extends JpaRepository<FeatureFlag, Long> {
+public interface FeatureFlagRepository extends JpaRepository<FeatureFlag, Long>, FeatureFlagRepositoryCustom {
 
   /**
-   * Finds a feature flag by name.
+   * Finds a feature flag by project and name.
    * 
-   * @param name Flag name
+   * @param project Project key
+   * @param name    Flag name
    * @return Optional containing the flag if found
    */
-  Optional<FeatureFlag> findByName(String name);
+  Optional<FeatureFlag> findByProjectAndName(String project, String name);
 
   /**
-   * Checks if a flag with the specified name exists.
+   * Checks if a flag with the specified name exists in a project.
    * 
-   * @param name Flag name
+   * @param project Project key
+   * @param name    Flag name
    * @return true if exists, false otherwise
    */
-  boolean existsByName(String name);
+  boolean existsByProjectAndName(String project, String name);
 
   /**
-   * Checks if a flag with the specified name exists, excluding a specific ID.
-   * Used for update operations to prevent name conflicts.
+   * Checks if a flag with the specified name exists in a project, excluding a
+   * specific ID. Used for update operations to prevent name conflicts.
    * 
-   * @param name Flag name
-   * @param id ID to exclude from the search
+   * @param project Project key
+   * @param name    Flag name
+   * @param id      ID to exclude from the search
    * @return true if exists, false otherwise
    */
-  boolean existsByNameAndIdNot(String name, Long id);
+  boolean existsByProjectAndNameAndIdNot(String project, String name, Long id);
 
   /**
-   * Finds all active flags.
+   * Finds all active flags of the default project.
    * Optimized for the public endpoint /api/v1/flags/active
    * which should respond in less than 50ms.
    * 
    * @return List with active flag names
    */
-  @Query("SELECT f.name FROM FeatureFlag f WHERE f.isActive = true")
+  @Query("SELECT f.name FROM FeatureFlag f WHERE f.isActive = true AND f.project = '" + FeatureFlag.DEFAULT_PROJECT + "'")
   List<String> findActiveFlagNames();
 
+  /**
+   * Finds the base state of every flag of the default project, ordered by ID.
+   * Used to build the in-memory snapshot served by the public API when no
+   * SDK key is given, selecting only the columns it needs.
+   * 
+   * @return List with the state of every flag
+   */
+  @Query("SELECT new com.controltower.snapshot.FlagState(f.id, f.name, f.isActive, f.targeting) FROM FeatureFlag f"
+      + " WHERE f.project = '" + FeatureFlag.DEFAULT_PROJECT + "' ORDER BY f.id")
+  List<FlagState> findAllFlagStates();
+
+  /**
+   * Finds the ID, project, name and base state of every flag of every
+   * project, without their targeting.
+   * 
+   * @return One summary per flag
+   */
+  @Query("SELECT f.id AS id, f.project AS project, f.name AS name, f.isActive AS active FROM FeatureFlag f")
+  List<FlagSummary> findAllSummaries();
+
+  /**
+   * Finds which of the given names are taken in a project.
+   * 
+   * @param project The project key
+   * @param names   The flag names
+   * @return The names that already exist
+   */
+  @Query("SELECT f.name FROM FeatureFlag f WHERE f.project = :project AND f.name IN :names")
+  List<String> findExistingNames(String project, Collection<String> names);
+
+  /**
+   * Finds the flags of a project with the given names.
+   * 
+   * @param project The project key
+   * @param names   The flag names
+   * @return The existing flags, in no particular order
+   */
+  List<FeatureFlag> findByProjectAndNameIn(String project, Collection<String> names);
+
+  /**
+   * Finds the projects of the flags with the given IDs.
+   * 
+   * @param ids The flag IDs
+   * @return The distinct project keys
+   */
+  @Query("SELECT DISTINCT f.project FROM FeatureFlag f WHERE f.id IN :ids")
+  List<String> findProjectsByIdIn(Collection<Long> ids);
+
+  /**
+   * Finds which of the flags with the given IDs belong to a project.
+   * 
+   * @param project The project key
+   * @param ids     The flag IDs
+   * @return The IDs of the flags of the project
+   */
+  @Query("SELECT f.id FROM FeatureFlag f WHERE f.project = :project AND f.id IN :ids")
+  List<Long> findIdsByProjectAndIdIn(String project, Collection<Long> ids);
+
+  /**
+   * Toggles the active state of several flags with a single statement.
+   * 
+   * @param ids The flag IDs
+   * @param now The new update timestamp
+   * @return The number of updated flags
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("UPDATE FeatureFlag f SET f.isActive = CASE WHEN f.isActive = true THEN false ELSE true END,"
+      + " f.updatedAt = :now, f.revision = f.revision + 1 WHERE f.id IN :ids")
+  int toggleAllById(Collection<Long> ids, OffsetDateTime now);
+
+  /**
+   * Deletes several flags with a single statement.
+   * 
+   * @param ids The flag IDs
+   * @return The number of deleted flags
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("DELETE FROM FeatureFlag f WHERE f.id IN :ids")
+  int deleteAllByIdIn(Collection<Long> ids);
+
   /**
    * Finds all active flags (complete entity).
    * 
@@ -66,4 +153,18 @@ public interface FeatureFlagRepository extends JpaRepository<FeatureFlag, Long>
    * @return List of inactive flags
    */
   List<FeatureFlag> findByIsActiveFalse();
+
+  /**
+   * The identity and base state of one flag.
+   */
+  interface FlagSummary {
+
+    Long getId();
+
+    String getProject();
+
+    String getName();
+
+    Boolean getActive();
+  }
 }
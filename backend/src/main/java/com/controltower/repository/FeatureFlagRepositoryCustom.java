@@ -0,0 +1,56 @@
+package com.controltower.repository;
+
+import com.controltower.entity.FeatureFlag;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Queries of the FeatureFlag repository that are built at runtime.
+ */
+public interface FeatureFlagRepositoryCustom {
+
+  /**
+   * Lists flags in ID order, reading only the selected columns.
+   * 
+   * Pagination is keyset based: the next page starts after the last ID of
+   * the previous one, so every page costs an index range scan however deep
+   * it is.
+   * 
+   * @param afterId    Exclusive lower bound of the ID, null to start at the first flag
+   * @param limit      Maximum number of rows, null for no limit
+   * @param project    Only flags of this project, null for every project
+   * @param active     Only flags in this state, null for both
+   * @param namePrefix Only flags whose name starts with this prefix, null for all
+   * @param fields     The columns to read; the ID is always read
+   * @return The selected columns of each flag
+   */
+  List<FlagRow> findFlagRows(Long afterId, Integer limit, String project, Boolean active, String namePrefix,
+      Set<FlagField> fields);
+
+  /**
+   * Toggles the active state of a flag with a single atomic UPDATE, without
+   * loading it first, and reads the updated row back in the same round trip
+   * where the database supports it.
+   * 
+   * The persistence context is bypassed; do not use a FeatureFlag entity
+   * loaded before the toggle in the same transaction.
+   * 
+   * @param id               The flag ID
+   * @param expectedRevision Only toggle the flag if it is at this revision, null for any
+   * @return Every column of the toggled flag, or empty if no flag has this ID
+   *         and revision
+   */
+  Optional<FlagRow> toggle(Long id, Long expectedRevision);
+
+  /**
+   * Inserts new flags with one batched statement.
+   * 
+   * The flags are not attached to the persistence context and their IDs are
+   * not set; read them back by name if needed.
+   * 
+   * @param flags The flags to insert, with their name, project, description and state
+   */
+  void insertAll(List<FeatureFlag> flags);
+}
@@ -0,0 +1,190 @@
+package com.controltower.repository;
+
+import com.controltower.entity.FeatureFlag;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Implementation of the FeatureFlag queries that JPQL methods cannot express.
+ * 
+ * Listings are read as tuples of the selected columns, so no entity is
+ * created or attached to the persistence context. Bulk inserts go through
+ * JDBC batching, which Hibernate disables for identity-generated IDs. Toggles
+ * are a single UPDATE, with RETURNING on PostgreSQL.
+ */
+class FeatureFlagRepositoryCustomImpl implements FeatureFlagRepositoryCustom {
+
+  private static final char LIKE_ESCAPE = '\\';
+
+  private static final String INSERT_FLAG = "INSERT INTO feature_flags"
+      + " (name, project, is_active, description, created_at, updated_at, revision) VALUES (?, ?, ?, ?, ?, ?, 0)";
+
+  private static final String FLAG_COLUMNS =
+      "id, name, project, is_active, description, targeting, created_at, updated_at, revision";
+
+  private static final String TOGGLE_FLAG = "UPDATE feature_flags"
+      + " SET is_active = NOT is_active, updated_at = ?, revision = revision + 1 WHERE id = ?";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  // Resolved on first use, as the database may not be up when this is created
+  private volatile Boolean supportsReturning;
+
+  @Autowired
+  FeatureFlagRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public List<FlagRow> findFlagRows(Long afterId, Integer limit, String project, Boolean active, String namePrefix,
+      Set<FlagField> fields) {
+    Set<FlagField> selected = EnumSet.of(FlagField.ID);
+    selected.addAll(fields);
+
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = builder.createTupleQuery();
+    Root<FeatureFlag> flag = query.from(FeatureFlag.class);
+
+    List<Selection<?>> columns = new ArrayList<>(selected.size());
+    for (FlagField field : selected) {
+      columns.add(flag.get(field.getProperty()).alias(field.getProperty()));
+    }
+    query.multiselect(columns);
+
+    List<Predicate> predicates = new ArrayList<>();
+    if (afterId != null) {
+      predicates.add(builder.greaterThan(flag.get("id"), afterId));
+    }
+    if (project != null) {
+      predicates.add(builder.equal(flag.get("project"), project));
+    }
+    if (active != null) {
+      predicates.add(builder.equal(flag.get("isActive"), active));
+    }
+    if (namePrefix != null && !namePrefix.isEmpty()) {
+      predicates.add(builder.like(flag.get("name"), escapeLike(namePrefix) + "%", LIKE_ESCAPE));
+    }
+    query.where(predicates.toArray(new Predicate[0]));
+    query.orderBy(builder.asc(flag.get("id")));
+
+    TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+    if (limit != null) {
+      typedQuery.setMaxResults(limit);
+    }
+
+    List<Tuple> tuples = typedQuery.getResultList();
+    List<FlagRow> rows = new ArrayList<>(tuples.size());
+    for (Tuple tuple : tuples) {
+      FlagRow row = new FlagRow(selected);
+      for (FlagField field : selected) {
+        Object value = tuple.get(field.getProperty());
+        switch (field) {
+          case ID -> row.setId((Long) value);
+          case NAME -> row.setName((String) value);
+          case PROJECT -> row.setProject((String) value);
+          case IS_ACTIVE -> row.setIsActive((Boolean) value);
+          case DESCRIPTION -> row.setDescription((String) value);
+          case TARGETING -> row.setTargeting((String) value);
+          case CREATED_AT -> row.setCreatedAt((OffsetDateTime) value);
+          case UPDATED_AT -> row.setUpdatedAt((OffsetDateTime) value);
+          case REVISION -> row.setRevision((Long) value);
+        }
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  @Override
+  public void insertAll(List<FeatureFlag> flags) {
+    OffsetDateTime now = OffsetDateTime.now();
+    jdbcTemplate.batchUpdate(INSERT_FLAG, flags, flags.size(), (statement, flag) -> {
+      statement.setString(1, flag.getName());
+      statement.setString(2, flag.getProject());
+      statement.setBoolean(3, Boolean.TRUE.equals(flag.getIsActive()));
+      statement.setString(4, flag.getDescription());
+      statement.setObject(5, now);
+      statement.setObject(6, now);
+    });
+  }
+
+  @Override
+  public Optional<FlagRow> toggle(Long id, Long expectedRevision) {
+    String sql = expectedRevision != null ? TOGGLE_FLAG + " AND revision = ?" : TOGGLE_FLAG;
+    Object[] args = expectedRevision != null
+        ? new Object[] {OffsetDateTime.now(), id, expectedRevision}
+        : new Object[] {OffsetDateTime.now(), id};
+    if (supportsReturning()) {
+      return jdbcTemplate.query(sql + " RETURNING " + FLAG_COLUMNS, FeatureFlagRepositoryCustomImpl::mapRow, args)
+          .stream()
+          .findFirst();
+    }
+    // The updated row stays locked until commit, so reading it back is equivalent
+    if (jdbcTemplate.update(sql, args) == 0) {
+      return Optional.empty();
+    }
+    return jdbcTemplate.query("SELECT " + FLAG_COLUMNS + " FROM feature_flags WHERE id = ?",
+        FeatureFlagRepositoryCustomImpl::mapRow, id).stream().findFirst();
+  }
+
+  private boolean supportsReturning() {
+    Boolean supported = supportsReturning;
+    if (supported == null) {
+      supported = jdbcTemplate.execute((Connection connection) -> {
+        DatabaseMetaData metaData = connection.getMetaData();
+        return "PostgreSQL".equalsIgnoreCase(metaData.getDatabaseProductName());
+      });
+      supportsReturning = supported;
+    }
+    return supported;
+  }
+
+  private static FlagRow mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+    FlagRow row = new FlagRow(FlagField.all());
+    row.setId(resultSet.getLong("id"));
+    row.setName(resultSet.getString("name"));
+    row.setProject(resultSet.getString("project"));
+    row.setIsActive(resultSet.getBoolean("is_active"));
+    row.setDescription(resultSet.getString("description"));
+    row.setTargeting(resultSet.getString("targeting"));
+    row.setCreatedAt(resultSet.getObject("created_at", OffsetDateTime.class));
+    row.setUpdatedAt(resultSet.getObject("updated_at", OffsetDateTime.class));
+    row.setRevision(resultSet.getLong("revision"));
+    return row;
+  }
+
+  private static String escapeLike(String value) {
+    StringBuilder escaped = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+        escaped.append(LIKE_ESCAPE);
+      }
+      escaped.append(c);
+    }
+    return escaped.toString();
+  }
+}
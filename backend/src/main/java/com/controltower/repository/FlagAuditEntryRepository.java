@@ -0,0 +1,15 @@
+package com.controltower.repository;
+
+import com.controltower.entity.FlagAuditEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for the flag audit log.
+ *
+ * Entries are inserted with batched JDBC statements by the audit log
+ * service and read one time range page at a time.
+ */
+@Repository
+public interface FlagAuditEntryRepository extends JpaRepository<FlagAuditEntry, Long>, FlagAuditEntryRepositoryCustom {
+}
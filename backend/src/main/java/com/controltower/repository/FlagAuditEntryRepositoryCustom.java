@@ -0,0 +1,54 @@
+package com.controltower.repository;
+
+import com.controltower.entity.FlagAuditEntry;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Statements of the audit log repository that JPQL methods cannot express.
+ */
+public interface FlagAuditEntryRepositoryCustom {
+
+  /**
+   * Inserts audit log entries with one batched statement.
+   *
+   * The entries are not attached to the persistence context and their IDs
+   * are not set.
+   *
+   * @param entries The entries to insert
+   */
+  void insertAll(List<FlagAuditEntry> entries);
+
+  /**
+   * Finds audit log entries in a time range, oldest first. Entries made at
+   * the same instant are ordered by ID.
+   *
+   * @param from     Inclusive lower bound of the time of the change
+   * @param to       Exclusive upper bound of the time of the change
+   * @param flagId   Only entries of this flag, null for every flag
+   * @param actor    Only entries of this user, null for every user
+   * @param afterAt  Only entries after this time, or at it with a greater ID; null to start at the range start
+   * @param afterId  The ID bound of afterAt
+   * @param limit    The maximum number of entries
+   * @return The entries
+   */
+  List<FlagAuditEntry> findRange(OffsetDateTime from, OffsetDateTime to, Long flagId, String actor,
+      OffsetDateTime afterAt, Long afterId, int limit);
+
+  /**
+   * Checks whether the audit log table is partitioned, i.e. was created by
+   * the PostgreSQL schema rather than by Hibernate.
+   *
+   * @return true if monthly partitions must be created
+   */
+  boolean isPartitioned();
+
+  /**
+   * Creates the partition of a month, unless it exists.
+   *
+   * @param month The month
+   */
+  void createPartition(YearMonth month);
+}
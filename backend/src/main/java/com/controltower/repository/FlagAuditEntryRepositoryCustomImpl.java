@@ -0,0 +1,113 @@
+package com.controltower.repository;
+
+import com.controltower.entity.FlagAuditEntry;
+import com.controltower.entity.FlagChangeEntry.ChangeType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDBC implementation of the audit log statements: batched inserts, which
+ * Hibernate does not batch for identity-generated IDs, keyset pages, and
+ * partition maintenance.
+ */
+class FlagAuditEntryRepositoryCustomImpl implements FlagAuditEntryRepositoryCustom {
+
+  private static final String INSERT_ENTRY = "INSERT INTO flag_audit_log"
+      + " (occurred_at, actor, action, flag_id, flag_name, version, before_state, after_state)"
+      + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+  private static final String ENTRY_COLUMNS =
+      "id, occurred_at, actor, action, flag_id, flag_name, version, before_state, after_state";
+
+  private static final String IS_PARTITIONED = "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table p"
+      + " JOIN pg_class c ON c.oid = p.partrelid WHERE c.relname = 'flag_audit_log')";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  FlagAuditEntryRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public void insertAll(List<FlagAuditEntry> entries) {
+    jdbcTemplate.batchUpdate(INSERT_ENTRY, entries, entries.size(), (statement, entry) -> {
+      statement.setObject(1, entry.getOccurredAt());
+      statement.setString(2, entry.getActor());
+      statement.setString(3, entry.getAction().name());
+      statement.setLong(4, entry.getFlagId());
+      statement.setString(5, entry.getFlagName());
+      statement.setLong(6, entry.getVersion());
+      statement.setString(7, entry.getBeforeState());
+      statement.setString(8, entry.getAfterState());
+    });
+  }
+
+  @Override
+  public List<FlagAuditEntry> findRange(OffsetDateTime from, OffsetDateTime to, Long flagId, String actor,
+      OffsetDateTime afterAt, Long afterId, int limit) {
+    // Bounds on occurred_at let PostgreSQL skip the partitions of other months
+    StringBuilder sql = new StringBuilder("SELECT ").append(ENTRY_COLUMNS)
+        .append(" FROM flag_audit_log WHERE occurred_at >= ? AND occurred_at < ?");
+    List<Object> args = new ArrayList<>();
+    args.add(from);
+    args.add(to);
+    if (flagId != null) {
+      sql.append(" AND flag_id = ?");
+      args.add(flagId);
+    }
+    if (actor != null) {
+      sql.append(" AND actor = ?");
+      args.add(actor);
+    }
+    if (afterAt != null) {
+      sql.append(" AND (occurred_at > ? OR (occurred_at = ? AND id > ?))");
+      args.add(afterAt);
+      args.add(afterAt);
+      args.add(afterId);
+    }
+    sql.append(" ORDER BY occurred_at, id LIMIT ?");
+    args.add(limit);
+    return jdbcTemplate.query(sql.toString(), FlagAuditEntryRepositoryCustomImpl::mapRow, args.toArray());
+  }
+
+  @Override
+  public boolean isPartitioned() {
+    boolean postgres = Boolean.TRUE.equals(jdbcTemplate.execute((Connection connection) -> {
+      DatabaseMetaData metaData = connection.getMetaData();
+      return "PostgreSQL".equalsIgnoreCase(metaData.getDatabaseProductName());
+    }));
+    return postgres && Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED, Boolean.class));
+  }
+
+  @Override
+  public void createPartition(YearMonth month) {
+    YearMonth next = month.plusMonths(1);
+    jdbcTemplate.execute(String.format("CREATE TABLE IF NOT EXISTS flag_audit_log_%d_%02d PARTITION OF flag_audit_log"
+        + " FOR VALUES FROM ('%s-01 00:00:00+00') TO ('%s-01 00:00:00+00')",
+        month.getYear(), month.getMonthValue(), month, next));
+  }
+
+  private static FlagAuditEntry mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+    FlagAuditEntry entry = new FlagAuditEntry(
+        resultSet.getObject("occurred_at", OffsetDateTime.class),
+        resultSet.getString("actor"),
+        ChangeType.valueOf(resultSet.getString("action")),
+        resultSet.getLong("flag_id"),
+        resultSet.getString("flag_name"),
+        resultSet.getLong("version"),
+        resultSet.getString("before_state"),
+        resultSet.getString("after_state"));
+    entry.setId(resultSet.getLong("id"));
+    return entry;
+  }
+}
@@ -0,0 +1,44 @@
+package com.controltower.repository;
+
+import com.controltower.entity.FlagChangeEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for the flag change log.
+ */
+@Repository
+public interface FlagChangeEntryRepository extends JpaRepository<FlagChangeEntry, Long>, FlagChangeEntryRepositoryCustom {
+
+  /**
+   * Finds the changes in a version range, in the order they were made.
+   * 
+   * @param afterVersion Exclusive lower bound
+   * @param upToVersion  Inclusive upper bound
+   * @return The changes in the range
+   */
+  @Query("SELECT c FROM FlagChangeEntry c WHERE c.version > :afterVersion AND c.version <= :upToVersion ORDER BY c.id")
+  List<FlagChangeEntry> findChangesBetween(long afterVersion, long upToVersion);
+
+  /**
+   * Finds the oldest version still present in the change log.
+   * 
+   * @return The oldest version, or null if the log is empty
+   */
+  @Query("SELECT MIN(c.version) FROM FlagChangeEntry c")
+  Long findOldestVersion();
+
+  /**
+   * Deletes every change up to a version.
+   * 
+   * @param version Inclusive upper bound
+   * @return The number of deleted changes
+   */
+  @Modifying
+  @Query("DELETE FROM FlagChangeEntry c WHERE c.version <= :version")
+  int deleteUpToVersion(long version);
+}
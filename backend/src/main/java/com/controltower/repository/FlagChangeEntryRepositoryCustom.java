@@ -0,0 +1,21 @@
+package com.controltower.repository;
+
+import com.controltower.entity.FlagChangeEntry;
+
+import java.util.List;
+
+/**
+ * Statements of the change log repository that JPQL methods cannot express.
+ */
+public interface FlagChangeEntryRepositoryCustom {
+
+  /**
+   * Inserts change log entries with one batched statement.
+   * 
+   * The entries are not attached to the persistence context and their IDs
+   * are not set.
+   * 
+   * @param entries The entries to insert
+   */
+  void insertAll(List<FlagChangeEntry> entries);
+}
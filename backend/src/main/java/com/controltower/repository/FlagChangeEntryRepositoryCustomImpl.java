@@ -0,0 +1,42 @@
+package com.controltower.repository;
+
+import com.controltower.entity.FlagChangeEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * JDBC implementation of the batched change log inserts, which Hibernate
+ * does not batch for identity-generated IDs.
+ */
+class FlagChangeEntryRepositoryCustomImpl implements FlagChangeEntryRepositoryCustom {
+
+  private static final String INSERT_CHANGE = "INSERT INTO flag_changes"
+      + " (version, flag_id, change_type, previous_name, was_active, name, is_active, created_at)"
+      + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  FlagChangeEntryRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public void insertAll(List<FlagChangeEntry> entries) {
+    OffsetDateTime now = OffsetDateTime.now();
+    jdbcTemplate.batchUpdate(INSERT_CHANGE, entries, entries.size(), (statement, entry) -> {
+      statement.setLong(1, entry.getVersion());
+      statement.setLong(2, entry.getFlagId());
+      statement.setString(3, entry.getChangeType().name());
+      statement.setString(4, entry.getPreviousName());
+      statement.setObject(5, entry.getWasActive(), Types.BOOLEAN);
+      statement.setString(6, entry.getName());
+      statement.setObject(7, entry.getIsActive(), Types.BOOLEAN);
+      statement.setObject(8, now);
+    });
+  }
+}
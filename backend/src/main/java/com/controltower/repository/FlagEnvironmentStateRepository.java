@@ -0,0 +1,62 @@
+package com.controltower.repository;
+
+import com.controltower.entity.FlagEnvironmentState;
+import com.controltower.snapshot.FlagState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for the per-environment state of flags.
+ */
+@Repository
+public interface FlagEnvironmentStateRepository extends JpaRepository<FlagEnvironmentState, Long> {
+
+  /**
+   * Finds the state of a flag in an environment.
+   * 
+   * @param environmentId The environment ID
+   * @param flagId        The flag ID
+   * @return Optional containing the state if the flag was ever toggled there
+   */
+  Optional<FlagEnvironmentState> findByEnvironmentIdAndFlagId(Long environmentId, Long flagId);
+
+  /**
+   * Finds the state of every flag of a project in one of its environments,
+   * ordered by flag ID. Flags never toggled in the environment are inactive.
+   * Used to build the environment's in-memory snapshot.
+   * 
+   * @param environmentId The environment ID
+   * @param project       The project of the environment
+   * @return List with the state of every flag of the project
+   */
+  @Query("SELECT new com.controltower.snapshot.FlagState(f.id, f.name, COALESCE(s.isActive, false), f.targeting)"
+      + " FROM FeatureFlag f LEFT JOIN FlagEnvironmentState s ON s.flagId = f.id AND s.environmentId = :environmentId"
+      + " WHERE f.project = :project ORDER BY f.id")
+  List<FlagState> findEnvironmentFlagStates(Long environmentId, String project);
+
+  /**
+   * Deletes the flag states of an environment.
+   * 
+   * @param environmentId The environment ID
+   * @return The number of deleted rows
+   */
+  @Modifying
+  @Query("DELETE FROM FlagEnvironmentState s WHERE s.environmentId = :environmentId")
+  int deleteByEnvironmentId(Long environmentId);
+
+  /**
+   * Deletes the states of flags in every environment.
+   * 
+   * @param flagIds The flag IDs
+   * @return The number of deleted rows
+   */
+  @Modifying
+  @Query("DELETE FROM FlagEnvironmentState s WHERE s.flagId IN :flagIds")
+  int deleteByFlagIdIn(Collection<Long> flagIds);
+}
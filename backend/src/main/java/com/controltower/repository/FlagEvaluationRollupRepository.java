@@ -0,0 +1,55 @@
+package com.controltower.repository;
+
+import com.controltower.entity.FlagEvaluationRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Repository for the flag evaluation rollups.
+ * 
+ * Rollups are inserted with batched JDBC statements by the analytics service;
+ * this repository only reads and prunes them.
+ */
+@Repository
+public interface FlagEvaluationRollupRepository extends JpaRepository<FlagEvaluationRollup, Long> {
+
+  /**
+   * Sums the evaluation counts of every flag over the periods ending after
+   * an instant.
+   * 
+   * @param since Exclusive lower bound of the period end
+   * @return One row per flag evaluated in the window
+   */
+  @Query("SELECT r.flagId AS flagId, SUM(r.enabledCount) AS enabledCount, SUM(r.disabledCount) AS disabledCount,"
+      + " MAX(r.periodEnd) AS lastEvaluatedAt FROM FlagEvaluationRollup r WHERE r.periodEnd > :since GROUP BY r.flagId")
+  List<FlagEvaluationTotals> sumByFlagSince(OffsetDateTime since);
+
+  /**
+   * Deletes every rollup whose period ended before an instant.
+   * 
+   * @param before Exclusive upper bound of the period end
+   * @return The number of deleted rollups
+   */
+  @Modifying
+  @Query("DELETE FROM FlagEvaluationRollup r WHERE r.periodEnd < :before")
+  int deleteEndedBefore(OffsetDateTime before);
+
+  /**
+   * Evaluation totals of one flag over a time window.
+   */
+  interface FlagEvaluationTotals {
+
+    Long getFlagId();
+
+    Long getEnabledCount();
+
+    Long getDisabledCount();
+
+    OffsetDateTime getLastEvaluatedAt();
+  }
+}
@@ -0,0 +1,62 @@
+package com.controltower.repository;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Fields of a flag that can be selected when listing flags.
+ * 
+ * Each field is named after both the entity attribute it is read from and the
+ * JSON property it is returned as.
+ */
+public enum FlagField {
+
+  ID("id"),
+  NAME("name"),
+  PROJECT("project"),
+  IS_ACTIVE("isActive"),
+  DESCRIPTION("description"),
+  TARGETING("targeting"),
+  CREATED_AT("createdAt"),
+  UPDATED_AT("updatedAt"),
+  REVISION("revision");
+
+  private final String property;
+
+  FlagField(String property) {
+    this.property = property;
+  }
+
+  /**
+   * Gets the entity attribute and JSON property name of the field.
+   * 
+   * @return The property name
+   */
+  public String getProperty() {
+    return property;
+  }
+
+  /**
+   * Finds the field with a property name.
+   * 
+   * @param property The property name
+   * @return The field, or null if no field has that name
+   */
+  public static FlagField fromProperty(String property) {
+    for (FlagField field : values()) {
+      if (field.property.equals(property)) {
+        return field;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gets every field.
+   * 
+   * @return A new mutable set of all fields
+   */
+  public static Set<FlagField> all() {
+    return EnumSet.allOf(FlagField.class);
+  }
+}
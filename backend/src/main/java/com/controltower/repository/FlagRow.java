@@ -0,0 +1,110 @@
+package com.controltower.repository;
+
+import java.time.OffsetDateTime;
+import java.util.Set;
+
+/**
+ * The selected columns of one flag, read without loading the entity.
+ * 
+ * Fields that were not selected are null. The ID is always selected, as it is
+ * the pagination key.
+ */
+public class FlagRow {
+
+  private final Set<FlagField> fields;
+  private Long id;
+  private String name;
+  private String project;
+  private Boolean isActive;
+  private String description;
+  private String targeting;
+  private OffsetDateTime createdAt;
+  private OffsetDateTime updatedAt;
+  private Long revision;
+
+  FlagRow(Set<FlagField> fields) {
+    this.fields = fields;
+  }
+
+  /**
+   * Checks whether a field was selected.
+   * 
+   * @param field The field
+   * @return true if the field was read
+   */
+  public boolean has(FlagField field) {
+    return fields.contains(field);
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  void setId(Long id) {
+    this.id = id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  void setName(String name) {
+    this.name = name;
+  }
+
+  public String getProject() {
+    return project;
+  }
+
+  void setProject(String project) {
+    this.project = project;
+  }
+
+  public Boolean getIsActive() {
+    return isActive;
+  }
+
+  void setIsActive(Boolean isActive) {
+    this.isActive = isActive;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  void setDescription(String description) {
+    this.description = description;
+  }
+
+  public String getTargeting() {
+    return targeting;
+  }
+
+  void setTargeting(String targeting) {
+    this.targeting = targeting;
+  }
+
+  public OffsetDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  void setCreatedAt(OffsetDateTime createdAt) {
+    this.createdAt = createdAt;
+  }
+
+  public OffsetDateTime getUpdatedAt() {
+    return updatedAt;
+  }
+
+  void setUpdatedAt(OffsetDateTime updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+
+  public Long getRevision() {
+    return revision;
+  }
+
+  void setRevision(Long revision) {
+    this.revision = revision;
+  }
+}
@@ -0,0 +1,64 @@
+package com.controltower.repository;
+
+import com.controltower.entity.FlagSchedule;
+import com.controltower.entity.FlagSchedule.Status;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Repository for scheduled flag changes.
+ */
+@Repository
+public interface FlagScheduleRepository extends JpaRepository<FlagSchedule, Long> {
+
+  /**
+   * Finds the schedules of a flag, in execution order.
+   * 
+   * @param flagId The flag ID
+   * @return The schedules, whatever their status
+   */
+  List<FlagSchedule> findByFlagIdOrderByExecuteAtAscIdAsc(Long flagId);
+
+  /**
+   * Finds the pending schedules due before a given time, overdue ones
+   * included.
+   * 
+   * @param before Exclusive upper bound of the execution time
+   * @return The schedules, in execution order
+   */
+  @Query("SELECT s FROM FlagSchedule s WHERE s.status = com.controltower.entity.FlagSchedule$Status.PENDING"
+      + " AND s.executeAt < :before ORDER BY s.executeAt, s.id")
+  List<FlagSchedule> findPendingBefore(OffsetDateTime before);
+
+  /**
+   * Moves a schedule out of the pending state. The row stays locked until the
+   * calling transaction ends, so of two concurrent calls for the same
+   * schedule only one succeeds.
+   * 
+   * @param id          The schedule ID
+   * @param status      The new status
+   * @param completedAt The time of the change
+   * @param error       Why the schedule failed, null otherwise
+   * @return 1 if the schedule was pending, 0 otherwise
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("UPDATE FlagSchedule s SET s.status = :status, s.completedAt = :completedAt, s.error = :error"
+      + " WHERE s.id = :id AND s.status = com.controltower.entity.FlagSchedule$Status.PENDING")
+  int complete(Long id, Status status, OffsetDateTime completedAt, String error);
+
+  /**
+   * Counts a failed execution of a pending schedule.
+   * 
+   * @param id The schedule ID
+   * @return 1 if the schedule was pending, 0 otherwise
+   */
+  @Modifying(clearAutomatically = true)
+  @Query("UPDATE FlagSchedule s SET s.attempts = s.attempts + 1"
+      + " WHERE s.id = :id AND s.status = com.controltower.entity.FlagSchedule$Status.PENDING")
+  int countFailedAttempt(Long id);
+}
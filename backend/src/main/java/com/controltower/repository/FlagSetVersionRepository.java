@@ -0,0 +1,32 @@
+package com.controltower.repository;
+
+import com.controltower.entity.FlagSetVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for the flag set version counter.
+ */
+@Repository
+public interface FlagSetVersionRepository extends JpaRepository<FlagSetVersion, Short> {
+
+  /**
+   * Increments the flag set version. The row stays locked until the calling
+   * transaction ends, which serializes concurrent mutations.
+   * 
+   * @return The number of updated rows, 0 if the counter row does not exist
+   */
+  @Modifying
+  @Query("UPDATE FlagSetVersion v SET v.version = v.version + 1 WHERE v.id = 1")
+  int increment();
+
+  /**
+   * Reads the current flag set version.
+   * 
+   * @return The version, or null if the counter row does not exist
+   */
+  @Query("SELECT v.version FROM FlagSetVersion v WHERE v.id = 1")
+  Long findCurrentVersion();
+}
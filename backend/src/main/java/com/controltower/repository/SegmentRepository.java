@@ -0,0 +1,41 @@
+package com.controltower.repository;
+
+import com.controltower.entity.Segment;
+import com.controltower.snapshot.SegmentState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for Segment entity persistence operations.
+ */
+@Repository
+public interface SegmentRepository extends JpaRepository<Segment, Long> {
+
+  /**
+   * Checks if a segment with the specified name exists.
+   * 
+   * @param name Segment name
+   * @return true if exists, false otherwise
+   */
+  boolean existsByName(String name);
+
+  /**
+   * Checks if a segment with the specified name exists, excluding a specific ID.
+   * 
+   * @param name Segment name
+   * @param id ID to exclude from the search
+   * @return true if exists, false otherwise
+   */
+  boolean existsByNameAndIdNot(String name, Long id);
+
+  /**
+   * Finds the state of every segment, to be compiled into the flag snapshot.
+   * 
+   * @return List with the state of every segment
+   */
+  @Query("SELECT new com.controltower.snapshot.SegmentState(s.name, s.definition) FROM Segment s ORDER BY s.id")
+  List<SegmentState> findAllSegmentStates();
+}
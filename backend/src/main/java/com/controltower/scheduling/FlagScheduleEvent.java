@@ -0,0 +1,43 @@
+package com.controltower.scheduling;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Application event published by the service layer when a flag schedule is
+ * created or cancelled.
+ * 
+ * The scheduler listens to it after commit, so that a schedule created on
+ * the leading node is put on its timer wheel right away rather than on the
+ * next poll.
+ */
+public class FlagScheduleEvent {
+
+    private final long scheduleId;
+    private final OffsetDateTime executeAt;
+
+    public FlagScheduleEvent(long scheduleId, OffsetDateTime executeAt) {
+        this.scheduleId = scheduleId;
+        this.executeAt = executeAt;
+    }
+
+    public long getScheduleId() {
+        return scheduleId;
+    }
+
+    /**
+     * Gets when the schedule is due.
+     * 
+     * @return The execution time, or null if the schedule was cancelled
+     */
+    public OffsetDateTime getExecuteAt() {
+        return executeAt;
+    }
+
+    @Override
+    public String toString() {
+        return "FlagScheduleEvent{" +
+                "scheduleId=" + scheduleId +
+                ", executeAt=" + executeAt +
+                '}';
+    }
+}
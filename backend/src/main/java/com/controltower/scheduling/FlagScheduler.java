@@ -0,0 +1,318 @@
+package com.controltower.scheduling;
+
+import com.controltower.config.BackgroundThreads;
+import com.controltower.dto.FlagResponse;
+import com.controltower.entity.FlagSchedule;
+import com.controltower.entity.FlagSchedule.Action;
+import com.controltower.entity.FlagSchedule.Status;
+import com.controltower.exception.FlagNotFoundException;
+import com.controltower.exception.FlagRevisionMismatchException;
+import com.controltower.repository.FlagScheduleRepository;
+import com.controltower.scheduling.HashedTimerWheel.Timeout;
+import com.controltower.service.FlagService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Executes scheduled flag changes on the leading node.
+ *
+ * On PostgreSQL the leader is the node holding a session-level advisory lock
+ * on a dedicated connection, outside the pool; the other nodes retry to take
+ * it every poll interval, and take over within one poll interval of the
+ * leader's connection dropping. With any other database every node leads,
+ * which suits a single node.
+ *
+ * The leader polls the schedules due within the horizon and puts them on a
+ * {@link HashedTimerWheel}, so thousands of pending schedules cost one
+ * indexed query per poll and O(1) per tick; schedules further away stay in
+ * the database until they come within the horizon. Schedules created on the
+ * leader are added right away, those created on other nodes on the next
+ * poll. Overdue schedules, e.g. missed while no node led, run on the next
+ * tick.
+ *
+ * A schedule runs in one transaction that first moves it out of the pending
+ * state, then sets the flag through {@link FlagService}, so snapshots,
+ * versions, the change log and the audit log follow as for an admin request.
+ * Should two nodes both believe they lead, the second one waits on the row
+ * lock and then finds the schedule no longer pending, so each schedule runs
+ * once. A schedule whose flag was deleted fails; one that could not run,
+ * e.g. because the database was down, stays pending and is retried on the
+ * next poll. Each unexpected error is counted on the schedule, which fails
+ * with the last error once max-failures were counted, rather than being
+ * retried forever.
+ */
+@Component
+public class FlagScheduler {
+
+    // "ctlsched": the advisory lock held by the leader
+    private static final long LEADER_LOCK_KEY = 0x63746c7363686564L;
+    private static final int WHEEL_SIZE = 1024;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private static final Logger log = LoggerFactory.getLogger(FlagScheduler.class);
+
+    private final FlagScheduleRepository scheduleRepository;
+    private final FlagService flagService;
+    private final TransactionTemplate transaction;
+    private final DataSourceProperties dataSourceProperties;
+    private final BackgroundThreads backgroundThreads;
+    private final boolean enabled;
+    private final long tickNanos;
+    private final long pollIntervalNanos;
+    private final Duration horizon;
+    private final long reconnectDelay;
+    private final int maxFailures;
+
+    private final HashedTimerWheel<Long> wheel;
+    // Schedules on the wheel, by ID
+    private final Map<Long, Timeout<Long>> timeouts = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private volatile boolean leader;
+    private volatile Thread thread;
+
+    @Autowired
+    public FlagScheduler(FlagScheduleRepository scheduleRepository,
+            FlagService flagService,
+            PlatformTransactionManager transactionManager,
+            DataSourceProperties dataSourceProperties,
+            BackgroundThreads backgroundThreads,
+            @Value("${controltower.schedules.enabled:true}") boolean enabled,
+            @Value("${controltower.schedules.tick:100}") long tick,
+            @Value("${controltower.schedules.poll-interval:10000}") long pollInterval,
+            @Value("${controltower.schedules.horizon:300000}") long horizon,
+            @Value("${controltower.schedules.reconnect-delay:5000}") long reconnectDelay,
+            @Value("${controltower.schedules.max-failures:10}") int maxFailures) {
+        this.scheduleRepository = scheduleRepository;
+        this.flagService = flagService;
+        // Read-write, so that polls are never routed to a lagging replica
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.dataSourceProperties = dataSourceProperties;
+        this.backgroundThreads = backgroundThreads;
+        this.enabled = enabled;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tick);
+        this.pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pollInterval);
+        this.horizon = Duration.ofMillis(Math.max(horizon, 2 * pollInterval));
+        this.reconnectDelay = reconnectDelay;
+        this.maxFailures = maxFailures;
+        this.wheel = new HashedTimerWheel<>(tickNanos, WHEEL_SIZE, System.nanoTime());
+    }
+
+    /**
+     * Starts competing for leadership once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.debug("Flag schedules are not executed on this node");
+            return;
+        }
+        String url = dataSourceProperties.determineUrl();
+        running = true;
+        thread = backgroundThreads.start("flag-scheduler",
+                () -> run(url != null && url.startsWith("jdbc:postgresql:") ? url : null));
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread scheduler = thread;
+        if (scheduler != null) {
+            scheduler.interrupt();
+        }
+    }
+
+    /**
+     * Tells whether this node currently executes the schedules.
+     *
+     * @return true if this node leads
+     */
+    public boolean isLeader() {
+        return leader;
+    }
+
+    /**
+     * Puts a schedule created on this node on the wheel, or takes a
+     * cancelled one off it.
+     *
+     * @param event The schedule event
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onScheduleChanged(FlagScheduleEvent event) {
+        if (event.getExecuteAt() == null) {
+            Timeout<Long> timeout = timeouts.remove(event.getScheduleId());
+            if (timeout != null) {
+                wheel.cancel(timeout);
+            }
+        } else if (leader && event.getExecuteAt().isBefore(now().plus(horizon))) {
+            add(event.getScheduleId(), event.getExecuteAt());
+        }
+    }
+
+    private void run(String url) {
+        while (running) {
+            // No connection, and no lock, without PostgreSQL
+            try (Connection connection = url != null ? DriverManager.getConnection(url,
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword()) : null) {
+                if (connection != null && !tryLock(connection)) {
+                    LockSupport.parkNanos(pollIntervalNanos);
+                    continue;
+                }
+                leader = true;
+                log.info("Executing flag schedules on this node");
+                lead(connection);
+            } catch (SQLException | RuntimeException ex) {
+                if (running) {
+                    log.warn("Flag scheduler interrupted, retrying in {} ms: {}", reconnectDelay, ex.getMessage());
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(reconnectDelay));
+                }
+            } finally {
+                if (leader) {
+                    leader = false;
+                    timeouts.clear();
+                    wheel.clear();
+                }
+            }
+        }
+    }
+
+    private void lead(Connection connection) throws SQLException {
+        long nextPoll = System.nanoTime();
+        while (running) {
+            long now = System.nanoTime();
+            if (now - nextPoll >= 0) {
+                // The lock goes with the connection
+                if (connection != null && !connection.isValid(Math.max(1, (int) (reconnectDelay / 1000)))) {
+                    throw new SQLException("Scheduler lock connection is no longer valid");
+                }
+                poll();
+                nextPoll = now + pollIntervalNanos;
+            }
+            for (Long id : wheel.advance(now)) {
+                timeouts.remove(id);
+                execute(id);
+            }
+            long wakeUp = Math.min(wheel.nextTickNanos(), nextPoll);
+            LockSupport.parkNanos(wakeUp - System.nanoTime());
+        }
+    }
+
+    private void poll() {
+        OffsetDateTime before = now().plus(horizon);
+        List<FlagSchedule> due = transaction.execute(status -> scheduleRepository.findPendingBefore(before));
+        for (FlagSchedule schedule : due) {
+            add(schedule.getId(), schedule.getExecuteAt());
+        }
+    }
+
+    private void add(long id, OffsetDateTime executeAt) {
+        long delay = Duration.between(now(), executeAt).toNanos();
+        timeouts.computeIfAbsent(id, key -> wheel.schedule(key, System.nanoTime() + delay));
+    }
+
+    /**
+     * Executes one schedule, retrying if the flag changed concurrently.
+     *
+     * @param id The schedule ID
+     */
+    void execute(long id) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transaction.executeWithoutResult(status -> apply(id));
+                return;
+            } catch (FlagRevisionMismatchException ex) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    log.warn("Flag schedule {} kept conflicting with other changes, retrying on the next poll", id);
+                    return;
+                }
+            } catch (FlagNotFoundException ex) {
+                transaction.executeWithoutResult(status ->
+                        scheduleRepository.complete(id, Status.FAILED, now(), ex.getMessage()));
+                log.warn("Flag schedule {} failed: {}", id, ex.getMessage());
+                return;
+            } catch (RuntimeException ex) {
+                countFailure(id, ex);
+                return;
+            }
+        }
+    }
+
+    private void countFailure(long id, RuntimeException failure) {
+        String error = String.valueOf(failure.getMessage());
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        String reason = error;
+        try {
+            boolean failed = transaction.execute(status -> {
+                if (scheduleRepository.countFailedAttempt(id) == 0) {
+                    return false;
+                }
+                int attempts = scheduleRepository.findById(id).map(FlagSchedule::getAttempts).orElse(0);
+                return attempts >= maxFailures
+                        && scheduleRepository.complete(id, Status.FAILED, now(), reason) == 1;
+            });
+            if (failed) {
+                log.error("Flag schedule {} failed after {} attempts: {}", id, maxFailures, reason);
+                return;
+            }
+        } catch (RuntimeException ex) {
+            // Most likely the database is down, which is not the schedule's fault
+            log.debug("Could not count the failure of flag schedule {}: {}", id, ex.getMessage());
+        }
+        log.warn("Could not execute flag schedule {}, retrying on the next poll: {}", id, reason);
+    }
+
+    private void apply(long id) {
+        FlagSchedule schedule = scheduleRepository.findById(id).orElse(null);
+        // Claim the schedule before touching the flag, see the class comment
+        if (schedule == null || scheduleRepository.complete(id, Status.EXECUTED, now(), null) == 0) {
+            return;
+        }
+        FlagResponse flag = flagService.getFlag(schedule.getFlagId());
+        boolean active = schedule.getAction() == Action.ENABLE;
+        if (flag.getIsActive() != active) {
+            flagService.toggleFlag(flag.getId(), flag.getRevision());
+        }
+        log.info("Executed flag schedule {}: {} flag {}", id, schedule.getAction(), schedule.getFlagId());
+    }
+
+    private static boolean tryLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, LEADER_LOCK_KEY);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private static OffsetDateTime now() {
+        return OffsetDateTime.now(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,220 @@
+package com.controltower.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hashed timer wheel: a ring of buckets, one per tick, each holding the
+ * timeouts that expire on a tick mapped to it.
+ *
+ * Adding and cancelling a timeout are O(1), whatever the number of pending
+ * timeouts, and advancing the wheel by one tick only visits one bucket.
+ * Timeouts further away than one revolution share buckets with nearer ones
+ * and are skipped until their tick comes. Deadlines are rounded up to the
+ * next tick, so timeouts expire at most one tick late, never early.
+ *
+ * The wheel does not run anything itself: the thread driving it calls
+ * {@link #advance(long)} and handles the expired tasks it returns. It can be
+ * used from several threads.
+ *
+ * @param <T> The type of the scheduled tasks
+ */
+public final class HashedTimerWheel<T> {
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Timeout<T>[] buckets;
+    private final int mask;
+    // Not a monitor, see BackgroundThreads
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock: the next tick to process
+    private long tick;
+    private int size;
+
+    /**
+     * Creates an empty wheel whose first tick starts now.
+     *
+     * @param tickNanos  The duration of a tick in nanoseconds
+     * @param wheelSize  The number of buckets, rounded up to a power of two
+     * @param startNanos The current {@link System#nanoTime()}
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimerWheel(long tickNanos, int wheelSize, long startNanos) {
+        if (tickNanos <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("The tick duration and the wheel size must be positive");
+        }
+        int capacity = Integer.highestOneBit(Math.max(1, wheelSize * 2 - 1));
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+        this.buckets = new Timeout[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param task          The task
+     * @param deadlineNanos When the task expires, as a {@link System#nanoTime()};
+     *                      a deadline in the past expires on the next tick
+     * @return The timeout, to cancel it
+     */
+    public Timeout<T> schedule(T task, long deadlineNanos) {
+        long elapsed = deadlineNanos - startNanos;
+        long deadlineTick = elapsed <= 0 ? 0 : (elapsed + tickNanos - 1) / tickNanos;
+        lock.lock();
+        try {
+            Timeout<T> timeout = new Timeout<>(task, Math.max(deadlineTick, tick));
+            int index = (int) (timeout.deadlineTick & mask);
+            timeout.bucket = index;
+            timeout.next = buckets[index];
+            if (timeout.next != null) {
+                timeout.next.prev = timeout;
+            }
+            buckets[index] = timeout;
+            size++;
+            return timeout;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cancels a timeout, unless it already expired.
+     *
+     * @param timeout The timeout
+     * @return true if it was pending
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        lock.lock();
+        try {
+            if (timeout.bucket < 0) {
+                return false;
+            }
+            unlink(timeout);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Processes every tick that ended by a given time.
+     *
+     * @param nowNanos The current {@link System#nanoTime()}
+     * @return The tasks that expired, by tick
+     */
+    public List<T> advance(long nowNanos) {
+        long lastTick = (nowNanos - startNanos) / tickNanos;
+        List<T> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            // An idle wheel jumps straight to the current tick
+            if (size == 0 && lastTick >= tick) {
+                tick = lastTick + 1;
+            }
+            for (; tick <= lastTick && size > 0; tick++) {
+                Timeout<T> timeout = buckets[(int) (tick & mask)];
+                while (timeout != null) {
+                    Timeout<T> next = timeout.next;
+                    if (timeout.deadlineTick <= tick) {
+                        unlink(timeout);
+                        expired.add(timeout.task);
+                    }
+                    timeout = next;
+                }
+            }
+            if (lastTick >= tick) {
+                tick = lastTick + 1;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return expired;
+    }
+
+    /**
+     * Gets when the next tick ends.
+     *
+     * @return The end of the next tick, as a {@link System#nanoTime()}
+     */
+    public long nextTickNanos() {
+        lock.lock();
+        try {
+            return startNanos + (tick + 1) * tickNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every pending timeout.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            for (int i = 0; i < buckets.length; i++) {
+                for (Timeout<T> timeout = buckets[i]; timeout != null; timeout = timeout.next) {
+                    timeout.bucket = -1;
+                }
+                buckets[i] = null;
+            }
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of pending timeouts.
+     *
+     * @return The number of timeouts
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        size--;
+    }
+
+    /**
+     * A task scheduled on the wheel.
+     *
+     * @param <T> The type of the task
+     */
+    public static final class Timeout<T> {
+
+        private final T task;
+        private final long deadlineTick;
+        // Guarded by the lock of the wheel; -1 once expired or cancelled
+        private int bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getTask() {
+            return task;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.controltower.service;
+
+import com.controltower.dto.FlagUsageResponse;
+import com.controltower.evaluation.CompiledFlag;
+import com.controltower.evaluation.EvaluationCounter;
+import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.repository.FeatureFlagRepository.FlagSummary;
+import com.controltower.repository.FlagEvaluationRollupRepository;
+import com.controltower.repository.FlagEvaluationRollupRepository.FlagEvaluationTotals;
+import com.controltower.snapshot.EnvironmentSnapshotCache;
+import com.controltower.snapshot.EnvironmentSnapshotPublishedEvent;
+import com.controltower.snapshot.FlagSnapshot;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.controltower.snapshot.FlagSnapshotPublishedEvent;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Service persisting flag evaluation counts and reporting them.
+ *
+ * Evaluations are counted in memory by the {@link EvaluationCounter} of each
+ * compiled flag, a striped increment on the request thread. A scheduled flush
+ * writes what was counted since the previous flush as one rollup row per
+ * evaluated flag, with a single batched insert, so request threads never wait
+ * for the database. Memory is bounded by the number of flags whatever the
+ * traffic: counts of a failed flush stay in the counters and go out with the
+ * next one.
+ *
+ * Evaluations made with the SDK key of an environment are counted by the
+ * flags of its own snapshot, and written as rows of the same flags: the
+ * usage of a flag sums every environment.
+ */
+@Service
+@Timed("controltower.service")
+public class AnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsService.class);
+
+    private static final String INSERT_ROLLUP = "INSERT INTO flag_evaluation_rollups"
+            + " (flag_id, period_start, period_end, enabled_count, disabled_count) VALUES (?, ?, ?, ?, ?)";
+
+    private final FlagSnapshotCache flagSnapshotCache;
+    private final EnvironmentSnapshotCache environmentSnapshotCache;
+    private final FeatureFlagRepository featureFlagRepository;
+    private final FlagEvaluationRollupRepository rollupRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    private final int batchSize;
+    private final Duration retention;
+
+    // Counters of the flags seen in published snapshots, by flag ID; values
+    // are only updated by the flush, under flushLock.
+    private final Map<Long, FlushedCounts> flushed = new ConcurrentHashMap<>();
+    // Same for the snapshots of environments, by environment ID
+    private final Map<Long, Map<Long, FlushedCounts>> environmentFlushed = new ConcurrentHashMap<>();
+    // Not a monitor: the flush writes to the database while holding it, which
+    // would pin a virtual thread to its carrier.
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Guarded by flushLock
+    private OffsetDateTime periodStart = now();
+
+    @Autowired
+    public AnalyticsService(FlagSnapshotCache flagSnapshotCache,
+            EnvironmentSnapshotCache environmentSnapshotCache,
+            FeatureFlagRepository featureFlagRepository,
+            FlagEvaluationRollupRepository rollupRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${controltower.analytics.batch-size:500}") int batchSize,
+            @Value("${controltower.analytics.retention-days:90}") int retentionDays) {
+        this.flagSnapshotCache = flagSnapshotCache;
+        this.environmentSnapshotCache = environmentSnapshotCache;
+        this.featureFlagRepository = featureFlagRepository;
+        this.rollupRepository = rollupRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.batchSize = batchSize;
+        this.retention = Duration.ofDays(retentionDays);
+    }
+
+    /**
+     * Starts following the counters of new flags, so that counts of a flag
+     * deleted before the next flush are not lost.
+     *
+     * @param event The snapshot published event
+     */
+    @EventListener
+    public void onSnapshotPublished(FlagSnapshotPublishedEvent event) {
+        track(flushed, event.getCurrent());
+    }
+
+    /**
+     * Starts following the counters of the flags of an environment. Counters
+     * of a deleted environment are followed until their counts are written.
+     *
+     * @param event The environment snapshot published event
+     */
+    @EventListener
+    public void onEnvironmentSnapshotPublished(EnvironmentSnapshotPublishedEvent event) {
+        if (event.getCurrent() != null) {
+            trackEnvironment(event.getEnvironmentId(), event.getCurrent());
+        }
+    }
+
+    /**
+     * Writes the evaluations counted since the previous flush.
+     *
+     * Counts are read from the evaluators of every flag published since the
+     * previous flush, deleted ones included. They are only marked as flushed
+     * once the insert committed.
+     *
+     * @return The number of rollup rows written
+     */
+    @Scheduled(fixedDelayString = "${controltower.analytics.flush-interval:60000}",
+            initialDelayString = "${controltower.analytics.flush-interval:60000}")
+    public int flush() {
+        flushLock.lock();
+        try {
+            return flushCounts();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int flushCounts() {
+        FlagSnapshot snapshot = flagSnapshotCache.peek();
+        if (snapshot == null) {
+            return 0;
+        }
+        track(flushed, snapshot);
+        Map<Long, FlagSnapshot> environments = environmentSnapshotCache.getLoadedSnapshots();
+        for (Map.Entry<Long, FlagSnapshot> environment : environments.entrySet()) {
+            trackEnvironment(environment.getKey(), environment.getValue());
+        }
+
+        OffsetDateTime periodEnd = now();
+        List<Object[]> rows = new ArrayList<>();
+        Map<FlushedCounts, long[]> pending = new HashMap<>();
+        collect(flushed, periodEnd, rows, pending);
+        for (Map<Long, FlushedCounts> counts : environmentFlushed.values()) {
+            collect(counts, periodEnd, rows, pending);
+        }
+
+        if (!rows.isEmpty()) {
+            writeTransaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_ROLLUP, rows, batchSize,
+                    (PreparedStatement statement, Object[] row) -> {
+                        statement.setLong(1, (Long) row[0]);
+                        statement.setObject(2, row[1]);
+                        statement.setObject(3, row[2]);
+                        statement.setLong(4, (Long) row[3]);
+                        statement.setLong(5, (Long) row[4]);
+                    }));
+            log.debug("Flushed {} evaluation counts", rows.size());
+        }
+
+        for (Map.Entry<FlushedCounts, long[]> entry : pending.entrySet()) {
+            entry.getKey().enabled = entry.getValue()[0];
+            entry.getKey().disabled = entry.getValue()[1];
+        }
+        // Stop following deleted flags once all their counts are written.
+        // Flags created meanwhile are in the snapshot read here.
+        forgetFlushed(flushed, flagSnapshotCache.peek());
+        for (Long environmentId : environmentFlushed.keySet()) {
+            FlagSnapshot loaded = environments.get(environmentId);
+            environmentFlushed.computeIfPresent(environmentId, (id, counts) -> {
+                forgetFlushed(counts, loaded);
+                return counts.isEmpty() ? null : counts;
+            });
+        }
+        periodStart = periodEnd;
+        return rows.size();
+    }
+
+    private void collect(Map<Long, FlushedCounts> tracked, OffsetDateTime periodEnd,
+            List<Object[]> rows, Map<FlushedCounts, long[]> pending) {
+        for (Map.Entry<Long, FlushedCounts> entry : tracked.entrySet()) {
+            FlushedCounts counts = entry.getValue();
+            long enabled = counts.counter.enabledCount();
+            long disabled = counts.counter.disabledCount();
+            if (enabled != counts.enabled || disabled != counts.disabled) {
+                rows.add(new Object[] {entry.getKey(), periodStart, periodEnd,
+                        enabled - counts.enabled, disabled - counts.disabled});
+                pending.put(counts, new long[] {enabled, disabled});
+            }
+        }
+    }
+
+    private static void forgetFlushed(Map<Long, FlushedCounts> tracked, FlagSnapshot snapshot) {
+        Set<Long> present = new HashSet<>();
+        if (snapshot != null) {
+            for (CompiledFlag flag : snapshot.getEvaluators()) {
+                present.add(flag.getId());
+            }
+        }
+        tracked.entrySet().removeIf(entry -> !present.contains(entry.getKey()) && entry.getValue().isFlushed());
+    }
+
+    /**
+     * Gets the evaluation counts of every flag of every project over the
+     * last hours, including flags that were not evaluated at all. Counts made
+     * since the last flush are not included. The active state is the base
+     * state of the flag, without the overrides of environments.
+     *
+     * @param hours The length of the window in hours
+     * @return One entry per flag, least evaluated first
+     */
+    public List<FlagUsageResponse> getFlagUsage(int hours) {
+        OffsetDateTime since = now().minusHours(hours);
+        Map<Long, FlagEvaluationTotals> totals = new HashMap<>();
+        List<FlagSummary> flags = new ArrayList<>();
+        readTransaction.executeWithoutResult(status -> {
+            for (FlagEvaluationTotals total : rollupRepository.sumByFlagSince(since)) {
+                totals.put(total.getFlagId(), total);
+            }
+            flags.addAll(featureFlagRepository.findAllSummaries());
+        });
+
+        List<FlagUsageResponse> usage = new ArrayList<>(flags.size());
+        for (FlagSummary flag : flags) {
+            FlagEvaluationTotals total = totals.get(flag.getId());
+            boolean active = Boolean.TRUE.equals(flag.getActive());
+            usage.add(total != null
+                    ? new FlagUsageResponse(flag.getId(), flag.getProject(), flag.getName(), active,
+                            total.getEnabledCount(), total.getDisabledCount(), total.getLastEvaluatedAt())
+                    : new FlagUsageResponse(flag.getId(), flag.getProject(), flag.getName(), active, 0, 0, null));
+        }
+        usage.sort(Comparator.comparingLong(FlagUsageResponse::getEvaluationCount)
+                .thenComparing(FlagUsageResponse::getProject)
+                .thenComparing(FlagUsageResponse::getName));
+        return usage;
+    }
+
+    /**
+     * Deletes rollups older than the retention window.
+     */
+    @Scheduled(fixedDelayString = "${controltower.analytics.prune-interval:3600000}")
+    public void pruneRollups() {
+        int deleted = writeTransaction.execute(status -> rollupRepository.deleteEndedBefore(now().minus(retention)));
+        if (deleted > 0) {
+            log.debug("Pruned {} flag evaluation rollups", deleted);
+        }
+    }
+
+    /**
+     * Writes the last counts on shutdown, on a best-effort basis.
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("Could not flush flag evaluation counts on shutdown: {}", ex.getMessage());
+        }
+    }
+
+    private static void track(Map<Long, FlushedCounts> tracked, FlagSnapshot snapshot) {
+        for (CompiledFlag flag : snapshot.getEvaluators()) {
+            tracked.compute(flag.getId(), (id, counts) -> counts != null && counts.counter == flag.getCounter()
+                    ? counts
+                    : new FlushedCounts(flag.getCounter()));
+        }
+    }
+
+    private void trackEnvironment(Long environmentId, FlagSnapshot snapshot) {
+        // Atomic with the removal of an environment whose counts were all written
+        environmentFlushed.compute(environmentId, (id, counts) -> {
+            Map<Long, FlushedCounts> tracked = counts != null ? counts : new ConcurrentHashMap<>();
+            track(tracked, snapshot);
+            return tracked;
+        });
+    }
+
+    private static OffsetDateTime now() {
+        return OffsetDateTime.now(ZoneOffset.UTC);
+    }
+
+    /**
+     * The counter of one flag and its values at the last successful flush.
+     */
+    private static final class FlushedCounts {
+
+        private final EvaluationCounter counter;
+        private long enabled;
+        private long disabled;
+
+        private FlushedCounts(EvaluationCounter counter) {
+            this.counter = counter;
+        }
+
+        private boolean isFlushed() {
+            return counter.enabledCount() == enabled && counter.disabledCount() == disabled;
+        }
+    }
+}
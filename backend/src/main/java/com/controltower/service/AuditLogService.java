@@ -0,0 +1,362 @@
+package com.controltower.service;
+
+import com.controltower.dto.FlagAuditEntryResponse;
+import com.controltower.dto.FlagAuditPage;
+import com.controltower.entity.FlagAuditEntry;
+import com.controltower.exception.AuditLogBackloggedException;
+import com.controltower.exception.InvalidFlagQueryException;
+import com.controltower.repository.FlagAuditEntryRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Service writing the flag audit log and querying it.
+ *
+ * The changes of a mutation are queued once its transaction committed, and
+ * a scheduled flush writes the queue with batched inserts, so recording a
+ * change neither holds the locks of the mutation longer nor makes the admin
+ * request wait for the database.
+ *
+ * The queue is bounded. A mutation takes room for its entries before it
+ * commits, and fails with {@link AuditLogBackloggedException} if there is
+ * none, e.g. while the database rejects the writes: a change is either
+ * rolled back or queued, never committed without its entries. The room is
+ * given back once the entries are written, or right away if the mutation
+ * rolls back. Entries of a failed flush are kept and written by the next
+ * one; entries still queued when the process dies are lost.
+ *
+ * A batch failing several flushes in a row is written one entry at a time,
+ * so that one entry the database rejects, e.g. too long for its column,
+ * does not hold up the others and the room they take forever. An entry
+ * rejected on its own is logged in full with an error, counted as dropped
+ * and given up; a failure of the database itself still keeps the rest of the
+ * batch for the next flush.
+ *
+ * On PostgreSQL the log is partitioned by month; the partition of each month
+ * is created by the first flush that writes to it.
+ */
+@Service
+@Timed("controltower.service")
+public class AuditLogService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogService.class);
+
+    /**
+     * Largest page size accepted when querying the audit log.
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final FlagAuditEntryRepository auditRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    // Unbounded, but only takes entries that reserved one of the permits
+    private final BlockingQueue<FlagAuditEntry> queue = new LinkedBlockingQueue<>();
+    private final Semaphore capacity;
+    private final int batchSize;
+    private final int maxFailures;
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Not a monitor: the flush writes to the database while holding it, which
+    // would pin a virtual thread to its carrier.
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Guarded by flushLock: the batch being written, kept if the write fails
+    private final List<FlagAuditEntry> batch = new ArrayList<>();
+    // Guarded by flushLock: flushes of the batch that failed in a row
+    private int failures;
+    // Guarded by flushLock
+    private Boolean partitioned;
+    private final Set<YearMonth> partitions = new HashSet<>();
+
+    @Autowired
+    public AuditLogService(FlagAuditEntryRepository auditRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${controltower.audit.queue-capacity:10000}") int queueCapacity,
+            @Value("${controltower.audit.batch-size:500}") int batchSize,
+            @Value("${controltower.audit.max-failures:3}") int maxFailures) {
+        this.auditRepository = auditRepository;
+        this.objectMapper = objectMapper;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.capacity = new Semaphore(queueCapacity);
+        this.batchSize = batchSize;
+        this.maxFailures = maxFailures;
+    }
+
+    /**
+     * Takes room in the queue for the changes of a mutation, within its
+     * transaction, and queues them once it committed.
+     *
+     * @param event The audit event published by the mutation
+     * @throws AuditLogBackloggedException if the queue has no room for the changes,
+     *                                     which rolls the mutation back
+     */
+    @EventListener
+    public void onFlagAudit(FlagAuditEvent event) {
+        List<FlagAuditEntry> entries = new ArrayList<>(event.getChanges().size());
+        for (FlagAuditEvent.Change change : event.getChanges()) {
+            entries.add(new FlagAuditEntry(event.getOccurredAt(), event.getActor(), change.getAction(),
+                    change.getFlagId(), change.getFlagName(), event.getVersion(),
+                    write(change.getBefore()), write(change.getAfter())));
+        }
+        if (!capacity.tryAcquire(entries.size())) {
+            log.warn("Audit log queue full, rejecting {} changes at version {}", entries.size(), event.getVersion());
+            throw new AuditLogBackloggedException("The audit log is behind, retry the change later");
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            queue.addAll(entries);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    queue.addAll(entries);
+                } else {
+                    capacity.release(entries.size());
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes the queued audit log entries.
+     *
+     * @return The number of entries written
+     */
+    @Scheduled(fixedDelayString = "${controltower.audit.flush-interval:1000}")
+    public int flush() {
+        flushLock.lock();
+        try {
+            return flushQueue();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int flushQueue() {
+        int written = 0;
+        while (true) {
+            if (batch.isEmpty()) {
+                queue.drainTo(batch, batchSize);
+                if (batch.isEmpty()) {
+                    return written;
+                }
+            }
+            if (failures >= maxFailures) {
+                written += writeEachEntry();
+                continue;
+            }
+            try {
+                createPartitions(batch);
+                writeTransaction.executeWithoutResult(status -> auditRepository.insertAll(batch));
+            } catch (RuntimeException ex) {
+                failures++;
+                throw ex;
+            }
+            written += batch.size();
+            log.debug("Wrote {} audit log entries", batch.size());
+            capacity.release(batch.size());
+            batch.clear();
+            failures = 0;
+        }
+    }
+
+    /**
+     * Writes the batch one entry at a time, dropping the entries rejected on
+     * their own.
+     *
+     * @return The number of entries written
+     */
+    private int writeEachEntry() {
+        int written = 0;
+        while (!batch.isEmpty()) {
+            FlagAuditEntry entry = batch.get(0);
+            try {
+                createPartitions(List.of(entry));
+                writeTransaction.executeWithoutResult(status -> auditRepository.insertAll(List.of(entry)));
+                written++;
+            } catch (RuntimeException ex) {
+                if (!isRejected(ex)) {
+                    // The database failed, not the entry: retried by the next flush
+                    throw ex;
+                }
+                dropped.incrementAndGet();
+                log.error("Dropped audit log entry rejected by the database: actor={}, action={}, flagId={},"
+                        + " flagName={}, version={}, occurredAt={}, before={}, after={}",
+                        entry.getActor(), entry.getAction(), entry.getFlagId(), entry.getFlagName(),
+                        entry.getVersion(), entry.getOccurredAt(), entry.getBeforeState(),
+                        entry.getAfterState(), ex);
+            }
+            capacity.release(1);
+            batch.remove(0);
+        }
+        failures = 0;
+        return written;
+    }
+
+    private static boolean isRejected(RuntimeException ex) {
+        return ex instanceof NonTransientDataAccessException
+                && !(ex instanceof DataAccessResourceFailureException)
+                && !(ex instanceof NonTransientDataAccessResourceException);
+    }
+
+    /**
+     * Gets the number of audit log entries given up since startup because
+     * the database rejected them.
+     *
+     * @return The dropped entry count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void createPartitions(List<FlagAuditEntry> entries) {
+        if (partitioned == null) {
+            partitioned = auditRepository.isPartitioned();
+        }
+        if (!partitioned) {
+            return;
+        }
+        for (FlagAuditEntry entry : entries) {
+            YearMonth month = YearMonth.from(entry.getOccurredAt().withOffsetSameInstant(ZoneOffset.UTC));
+            if (!partitions.contains(month)) {
+                auditRepository.createPartition(month);
+                partitions.add(month);
+            }
+        }
+    }
+
+    /**
+     * Gets one page of the audit log entries made in a time range, oldest
+     * first. Entries still queued are not included.
+     *
+     * @param from   Inclusive lower bound of the time of the change
+     * @param to     Exclusive upper bound of the time of the change
+     * @param flagId Only entries of this flag, null for every flag
+     * @param actor  Only entries of this user, null for every user
+     * @param after  The cursor returned with the previous page, null for the first page
+     * @param limit  The page size
+     * @return The page, with the cursor of the next one if there is more
+     * @throws InvalidFlagQueryException if the range is empty, the page size out
+     *                                   of range or the cursor invalid
+     */
+    public FlagAuditPage getEntries(OffsetDateTime from, OffsetDateTime to, Long flagId, String actor,
+            String after, int limit) {
+        if (!from.isBefore(to)) {
+            throw new InvalidFlagQueryException("The start of the range must be before its end");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidFlagQueryException("The limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        OffsetDateTime afterAt = null;
+        Long afterId = null;
+        if (after != null) {
+            int separator = after.indexOf('-');
+            try {
+                afterAt = fromEpochMicros(Long.parseLong(after.substring(0, separator)));
+                afterId = Long.parseLong(after.substring(separator + 1));
+            } catch (RuntimeException ex) {
+                throw new InvalidFlagQueryException("Invalid cursor: " + after, ex);
+            }
+        }
+
+        // Read one more entry than asked to know whether there is a next page
+        OffsetDateTime cursorAt = afterAt;
+        Long cursorId = afterId;
+        List<FlagAuditEntry> entries = readTransaction.execute(status ->
+                auditRepository.findRange(from, to, flagId, actor, cursorAt, cursorId, limit + 1));
+        String nextCursor = null;
+        if (entries.size() > limit) {
+            entries = entries.subList(0, limit);
+            FlagAuditEntry last = entries.get(limit - 1);
+            nextCursor = toEpochMicros(last.getOccurredAt()) + "-" + last.getId();
+        }
+
+        List<FlagAuditEntryResponse> responses = new ArrayList<>(entries.size());
+        for (FlagAuditEntry entry : entries) {
+            responses.add(new FlagAuditEntryResponse(entry.getId(), entry.getOccurredAt(), entry.getActor(),
+                    entry.getAction(), entry.getFlagId(), entry.getFlagName(), entry.getVersion(),
+                    read(entry.getId(), entry.getBeforeState()), read(entry.getId(), entry.getAfterState())));
+        }
+        return new FlagAuditPage(responses, nextCursor);
+    }
+
+    /**
+     * Writes the last entries on shutdown, on a best-effort basis.
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("Could not flush the audit log on shutdown: {}", ex.getMessage());
+        }
+    }
+
+    private String write(Object state) {
+        if (state == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(state);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize audit state " + state, ex);
+        }
+    }
+
+    private JsonNode read(Long id, String state) {
+        if (state == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(state);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not read state of audit log entry " + id, ex);
+        }
+    }
+
+    private static long toEpochMicros(OffsetDateTime time) {
+        Instant instant = time.toInstant();
+        return TimeUnit.SECONDS.toMicros(instant.getEpochSecond()) + TimeUnit.NANOSECONDS.toMicros(instant.getNano());
+    }
+
+    private static OffsetDateTime fromEpochMicros(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,224 @@
+package com.controltower.service;
+
+import com.controltower.dto.EvaluationRequest;
+import com.controltower.evaluation.CompiledFlag;
+import com.controltower.evaluation.EvaluationContext;
+import com.controltower.evaluation.MapEvaluationContext;
+import com.controltower.snapshot.FlagSnapshot;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service evaluating flags for many contexts in one request.
+ * 
+ * Contexts are read incrementally from the request body, either a JSON array
+ * or newline-delimited JSON, and evaluated in chunks on a bounded pool shared
+ * by all batch requests. Results are written in input order as soon as the
+ * chunk holding them is done, so neither the input nor the output is ever
+ * held in memory as a whole. Every context of a batch is evaluated against
+ * the same snapshot.
+ */
+@Service
+@Timed("controltower.service")
+public class BatchEvaluationService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchEvaluationService.class);
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader requestReader;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+    private final ThreadPoolExecutor executor;
+
+    @Autowired
+    public BatchEvaluationService(ObjectMapper objectMapper,
+            @Value("${controltower.evaluation.batch.parallelism:0}") int parallelism,
+            @Value("${controltower.evaluation.batch.chunk-size:256}") int chunkSize,
+            @Value("${controltower.evaluation.batch.queue-capacity:64}") int queueCapacity) {
+        this.objectMapper = objectMapper;
+        this.requestReader = objectMapper.readerFor(EvaluationRequest.class);
+        this.chunkSize = Math.max(1, chunkSize);
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        // Enough to keep every worker busy while the caller writes results
+        this.maxChunksInFlight = threads * 2;
+
+        AtomicInteger counter = new AtomicInteger();
+        // When the pool and its queue are full, the request thread evaluates
+        // the chunk itself, which throttles its reads instead of queueing more.
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "batch-evaluation-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Evaluates every context read from the input and writes the results to
+     * the output, one per context and in input order.
+     * 
+     * Each result holds the context key and the flag results, in the format
+     * of the single evaluation endpoint. With a JSON array as input the
+     * results are written as a JSON array, otherwise as newline-delimited
+     * JSON. If the input turns out to be malformed midway, the results so
+     * far are followed by an error object.
+     * 
+     * @param snapshot The snapshot every context is evaluated against
+     * @param input    The request body
+     * @param output   The response body
+     * @param asArray  true to write a JSON array, false for newline-delimited JSON
+     * @throws IOException if the input or the output fails
+     */
+    public void evaluate(FlagSnapshot snapshot, InputStream input, OutputStream output, boolean asArray)
+            throws IOException {
+        Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        boolean first = true;
+        if (asArray) {
+            output.write('[');
+        }
+
+        String error = null;
+        try (MappingIterator<EvaluationRequest> requests = requestReader.readValues(input)) {
+            List<EvaluationRequest> chunk = new ArrayList<>(chunkSize);
+            while (true) {
+                try {
+                    if (!requests.hasNextValue()) {
+                        break;
+                    }
+                    chunk.add(requests.nextValue());
+                } catch (JsonProcessingException ex) {
+                    error = ex.getOriginalMessage();
+                    break;
+                }
+                if (chunk.size() == chunkSize) {
+                    List<EvaluationRequest> ready = chunk;
+                    inFlight.addLast(executor.submit(() -> render(snapshot, ready, asArray)));
+                    chunk = new ArrayList<>(chunkSize);
+                    while (inFlight.size() >= maxChunksInFlight) {
+                        first = write(inFlight.removeFirst(), output, asArray, first);
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                List<EvaluationRequest> ready = chunk;
+                inFlight.addLast(executor.submit(() -> render(snapshot, ready, asArray)));
+            }
+            while (!inFlight.isEmpty()) {
+                first = write(inFlight.removeFirst(), output, asArray, first);
+            }
+        } finally {
+            for (Future<byte[]> pending : inFlight) {
+                pending.cancel(false);
+            }
+        }
+
+        if (error != null) {
+            log.debug("Stopped batch evaluation on malformed input: {}", error);
+            if (asArray && !first) {
+                output.write(',');
+            }
+            output.write(objectMapper.writeValueAsBytes(Map.of("error", "Invalid context", "message", error)));
+            if (!asArray) {
+                output.write('\n');
+            }
+        }
+        if (asArray) {
+            output.write(']');
+        }
+        output.flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private boolean write(Future<byte[]> result, OutputStream output, boolean asArray, boolean first)
+            throws IOException {
+        byte[] bytes;
+        try {
+            bytes = result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while evaluating a batch", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Could not evaluate a batch", ex.getCause());
+        }
+        if (asArray && !first) {
+            output.write(',');
+        }
+        output.write(bytes);
+        output.flush();
+        return false;
+    }
+
+    private byte[] render(FlagSnapshot snapshot, List<EvaluationRequest> requests, boolean asArray) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(requests.size() * 64);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer)) {
+            // Values of a root-level sequence are separated by this, not by a space
+            generator.setRootValueSeparator(null);
+            for (int i = 0; i < requests.size(); i++) {
+                if (asArray && i > 0) {
+                    generator.writeRaw(',');
+                }
+                writeResult(generator, snapshot, requests.get(i));
+                if (!asArray) {
+                    generator.writeRaw('\n');
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static void writeResult(JsonGenerator generator, FlagSnapshot snapshot, EvaluationRequest request)
+            throws IOException {
+        EvaluationContext context = new MapEvaluationContext(request.getKey(), request.getAttributes());
+        generator.writeStartObject();
+        generator.writeStringField("key", request.getKey());
+        generator.writeObjectFieldStart("flags");
+        List<String> names = request.getFlags();
+        if (names == null) {
+            for (CompiledFlag evaluator : snapshot.getEvaluators()) {
+                generator.writeBooleanField(evaluator.getName(), evaluator.evaluate(context));
+            }
+        } else {
+            for (String name : names) {
+                CompiledFlag evaluator = snapshot.getEvaluator(name);
+                generator.writeBooleanField(name, evaluator != null && evaluator.evaluate(context));
+            }
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,227 @@
+package com.controltower.service;
+
+import com.controltower.dto.EnvironmentFlagResponse;
+import com.controltower.dto.EnvironmentRequest;
+import com.controltower.dto.EnvironmentResponse;
+import com.controltower.entity.Environment;
+import com.controltower.entity.FeatureFlag;
+import com.controltower.entity.FlagEnvironmentState;
+import com.controltower.exception.EnvironmentAlreadyExistsException;
+import com.controltower.exception.EnvironmentNotFoundException;
+import com.controltower.exception.FlagNotFoundException;
+import com.controltower.repository.EnvironmentRepository;
+import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.repository.FlagEnvironmentStateRepository;
+import com.controltower.snapshot.EnvironmentChangedEvent;
+import com.controltower.snapshot.EnvironmentSnapshotCache;
+import com.controltower.snapshot.FlagSnapshot;
+import com.controltower.snapshot.FlagState;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Service class for environment business logic.
+ *
+ * Each environment has its own version, incremented first by every change to
+ * its flags; the row lock this takes serializes changes within the
+ * environment without blocking the others. Changes to the flags of a project
+ * as a whole, or to segments, increment the version of every environment
+ * concerned through {@link #touchProjects} and {@link #touchAll}.
+ */
+@Service
+@Timed("controltower.service")
+@Transactional
+public class EnvironmentService {
+
+    private static final String SDK_KEY_PREFIX = "ct-";
+    private static final int SDK_KEY_BYTES = 24;
+
+    private final EnvironmentRepository environmentRepository;
+    private final FlagEnvironmentStateRepository stateRepository;
+    private final FeatureFlagRepository featureFlagRepository;
+    private final EnvironmentSnapshotCache environmentSnapshotCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    public EnvironmentService(EnvironmentRepository environmentRepository,
+            FlagEnvironmentStateRepository stateRepository,
+            FeatureFlagRepository featureFlagRepository,
+            EnvironmentSnapshotCache environmentSnapshotCache,
+            ApplicationEventPublisher eventPublisher) {
+        this.environmentRepository = environmentRepository;
+        this.stateRepository = stateRepository;
+        this.featureFlagRepository = featureFlagRepository;
+        this.environmentSnapshotCache = environmentSnapshotCache;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Creates a new environment with a generated SDK key. Every flag of the
+     * project starts inactive in it.
+     *
+     * @param request The environment creation request
+     * @return The created environment
+     * @throws EnvironmentAlreadyExistsException if the project already has an
+     *                                           environment with that key
+     */
+    public EnvironmentResponse createEnvironment(EnvironmentRequest request) {
+        String project = request.getProject() != null ? request.getProject() : FeatureFlag.DEFAULT_PROJECT;
+        if (environmentRepository.existsByProjectAndKey(project, request.getKey())) {
+            throw new EnvironmentAlreadyExistsException("An environment with the key already exists in project "
+                    + project + ": " + request.getKey());
+        }
+        byte[] secret = new byte[SDK_KEY_BYTES];
+        random.nextBytes(secret);
+        Environment environment = new Environment(project, request.getKey(), request.getName(),
+                SDK_KEY_PREFIX + HexFormat.of().formatHex(secret));
+        Environment saved = environmentRepository.save(environment);
+        // Makes the SDK key known once committed
+        eventPublisher.publishEvent(new EnvironmentChangedEvent(saved.getId(), project));
+        return convertToResponse(saved);
+    }
+
+    /**
+     * Gets every environment, ordered by project and key.
+     *
+     * @return List of environments
+     */
+    @Transactional(readOnly = true)
+    public List<EnvironmentResponse> getAllEnvironments() {
+        List<EnvironmentResponse> environments = new ArrayList<>();
+        for (Environment environment : environmentRepository.findAllByOrderByProjectAscKeyAsc()) {
+            environments.add(convertToResponse(environment));
+        }
+        return environments;
+    }
+
+    /**
+     * Deletes an environment and the state of its flags. Its SDK key stops
+     * working once the deletion is committed.
+     *
+     * @param id The ID of the environment
+     * @throws EnvironmentNotFoundException if the environment does not exist
+     */
+    public void deleteEnvironment(Long id) {
+        if (environmentRepository.incrementVersion(id) == 0) {
+            throw new EnvironmentNotFoundException("Environment not found with ID: " + id);
+        }
+        stateRepository.deleteByEnvironmentId(id);
+        environmentRepository.deleteById(id);
+        eventPublisher.publishEvent(new EnvironmentChangedEvent(id, null));
+    }
+
+    /**
+     * Toggles the active state of a flag in an environment.
+     *
+     * @param id     The ID of the environment
+     * @param flagId The ID of the flag, which must belong to the environment's project
+     * @return The new state of the flag in the environment
+     * @throws EnvironmentNotFoundException if the environment does not exist
+     * @throws FlagNotFoundException        if the flag does not exist in the project
+     */
+    public EnvironmentFlagResponse toggleFlag(Long id, Long flagId) {
+        // Take the next version first; this also serializes concurrent changes
+        if (environmentRepository.incrementVersion(id) == 0) {
+            throw new EnvironmentNotFoundException("Environment not found with ID: " + id);
+        }
+        Environment environment = environmentRepository.findById(id)
+                .orElseThrow(() -> new EnvironmentNotFoundException("Environment not found with ID: " + id));
+        FeatureFlag flag = featureFlagRepository.findById(flagId)
+                .filter(candidate -> candidate.getProject().equals(environment.getProject()))
+                .orElseThrow(() -> new FlagNotFoundException("Flag not found with ID " + flagId
+                        + " in project " + environment.getProject()));
+
+        FlagEnvironmentState state = stateRepository.findByEnvironmentIdAndFlagId(id, flagId)
+                .orElseGet(() -> new FlagEnvironmentState(id, flagId, false));
+        state.setIsActive(!state.getIsActive());
+        stateRepository.save(state);
+        eventPublisher.publishEvent(new EnvironmentChangedEvent(id, environment.getProject()));
+
+        return new EnvironmentFlagResponse(flagId, flag.getName(), state.getIsActive());
+    }
+
+    /**
+     * Gets the state of every flag of the environment's project in the
+     * environment, as currently served to SDKs.
+     *
+     * @param id The ID of the environment
+     * @return The flags of the project, in ID order
+     * @throws EnvironmentNotFoundException if the environment does not exist
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<EnvironmentFlagResponse> getFlags(Long id) {
+        FlagSnapshot snapshot = environmentSnapshotCache.current(id);
+        if (snapshot == null) {
+            throw new EnvironmentNotFoundException("Environment not found with ID: " + id);
+        }
+        List<EnvironmentFlagResponse> flags = new ArrayList<>(snapshot.getFlags().size());
+        for (FlagState state : snapshot.getFlags()) {
+            flags.add(new EnvironmentFlagResponse(state.getId(), state.getName(), state.isActive()));
+        }
+        return flags;
+    }
+
+    /**
+     * Gets the current snapshot of the environment an SDK key belongs to.
+     *
+     * @param sdkKey The SDK key sent by the client
+     * @return The environment's snapshot
+     * @throws com.controltower.exception.UnknownSdkKeyException if no environment has this SDK key
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public FlagSnapshot getSnapshot(String sdkKey) {
+        return environmentSnapshotCache.forSdkKey(sdkKey);
+    }
+
+    /**
+     * Increments the version of every environment of the given projects, as
+     * part of the calling transaction, and has their snapshots rebuilt once it
+     * commits. Called when flags of those projects are created, renamed,
+     * retargeted or deleted.
+     *
+     * @param projects The project keys
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void touchProjects(Collection<String> projects) {
+        if (projects.isEmpty()) {
+            return;
+        }
+        environmentRepository.incrementVersionsOfProjects(projects);
+        for (String project : projects) {
+            eventPublisher.publishEvent(new EnvironmentChangedEvent(null, project));
+        }
+    }
+
+    /**
+     * Increments the version of every environment, as part of the calling
+     * transaction, and has their snapshots rebuilt once it commits. Called
+     * when segments change, as they are shared by every project.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void touchAll() {
+        environmentRepository.incrementAllVersions();
+        eventPublisher.publishEvent(new EnvironmentChangedEvent(null, null));
+    }
+
+    private EnvironmentResponse convertToResponse(Environment environment) {
+        return new EnvironmentResponse(
+                environment.getId(),
+                environment.getProject(),
+                environment.getKey(),
+                environment.getName(),
+                environment.getSdkKey(),
+                environment.getVersion(),
+                environment.getCreatedAt());
+    }
+}
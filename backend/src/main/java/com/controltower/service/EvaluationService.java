@@ -0,0 +1,72 @@
+package com.controltower.service;
+
+import com.controltower.dto.EvaluationRequest;
+import com.controltower.dto.EvaluationResponse;
+import com.controltower.evaluation.CompiledFlag;
+import com.controltower.evaluation.EvaluationContext;
+import com.controltower.evaluation.MapEvaluationContext;
+import com.controltower.snapshot.FlagSnapshot;
+import com.controltower.snapshot.FlagSnapshotCache;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service evaluating flags for a context.
+ * 
+ * Evaluation runs entirely against the evaluators compiled into the current
+ * snapshot: no database access, no rule parsing, and no locking. All flags of
+ * a request are evaluated against the same snapshot.
+ */
+@Service
+@Timed("controltower.service")
+public class EvaluationService {
+
+    private final FlagSnapshotCache flagSnapshotCache;
+
+    @Autowired
+    public EvaluationService(FlagSnapshotCache flagSnapshotCache) {
+        this.flagSnapshotCache = flagSnapshotCache;
+    }
+
+    /**
+     * Evaluates flags for the context of a request.
+     * 
+     * @param request The evaluation request
+     * @return The result of each requested flag; unknown flag names are false
+     */
+    public EvaluationResponse evaluate(EvaluationRequest request) {
+        return evaluate(flagSnapshotCache.current(), request);
+    }
+
+    /**
+     * Evaluates flags for the context of a request against a given snapshot.
+     * 
+     * @param snapshot The snapshot to evaluate against
+     * @param request  The evaluation request
+     * @return The result of each requested flag; unknown flag names are false
+     */
+    public EvaluationResponse evaluate(FlagSnapshot snapshot, EvaluationRequest request) {
+        EvaluationContext context = new MapEvaluationContext(request.getKey(), request.getAttributes());
+        Map<String, Boolean> results;
+        List<String> names = request.getFlags();
+        if (names == null) {
+            List<CompiledFlag> evaluators = snapshot.getEvaluators();
+            results = new LinkedHashMap<>(evaluators.size() * 2);
+            for (CompiledFlag evaluator : evaluators) {
+                results.put(evaluator.getName(), evaluator.evaluate(context));
+            }
+        } else {
+            results = new LinkedHashMap<>(names.size() * 2);
+            for (String name : names) {
+                CompiledFlag evaluator = snapshot.getEvaluator(name);
+                results.put(name, evaluator != null && evaluator.evaluate(context));
+            }
+        }
+        return new EvaluationResponse(snapshot.getVersion(), results);
+    }
+}
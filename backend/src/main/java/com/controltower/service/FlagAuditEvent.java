@@ -0,0 +1,116 @@
+package com.controltower.service;
+
+import com.controltower.dto.FlagAuditState;
+import com.controltower.entity.FlagChangeEntry.ChangeType;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Application event published by the flag service with the changes a
+ * mutation made, for the audit log.
+ *
+ * The audit log takes room for the changes when it is published, failing the
+ * mutation if it has none, and only queues them once the transaction
+ * committed, so rolled back changes never reach the log.
+ */
+public class FlagAuditEvent {
+
+    private final OffsetDateTime occurredAt;
+    private final String actor;
+    private final long version;
+    private final List<Change> changes;
+
+    public FlagAuditEvent(OffsetDateTime occurredAt, String actor, long version, List<Change> changes) {
+        this.occurredAt = occurredAt;
+        this.actor = actor;
+        this.version = version;
+        this.changes = changes;
+    }
+
+    public OffsetDateTime getOccurredAt() {
+        return occurredAt;
+    }
+
+    /**
+     * Gets the name of the user who made the changes.
+     *
+     * @return The user name
+     */
+    public String getActor() {
+        return actor;
+    }
+
+    /**
+     * Gets the flag set version the changes were committed with.
+     *
+     * @return The flag set version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    @Override
+    public String toString() {
+        return "FlagAuditEvent{" +
+                "actor='" + actor + '\'' +
+                ", version=" + version +
+                ", changes=" + changes.size() +
+                '}';
+    }
+
+    /**
+     * The change of one flag.
+     */
+    public static final class Change {
+
+        private final ChangeType action;
+        private final Long flagId;
+        private final FlagAuditState before;
+        private final FlagAuditState after;
+
+        /**
+         * Creates the change of one flag.
+         *
+         * @param action The kind of change
+         * @param flagId The ID of the flag
+         * @param before The flag before the change, null if created
+         * @param after  The flag after the change, null if deleted
+         */
+        public Change(ChangeType action, Long flagId, FlagAuditState before, FlagAuditState after) {
+            this.action = action;
+            this.flagId = flagId;
+            this.before = before;
+            this.after = after;
+        }
+
+        public ChangeType getAction() {
+            return action;
+        }
+
+        public Long getFlagId() {
+            return flagId;
+        }
+
+        public FlagAuditState getBefore() {
+            return before;
+        }
+
+        public FlagAuditState getAfter() {
+            return after;
+        }
+
+        /**
+         * Gets the name of the flag after the change, or before it if deleted.
+         *
+         * @return The flag name
+         */
+        public String getFlagName() {
+            return after != null ? after.getName() : before.getName();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.controltower.service;
+
+import com.controltower.dto.FlagDeltaResponse;
+import com.controltower.entity.FlagChangeEntry;
+import com.controltower.entity.FlagChangeEntry.ChangeType;
+import com.controltower.entity.FlagSetVersion;
+import com.controltower.repository.FlagChangeEntryRepository;
+import com.controltower.repository.FlagSetVersionRepository;
+import com.controltower.snapshot.FlagSnapshot;
+import com.controltower.snapshot.FlagSnapshotCache;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Service for the flag set version and the per-mutation change log.
+ * 
+ * Mutations take a new version and record their changes within their own
+ * transaction. The log is then used to send clients only what changed since
+ * the version they hold.
+ */
+@Service
+@Timed("controltower.service")
+@Transactional
+public class FlagChangeLogService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlagChangeLogService.class);
+
+    private final FlagSetVersionRepository flagSetVersionRepository;
+    private final FlagChangeEntryRepository flagChangeEntryRepository;
+    private final FlagSnapshotCache flagSnapshotCache;
+    private final long retainedVersions;
+
+    @Autowired
+    public FlagChangeLogService(FlagSetVersionRepository flagSetVersionRepository,
+            FlagChangeEntryRepository flagChangeEntryRepository,
+            FlagSnapshotCache flagSnapshotCache,
+            @Value("${controltower.changes.retained-versions:10000}") long retainedVersions) {
+        this.flagSetVersionRepository = flagSetVersionRepository;
+        this.flagChangeEntryRepository = flagChangeEntryRepository;
+        this.flagSnapshotCache = flagSnapshotCache;
+        this.retainedVersions = retainedVersions;
+    }
+
+    /**
+     * Takes the next flag set version for the calling transaction.
+     * 
+     * The counter row stays locked until the transaction ends, so concurrent
+     * mutations are serialized and versions are committed in order. The
+     * counter is global on purpose: delta sync, the change log pruning, the
+     * stream event IDs and kill switch confirmations all take "every change
+     * up to version n is committed" for granted, which a counter per project
+     * or flag would break. Writes of different flags therefore commit one at
+     * a time; bulk requests take a single version for all their changes.
+     * 
+     * @return The new version
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long nextVersion() {
+        if (flagSetVersionRepository.increment() == 0) {
+            // Databases not initialized from schema.sql start without the counter row
+            flagSetVersionRepository.saveAndFlush(new FlagSetVersion(FlagSetVersion.SINGLETON_ID, 1L));
+            return 1L;
+        }
+        return flagSetVersionRepository.findCurrentVersion();
+    }
+
+    /**
+     * Records a change in the change log, as part of the calling transaction.
+     * 
+     * @param version      The version taken by the mutation
+     * @param flagId       The ID of the changed flag
+     * @param changeType   The kind of change
+     * @param previousName The flag name before the change, null if created
+     * @param wasActive    The active state before the change, null if created
+     * @param name         The flag name after the change, null if deleted
+     * @param isActive     The active state after the change, null if deleted
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(long version, Long flagId, ChangeType changeType,
+            String previousName, Boolean wasActive, String name, Boolean isActive) {
+        flagChangeEntryRepository.save(
+                new FlagChangeEntry(version, flagId, changeType, previousName, wasActive, name, isActive));
+    }
+
+    /**
+     * Records several changes in the change log with one batched insert, as
+     * part of the calling transaction.
+     * 
+     * @param changes The changes, all made with the version taken by the mutation
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(List<FlagChangeEntry> changes) {
+        if (!changes.isEmpty()) {
+            flagChangeEntryRepository.insertAll(changes);
+        }
+    }
+
+    /**
+     * Gets the current flag set version as committed in the database.
+     * 
+     * @return The current version, 0 if no mutation was ever made
+     */
+    @Transactional(readOnly = true)
+    public long getCurrentVersion() {
+        Long version = flagSetVersionRepository.findCurrentVersion();
+        return version != null ? version : 0L;
+    }
+
+    /**
+     * Computes the net changes to the active flag names since a version.
+     * 
+     * Falls back to the full list of active flags when the version is newer
+     * than the current one or older than the oldest retained change.
+     * 
+     * @param since The version the client holds
+     * @return The delta or full response
+     */
+    @Transactional(readOnly = true)
+    public FlagDeltaResponse getChangesSince(long since) {
+        // Read the version first: versions commit in order, so every change up
+        // to it is already visible to the queries below.
+        long current = getCurrentVersion();
+        if (since == current) {
+            return FlagDeltaResponse.delta(current, List.of(), List.of());
+        }
+
+        Long oldest = flagChangeEntryRepository.findOldestVersion();
+        if (since > current || oldest == null || since < oldest - 1) {
+            FlagSnapshot snapshot = flagSnapshotCache.current();
+            return FlagDeltaResponse.full(snapshot.getVersion(), snapshot.getActiveFlagNames());
+        }
+
+        // Keep the first and last change of every flag: the state before the
+        // first and after the last is all that matters to the client.
+        Map<Long, FlagChangeEntry> firstChanges = new LinkedHashMap<>();
+        Map<Long, FlagChangeEntry> lastChanges = new HashMap<>();
+        for (FlagChangeEntry change : flagChangeEntryRepository.findChangesBetween(since, current)) {
+            firstChanges.putIfAbsent(change.getFlagId(), change);
+            lastChanges.put(change.getFlagId(), change);
+        }
+
+        Set<String> added = new LinkedHashSet<>();
+        Set<String> removed = new LinkedHashSet<>();
+        for (Map.Entry<Long, FlagChangeEntry> entry : firstChanges.entrySet()) {
+            FlagChangeEntry first = entry.getValue();
+            FlagChangeEntry last = lastChanges.get(entry.getKey());
+            boolean wasActive = Boolean.TRUE.equals(first.getWasActive());
+            boolean isActive = Boolean.TRUE.equals(last.getIsActive());
+            boolean sameName = Objects.equals(first.getPreviousName(), last.getName());
+
+            if (wasActive && (!isActive || !sameName)) {
+                removed.add(first.getPreviousName());
+            }
+            if (isActive && (!wasActive || !sameName)) {
+                added.add(last.getName());
+            }
+        }
+        return FlagDeltaResponse.delta(current, new ArrayList<>(added), new ArrayList<>(removed));
+    }
+
+    /**
+     * Deletes changes older than the retention window. Clients behind the
+     * window get a full response instead of a delta.
+     */
+    @Scheduled(fixedDelayString = "${controltower.changes.prune-interval:3600000}")
+    public void pruneChanges() {
+        long threshold = getCurrentVersion() - retainedVersions;
+        if (threshold > 0) {
+            int deleted = flagChangeEntryRepository.deleteUpToVersion(threshold);
+            if (deleted > 0) {
+                log.debug("Pruned {} flag changes up to version {}", deleted, threshold);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.controltower.service;
+
+import com.controltower.dto.FlagScheduleRequest;
+import com.controltower.dto.FlagScheduleResponse;
+import com.controltower.entity.FlagSchedule;
+import com.controltower.entity.FlagSchedule.Status;
+import com.controltower.exception.FlagNotFoundException;
+import com.controltower.exception.InvalidScheduleException;
+import com.controltower.exception.ScheduleNotFoundException;
+import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.repository.FlagScheduleRepository;
+import com.controltower.scheduling.FlagScheduleEvent;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service class for scheduled flag changes.
+ * 
+ * Schedules are stored here and executed by the
+ * {@link com.controltower.scheduling.FlagScheduler} of the leading node,
+ * which goes through the {@link FlagService} like any admin request.
+ */
+@Service
+@Timed("controltower.service")
+@Transactional
+public class FlagScheduleService {
+
+    private final FlagScheduleRepository scheduleRepository;
+    private final FeatureFlagRepository featureFlagRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public FlagScheduleService(FlagScheduleRepository scheduleRepository,
+            FeatureFlagRepository featureFlagRepository,
+            ApplicationEventPublisher eventPublisher) {
+        this.scheduleRepository = scheduleRepository;
+        this.featureFlagRepository = featureFlagRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Schedules a change of a feature flag.
+     * 
+     * @param flagId  The ID of the flag
+     * @param request The change and its time
+     * @return The pending schedule
+     * @throws FlagNotFoundException    if the flag with the given ID does not exist
+     * @throws InvalidScheduleException if the time is missing, given twice or in the past
+     */
+    public FlagScheduleResponse createSchedule(Long flagId, FlagScheduleRequest request) {
+        if ((request.getExecuteAt() == null) == (request.getDelay() == null)) {
+            throw new InvalidScheduleException("Exactly one of executeAt and delay is required");
+        }
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime executeAt = request.getExecuteAt() != null
+                ? request.getExecuteAt()
+                : now.plus(request.getDelay());
+        if (!executeAt.isAfter(now)) {
+            throw new InvalidScheduleException("The schedule must be in the future: " + executeAt);
+        }
+        if (!featureFlagRepository.existsById(flagId)) {
+            throw new FlagNotFoundException("Flag not found with ID: " + flagId);
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String createdBy = authentication != null ? authentication.getName() : "system";
+        FlagSchedule schedule = scheduleRepository.save(
+                new FlagSchedule(flagId, request.getAction(), executeAt, createdBy));
+        eventPublisher.publishEvent(new FlagScheduleEvent(schedule.getId(), schedule.getExecuteAt()));
+        return convertToResponse(schedule);
+    }
+
+    /**
+     * Lists the schedules of a feature flag, past ones included, in execution
+     * order.
+     * 
+     * @param flagId The ID of the flag
+     * @return The schedules
+     */
+    @Transactional(readOnly = true)
+    public List<FlagScheduleResponse> getSchedules(Long flagId) {
+        List<FlagSchedule> schedules = scheduleRepository.findByFlagIdOrderByExecuteAtAscIdAsc(flagId);
+        List<FlagScheduleResponse> responses = new ArrayList<>(schedules.size());
+        for (FlagSchedule schedule : schedules) {
+            responses.add(convertToResponse(schedule));
+        }
+        return responses;
+    }
+
+    /**
+     * Cancels a pending schedule.
+     * 
+     * @param id The ID of the schedule
+     * @throws ScheduleNotFoundException if no pending schedule has this ID
+     */
+    public void cancelSchedule(Long id) {
+        if (scheduleRepository.complete(id, Status.CANCELLED, OffsetDateTime.now(ZoneOffset.UTC), null) == 0) {
+            throw new ScheduleNotFoundException("No pending schedule with ID: " + id);
+        }
+        eventPublisher.publishEvent(new FlagScheduleEvent(id, null));
+    }
+
+    private static FlagScheduleResponse convertToResponse(FlagSchedule schedule) {
+        return new FlagScheduleResponse(
+                schedule.getId(),
+                schedule.getFlagId(),
+                schedule.getAction(),
+                schedule.getExecuteAt(),
+                schedule.getStatus(),
+                schedule.getCreatedBy(),
+                schedule.getCreatedAt(),
+                schedule.getCompletedAt(),
+                schedule.getError());
+    }
+}
@@ -1,34 +1,111 @@
 package com.controltower.service;
 
+import com.controltower.dto.BulkFlagRequest;
+import com.controltower.dto.BulkFlagResponse;
 import com.controltower.dto.CreateFlagRequest;
+import com.controltower.dto.FlagAuditState;
+import com.controltower.dto.FlagPage;
 import com.controltower.dto.FlagResponse;
+import com.controltower.dto.TargetingRules;
 import com.controltower.dto.UpdateFlagRequest;
 import com.controltower.entity.FeatureFlag;
+import com.controltower.entity.FlagChangeEntry;
+import com.controltower.entity.FlagChangeEntry.ChangeType;
+import com.controltower.evaluation.RuleCompiler;
 import com.controltower.exception.FlagAlreadyExistsException;
 import com.controltower.exception.FlagNotFoundException;
+import com.controltower.exception.FlagRevisionMismatchException;
+import com.controltower.exception.InvalidBulkRequestException;
+import com.controltower.exception.InvalidFlagQueryException;
+import com.controltower.exception.InvalidTargetingException;
 import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.repository.FlagEnvironmentStateRepository;
+import com.controltower.repository.FlagField;
+import com.controltower.repository.FlagRow;
+import com.controltower.repository.SegmentRepository;
+import com.controltower.snapshot.FlagChangedEvent;
+import com.controltower.snapshot.FlagSnapshot;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Service class for feature flag business logic.
  * 
  * This service handles all business operations related to feature flags,
  * including creation, validation, and data transformation.
+ * 
+ * Every mutation takes the next flag set version first. Mutations that change
+ * what the environments of a project serve, i.e. anything but the base active
+ * state, then increment the versions of those environments before touching
+ * the flags, so locks are always taken in the same order. Only flags of the
+ * default project go into the change log, which serves the unkeyed public API.
+ * Changes to flags of every project go into the audit log, with the state of
+ * the flag before and after, once the transaction committed.
  */
 @Service
+@Timed("controltower.service")
 @Transactional
 public class FlagService {
 
+    /**
+     * Largest page size accepted when listing flags.
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Largest number of operations accepted in one bulk request.
+     */
+    public static final int MAX_BULK_OPERATIONS = 1000;
+
     private final FeatureFlagRepository featureFlagRepository;
+    private final SegmentRepository segmentRepository;
+    private final FlagEnvironmentStateRepository stateRepository;
+    private final FlagChangeLogService flagChangeLogService;
+    private final EnvironmentService environmentService;
+    private final FlagSnapshotCache flagSnapshotCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public FlagService(FeatureFlagRepository featureFlagRepository) {
+    public FlagService(FeatureFlagRepository featureFlagRepository,
+            SegmentRepository segmentRepository,
+            FlagEnvironmentStateRepository stateRepository,
+            FlagChangeLogService flagChangeLogService,
+            EnvironmentService environmentService,
+            FlagSnapshotCache flagSnapshotCache,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper) {
         this.featureFlagRepository = featureFlagRepository;
+        this.segmentRepository = segmentRepository;
+        this.stateRepository = stateRepository;
+        this.flagChangeLogService = flagChangeLogService;
+        this.environmentService = environmentService;
+        this.flagSnapshotCache = flagSnapshotCache;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -37,35 +114,98 @@ public class FlagService {
      * @param request The flag creation request
      * @return The created flag response
      * @throws FlagAlreadyExistsException if a flag with the same name already
-     *                                    exists
+     *                                    exists in the project
      */
     public FlagResponse createFlag(CreateFlagRequest request) {
+        // Take the next version first; this also serializes concurrent mutations
+        long version = flagChangeLogService.nextVersion();
+        String project = projectOf(request);
+
         // Check if flag with the same name already exists
-        if (featureFlagRepository.existsByName(request.getName())) {
+        if (featureFlagRepository.existsByProjectAndName(project, request.getName())) {
             throw new FlagAlreadyExistsException("A flag with the name already exists: " + request.getName());
         }
+        environmentService.touchProjects(List.of(project));
 
         // Create new feature flag entity
         FeatureFlag featureFlag = new FeatureFlag(request.getName(), request.getDescription());
+        featureFlag.setProject(project);
 
         // Save to database
         FeatureFlag savedFlag = featureFlagRepository.save(featureFlag);
+        if (isLogged(savedFlag.getProject())) {
+            flagChangeLogService.record(version, savedFlag.getId(), ChangeType.CREATED,
+                    null, null, savedFlag.getName(), savedFlag.getIsActive());
+        }
+        eventPublisher.publishEvent(new FlagChangedEvent(savedFlag.getId(), version));
+        publishAudit(version, List.of(new FlagAuditEvent.Change(ChangeType.CREATED, savedFlag.getId(),
+                null, auditState(savedFlag))));
 
         // Convert to response DTO
         return convertToResponse(savedFlag);
     }
 
     /**
-     * Retrieves all feature flags.
+     * Gets a feature flag by ID.
      * 
-     * @return List of all flags as response DTOs
+     * @param id The ID of the flag
+     * @return The flag response, with its current revision
+     * @throws FlagNotFoundException if the flag with the given ID does not exist
      */
     @Transactional(readOnly = true)
-    public List<FlagResponse> getAllFlags() {
-        List<FeatureFlag> flags = featureFlagRepository.findAll();
-        return flags.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+    public FlagResponse getFlag(Long id) {
+        return convertToResponse(featureFlagRepository.findById(id)
+                .orElseThrow(() -> new FlagNotFoundException("Flag not found with ID: " + id)));
+    }
+
+    /**
+     * Lists feature flags in ID order, one page at a time.
+     * 
+     * Only the requested columns are read, straight into DTOs; no entity is
+     * loaded. Pages are keyset based, so the cost of a page does not depend
+     * on its position in the list.
+     * 
+     * @param after      The cursor returned with the previous page, null for the first page
+     * @param limit      The page size, null to list every remaining flag
+     * @param project    Only flags of this project, null for every project
+     * @param active     Only flags in this state, null for both
+     * @param namePrefix Only flags whose name starts with this prefix, null for all
+     * @param fields     The JSON properties to return, null or empty for all; the ID is always returned
+     * @return The page, with the cursor of the next one if there is more
+     * @throws InvalidFlagQueryException if the page size is out of range or a field is unknown
+     */
+    @Transactional(readOnly = true)
+    public FlagPage getFlags(Long after, Integer limit, String project, Boolean active, String namePrefix,
+            Set<String> fields) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            throw new InvalidFlagQueryException("The limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Set<FlagField> selected = FlagField.all();
+        if (fields != null && !fields.isEmpty()) {
+            selected = EnumSet.noneOf(FlagField.class);
+            for (String property : fields) {
+                FlagField field = FlagField.fromProperty(property.trim());
+                if (field == null) {
+                    throw new InvalidFlagQueryException("Unknown field: " + property);
+                }
+                selected.add(field);
+            }
+        }
+
+        // Read one more row than asked to know whether there is a next page
+        List<FlagRow> rows = featureFlagRepository.findFlagRows(after, limit != null ? limit + 1 : null,
+                project, active, namePrefix, selected);
+        Long nextCursor = null;
+        if (limit != null && rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            nextCursor = rows.get(limit - 1).getId();
+        }
+
+        List<FlagResponse> flags = new ArrayList<>(rows.size());
+        for (FlagRow row : rows) {
+            flags.add(convertToResponse(row));
+        }
+        return new FlagPage(flags, nextCursor);
     }
 
     /**
@@ -74,79 +214,385 @@ public class FlagService {
      * This method is optimized for the public API endpoint and should respond
      * quickly.
      * It returns only the names of active flags, not the complete flag objects.
+     * The names are served from the in-memory snapshot, so no transaction or
+     * database access is involved.
      * 
      * @return List of active flag names
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<String> getActiveFlagNames() {
-        return featureFlagRepository.findActiveFlagNames();
+        return flagSnapshotCache.current().getActiveFlagNames();
+    }
+
+    /**
+     * Gets the current in-memory flag snapshot.
+     * 
+     * The snapshot carries the pre-serialized public payloads, so the public
+     * API can write them to the response without any further processing.
+     * 
+     * @return The current flag snapshot
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public FlagSnapshot getCurrentSnapshot() {
+        return flagSnapshotCache.current();
+    }
+
+    /**
+     * Gets how long the snapshot served to a public API client has been
+     * served without being known to match the database, e.g. while the
+     * database is down. Only the default snapshot is tracked.
+     * 
+     * @param sdkKey The SDK key sent by the client, may be null
+     * @return The staleness in seconds, or -1 if the snapshot is up to date
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long getSnapshotStaleness(String sdkKey) {
+        return sdkKey != null ? -1 : flagSnapshotCache.getStalenessSeconds();
     }
 
     /**
-     * Toggles the active state of a feature flag.
+     * Gets the snapshot served to a public API client: the snapshot of the
+     * environment its SDK key belongs to, or the default snapshot without one.
      * 
-     * @param id The ID of the flag to toggle
+     * @param sdkKey The SDK key sent by the client, may be null
+     * @return The flag snapshot to serve
+     * @throws com.controltower.exception.UnknownSdkKeyException if no environment has this SDK key
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public FlagSnapshot getSnapshot(String sdkKey) {
+        return sdkKey != null ? environmentService.getSnapshot(sdkKey) : flagSnapshotCache.current();
+    }
+
+    /**
+     * Toggles the base active state of a feature flag. The state of the flag
+     * in each environment is toggled through the environment instead.
+     * 
+     * The flag is toggled by a single UPDATE relative to its stored state,
+     * so a toggle can never overwrite a concurrent change with a stale read.
+     * 
+     * @param id               The ID of the flag to toggle
+     * @param expectedRevision Only toggle the flag if it is at this revision, null for any
      * @return The updated flag response
-     * @throws FlagNotFoundException if the flag with the given ID does not exist
+     * @throws FlagNotFoundException         if the flag with the given ID does not exist
+     * @throws FlagRevisionMismatchException if the flag is not at the expected revision
      */
-    public FlagResponse toggleFlag(Long id) {
-        // Find the flag by ID
+    public FlagResponse toggleFlag(Long id, Long expectedRevision) {
+        long version = flagChangeLogService.nextVersion();
+
+        FlagRow toggled = featureFlagRepository.toggle(id, expectedRevision)
+                .orElseThrow(() -> featureFlagRepository.existsById(id)
+                        ? new FlagRevisionMismatchException("Flag " + id + " is no longer at revision " + expectedRevision)
+                        : new FlagNotFoundException("Flag not found with ID: " + id));
+        if (isLogged(toggled.getProject())) {
+            flagChangeLogService.record(version, id, ChangeType.TOGGLED,
+                    toggled.getName(), !toggled.getIsActive(), toggled.getName(), toggled.getIsActive());
+        }
+        eventPublisher.publishEvent(new FlagChangedEvent(id, version));
+        FlagAuditState after = auditState(toggled);
+        publishAudit(version, List.of(new FlagAuditEvent.Change(ChangeType.TOGGLED, id, after.toggled(), after)));
+
+        // Convert to response DTO
+        return convertToResponse(toggled);
+    }
+
+    /**
+     * Turns the base active state of a feature flag off, persisting a kill
+     * switch. Unlike a toggle this is idempotent, so it can be retried.
+     *
+     * A flag set version is taken even if the flag is already off, so the
+     * caller knows from which version on every snapshot serves it as off.
+     *
+     * @param id The ID of the flag to turn off
+     * @return The flag set version the change was committed with
+     * @throws FlagNotFoundException         if the flag with the given ID does not exist
+     * @throws FlagRevisionMismatchException if the flag changed while being turned off
+     */
+    public long disableFlag(Long id) {
+        long version = flagChangeLogService.nextVersion();
+
         FeatureFlag flag = featureFlagRepository.findById(id)
                 .orElseThrow(() -> new FlagNotFoundException("Flag not found with ID: " + id));
+        if (!Boolean.TRUE.equals(flag.getIsActive())) {
+            eventPublisher.publishEvent(new FlagChangedEvent(id, version));
+            return version;
+        }
+        FlagRow disabled = featureFlagRepository.toggle(id, flag.getRevision())
+                .orElseThrow(() -> new FlagRevisionMismatchException("Flag " + id + " changed while being disabled"));
+        if (isLogged(disabled.getProject())) {
+            flagChangeLogService.record(version, id, ChangeType.TOGGLED,
+                    disabled.getName(), true, disabled.getName(), false);
+        }
+        eventPublisher.publishEvent(new FlagChangedEvent(id, version));
+        FlagAuditState after = auditState(disabled);
+        publishAudit(version, List.of(new FlagAuditEvent.Change(ChangeType.TOGGLED, id, after.toggled(), after)));
+        return version;
+    }
 
-        // Toggle the active state
-        flag.setIsActive(!flag.getIsActive());
+    /**
+     * Deletes a feature flag by ID.
+     *
+     * @param id               The ID of the flag to delete
+     * @param expectedRevision Only delete the flag if it is at this revision, null for any
+     * @throws FlagNotFoundException         if the flag with the given ID does not exist
+     * @throws FlagRevisionMismatchException if the flag is not at the expected revision
+     */
+    public void deleteFlag(Long id, Long expectedRevision) {
+        long version = flagChangeLogService.nextVersion();
 
-        // Save the updated flag
-        FeatureFlag updatedFlag = featureFlagRepository.save(flag);
+        // Find the flag, its last state goes into the change log
+        FeatureFlag flag = featureFlagRepository.findById(id)
+                .orElseThrow(() -> new FlagNotFoundException("Flag not found with ID: " + id));
+        checkRevision(flag, expectedRevision);
 
-        // Convert to response DTO
-        return convertToResponse(updatedFlag);
+        environmentService.touchProjects(List.of(flag.getProject()));
+
+        // Delete the flag and its state in every environment
+        stateRepository.deleteByFlagIdIn(List.of(id));
+        featureFlagRepository.delete(flag);
+        if (isLogged(flag.getProject())) {
+            flagChangeLogService.record(version, id, ChangeType.DELETED,
+                    flag.getName(), flag.getIsActive(), null, null);
+        }
+        eventPublisher.publishEvent(new FlagChangedEvent(id, version));
+        publishAudit(version, List.of(new FlagAuditEvent.Change(ChangeType.DELETED, id, auditState(flag), null)));
     }
 
     /**
-     * Deletes a feature flag by ID.
+     * Applies several flag operations in one transaction.
      * 
-     * @param id The ID of the flag to delete
-     * @throws FlagNotFoundException if the flag with the given ID does not exist
+     * Flags are deleted, then toggled, then created, each kind with a single
+     * set-based or batched statement, and all changes share one new flag set
+     * version. Readers and streaming clients therefore move from the state
+     * before the request to the state after it in one step. Nothing is
+     * applied if any operation fails.
+     * 
+     * @param request The operations to apply
+     * @return The created and toggled flags and the new version
+     * @throws InvalidBulkRequestException if the request is too large or lists a flag twice
+     * @throws FlagNotFoundException       if a flag to toggle or delete does not exist
+     * @throws FlagAlreadyExistsException  if a flag to create already exists in its project
      */
-    public void deleteFlag(Long id) {
-        // Check if flag exists
-        if (!featureFlagRepository.existsById(id)) {
-            throw new FlagNotFoundException("Flag not found with ID: " + id);
+    public BulkFlagResponse applyBulk(BulkFlagRequest request) {
+        List<Long> toggleIds = request.getToggle();
+        List<Long> deleteIds = request.getDelete();
+        List<CreateFlagRequest> creates = request.getCreate();
+        int operations = creates.size() + toggleIds.size() + deleteIds.size();
+        if (operations == 0) {
+            throw new InvalidBulkRequestException("No operation requested");
+        }
+        if (operations > MAX_BULK_OPERATIONS) {
+            throw new InvalidBulkRequestException("At most " + MAX_BULK_OPERATIONS + " operations are allowed");
+        }
+        Set<Long> ids = new HashSet<>();
+        for (Long id : toggleIds) {
+            requireUnique(ids, id, "Flag listed more than once: ");
+        }
+        for (Long id : deleteIds) {
+            requireUnique(ids, id, "Flag listed more than once: ");
+        }
+        Map<String, Set<String>> namesByProject = new LinkedHashMap<>();
+        for (CreateFlagRequest create : creates) {
+            requireUnique(namesByProject.computeIfAbsent(projectOf(create), project -> new LinkedHashSet<>()),
+                    create.getName(), "Flag name listed more than once: ");
+        }
+
+        long version = flagChangeLogService.nextVersion();
+        List<FlagChangeEntry> changes = new ArrayList<>(operations);
+        List<FlagAuditEvent.Change> audited = new ArrayList<>(operations);
+
+        Map<Long, FlagAuditState> existing = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (FeatureFlag flag : featureFlagRepository.findAllById(ids)) {
+                existing.put(flag.getId(), auditState(flag));
+            }
+            if (existing.size() != ids.size()) {
+                List<Long> missing = new ArrayList<>(ids);
+                missing.removeAll(existing.keySet());
+                throw new FlagNotFoundException("Flags not found with IDs: " + missing);
+            }
         }
 
-        // Delete the flag
-        featureFlagRepository.deleteById(id);
+        // Toggles only change base states, which environments do not serve
+        Set<String> touched = new LinkedHashSet<>(namesByProject.keySet());
+        if (!deleteIds.isEmpty()) {
+            touched.addAll(featureFlagRepository.findProjectsByIdIn(deleteIds));
+        }
+        Set<Long> logged = new HashSet<>();
+        if (!ids.isEmpty()) {
+            logged.addAll(featureFlagRepository.findIdsByProjectAndIdIn(FeatureFlag.DEFAULT_PROJECT, ids));
+        }
+        environmentService.touchProjects(touched);
+
+        if (!deleteIds.isEmpty()) {
+            stateRepository.deleteByFlagIdIn(deleteIds);
+            featureFlagRepository.deleteAllByIdIn(deleteIds);
+            for (Long id : deleteIds) {
+                FlagAuditState state = existing.get(id);
+                if (logged.contains(id)) {
+                    changes.add(new FlagChangeEntry(version, id, ChangeType.DELETED,
+                            state.getName(), state.getIsActive(), null, null));
+                }
+                audited.add(new FlagAuditEvent.Change(ChangeType.DELETED, id, state, null));
+            }
+        }
+
+        if (!toggleIds.isEmpty()) {
+            featureFlagRepository.toggleAllById(toggleIds, OffsetDateTime.now());
+            for (Long id : toggleIds) {
+                FlagAuditState state = existing.get(id);
+                if (logged.contains(id)) {
+                    changes.add(new FlagChangeEntry(version, id, ChangeType.TOGGLED,
+                            state.getName(), state.getIsActive(), state.getName(), !state.getIsActive()));
+                }
+                audited.add(new FlagAuditEvent.Change(ChangeType.TOGGLED, id, state, state.toggled()));
+            }
+        }
+
+        List<FeatureFlag> created = new ArrayList<>(creates.size());
+        if (!creates.isEmpty()) {
+            for (Map.Entry<String, Set<String>> entry : namesByProject.entrySet()) {
+                List<String> taken = featureFlagRepository.findExistingNames(entry.getKey(), entry.getValue());
+                if (!taken.isEmpty()) {
+                    throw new FlagAlreadyExistsException("A flag with the name already exists: " + taken.get(0));
+                }
+            }
+            List<FeatureFlag> flags = new ArrayList<>(creates.size());
+            for (CreateFlagRequest create : creates) {
+                FeatureFlag flag = new FeatureFlag(create.getName(), create.getDescription());
+                flag.setProject(projectOf(create));
+                flags.add(flag);
+            }
+            featureFlagRepository.insertAll(flags);
+            for (Map.Entry<String, Set<String>> entry : namesByProject.entrySet()) {
+                created.addAll(featureFlagRepository.findByProjectAndNameIn(entry.getKey(), entry.getValue()));
+            }
+            created.sort(Comparator.comparing(FeatureFlag::getId));
+            for (FeatureFlag flag : created) {
+                if (isLogged(flag.getProject())) {
+                    changes.add(new FlagChangeEntry(version, flag.getId(), ChangeType.CREATED,
+                            null, null, flag.getName(), flag.getIsActive()));
+                }
+                audited.add(new FlagAuditEvent.Change(ChangeType.CREATED, flag.getId(), null, auditState(flag)));
+            }
+        }
+
+        flagChangeLogService.recordAll(changes);
+        eventPublisher.publishEvent(new FlagChangedEvent(null, version));
+        publishAudit(version, audited);
+
+        List<FlagResponse> toggled = new ArrayList<>(toggleIds.size());
+        if (!toggleIds.isEmpty()) {
+            for (FeatureFlag flag : featureFlagRepository.findAllById(toggleIds)) {
+                toggled.add(convertToResponse(flag));
+            }
+            toggled.sort(Comparator.comparing(FlagResponse::getId));
+        }
+        List<FlagResponse> createdResponses = new ArrayList<>(created.size());
+        for (FeatureFlag flag : created) {
+            createdResponses.add(convertToResponse(flag));
+        }
+        return new BulkFlagResponse(version, createdResponses, toggled, new ArrayList<>(deleteIds));
     }
 
     /**
      * Updates a feature flag with new data.
      * 
-     * @param id            The ID of the flag to update
-     * @param updateRequest The update request containing new values
+     * @param id               The ID of the flag to update
+     * @param updateRequest    The update request containing new values
+     * @param expectedRevision Only update the flag if it is at this revision, null for any
      * @return The updated flag response
-     * @throws FlagNotFoundException      if the flag with the given ID does not
-     *                                    exist
-     * @throws FlagAlreadyExistsException if a flag with the new name already exists
+     * @throws FlagNotFoundException         if the flag with the given ID does not
+     *                                       exist
+     * @throws FlagAlreadyExistsException    if a flag with the new name already exists
+     *                                       in the project
+     * @throws FlagRevisionMismatchException if the flag is not at the expected revision
      */
-    public FlagResponse updateFlag(Long id, UpdateFlagRequest updateRequest) {
+    public FlagResponse updateFlag(Long id, UpdateFlagRequest updateRequest, Long expectedRevision) {
+        long version = flagChangeLogService.nextVersion();
+
         // Find the flag by ID
         FeatureFlag flag = featureFlagRepository.findById(id)
                 .orElseThrow(() -> new FlagNotFoundException("Flag not found with ID: " + id));
+        checkRevision(flag, expectedRevision);
 
         // Check if another flag with the new name already exists (excluding current
         // flag)
-        if (featureFlagRepository.existsByNameAndIdNot(updateRequest.getName(), id)) {
+        if (featureFlagRepository.existsByProjectAndNameAndIdNot(flag.getProject(), updateRequest.getName(), id)) {
             throw new FlagAlreadyExistsException("A flag with the name already exists: " + updateRequest.getName());
         }
+        environmentService.touchProjects(List.of(flag.getProject()));
 
         // Update the flag fields
+        FlagAuditState before = auditState(flag);
+        String previousName = flag.getName();
         flag.setName(updateRequest.getName());
         flag.setDescription(updateRequest.getDescription());
 
-        // Save the updated flag
-        FeatureFlag updatedFlag = featureFlagRepository.save(flag);
+        // Save the updated flag; flushing assigns the new revision
+        FeatureFlag updatedFlag = featureFlagRepository.saveAndFlush(flag);
+        if (isLogged(updatedFlag.getProject())) {
+            flagChangeLogService.record(version, id, ChangeType.UPDATED,
+                    previousName, updatedFlag.getIsActive(), updatedFlag.getName(), updatedFlag.getIsActive());
+        }
+        eventPublisher.publishEvent(new FlagChangedEvent(id, version));
+        publishAudit(version, List.of(new FlagAuditEvent.Change(ChangeType.UPDATED, id, before,
+                auditState(updatedFlag))));
+
+        // Convert to response DTO
+        return convertToResponse(updatedFlag);
+    }
+
+    /**
+     * Sets the targeting rules of a feature flag.
+     * 
+     * The rules are compiled here once to reject invalid ones, e.g. a bad
+     * regular expression or an unknown segment, before they are stored.
+     * 
+     * @param id               The ID of the flag
+     * @param targeting        The new targeting rules, or null to remove them
+     * @param expectedRevision Only update the flag if it is at this revision, null for any
+     * @return The updated flag response
+     * @throws FlagNotFoundException         if the flag with the given ID does not
+     *                                       exist
+     * @throws InvalidTargetingException     if the rules are invalid
+     * @throws FlagRevisionMismatchException if the flag is not at the expected revision
+     */
+    public FlagResponse updateTargeting(Long id, TargetingRules targeting, Long expectedRevision) {
+        String json = null;
+        if (targeting != null) {
+            RuleCompiler.validateTargeting(targeting);
+            for (String segment : RuleCompiler.segmentsReferencedBy(targeting)) {
+                if (!segmentRepository.existsByName(segment)) {
+                    throw new InvalidTargetingException("Unknown segment: " + segment);
+                }
+            }
+            try {
+                json = objectMapper.writeValueAsString(targeting);
+            } catch (JsonProcessingException ex) {
+                throw new InvalidTargetingException("Could not serialize targeting rules", ex);
+            }
+        }
+
+        long version = flagChangeLogService.nextVersion();
+
+        // Find the flag by ID
+        FeatureFlag flag = featureFlagRepository.findById(id)
+                .orElseThrow(() -> new FlagNotFoundException("Flag not found with ID: " + id));
+        checkRevision(flag, expectedRevision);
+
+        environmentService.touchProjects(List.of(flag.getProject()));
+        FlagAuditState before = auditState(flag);
+        flag.setTargeting(json);
+
+        // Save the updated flag; flushing assigns the new revision
+        FeatureFlag updatedFlag = featureFlagRepository.saveAndFlush(flag);
+        if (isLogged(updatedFlag.getProject())) {
+            flagChangeLogService.record(version, id, ChangeType.UPDATED,
+                    updatedFlag.getName(), updatedFlag.getIsActive(), updatedFlag.getName(), updatedFlag.getIsActive());
+        }
+        eventPublisher.publishEvent(new FlagChangedEvent(id, version));
+        publishAudit(version, List.of(new FlagAuditEvent.Change(ChangeType.UPDATED, id, before,
+                auditState(updatedFlag))));
 
         // Convert to response DTO
         return convertToResponse(updatedFlag);
@@ -159,12 +605,95 @@ public class FlagService {
      * @return The response DTO
      */
     private FlagResponse convertToResponse(FeatureFlag featureFlag) {
-        return new FlagResponse(
+        FlagResponse response = new FlagResponse(
                 featureFlag.getId(),
                 featureFlag.getName(),
                 featureFlag.getIsActive(),
                 featureFlag.getDescription(),
                 featureFlag.getCreatedAt(),
                 featureFlag.getUpdatedAt());
+        response.setProject(featureFlag.getProject());
+        response.setRevision(featureFlag.getRevision());
+        response.setTargeting(readTargeting(featureFlag.getId(), featureFlag.getTargeting()));
+        return response;
+    }
+
+    /**
+     * Converts the selected columns of a flag to a FlagResponse DTO; fields
+     * that were not selected are left null.
+     * 
+     * @param row The columns to convert
+     * @return The response DTO
+     */
+    private FlagResponse convertToResponse(FlagRow row) {
+        FlagResponse response = new FlagResponse(
+                row.getId(),
+                row.getName(),
+                row.getIsActive(),
+                row.getDescription(),
+                row.getCreatedAt(),
+                row.getUpdatedAt());
+        response.setProject(row.getProject());
+        response.setRevision(row.getRevision());
+        if (row.has(FlagField.TARGETING)) {
+            response.setTargeting(readTargeting(row.getId(), row.getTargeting()));
+        }
+        return response;
+    }
+
+    /**
+     * Publishes the changes of a mutation for the audit log, which records
+     * them once the transaction committed.
+     * 
+     * @param version The flag set version taken by the mutation
+     * @param changes The changes, one per flag
+     */
+    private void publishAudit(long version, List<FlagAuditEvent.Change> changes) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String actor = authentication != null ? authentication.getName() : "system";
+        eventPublisher.publishEvent(new FlagAuditEvent(OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MICROS),
+                actor, version, changes));
+    }
+
+    private static FlagAuditState auditState(FeatureFlag flag) {
+        return new FlagAuditState(flag.getName(), flag.getProject(), flag.getIsActive(), flag.getDescription(),
+                flag.getTargeting());
+    }
+
+    private static FlagAuditState auditState(FlagRow row) {
+        return new FlagAuditState(row.getName(), row.getProject(), row.getIsActive(), row.getDescription(),
+                row.getTargeting());
+    }
+
+    private static void checkRevision(FeatureFlag flag, Long expectedRevision) {
+        if (expectedRevision != null && !expectedRevision.equals(flag.getRevision())) {
+            throw new FlagRevisionMismatchException("Flag " + flag.getId() + " is at revision "
+                    + flag.getRevision() + ", not " + expectedRevision);
+        }
+    }
+
+    private static String projectOf(CreateFlagRequest request) {
+        return request.getProject() != null ? request.getProject() : FeatureFlag.DEFAULT_PROJECT;
+    }
+
+    private static boolean isLogged(String project) {
+        return FeatureFlag.DEFAULT_PROJECT.equals(project);
+    }
+
+    private static <T> void requireUnique(Set<T> seen, T value, String message) {
+        if (!seen.add(value)) {
+            throw new InvalidBulkRequestException(message + value);
+        }
+    }
+
+    private TargetingRules readTargeting(Long id, String targeting) {
+        if (targeting == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(targeting, TargetingRules.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not read targeting of flag " + id, ex);
+        }
     }
 }
@@ -0,0 +1,363 @@
+package com.controltower.service;
+
+import com.controltower.config.BackgroundThreads;
+import com.controltower.snapshot.ContentCoding;
+import com.controltower.snapshot.FlagChange;
+import com.controltower.snapshot.FlagSnapshot;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.controltower.snapshot.FlagSnapshotPublishedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Service pushing flag changes to clients over Server-Sent Events.
+ *
+ * A new subscriber first receives the full list of active flags, then one
+ * event per change as snapshots are published. Connections are served
+ * asynchronously, so an idle subscriber costs a socket and an emitter but no
+ * thread. Recent events are kept in a bounded buffer so that a client
+ * reconnecting with Last-Event-ID only receives what it missed.
+ *
+ * Each change is its own event, with the ID "&lt;version&gt;.&lt;index&gt;",
+ * so a client cut off in the middle of a version resumes right after the
+ * last change it received. Snapshots have the version as ID.
+ *
+ * Frames are queued per subscriber, in a small bounded buffer, and written by
+ * sender threads taken from a pool that grows as needed: a subscriber with
+ * frames to write has one, an idle subscriber none. Queuing never blocks,
+ * and a write blocked on a client that stopped reading only holds the thread
+ * of that subscriber, until the container's write timeout fails it. Once its
+ * buffer is full a subscriber is dropped, and resumes from its last event ID
+ * when it reconnects.
+ */
+@Service
+public class FlagStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlagStreamService.class);
+
+    private static final MediaType TEXT_UTF8 = new MediaType("text", "plain", StandardCharsets.UTF_8);
+    private static final Set<DataWithMediaType> HEARTBEAT = frame(":heartbeat\n\n");
+    // Index of a resume position covering every change of its version
+    private static final int WHOLE_VERSION = Integer.MAX_VALUE;
+
+    private final FlagSnapshotCache flagSnapshotCache;
+    private final ObjectMapper objectMapper;
+    private final long emitterTimeout;
+    private final long reconnectDelay;
+    private final int replayCapacity;
+
+    private final int sendBuffer;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock eventLock = new ReentrantLock();
+    private final Deque<StreamEvent> recentEvents = new ArrayDeque<>();
+    // Drains the queues of the subscribers; frames are queued in version order
+    // under eventLock, and a queue is only drained by one thread at a time, so
+    // there are never more busy threads than subscribers.
+    private final ExecutorService senders;
+
+    // Guarded by eventLock
+    private FlagSnapshot latestSnapshot;
+    // Highest version whose events are no longer fully buffered; guarded by eventLock
+    private long replayFloor = -1;
+
+    @Autowired
+    public FlagStreamService(FlagSnapshotCache flagSnapshotCache,
+            ObjectMapper objectMapper,
+            BackgroundThreads backgroundThreads,
+            @Value("${controltower.stream.timeout:1800000}") long emitterTimeout,
+            @Value("${controltower.stream.reconnect-delay:3000}") long reconnectDelay,
+            @Value("${controltower.stream.replay-capacity:1024}") int replayCapacity,
+            @Value("${controltower.stream.send-buffer:64}") int sendBuffer) {
+        this.flagSnapshotCache = flagSnapshotCache;
+        this.objectMapper = objectMapper;
+        this.emitterTimeout = emitterTimeout;
+        this.reconnectDelay = reconnectDelay;
+        this.replayCapacity = replayCapacity;
+        this.sendBuffer = sendBuffer;
+        this.senders = Executors.newCachedThreadPool(backgroundThreads.factory("flag-stream-sender"));
+    }
+
+    /**
+     * Opens a new event stream.
+     *
+     * @param lastEventId The Last-Event-ID sent by a reconnecting client, may be null
+     * @return The emitter bound to the client connection
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        // Make sure a snapshot exists before taking the event lock; loading it
+        // publishes an event, which takes that lock as well.
+        FlagSnapshot loaded = flagSnapshotCache.current();
+
+        SseEmitter emitter = new SseEmitter(emitterTimeout);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscriber.close(null));
+        emitter.onTimeout(() -> subscriber.close(null));
+        emitter.onError(ex -> subscriber.close(null));
+
+        eventLock.lock();
+        try {
+            if (latestSnapshot == null) {
+                latestSnapshot = loaded;
+                replayFloor = loaded.getVersion();
+            }
+            FlagSnapshot snapshot = latestSnapshot;
+            StreamEvent resumeFrom = parseEventId(lastEventId);
+            List<String> frames = new ArrayList<>();
+            frames.add("retry:" + reconnectDelay + "\n\n");
+            // Only the events after the floor are all buffered
+            boolean replayable = resumeFrom != null && resumeFrom.version <= snapshot.getVersion()
+                    && (resumeFrom.version > replayFloor
+                            || (resumeFrom.version == replayFloor && resumeFrom.index == WHOLE_VERSION));
+            if (replayable) {
+                for (StreamEvent event : recentEvents) {
+                    if (event.isAfter(resumeFrom)) {
+                        frames.add(event.frame);
+                    }
+                }
+            } else {
+                frames.add(snapshotFrame(snapshot));
+            }
+
+            // Sends made before the handler is initialized are buffered by the
+            // emitter, so this does not block on the network.
+            for (String frame : frames) {
+                emitter.send(frame(frame));
+            }
+            subscribers.add(subscriber);
+        } catch (IOException ex) {
+            emitter.completeWithError(ex);
+        } finally {
+            eventLock.unlock();
+        }
+        return emitter;
+    }
+
+    /**
+     * Records the changes carried by a new snapshot and pushes them to every
+     * subscriber.
+     *
+     * @param event The snapshot published event
+     */
+    @EventListener
+    public void onSnapshotPublished(FlagSnapshotPublishedEvent event) {
+        FlagSnapshot snapshot = event.getCurrent();
+        // The first snapshot is sent whole to every subscriber, never as changes
+        List<FlagChange> changes = event.getPrevious() != null
+                ? FlagChange.between(event.getPrevious(), snapshot)
+                : List.of();
+
+        List<Set<DataWithMediaType>> frames = new ArrayList<>(changes.size());
+        eventLock.lock();
+        try {
+            if (latestSnapshot == null) {
+                // Anything before the first snapshot seen here cannot be replayed
+                replayFloor = snapshot.getVersion();
+            }
+            latestSnapshot = snapshot;
+            for (int index = 0; index < changes.size(); index++) {
+                String frame = changeFrame(snapshot.getVersion(), index, changes.get(index));
+                recentEvents.addLast(new StreamEvent(snapshot.getVersion(), index, frame));
+                frames.add(frame(frame));
+            }
+            if (snapshot.isProvisional()) {
+                // A kill switch is sent with the version it was pulled at, which
+                // clients may already have seen without it
+                replayFloor = Math.max(replayFloor, snapshot.getVersion() + 1);
+            }
+            while (recentEvents.size() > replayCapacity) {
+                replayFloor = Math.max(replayFloor, recentEvents.removeFirst().version);
+            }
+            if (!frames.isEmpty()) {
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.enqueue(frames);
+                }
+            }
+        } finally {
+            eventLock.unlock();
+        }
+    }
+
+    /**
+     * Sends a comment line to every subscriber, so that idle connections are
+     * not closed by proxies and dead ones are detected.
+     */
+    @Scheduled(fixedDelayString = "${controltower.stream.heartbeat-interval:15000}")
+    public void sendHeartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            // Anything still queued keeps the connection busy anyway
+            if (subscriber.pending.isEmpty()) {
+                subscriber.enqueue(List.of(HEARTBEAT));
+            }
+        }
+    }
+
+    /**
+     * Gets the number of open streams on this node.
+     *
+     * @return The subscriber count
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    private String snapshotFrame(FlagSnapshot snapshot) {
+        byte[] json = snapshot.getActiveFlagsPayload().bytes(ContentCoding.IDENTITY);
+        return "id:" + snapshot.getVersion() + "\nevent:snapshot\ndata:"
+                + new String(json, StandardCharsets.UTF_8) + "\n\n";
+    }
+
+    private String changeFrame(long version, int index, FlagChange change) {
+        try {
+            return "id:" + version + "." + index + "\nevent:" + change.getType().name().toLowerCase(Locale.ROOT)
+                    + "\ndata:" + objectMapper.writeValueAsString(change) + "\n\n";
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize flag change", ex);
+        }
+    }
+
+    private static Set<DataWithMediaType> frame(String text) {
+        return Set.of(new DataWithMediaType(text, TEXT_UTF8));
+    }
+
+    /**
+     * Parses "&lt;version&gt;" (every change of the version was received) or
+     * "&lt;version&gt;.&lt;index&gt;" into the position of the last received event.
+     */
+    private static StreamEvent parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        String id = lastEventId.trim();
+        int dot = id.indexOf('.');
+        try {
+            long version = Long.parseLong(dot < 0 ? id : id.substring(0, dot));
+            int index = dot < 0 ? WHOLE_VERSION : Integer.parseInt(id.substring(dot + 1));
+            return version >= 0 && index >= 0 ? new StreamEvent(version, index, null) : null;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * A rendered event kept for replay.
+     */
+    private static final class StreamEvent {
+
+        private final long version;
+        private final int index;
+        private final String frame;
+
+        private StreamEvent(long version, int index, String frame) {
+            this.version = version;
+            this.index = index;
+            this.frame = frame;
+        }
+
+        private boolean isAfter(StreamEvent other) {
+            return version > other.version || (version == other.version && index > other.index);
+        }
+    }
+
+    /**
+     * An open stream and the frames waiting to be written to it.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<DataWithMediaType>> pending;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+            this.pending = new ArrayBlockingQueue<>(sendBuffer);
+        }
+
+        /**
+         * Queues frames without blocking; drops the subscriber if they do not fit.
+         */
+        private void enqueue(List<Set<DataWithMediaType>> frames) {
+            if (closed) {
+                return;
+            }
+            for (Set<DataWithMediaType> frame : frames) {
+                if (!pending.offer(frame)) {
+                    close("fell behind by " + sendBuffer + " frames");
+                    break;
+                }
+            }
+            // A subscriber closed here is completed by the sender
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Set<DataWithMediaType> frame;
+                while (!closed && (frame = pending.poll()) != null) {
+                    try {
+                        emitter.send(frame);
+                    } catch (IOException | IllegalStateException ex) {
+                        // The container reports the disconnect through onError as well
+                        close(ex.getMessage());
+                    }
+                }
+                draining.set(false);
+            } while (!closed && !pending.isEmpty() && draining.compareAndSet(false, true));
+            if (closed) {
+                pending.clear();
+                try {
+                    // The client reconnects with the ID of the last event it received
+                    emitter.complete();
+                } catch (RuntimeException ex) {
+                    log.debug("Could not complete flag stream: {}", ex.getMessage());
+                }
+            }
+        }
+
+        private void close(String reason) {
+            closed = true;
+            if (subscribers.remove(this) && reason != null) {
+                log.debug("Dropped flag stream subscriber: {}", reason);
+            }
+        }
+    }
+}
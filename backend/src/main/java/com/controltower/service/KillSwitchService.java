@@ -0,0 +1,174 @@
+package com.controltower.service;
+
+import com.controltower.config.BackgroundThreads;
+import com.controltower.dto.FlagStatusResponse;
+import com.controltower.exception.FlagNotFoundException;
+import com.controltower.snapshot.ChangeNotificationListener;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.controltower.snapshot.FlagState;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Service pulling kill switches: turning a flag off on every node before the
+ * change reaches the database.
+ *
+ * A kill is applied in this order:
+ * <ol>
+ *   <li>the snapshot of this node serves the flag as off, and the change is
+ *       pushed to streaming clients, before the request returns;</li>
+ *   <li>the other nodes are told through {@link ChangeNotificationListener}
+ *       and do the same;</li>
+ *   <li>the flag is turned off in the database, retried with backoff until it
+ *       commits;</li>
+ *   <li>every node is told the version it committed with, and serves the flag
+ *       from the database again from that version on.</li>
+ * </ol>
+ * A change committed before the kill is persisted therefore never turns the
+ * flag back on, while one committed after it applies as usual. Nodes drop a
+ * kill they received if it is not persisted within the peer timeout, so a
+ * node going down mid-kill does not leave the flag off on the others
+ * forever; a kill not yet persisted is lost with the node it was pulled on.
+ *
+ * Environment snapshots and clients polling for changes only see the kill
+ * once it is persisted.
+ */
+@Service
+public class KillSwitchService {
+
+    private static final Logger log = LoggerFactory.getLogger(KillSwitchService.class);
+
+    private final FlagSnapshotCache flagSnapshotCache;
+    private final FlagService flagService;
+    private final JdbcTemplate jdbcTemplate;
+    private final long retryDelay;
+    private final long maxRetryDelay;
+    private final long peerTimeout;
+    private final boolean broadcast;
+    // Kills are persisted one at a time, in the order they were pulled
+    private final ExecutorService persister;
+
+    private volatile boolean running = true;
+
+    @Autowired
+    public KillSwitchService(FlagSnapshotCache flagSnapshotCache,
+            FlagService flagService,
+            JdbcTemplate jdbcTemplate,
+            DataSourceProperties dataSourceProperties,
+            BackgroundThreads backgroundThreads,
+            @Value("${controltower.kill.retry-delay:100}") long retryDelay,
+            @Value("${controltower.kill.max-retry-delay:5000}") long maxRetryDelay,
+            @Value("${controltower.kill.peer-timeout:60000}") long peerTimeout) {
+        this.flagSnapshotCache = flagSnapshotCache;
+        this.flagService = flagService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.retryDelay = retryDelay;
+        this.maxRetryDelay = maxRetryDelay;
+        this.peerTimeout = peerTimeout;
+        String url = dataSourceProperties.determineUrl();
+        this.broadcast = url != null && url.startsWith("jdbc:postgresql:");
+        this.persister = Executors.newSingleThreadExecutor(backgroundThreads.factory("flag-kill-switch"));
+    }
+
+    /**
+     * Turns a flag of the default project off on this node right away, then
+     * on the other nodes and in the database in the background.
+     *
+     * @param id The ID of the flag to kill
+     * @return The state of the flag now served
+     * @throws FlagNotFoundException if the default project has no flag with the given ID
+     */
+    public FlagStatusResponse kill(Long id) {
+        FlagState killed = flagSnapshotCache.kill(id, true);
+        if (killed == null) {
+            throw new FlagNotFoundException("Flag not found with ID: " + id);
+        }
+        // The audit log records the user who pulled the switch
+        Authentication actor = SecurityContextHolder.getContext().getAuthentication();
+        persister.execute(() -> {
+            notifyPeers(ChangeNotificationListener.killPayload(id));
+            persist(id, actor);
+        });
+        return new FlagStatusResponse(killed.getName(), false);
+    }
+
+    /**
+     * Drops the kills received from other nodes that were not persisted in
+     * time.
+     */
+    @Scheduled(fixedDelayString = "${controltower.kill.peer-timeout:60000}")
+    public void expirePeerKills() {
+        List<Long> expired = flagSnapshotCache.expireKills(peerTimeout);
+        if (!expired.isEmpty()) {
+            log.warn("Dropped kills of flags {}, not persisted within {} ms", expired, peerTimeout);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        persister.shutdownNow();
+        Set<Long> pending = flagSnapshotCache.getPendingKills();
+        if (!pending.isEmpty()) {
+            log.error("Shutting down with kills of flags {} possibly not persisted", pending);
+        }
+    }
+
+    private void persist(Long id, Authentication actor) {
+        SecurityContextHolder.getContext().setAuthentication(actor);
+        try {
+            long delay = retryDelay;
+            while (running) {
+                try {
+                    long version = flagService.disableFlag(id);
+                    flagSnapshotCache.confirmKill(id, version);
+                    notifyPeers(ChangeNotificationListener.killedPayload(id, version));
+                    log.info("Persisted kill of flag {} at version {}", id, version);
+                    return;
+                } catch (FlagNotFoundException ex) {
+                    // Deleted meanwhile, other nodes let the kill expire
+                    log.warn("Flag {} was deleted before its kill was persisted", id);
+                    flagSnapshotCache.releaseKill(id);
+                    return;
+                } catch (RuntimeException ex) {
+                    log.warn("Could not persist kill of flag {}, retrying in {} ms: {}", id, delay, ex.getMessage());
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    delay = Math.min(delay * 2, maxRetryDelay);
+                }
+            }
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private void notifyPeers(String payload) {
+        if (!broadcast) {
+            return;
+        }
+        try {
+            // Outside a transaction, so it is delivered right away
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", resultSet -> null, ChangeNotificationListener.CHANNEL, payload);
+        } catch (RuntimeException ex) {
+            log.warn("Could not notify other nodes of {}: {}", payload, ex.getMessage());
+        }
+    }
+}
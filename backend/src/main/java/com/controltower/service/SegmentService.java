@@ -0,0 +1,169 @@
+package com.controltower.service;
+
+import com.controltower.dto.SegmentDefinition;
+import com.controltower.dto.SegmentRequest;
+import com.controltower.dto.SegmentResponse;
+import com.controltower.entity.Segment;
+import com.controltower.evaluation.RuleCompiler;
+import com.controltower.exception.InvalidTargetingException;
+import com.controltower.exception.SegmentAlreadyExistsException;
+import com.controltower.exception.SegmentNotFoundException;
+import com.controltower.repository.SegmentRepository;
+import com.controltower.snapshot.FlagChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for segment business logic.
+ * 
+ * Segments are compiled into the flag snapshot, so every mutation takes a
+ * new flag set version and triggers a snapshot rebuild, like flag mutations.
+ * Segments are shared by every project, so the snapshots of every
+ * environment are rebuilt as well.
+ * Deleting a segment still referenced by flags is allowed; the references
+ * then match no context.
+ */
+@Service
+@Timed("controltower.service")
+@Transactional
+public class SegmentService {
+
+    private final SegmentRepository segmentRepository;
+    private final FlagChangeLogService flagChangeLogService;
+    private final EnvironmentService environmentService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public SegmentService(SegmentRepository segmentRepository,
+            FlagChangeLogService flagChangeLogService,
+            EnvironmentService environmentService,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper) {
+        this.segmentRepository = segmentRepository;
+        this.flagChangeLogService = flagChangeLogService;
+        this.environmentService = environmentService;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Creates a new segment.
+     * 
+     * @param request The segment creation request
+     * @return The created segment response
+     * @throws SegmentAlreadyExistsException if a segment with the same name
+     *                                       already exists
+     * @throws InvalidTargetingException     if the segment clauses are invalid
+     */
+    public SegmentResponse createSegment(SegmentRequest request) {
+        String definition = toDefinition(request);
+        long version = flagChangeLogService.nextVersion();
+        environmentService.touchAll();
+
+        if (segmentRepository.existsByName(request.getName())) {
+            throw new SegmentAlreadyExistsException("A segment with the name already exists: " + request.getName());
+        }
+
+        Segment saved = segmentRepository.save(new Segment(request.getName(), request.getDescription(), definition));
+        eventPublisher.publishEvent(new FlagChangedEvent(null, version));
+        return convertToResponse(saved);
+    }
+
+    /**
+     * Retrieves all segments.
+     * 
+     * @return List of all segments as response DTOs
+     */
+    @Transactional(readOnly = true)
+    public List<SegmentResponse> getAllSegments() {
+        return segmentRepository.findAll().stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Updates a segment. Flags referring to the segment by name follow a
+     * rename only if their rules are updated as well.
+     * 
+     * @param id      The ID of the segment to update
+     * @param request The update request
+     * @return The updated segment response
+     * @throws SegmentNotFoundException      if the segment does not exist
+     * @throws SegmentAlreadyExistsException if a segment with the new name
+     *                                       already exists
+     * @throws InvalidTargetingException     if the segment clauses are invalid
+     */
+    public SegmentResponse updateSegment(Long id, SegmentRequest request) {
+        String definition = toDefinition(request);
+        long version = flagChangeLogService.nextVersion();
+        environmentService.touchAll();
+
+        Segment segment = segmentRepository.findById(id)
+                .orElseThrow(() -> new SegmentNotFoundException("Segment not found with ID: " + id));
+
+        if (segmentRepository.existsByNameAndIdNot(request.getName(), id)) {
+            throw new SegmentAlreadyExistsException("A segment with the name already exists: " + request.getName());
+        }
+
+        segment.setName(request.getName());
+        segment.setDescription(request.getDescription());
+        segment.setDefinition(definition);
+
+        Segment saved = segmentRepository.save(segment);
+        eventPublisher.publishEvent(new FlagChangedEvent(null, version));
+        return convertToResponse(saved);
+    }
+
+    /**
+     * Deletes a segment by ID.
+     * 
+     * @param id The ID of the segment to delete
+     * @throws SegmentNotFoundException if the segment does not exist
+     */
+    public void deleteSegment(Long id) {
+        long version = flagChangeLogService.nextVersion();
+        environmentService.touchAll();
+
+        Segment segment = segmentRepository.findById(id)
+                .orElseThrow(() -> new SegmentNotFoundException("Segment not found with ID: " + id));
+
+        segmentRepository.delete(segment);
+        eventPublisher.publishEvent(new FlagChangedEvent(null, version));
+    }
+
+    private String toDefinition(SegmentRequest request) {
+        SegmentDefinition definition = new SegmentDefinition(request.getIncluded(), request.getClauses());
+        RuleCompiler.validateSegment(request.getName(), definition);
+        try {
+            return objectMapper.writeValueAsString(definition);
+        } catch (JsonProcessingException ex) {
+            throw new InvalidTargetingException("Could not serialize segment definition", ex);
+        }
+    }
+
+    private SegmentResponse convertToResponse(Segment segment) {
+        SegmentDefinition definition;
+        try {
+            definition = objectMapper.readValue(segment.getDefinition(), SegmentDefinition.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not read definition of segment " + segment.getId(), ex);
+        }
+        return new SegmentResponse(
+                segment.getId(),
+                segment.getName(),
+                segment.getDescription(),
+                definition.getIncluded(),
+                definition.getClauses(),
+                segment.getCreatedAt(),
+                segment.getUpdatedAt());
+    }
+}
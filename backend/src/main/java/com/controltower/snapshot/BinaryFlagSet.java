@@ -0,0 +1,132 @@
+package com.controltower.snapshot;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary representation of the flags of a snapshot, for clients that
+ * would rather not parse JSON.
+ *
+ * Layout, integers being unsigned LEB128 varints unless noted:
+ * <ul>
+ * <li>the magic bytes "CTFB" and a format byte, currently 1</li>
+ * <li>the snapshot version</li>
+ * <li>the number of flags</li>
+ * <li>the string table: every flag name, in ascending order of its UTF-8
+ * bytes, as the length of the prefix shared with the previous name, the
+ * length of the rest and the rest</li>
+ * <li>a bitset of the active states, one bit per name in table order,
+ * least significant bit first</li>
+ * </ul>
+ * Sorted names mostly share prefixes, so the table stays small even before
+ * the payload is compressed.
+ */
+public final class BinaryFlagSet {
+
+    /**
+     * Media type clients list in Accept to get this representation.
+     */
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.controltower.flags";
+
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    static final byte[] MAGIC = {'C', 'T', 'F', 'B'};
+    static final int FORMAT = 1;
+
+    private BinaryFlagSet() {
+    }
+
+    /**
+     * Encodes the state of every flag.
+     *
+     * @param version The snapshot version
+     * @param flags   The flags
+     * @return The encoded flag set
+     */
+    public static byte[] encode(long version, List<FlagState> flags) {
+        Entry[] entries = new Entry[flags.size()];
+        for (int i = 0; i < entries.length; i++) {
+            FlagState flag = flags.get(i);
+            entries[i] = new Entry(flag.getName().getBytes(StandardCharsets.UTF_8), flag.isActive());
+        }
+        Arrays.sort(entries, (a, b) -> Arrays.compareUnsigned(a.name, b.name));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + entries.length * 12);
+        out.writeBytes(MAGIC);
+        out.write(FORMAT);
+        writeVarint(out, version);
+        writeVarint(out, entries.length);
+        byte[] previous = new byte[0];
+        byte[] active = new byte[(entries.length + 7) / 8];
+        for (int i = 0; i < entries.length; i++) {
+            byte[] name = entries[i].name;
+            int shared = Arrays.mismatch(previous, name);
+            if (shared < 0) {
+                shared = name.length;
+            }
+            writeVarint(out, shared);
+            writeVarint(out, name.length - shared);
+            out.write(name, shared, name.length - shared);
+            if (entries[i].active) {
+                active[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+            previous = name;
+        }
+        out.writeBytes(active);
+        return out.toByteArray();
+    }
+
+    /**
+     * Checks whether a client prefers this representation to JSON: it must
+     * list the media type explicitly, with a quality at least as high as
+     * any range matching application/json.
+     *
+     * @param accept The raw Accept header, may be null
+     * @return true if the binary representation should be served
+     */
+    public static boolean isPreferred(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return false;
+        }
+        List<MediaType> types;
+        try {
+            types = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException ex) {
+            return false;
+        }
+        double binary = 0.0;
+        double json = 0.0;
+        for (MediaType type : types) {
+            if (type.equalsTypeAndSubtype(MEDIA_TYPE)) {
+                binary = Math.max(binary, type.getQualityValue());
+            } else if (type.includes(MediaType.APPLICATION_JSON)) {
+                json = Math.max(json, type.getQualityValue());
+            }
+        }
+        return binary > 0.0 && binary >= json;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static final class Entry {
+
+        private final byte[] name;
+        private final boolean active;
+
+        private Entry(byte[] name, boolean active) {
+            this.name = name;
+            this.active = active;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.controltower.snapshot;
+
+import com.controltower.config.BackgroundThreads;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps the snapshots of this node in sync with changes committed by other
+ * nodes, through PostgreSQL LISTEN/NOTIFY.
+ *
+ * Triggers on the version counters (see schema.sql) send a notification on
+ * {@value #CHANNEL} with every committed mutation: "flags:&lt;version&gt;" for
+ * the default flags, "environment:&lt;id&gt;:&lt;version&gt;" for one
+ * environment. PostgreSQL only delivers them once the transaction committed,
+ * so a rebuild triggered here always sees the change. Notifications are
+ * received on a dedicated connection, outside the pool, and those received
+ * together are coalesced into one rebuild per snapshot. Snapshots already at
+ * the notified version, e.g. because the change was made on this node, are
+ * not rebuilt.
+ *
+ * Kill switches are broadcast on the same channel by the node they were
+ * pulled on: "kill:&lt;node&gt;:&lt;flag id&gt;" before the kill is persisted,
+ * "killed:&lt;node&gt;:&lt;flag id&gt;:&lt;version&gt;" once it is. Kills are
+ * applied before the snapshots are rebuilt; notifications of this node are
+ * ignored.
+ *
+ * Notifications sent while the connection is down are lost, so every
+ * snapshot is rebuilt after each (re)connection. Only PostgreSQL data sources
+ * are listened to; with any other database this component does nothing.
+ */
+@Component
+public class ChangeNotificationListener {
+
+    /**
+     * Notification channel the schema triggers send to.
+     */
+    public static final String CHANNEL = "controltower_changes";
+
+    /**
+     * Identifies this node in the notifications it sends.
+     */
+    public static final String NODE_ID = UUID.randomUUID().toString();
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeNotificationListener.class);
+
+    private final FlagSnapshotCache flagSnapshotCache;
+    private final EnvironmentSnapshotCache environmentSnapshotCache;
+    private final DataSourceProperties dataSourceProperties;
+    private final BackgroundThreads backgroundThreads;
+    private final boolean enabled;
+    private final int pollTimeout;
+    private final long reconnectDelay;
+
+    private volatile boolean running;
+    private volatile Thread thread;
+
+    @Autowired
+    public ChangeNotificationListener(FlagSnapshotCache flagSnapshotCache,
+            EnvironmentSnapshotCache environmentSnapshotCache,
+            DataSourceProperties dataSourceProperties,
+            BackgroundThreads backgroundThreads,
+            @Value("${controltower.notify.enabled:true}") boolean enabled,
+            @Value("${controltower.notify.poll-timeout:10000}") int pollTimeout,
+            @Value("${controltower.notify.reconnect-delay:5000}") long reconnectDelay) {
+        this.flagSnapshotCache = flagSnapshotCache;
+        this.environmentSnapshotCache = environmentSnapshotCache;
+        this.dataSourceProperties = dataSourceProperties;
+        this.backgroundThreads = backgroundThreads;
+        this.enabled = enabled;
+        this.pollTimeout = pollTimeout;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    /**
+     * Starts listening once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        String url = dataSourceProperties.determineUrl();
+        if (!enabled || url == null || !url.startsWith("jdbc:postgresql:")) {
+            log.debug("Change notifications are not listened to");
+            return;
+        }
+        running = true;
+        thread = backgroundThreads.start("flag-change-listener", () -> listen(url));
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        Thread listener = thread;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    /**
+     * Tells whether the listener is running, connected or not.
+     *
+     * @return true if notifications are listened to
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Builds the notification of a kill switch pulled on this node.
+     *
+     * @param flagId The ID of the killed flag
+     * @return The notification payload
+     */
+    public static String killPayload(long flagId) {
+        return "kill:" + NODE_ID + ":" + flagId;
+    }
+
+    /**
+     * Builds the notification of a kill switch persisted by this node.
+     *
+     * @param flagId  The ID of the killed flag
+     * @param version The flag set version the kill was committed with
+     * @return The notification payload
+     */
+    public static String killedPayload(long flagId, long version) {
+        return "killed:" + NODE_ID + ":" + flagId + ":" + version;
+    }
+
+    private void listen(String url) {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url,
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                log.info("Listening to flag change notifications");
+                // Changes committed while not listening were not notified
+                refreshAll();
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeout);
+                    if (notifications != null && notifications.length > 0) {
+                        apply(notifications);
+                    } else if (!connection.isValid(Math.max(1, pollTimeout / 1000))) {
+                        throw new SQLException("Notification connection is no longer valid");
+                    }
+                }
+            } catch (SQLException | RuntimeException ex) {
+                if (running) {
+                    log.warn("Flag change notifications interrupted, reconnecting in {} ms: {}",
+                            reconnectDelay, ex.getMessage());
+                    sleep(reconnectDelay);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the snapshots concerned by a set of notifications, once each.
+     *
+     * @param notifications The notifications received together
+     */
+    void apply(PGNotification[] notifications) {
+        long flagsVersion = -1;
+        Map<Long, Long> environmentVersions = new HashMap<>();
+        List<Long> kills = new ArrayList<>();
+        Map<Long, Long> killedVersions = new HashMap<>();
+        for (PGNotification notification : notifications) {
+            String[] parts = notification.getParameter().split(":");
+            try {
+                if (parts.length == 3 && parts[0].equals("kill")) {
+                    if (!parts[1].equals(NODE_ID)) {
+                        kills.add(Long.parseLong(parts[2]));
+                    }
+                } else if (parts.length == 4 && parts[0].equals("killed")) {
+                    if (!parts[1].equals(NODE_ID)) {
+                        killedVersions.merge(Long.parseLong(parts[2]), Long.parseLong(parts[3]), Math::min);
+                    }
+                } else if (parts.length == 2 && parts[0].equals("flags")) {
+                    flagsVersion = Math.max(flagsVersion, Long.parseLong(parts[1]));
+                } else if (parts.length == 3 && parts[0].equals("environment")) {
+                    environmentVersions.merge(Long.parseLong(parts[1]), Long.parseLong(parts[2]), Math::max);
+                } else {
+                    log.debug("Ignored flag change notification: {}", notification.getParameter());
+                }
+            } catch (NumberFormatException ex) {
+                log.debug("Ignored flag change notification: {}", notification.getParameter());
+            }
+        }
+
+        for (Long flagId : kills) {
+            flagSnapshotCache.kill(flagId, false);
+        }
+        for (Map.Entry<Long, Long> entry : killedVersions.entrySet()) {
+            flagSnapshotCache.confirmKill(entry.getKey(), entry.getValue());
+        }
+        if (flagsVersion >= 0) {
+            flagSnapshotCache.refreshIfOlderThan(flagsVersion);
+        }
+        for (Map.Entry<Long, Long> entry : environmentVersions.entrySet()) {
+            environmentSnapshotCache.refreshIfOlderThan(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void refreshAll() {
+        if (flagSnapshotCache.peek() != null) {
+            flagSnapshotCache.refresh();
+        }
+        environmentSnapshotCache.refreshAll();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.controltower.snapshot;
+
+/**
+ * HTTP content codings for which pre-compressed payloads are kept.
+ * 
+ * Constants are declared in order of preference: when a client accepts
+ * several codings with the same quality, the one declared first wins.
+ */
+public enum ContentCoding {
+
+    BROTLI("br"),
+    GZIP("gzip"),
+    IDENTITY("identity");
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Gets the token used in the Accept-Encoding and Content-Encoding headers.
+     * 
+     * @return The coding token
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Gets the quality a client assigned to this coding in its Accept-Encoding
+     * header.
+     * 
+     * Identity is always acceptable unless explicitly refused, as required by
+     * RFC 9110, but when not listed it ranks below every coding the client
+     * asked for. A wildcard applies to every coding not listed by name.
+     * 
+     * @param acceptEncoding The raw Accept-Encoding header, may be null
+     * @return The quality between 0 and 1, where 0 means not acceptable
+     */
+    public double qualityIn(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return this == IDENTITY ? 1.0 : 0.0;
+        }
+
+        double wildcard = -1.0;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.trim().split(";");
+            String coding = parts[0].trim();
+            double quality = parseQuality(parts);
+            if (coding.equalsIgnoreCase(token)) {
+                return quality;
+            }
+            if (coding.equals("*")) {
+                wildcard = quality;
+            }
+        }
+
+        if (wildcard >= 0) {
+            return wildcard;
+        }
+        return this == IDENTITY ? Double.MIN_VALUE : 0.0;
+    }
+
+    private static double parseQuality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException ex) {
+                    return 0.0;
+                }
+            }
+        }
+        return 1.0;
+    }
+}
@@ -0,0 +1,225 @@
+package com.controltower.snapshot;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A response body serialized once and kept in every supported content coding.
+ * 
+ * Compressed variants are produced when the payload is built, so serving a
+ * request is only a matter of picking the right byte array. A variant is
+ * dropped when compression would not make the payload smaller.
+ * 
+ * Every variant carries its own strong entity tag, derived from a version
+ * and a digest of the body so that tags from different nodes or restarts
+ * can never match a different body. Uncompressed payloads are tagged by
+ * the digest and length of the body only.
+ */
+public final class EncodedPayload {
+
+    private static final int BROTLI_QUALITY = 9;
+
+    private final Map<ContentCoding, byte[]> variants;
+    private final Map<ContentCoding, String> entityTags;
+    private final long digest;
+
+    private EncodedPayload(Map<ContentCoding, byte[]> variants, Map<ContentCoding, String> entityTags, long digest) {
+        this.variants = variants;
+        this.entityTags = entityTags;
+        this.digest = digest;
+    }
+
+    /**
+     * Builds the payload and its compressed variants from the raw body.
+     * 
+     * @param body    The uncompressed response body
+     * @param version The version the body was built from
+     * @return The encoded payload
+     */
+    public static EncodedPayload of(byte[] body, long version) {
+        Map<ContentCoding, byte[]> variants = new EnumMap<>(ContentCoding.class);
+        variants.put(ContentCoding.IDENTITY, body);
+        putIfSmaller(variants, ContentCoding.GZIP, gzip(body), body);
+        if (Brotli4jLoader.isAvailable()) {
+            putIfSmaller(variants, ContentCoding.BROTLI, brotli(body), body);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        String tag = version + "-" + Long.toHexString(crc.getValue());
+        Map<ContentCoding, String> entityTags = new EnumMap<>(ContentCoding.class);
+        for (ContentCoding coding : variants.keySet()) {
+            entityTags.put(coding, coding == ContentCoding.IDENTITY
+                    ? "\"" + tag + "\""
+                    : "\"" + tag + "-" + coding.getToken() + "\"");
+        }
+        return new EncodedPayload(variants, entityTags, crc.getValue());
+    }
+
+    /**
+     * Builds a payload served uncompressed, for bodies too small to gain
+     * from compression. Its entity tag is derived from the body alone, so it
+     * stays the same across versions for as long as the body does.
+     *
+     * @param body The response body
+     * @return The payload
+     */
+    public static EncodedPayload uncompressed(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return uncompressed(body, crc.getValue());
+    }
+
+    /**
+     * Builds a payload served uncompressed, tagged by a digest of the body
+     * computed by the caller, e.g. from the digests of its parts.
+     *
+     * @param body   The response body
+     * @param digest A digest identifying the body
+     * @return The payload
+     */
+    static EncodedPayload uncompressed(byte[] body, long digest) {
+        Map<ContentCoding, byte[]> variants = new EnumMap<>(ContentCoding.class);
+        variants.put(ContentCoding.IDENTITY, body);
+        Map<ContentCoding, String> entityTags = new EnumMap<>(ContentCoding.class);
+        entityTags.put(ContentCoding.IDENTITY, "\"" + body.length + "-" + Long.toHexString(digest) + "\"");
+        return new EncodedPayload(variants, entityTags, digest);
+    }
+
+    /**
+     * Checks whether this payload holds exactly the given uncompressed body.
+     * 
+     * @param body The uncompressed body to compare with
+     * @return true if the bodies are identical
+     */
+    public boolean hasBody(byte[] body) {
+        return Arrays.equals(variants.get(ContentCoding.IDENTITY), body);
+    }
+
+    /**
+     * Gets the digest the entity tags are derived from: the CRC-32 of the
+     * uncompressed body, unless given by the caller.
+     *
+     * @return The digest
+     */
+    long digest() {
+        return digest;
+    }
+
+    /**
+     * Picks the coding to serve for the given Accept-Encoding header: the
+     * acceptable variant with the highest quality, ties broken by preference.
+     * 
+     * @param acceptEncoding The raw Accept-Encoding header, may be null
+     * @return The coding to serve
+     */
+    public ContentCoding negotiate(String acceptEncoding) {
+        ContentCoding selected = ContentCoding.IDENTITY;
+        double best = 0.0;
+        for (ContentCoding coding : ContentCoding.values()) {
+            if (!variants.containsKey(coding)) {
+                continue;
+            }
+            double quality = coding.qualityIn(acceptEncoding);
+            if (quality > best) {
+                best = quality;
+                selected = coding;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Gets the body in the given coding.
+     * 
+     * @param coding A coding returned by {@link #negotiate(String)}
+     * @return The encoded body; callers must not modify it
+     */
+    public byte[] bytes(ContentCoding coding) {
+        byte[] bytes = variants.get(coding);
+        return bytes != null ? bytes : variants.get(ContentCoding.IDENTITY);
+    }
+
+    /**
+     * Gets the strong entity tag of the body in the given coding, quoted and
+     * ready to be used as an ETag header value.
+     * 
+     * @param coding A coding returned by {@link #negotiate(String)}
+     * @return The quoted entity tag
+     */
+    public String entityTag(ContentCoding coding) {
+        String tag = entityTags.get(coding);
+        return tag != null ? tag : entityTags.get(ContentCoding.IDENTITY);
+    }
+
+    /**
+     * Evaluates an If-None-Match header against this payload.
+     * 
+     * Any coding of the same body counts as a match, since a client holding
+     * one of them already has the current content. Comparison is weak, as
+     * RFC 9110 requires for If-None-Match.
+     * 
+     * @param ifNoneMatch The raw If-None-Match header, may be null
+     * @return true if the client's copy is current and 304 can be returned
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (entityTags.containsValue(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void putIfSmaller(Map<ContentCoding, byte[]> variants, ContentCoding coding,
+            byte[] compressed, byte[] body) {
+        if (compressed != null && compressed.length < body.length) {
+            variants.put(coding, compressed);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(body);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] brotli(byte[] body) {
+        try {
+            return Encoder.compress(body, new Encoder.Parameters()
+                    .setQuality(BROTLI_QUALITY)
+                    .setMode(Encoder.Mode.TEXT));
+        } catch (IOException ex) {
+            // Brotli is optional; clients fall back to gzip or identity
+            return null;
+        }
+    }
+}
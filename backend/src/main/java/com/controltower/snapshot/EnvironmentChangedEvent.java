@@ -0,0 +1,60 @@
+package com.controltower.snapshot;
+
+/**
+ * Application event published by the service layer whenever the flags served
+ * to one or more environments change.
+ * 
+ * The versions of the environments concerned have already been incremented
+ * in the publishing transaction. Listeners bound to the after-commit phase
+ * use it to rebuild the snapshots of those environments only.
+ */
+public class EnvironmentChangedEvent {
+
+    private final Long environmentId;
+    private final String project;
+
+    public EnvironmentChangedEvent(Long environmentId, String project) {
+        this.environmentId = environmentId;
+        this.project = project;
+    }
+
+    /**
+     * Gets the ID of the changed environment.
+     * 
+     * @return The environment ID, or null when every environment of the project changed
+     */
+    public Long getEnvironmentId() {
+        return environmentId;
+    }
+
+    /**
+     * Gets the project of the changed environments.
+     * 
+     * @return The project key, or null when every environment changed
+     */
+    public String getProject() {
+        return project;
+    }
+
+    /**
+     * Tells whether an environment is concerned by the change.
+     * 
+     * @param id        The environment ID
+     * @param inProject  The project of the environment
+     * @return true if the environment's snapshot must be rebuilt
+     */
+    public boolean concerns(Long id, String inProject) {
+        if (environmentId != null) {
+            return environmentId.equals(id);
+        }
+        return project == null || project.equals(inProject);
+    }
+
+    @Override
+    public String toString() {
+        return "EnvironmentChangedEvent{" +
+                "environmentId=" + environmentId +
+                ", project='" + project + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,281 @@
+package com.controltower.snapshot;
+
+import com.controltower.datasource.ReadReplicaRoutingDataSource;
+import com.controltower.entity.Environment;
+import com.controltower.exception.UnknownSdkKeyException;
+import com.controltower.repository.EnvironmentRepository;
+import com.controltower.repository.FlagEnvironmentStateRepository;
+import com.controltower.repository.SegmentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process cache holding one {@link FlagSnapshot} per environment.
+ *
+ * Environments are loaded on the first request carrying one of their SDK
+ * keys and then kept up to date like the default snapshot: reads are a map
+ * lookup and a volatile load, and a committed change only rebuilds the
+ * snapshots of the environments it concerns.
+ *
+ * Every SDK key is held in memory, so an unknown key is rejected without a
+ * query. The keys are reloaded when an environment is created or deleted,
+ * here or on another node, and at most once per reload interval when an
+ * unknown key is seen, in case a notification was missed; random keys
+ * therefore cost at most one query per interval. Each environment has its own
+ * rebuild lock and version, so a busy environment never delays the others.
+ * Changes committed by other nodes are picked up through
+ * {@link ChangeNotificationListener}.
+ *
+ * Each published snapshot is announced with an
+ * {@link EnvironmentSnapshotPublishedEvent}, so that the evaluations counted
+ * by its compiled flags are reported along with those of the default
+ * snapshot.
+ */
+@Component
+public class EnvironmentSnapshotCache {
+
+    private static final Logger log = LoggerFactory.getLogger(EnvironmentSnapshotCache.class);
+
+    private final EnvironmentRepository environmentRepository;
+    private final FlagEnvironmentStateRepository stateRepository;
+    private final SegmentRepository segmentRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate readTransaction;
+    private final long keyReloadInterval;
+
+    private final Map<Long, Holder> holders = new ConcurrentHashMap<>();
+    // Environment IDs by SDK key, replaced as a whole under keyLock
+    private volatile Map<String, Long> environmentIds = Map.of();
+    private final ReentrantLock keyLock = new ReentrantLock();
+    // Guarded by keyLock; when the keys were last loaded, 0 if never
+    private long keysLoadedAt;
+
+    @Autowired
+    public EnvironmentSnapshotCache(EnvironmentRepository environmentRepository,
+            FlagEnvironmentStateRepository stateRepository,
+            SegmentRepository segmentRepository,
+            ObjectMapper objectMapper,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager,
+            @Value("${controltower.environments.key-reload-interval:5000}") long keyReloadInterval) {
+        this.environmentRepository = environmentRepository;
+        this.stateRepository = stateRepository;
+        this.segmentRepository = segmentRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.keyReloadInterval = keyReloadInterval;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        // The version and the flags must come from the same database snapshot
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Gets the current snapshot of the environment an SDK key belongs to,
+     * loading it on first access.
+     *
+     * @param sdkKey The SDK key sent by the client
+     * @return The environment's snapshot
+     * @throws UnknownSdkKeyException if no environment has this SDK key
+     */
+    public FlagSnapshot forSdkKey(String sdkKey) {
+        Long id = environmentIds.get(sdkKey);
+        if (id == null && reloadKeys(false)) {
+            id = environmentIds.get(sdkKey);
+        }
+        FlagSnapshot snapshot = id != null ? current(id) : null;
+        if (snapshot == null) {
+            throw new UnknownSdkKeyException("No environment has this SDK key");
+        }
+        return snapshot;
+    }
+
+    /**
+     * Gets the current snapshot of an environment, loading it on first access.
+     *
+     * @param environmentId The environment ID
+     * @return The environment's snapshot, or null if the environment does not exist
+     */
+    public FlagSnapshot current(Long environmentId) {
+        Holder holder = holders.get(environmentId);
+        FlagSnapshot snapshot = holder != null ? holder.snapshot : null;
+        return snapshot != null ? snapshot : refresh(environmentId);
+    }
+
+    /**
+     * Rebuilds the snapshot of an environment from the database and publishes
+     * it atomically.
+     *
+     * @param environmentId The environment ID
+     * @return The new snapshot, or null if the environment no longer exists
+     */
+    public FlagSnapshot refresh(Long environmentId) {
+        Holder holder = holders.computeIfAbsent(environmentId, id -> new Holder());
+        holder.lock.lock();
+        try {
+            FlagSnapshot previous = holder.snapshot;
+            // Read replicas may not have replayed the change being published yet
+            FlagSnapshot snapshot = ReadReplicaRoutingDataSource.onPrimary(() -> readTransaction.execute(status -> {
+                Environment environment = environmentRepository.findById(environmentId).orElse(null);
+                if (environment == null) {
+                    return null;
+                }
+                holder.project = environment.getProject();
+                holder.name = environment.getProject() + "/" + environment.getKey();
+                return new FlagSnapshot(environment.getVersion(),
+                        stateRepository.findEnvironmentFlagStates(environmentId, environment.getProject()),
+                        segmentRepository.findAllSegmentStates(), objectMapper, previous);
+            }));
+            if (snapshot == null) {
+                holders.remove(environmentId, holder);
+                forgetKeys(environmentId);
+                if (previous != null) {
+                    eventPublisher.publishEvent(new EnvironmentSnapshotPublishedEvent(environmentId, holder.name, null));
+                }
+                return null;
+            }
+            holder.snapshot = snapshot;
+            log.debug("Published snapshot {} of environment {}", snapshot, environmentId);
+            eventPublisher.publishEvent(new EnvironmentSnapshotPublishedEvent(environmentId, holder.name, snapshot));
+            return snapshot;
+        } finally {
+            holder.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the snapshots loaded so far, without loading any.
+     *
+     * @return The published snapshots by environment ID
+     */
+    public Map<Long, FlagSnapshot> getLoadedSnapshots() {
+        Map<Long, FlagSnapshot> snapshots = new HashMap<>();
+        for (Map.Entry<Long, Holder> entry : holders.entrySet()) {
+            FlagSnapshot snapshot = entry.getValue().snapshot;
+            if (snapshot != null) {
+                snapshots.put(entry.getKey(), snapshot);
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Rebuilds the snapshot of an environment if it is loaded and older than
+     * a version committed elsewhere, e.g. by another node.
+     *
+     * @param environmentId The environment ID
+     * @param version       The committed version
+     */
+    public void refreshIfOlderThan(Long environmentId, long version) {
+        Holder holder = holders.get(environmentId);
+        if (holder == null && !environmentIds.containsValue(environmentId)) {
+            // Created elsewhere
+            reloadKeys(true);
+        } else if (holder != null) {
+            FlagSnapshot snapshot = holder.snapshot;
+            if (snapshot == null || snapshot.getVersion() < version) {
+                refresh(environmentId);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds every loaded snapshot.
+     */
+    public void refreshAll() {
+        reloadKeys(true);
+        for (Long environmentId : holders.keySet()) {
+            refresh(environmentId);
+        }
+    }
+
+    /**
+     * Rebuilds the loaded snapshots concerned by a committed change.
+     * Environments nobody asked for yet stay unloaded.
+     *
+     * @param event The environment change event
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onEnvironmentChanged(EnvironmentChangedEvent event) {
+        if (event.getEnvironmentId() != null && !environmentIds.containsValue(event.getEnvironmentId())) {
+            // Created by this transaction
+            reloadKeys(true);
+        }
+        for (Map.Entry<Long, Holder> entry : holders.entrySet()) {
+            if (event.concerns(entry.getKey(), entry.getValue().project)) {
+                refresh(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Reloads every SDK key from the primary, so that a key works as soon as
+     * it was handed out.
+     *
+     * @param force Whether to reload even if the keys were loaded within the reload interval
+     * @return true if the keys were reloaded
+     */
+    private boolean reloadKeys(boolean force) {
+        keyLock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (!force && keysLoadedAt != 0 && now - keysLoadedAt < keyReloadInterval) {
+                return false;
+            }
+            // Set first, so that a failing database is not queried on every request
+            keysLoadedAt = now;
+            Map<String, Long> keys = ReadReplicaRoutingDataSource.onPrimary(() -> readTransaction.execute(status -> {
+                Map<String, Long> loaded = new HashMap<>();
+                for (Environment environment : environmentRepository.findAll()) {
+                    loaded.put(environment.getSdkKey(), environment.getId());
+                }
+                return loaded;
+            }));
+            environmentIds = Map.copyOf(keys);
+            log.debug("Loaded the SDK keys of {} environments", keys.size());
+            return true;
+        } finally {
+            keyLock.unlock();
+        }
+    }
+
+    private void forgetKeys(Long environmentId) {
+        keyLock.lock();
+        try {
+            Map<String, Long> keys = new HashMap<>(environmentIds);
+            if (keys.values().removeIf(environmentId::equals)) {
+                environmentIds = Map.copyOf(keys);
+            }
+        } finally {
+            keyLock.unlock();
+        }
+    }
+
+    /**
+     * The published snapshot of one environment.
+     */
+    private static final class Holder {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile FlagSnapshot snapshot;
+        private volatile String project;
+        private volatile String name;
+    }
+}
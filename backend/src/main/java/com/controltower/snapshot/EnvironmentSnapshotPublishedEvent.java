@@ -0,0 +1,45 @@
+package com.controltower.snapshot;
+
+/**
+ * Application event published by {@link EnvironmentSnapshotCache} each time
+ * the snapshot of an environment is replaced, or dropped because the
+ * environment was deleted.
+ * 
+ * Events of one environment are published in version order, while its
+ * rebuild lock is held, so listeners must hand any slow work off to another
+ * thread.
+ */
+public class EnvironmentSnapshotPublishedEvent {
+
+    private final Long environmentId;
+    private final String environment;
+    private final FlagSnapshot current;
+
+    public EnvironmentSnapshotPublishedEvent(Long environmentId, String environment, FlagSnapshot current) {
+        this.environmentId = environmentId;
+        this.environment = environment;
+        this.current = current;
+    }
+
+    public Long getEnvironmentId() {
+        return environmentId;
+    }
+
+    /**
+     * Gets the name of the environment, for display and metric tags.
+     * 
+     * @return "&lt;project&gt;/&lt;key&gt;"
+     */
+    public String getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * Gets the new snapshot of the environment.
+     * 
+     * @return The snapshot, or null if the environment was deleted
+     */
+    public FlagSnapshot getCurrent() {
+        return current;
+    }
+}
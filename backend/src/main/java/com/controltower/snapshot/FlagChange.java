@@ -0,0 +1,113 @@
+package com.controltower.snapshot;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single change to a flag between two consecutive snapshots.
+ * 
+ * Changes are derived by diffing snapshots rather than from the mutations
+ * themselves, so they always match what the public API actually served.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class FlagChange {
+
+    /**
+     * Kinds of change a flag can go through.
+     */
+    public enum Type {
+        CREATED,
+        TOGGLED,
+        RENAMED,
+        DELETED
+    }
+
+    private final Type type;
+    private final long id;
+    private final String name;
+    private final String previousName;
+    private final boolean active;
+
+    public FlagChange(Type type, long id, String name, String previousName, boolean active) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.previousName = previousName;
+        this.active = active;
+    }
+
+    /**
+     * Computes the changes that turn one snapshot into the next.
+     * 
+     * Both snapshots hold their flags ordered by ID, so this is a single
+     * merge pass. A flag that was renamed and toggled at once yields a rename
+     * followed by a toggle.
+     * 
+     * @param previous The older snapshot, may be null
+     * @param current  The newer snapshot
+     * @return The changes, ordered by flag ID
+     */
+    public static List<FlagChange> between(FlagSnapshot previous, FlagSnapshot current) {
+        List<FlagState> before = previous != null ? previous.getFlags() : List.of();
+        List<FlagState> after = current.getFlags();
+        List<FlagChange> changes = new ArrayList<>();
+
+        int i = 0;
+        int j = 0;
+        while (i < before.size() || j < after.size()) {
+            FlagState old = i < before.size() ? before.get(i) : null;
+            FlagState now = j < after.size() ? after.get(j) : null;
+
+            if (now == null || (old != null && old.getId() < now.getId())) {
+                changes.add(new FlagChange(Type.DELETED, old.getId(), old.getName(), null, false));
+                i++;
+            } else if (old == null || now.getId() < old.getId()) {
+                changes.add(new FlagChange(Type.CREATED, now.getId(), now.getName(), null, now.isActive()));
+                j++;
+            } else {
+                if (!old.getName().equals(now.getName())) {
+                    changes.add(new FlagChange(Type.RENAMED, now.getId(), now.getName(), old.getName(), now.isActive()));
+                }
+                if (old.isActive() != now.isActive()) {
+                    changes.add(new FlagChange(Type.TOGGLED, now.getId(), now.getName(), null, now.isActive()));
+                }
+                i++;
+                j++;
+            }
+        }
+        return changes;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPreviousName() {
+        return previousName;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public String toString() {
+        return "FlagChange{" +
+                "type=" + type +
+                ", id=" + id +
+                ", name='" + name + '\'' +
+                ", previousName='" + previousName + '\'' +
+                ", active=" + active +
+                '}';
+    }
+}
@@ -0,0 +1,46 @@
+package com.controltower.snapshot;
+
+/**
+ * Application event published by the service layer whenever a flag is
+ * created, toggled, updated or deleted, or a segment flags may refer to
+ * changes.
+ * 
+ * Listeners bound to the after-commit phase use it to rebuild the
+ * {@link FlagSnapshot} once the change is visible to other transactions.
+ */
+public class FlagChangedEvent {
+
+    private final Long flagId;
+    private final long version;
+
+    public FlagChangedEvent(Long flagId, long version) {
+        this.flagId = flagId;
+        this.version = version;
+    }
+
+    /**
+     * Gets the ID of the changed flag.
+     * 
+     * @return The flag ID, or null when a segment or several flags changed
+     */
+    public Long getFlagId() {
+        return flagId;
+    }
+
+    /**
+     * Gets the flag set version taken by the mutation.
+     * 
+     * @return The flag set version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "FlagChangedEvent{" +
+                "flagId=" + flagId +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package com.controltower.snapshot;
+
+import java.util.List;
+
+/**
+ * Read-only hash index from flag name to the position of the flag in a
+ * {@link FlagSnapshot}.
+ *
+ * Names are kept in a single array with open addressing and linear probing,
+ * at a load factor of at most one half, so a lookup hashes the name once
+ * (String caches its hash) and usually compares a single slot, without the
+ * entry objects and pointer chasing of a HashMap. The index is built with
+ * the snapshot and never modified afterwards.
+ */
+final class FlagIndex {
+
+    private final String[] names;
+    private final int[] positions;
+    private final int mask;
+
+    /**
+     * Indexes flags by name. When two flags share a name, the later one wins.
+     *
+     * @param flags The flags, in snapshot order
+     */
+    FlagIndex(List<FlagState> flags) {
+        int capacity = Integer.highestOneBit(Math.max(1, flags.size()) * 2 - 1) << 1;
+        this.names = new String[capacity];
+        this.positions = new int[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < flags.size(); i++) {
+            String name = flags.get(i).getName();
+            int slot = slot(name);
+            names[slot] = name;
+            positions[slot] = i;
+        }
+    }
+
+    /**
+     * Gets the position of a flag.
+     *
+     * @param name The flag name
+     * @return The position of the flag in the snapshot, or -1 if no flag has that name
+     */
+    int positionOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        int slot = slot(name);
+        return names[slot] != null ? positions[slot] : -1;
+    }
+
+    /**
+     * Finds the slot holding a name, or the empty slot where it belongs.
+     */
+    private int slot(String name) {
+        int hash = name.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (names[slot] != null && !names[slot].equals(name)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
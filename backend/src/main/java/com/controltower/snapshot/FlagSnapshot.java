@@ -0,0 +1,355 @@
+package com.controltower.snapshot;
+
+import com.controltower.dto.FlagStatusResponse;
+import com.controltower.dto.SegmentDefinition;
+import com.controltower.dto.TargetingRules;
+import com.controltower.evaluation.CompiledFlag;
+import com.controltower.evaluation.EvaluationCounter;
+import com.controltower.evaluation.RuleCompiler;
+import com.controltower.exception.InvalidTargetingException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned point-in-time copy of the flag catalog.
+ * 
+ * Snapshots are built by {@link FlagSnapshotCache} after every committed
+ * mutation and are never modified afterwards, so they can be shared freely
+ * between request threads without any locking.
+ */
+public final class FlagSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(FlagSnapshot.class);
+
+    // Odd 64-bit constant mixing status digests into the digest of a multi-get
+    private static final long DIGEST_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final long version;
+    private final List<FlagState> flags;
+    private final List<SegmentState> segments;
+    private final List<String> activeFlagNames;
+    private final EncodedPayload activeFlagsPayload;
+    private final List<CompiledFlag> evaluators;
+    private final FlagIndex index;
+    private final EncodedPayload[] statusPayloads;
+    private final boolean provisional;
+    // Only encoded once a client asks for it
+    private volatile EncodedPayload binaryFlagsPayload;
+
+    public FlagSnapshot(long version, List<FlagState> flags, ObjectMapper objectMapper) {
+        this(version, flags, List.of(), objectMapper, null);
+    }
+
+    /**
+     * Builds a snapshot, reusing the encoded public payload of the previous
+     * snapshot when the active flags did not change. The payload then keeps
+     * its entity tag, so clients are not sent an identical body again.
+     * 
+     * Targeting rules are compiled into evaluators here, once per snapshot.
+     * Evaluators of the previous snapshot are reused for flags that did not
+     * change, as long as the segments did not change either.
+     * 
+     * Flags are indexed by name, each with its public status body. A flag
+     * whose status did not change keeps the body, and so the entity tag, it
+     * had in the previous snapshot.
+     * 
+     * @param version      The snapshot version
+     * @param flags        The state of every flag, ordered by ID
+     * @param segments     The state of every segment
+     * @param objectMapper The mapper used to serialize the public payload
+     * @param previous     The snapshot being replaced, may be null
+     */
+    public FlagSnapshot(long version, List<FlagState> flags, List<SegmentState> segments,
+            ObjectMapper objectMapper, FlagSnapshot previous) {
+        this(version, flags, segments, objectMapper, previous, false);
+    }
+
+    /**
+     * Builds a snapshot that may differ from the database at its version, see
+     * {@link #isProvisional()}.
+     * 
+     * @param version      The snapshot version
+     * @param flags        The state of every flag, ordered by ID
+     * @param segments     The state of every segment
+     * @param objectMapper The mapper used to serialize the public payload
+     * @param previous     The snapshot being replaced, may be null
+     * @param provisional  Whether some flags are killed but not yet persisted as such
+     */
+    public FlagSnapshot(long version, List<FlagState> flags, List<SegmentState> segments,
+            ObjectMapper objectMapper, FlagSnapshot previous, boolean provisional) {
+        this.version = version;
+        this.provisional = provisional;
+        this.flags = Collections.unmodifiableList(new ArrayList<>(flags));
+        this.segments = Collections.unmodifiableList(new ArrayList<>(segments));
+
+        List<String> active = new ArrayList<>();
+        for (FlagState flag : this.flags) {
+            if (flag.isActive()) {
+                active.add(flag.getName());
+            }
+        }
+        this.activeFlagNames = Collections.unmodifiableList(active);
+
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(activeFlagNames);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize active flag names", ex);
+        }
+        this.activeFlagsPayload = previous != null && previous.activeFlagsPayload.hasBody(json)
+                ? previous.activeFlagsPayload
+                : EncodedPayload.of(json, version);
+
+        this.evaluators = Collections.unmodifiableList(compileEvaluators(objectMapper, previous));
+        this.index = new FlagIndex(this.flags);
+        this.statusPayloads = encodeStatuses(objectMapper, previous);
+    }
+
+    private EncodedPayload[] encodeStatuses(ObjectMapper objectMapper, FlagSnapshot previous) {
+        EncodedPayload[] payloads = new EncodedPayload[flags.size()];
+        for (int i = 0; i < payloads.length; i++) {
+            FlagState flag = flags.get(i);
+            int previousPosition = previous != null ? previous.index.positionOf(flag.getName()) : -1;
+            if (previousPosition >= 0 && previous.flags.get(previousPosition).isActive() == flag.isActive()) {
+                payloads[i] = previous.statusPayloads[previousPosition];
+                continue;
+            }
+            try {
+                payloads[i] = EncodedPayload.uncompressed(objectMapper.writeValueAsBytes(
+                        new FlagStatusResponse(flag.getName(), flag.isActive())));
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException("Could not serialize the status of flag " + flag.getName(), ex);
+            }
+        }
+        return payloads;
+    }
+
+    private List<CompiledFlag> compileEvaluators(ObjectMapper objectMapper, FlagSnapshot previous) {
+        boolean segmentsUnchanged = previous != null && previous.segments.equals(segments);
+        Map<Long, FlagState> previousFlags = new HashMap<>();
+        Map<Long, CompiledFlag> previousEvaluators = new HashMap<>();
+        if (previous != null) {
+            for (int i = 0; i < previous.flags.size(); i++) {
+                previousFlags.put(previous.flags.get(i).getId(), previous.flags.get(i));
+                previousEvaluators.put(previous.flags.get(i).getId(), previous.evaluators.get(i));
+            }
+        }
+
+        RuleCompiler compiler = null;
+        List<CompiledFlag> compiled = new ArrayList<>(flags.size());
+        for (FlagState flag : flags) {
+            CompiledFlag reusable = previousEvaluators.get(flag.getId());
+            if (reusable != null && segmentsUnchanged && flag.equals(previousFlags.get(flag.getId()))) {
+                compiled.add(reusable);
+                continue;
+            }
+            if (compiler == null) {
+                compiler = RuleCompiler.withSegments(parseSegments(objectMapper));
+            }
+            // Evaluation counts carry over from the flag's previous evaluator
+            EvaluationCounter counter = reusable != null ? reusable.getCounter() : new EvaluationCounter();
+            compiled.add(compile(compiler, flag, counter, objectMapper));
+        }
+        return compiled;
+    }
+
+    private Map<String, SegmentDefinition> parseSegments(ObjectMapper objectMapper) {
+        Map<String, SegmentDefinition> definitions = new HashMap<>();
+        for (SegmentState segment : segments) {
+            try {
+                SegmentDefinition definition = objectMapper.readValue(segment.getDefinition(), SegmentDefinition.class);
+                RuleCompiler.validateSegment(segment.getName(), definition);
+                definitions.put(segment.getName(), definition);
+            } catch (JsonProcessingException | InvalidTargetingException ex) {
+                // Flags referencing it then treat the segment as empty
+                log.error("Ignoring invalid segment {}: {}", segment.getName(), ex.getMessage());
+            }
+        }
+        return definitions;
+    }
+
+    private static CompiledFlag compile(RuleCompiler compiler, FlagState flag, EvaluationCounter counter,
+            ObjectMapper objectMapper) {
+        if (flag.getTargeting() == null) {
+            return CompiledFlag.untargeted(flag.getId(), flag.getName(), flag.isActive(), counter);
+        }
+        try {
+            TargetingRules rules = objectMapper.readValue(flag.getTargeting(), TargetingRules.class);
+            return compiler.compile(flag.getId(), flag.getName(), flag.isActive(), rules, counter);
+        } catch (JsonProcessingException | InvalidTargetingException ex) {
+            // Rules are validated when saved; fail closed if one still slips through
+            log.error("Flag {} evaluates to false, invalid targeting: {}", flag.getName(), ex.getMessage());
+            return CompiledFlag.untargeted(flag.getId(), flag.getName(), false, counter);
+        }
+    }
+
+    /**
+     * Gets the snapshot version. A higher version always reflects a newer
+     * state of the flag catalog.
+     * 
+     * @return The snapshot version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets every flag in the snapshot, ordered by ID.
+     * 
+     * @return Unmodifiable list of flag states
+     */
+    public List<FlagState> getFlags() {
+        return flags;
+    }
+
+    /**
+     * Gets every segment in the snapshot.
+     * 
+     * @return Unmodifiable list of segment states
+     */
+    public List<SegmentState> getSegments() {
+        return segments;
+    }
+
+    /**
+     * Gets the compiled evaluator of every flag, ordered by ID.
+     * 
+     * @return Unmodifiable list of evaluators
+     */
+    public List<CompiledFlag> getEvaluators() {
+        return evaluators;
+    }
+
+    /**
+     * Gets the compiled evaluator of a flag.
+     * 
+     * @param name The flag name
+     * @return The evaluator, or null if no flag has that name
+     */
+    public CompiledFlag getEvaluator(String name) {
+        int position = index.positionOf(name);
+        return position >= 0 ? evaluators.get(position) : null;
+    }
+
+    /**
+     * Gets the public status of a flag, as a pre-serialized JSON object.
+     * 
+     * @param name The flag name
+     * @return The encoded status, or null if no flag has that name
+     */
+    public EncodedPayload getStatusPayload(String name) {
+        int position = index.positionOf(name);
+        return position >= 0 ? statusPayloads[position] : null;
+    }
+
+    /**
+     * Gets the public status of several flags, as a JSON array of the
+     * objects returned by {@link #getStatusPayload(String)}, in the order the
+     * names are given. Names repeated are listed once; names that match no
+     * flag are left out.
+     * 
+     * The array is copied together from the status bodies, into a buffer of
+     * the exact size, and its entity tag is combined from their digests, so
+     * no JSON is written and no byte of the body is hashed per request.
+     * 
+     * @param names The flag names
+     * @return The encoded statuses
+     */
+    public EncodedPayload getStatusesPayload(Collection<String> names) {
+        int[] positions = new int[names.size()];
+        int count = 0;
+        int length = 2;
+        for (String name : new LinkedHashSet<>(names)) {
+            int position = index.positionOf(name);
+            if (position >= 0) {
+                positions[count++] = position;
+                length += statusPayloads[position].bytes(ContentCoding.IDENTITY).length + (count > 1 ? 1 : 0);
+            }
+        }
+
+        byte[] body = new byte[length];
+        long digest = count;
+        int offset = 0;
+        body[offset++] = '[';
+        for (int i = 0; i < count; i++) {
+            EncodedPayload status = statusPayloads[positions[i]];
+            byte[] bytes = status.bytes(ContentCoding.IDENTITY);
+            if (i > 0) {
+                body[offset++] = ',';
+            }
+            System.arraycopy(bytes, 0, body, offset, bytes.length);
+            offset += bytes.length;
+            digest = (digest ^ status.digest()) * DIGEST_MULTIPLIER;
+        }
+        body[offset] = ']';
+        return EncodedPayload.uncompressed(body, digest);
+    }
+
+    /**
+     * Gets the names of the active flags, ordered by ID.
+     * 
+     * @return Unmodifiable list of active flag names
+     */
+    public List<String> getActiveFlagNames() {
+        return activeFlagNames;
+    }
+
+    /**
+     * Gets the active flag names as a pre-serialized JSON array, in every
+     * supported content coding.
+     * 
+     * @return The encoded active flags payload
+     */
+    public EncodedPayload getActiveFlagsPayload() {
+        return activeFlagsPayload;
+    }
+
+    /**
+     * Gets the state of every flag in the {@link BinaryFlagSet} format, in
+     * every supported content coding. It is encoded on first use, so
+     * snapshots only read as JSON never pay for it.
+     * 
+     * @return The encoded binary flag set
+     */
+    public EncodedPayload getBinaryFlagsPayload() {
+        EncodedPayload payload = binaryFlagsPayload;
+        if (payload == null) {
+            // Encoding twice on a race is harmless, the results are identical
+            payload = EncodedPayload.of(BinaryFlagSet.encode(version, flags), version);
+            binaryFlagsPayload = payload;
+        }
+        return payload;
+    }
+
+    /**
+     * Tells whether the snapshot serves kill switches not yet persisted, i.e.
+     * flags that are inactive here but may still be active in the database at
+     * the same version.
+     * 
+     * @return true if the snapshot is ahead of the database
+     */
+    public boolean isProvisional() {
+        return provisional;
+    }
+
+    @Override
+    public String toString() {
+        return "FlagSnapshot{" +
+                "version=" + version +
+                (provisional ? ", provisional" : "") +
+                ", flags=" + flags.size() +
+                ", active=" + activeFlagNames.size() +
+                ", segments=" + segments.size() +
+                '}';
+    }
+}
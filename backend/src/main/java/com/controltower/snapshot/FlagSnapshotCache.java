@@ -0,0 +1,495 @@
+package com.controltower.snapshot;
+
+import com.controltower.datasource.ReadReplicaRoutingDataSource;
+import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.repository.FlagSetVersionRepository;
+import com.controltower.repository.SegmentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process cache holding the current {@link FlagSnapshot}.
+ *
+ * Reads are a single volatile load and never touch JPA; the public payload is
+ * serialized and compressed, and targeting rules compiled, once per snapshot,
+ * not per request. The snapshot is
+ * rebuilt from the database after every committed flag mutation and carries
+ * the flag set version stored alongside the flags, so versions are the same on
+ * every node. Rebuilds are serialized so that a slower rebuild can never
+ * overwrite a newer snapshot. Changes committed by other nodes are picked up
+ * through {@link ChangeNotificationListener}.
+ *
+ * A flag can also be killed: published as inactive at once, from the
+ * current snapshot, without waiting for the database. Until the kill is
+ * persisted, every snapshot published here serves the flag as inactive,
+ * whatever the database says, and is marked provisional. The kill is dropped
+ * once a snapshot is built at or after the version it was persisted with, so
+ * changes committed before that version never undo it and changes committed
+ * after it apply as usual.
+ *
+ * Hits, misses and rebuild times are counted here for the metrics binder;
+ * counting a hit is a striped increment and does not contend between readers.
+ */
+@Component
+public class FlagSnapshotCache {
+
+    private static final Logger log = LoggerFactory.getLogger(FlagSnapshotCache.class);
+
+    private final FeatureFlagRepository featureFlagRepository;
+    private final FlagSetVersionRepository flagSetVersionRepository;
+    private final SegmentRepository segmentRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate readTransaction;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder rebuildNanos = new LongAdder();
+    // Highest version known to be committed, from change events and rebuilds
+    private final AtomicLong latestCommittedVersion = new AtomicLong();
+    // Kill switches overriding the database, by flag ID; only modified under rebuildLock
+    private final Map<Long, Kill> kills = new ConcurrentHashMap<>();
+
+    private volatile FlagSnapshot current;
+    // When the current snapshot was last known to match the database, and
+    // whether the last attempt to check it succeeded
+    private volatile long confirmedAt;
+    private volatile boolean confirmed;
+
+    @Autowired
+    public FlagSnapshotCache(FeatureFlagRepository featureFlagRepository,
+            FlagSetVersionRepository flagSetVersionRepository,
+            SegmentRepository segmentRepository,
+            ObjectMapper objectMapper,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager) {
+        this.featureFlagRepository = featureFlagRepository;
+        this.flagSetVersionRepository = flagSetVersionRepository;
+        this.segmentRepository = segmentRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        // Rebuilds run after the mutating transaction committed, so they need
+        // a transaction of their own rather than joining the finished one.
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        // The version and the flags must come from the same database snapshot
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Gets the current snapshot, loading it on first access.
+     *
+     * @return The current flag snapshot
+     */
+    public FlagSnapshot current() {
+        FlagSnapshot snapshot = current;
+        if (snapshot == null) {
+            misses.increment();
+            return refresh();
+        }
+        hits.increment();
+        return snapshot;
+    }
+
+    /**
+     * Rebuilds the snapshot from the database and publishes it atomically.
+     *
+     * @return The newly published snapshot
+     */
+    public FlagSnapshot refresh() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            FlagSnapshot previous = current;
+            FlagSnapshot snapshot;
+            try {
+                // Read replicas may not have replayed the change being published yet
+                snapshot = ReadReplicaRoutingDataSource.onPrimary(() -> readTransaction.execute(status -> {
+                    Long version = flagSetVersionRepository.findCurrentVersion();
+                    return build(version != null ? version : 0L,
+                            featureFlagRepository.findAllFlagStates(), segmentRepository.findAllSegmentStates(),
+                            previous);
+                }));
+            } catch (RuntimeException ex) {
+                confirmed = false;
+                throw ex;
+            }
+            current = snapshot;
+            confirmedAt = System.currentTimeMillis();
+            confirmed = true;
+            rebuilds.increment();
+            rebuildNanos.add(System.nanoTime() - start);
+            latestCommittedVersion.accumulateAndGet(snapshot.getVersion(), Math::max);
+            log.debug("Published flag snapshot {}", snapshot);
+            eventPublisher.publishEvent(new FlagSnapshotPublishedEvent(previous, snapshot));
+            return snapshot;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Kills a flag: publishes the current snapshot with the flag inactive,
+     * without reading the database, and keeps it inactive in every snapshot
+     * until the kill is confirmed or released.
+     *
+     * @param flagId The ID of the flag
+     * @param local  Whether this node persists the kill; kills received from
+     *               other nodes expire if they are not confirmed in time
+     * @return The state of the flag now served, or null if the snapshot has no such flag
+     */
+    public FlagState kill(long flagId, boolean local) {
+        rebuildLock.lock();
+        try {
+            FlagSnapshot previous = current();
+            FlagState killed = null;
+            for (FlagState flag : previous.getFlags()) {
+                if (flag.getId() == flagId) {
+                    killed = new FlagState(flag.getId(), flag.getName(), false, flag.getTargeting());
+                    break;
+                }
+            }
+            if (killed == null) {
+                return null;
+            }
+            Kill kill = kills.computeIfAbsent(flagId, id -> new Kill());
+            kill.local |= local;
+            FlagSnapshot snapshot = build(previous.getVersion(), previous.getFlags(), previous.getSegments(), previous);
+            if (snapshot.isProvisional() && !snapshot.getFlags().equals(previous.getFlags())) {
+                current = snapshot;
+                log.info("Killed flag {} in snapshot {}", killed.getName(), snapshot);
+                eventPublisher.publishEvent(new FlagSnapshotPublishedEvent(previous, snapshot));
+            }
+            return killed;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Records the version a kill was persisted with. The kill is dropped as
+     * soon as a snapshot at that version or later is published, which is the
+     * case right away if this node already caught up.
+     *
+     * @param flagId  The ID of the killed flag
+     * @param version The flag set version the kill was committed with
+     */
+    public void confirmKill(long flagId, long version) {
+        rebuildLock.lock();
+        try {
+            Kill kill = kills.get(flagId);
+            if (kill == null) {
+                return;
+            }
+            kill.persistedVersion = Math.min(kill.persistedVersion, version);
+            FlagSnapshot snapshot = current;
+            if (snapshot != null && snapshot.getVersion() >= version) {
+                // A change committed after the kill may be masked by it; the
+                // rebuild drops the kill, and so will the next one if it fails
+                if (snapshot.isProvisional()) {
+                    refreshQuietly();
+                } else {
+                    kills.remove(flagId);
+                }
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Drops a kill that will not be persisted, e.g. because the flag was
+     * deleted, and serves the flag from the database again.
+     *
+     * @param flagId The ID of the killed flag
+     */
+    public void releaseKill(long flagId) {
+        rebuildLock.lock();
+        try {
+            if (kills.remove(flagId) != null && current != null && current.isProvisional()) {
+                refreshQuietly();
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Drops the kills received from other nodes that were not confirmed in
+     * time, e.g. because the node persisting them went down.
+     *
+     * @param maxAgeMillis How long a kill may stay unconfirmed
+     * @return The IDs of the flags whose kill expired
+     */
+    public List<Long> expireKills(long maxAgeMillis) {
+        long oldest = System.currentTimeMillis() - maxAgeMillis;
+        List<Long> expired = new ArrayList<>();
+        rebuildLock.lock();
+        try {
+            for (Map.Entry<Long, Kill> entry : kills.entrySet()) {
+                Kill kill = entry.getValue();
+                if (!kill.local && kill.persistedVersion == Long.MAX_VALUE && kill.startedAt < oldest) {
+                    expired.add(entry.getKey());
+                }
+            }
+            if (!expired.isEmpty()) {
+                kills.keySet().removeAll(expired);
+                if (current != null && current.isProvisional()) {
+                    refreshQuietly();
+                }
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+        return expired;
+    }
+
+    /**
+     * Gets the flags killed on this node and not yet known to be persisted.
+     *
+     * @return The IDs of the killed flags
+     */
+    public Set<Long> getPendingKills() {
+        return Set.copyOf(kills.keySet());
+    }
+
+    /**
+     * Builds a snapshot, serving the flags killed and not yet persisted at
+     * the version as inactive. Must be called under rebuildLock.
+     */
+    private FlagSnapshot build(long version, List<FlagState> flags, List<SegmentState> segments,
+            FlagSnapshot previous) {
+        // The flags read at or after the version of a kill already include it
+        kills.values().removeIf(kill -> kill.persistedVersion <= version);
+        if (kills.isEmpty()) {
+            return new FlagSnapshot(version, flags, segments, objectMapper, previous);
+        }
+        List<FlagState> served = new ArrayList<>(flags.size());
+        boolean provisional = false;
+        for (FlagState flag : flags) {
+            if (kills.containsKey(flag.getId())) {
+                provisional = true;
+                if (flag.isActive()) {
+                    served.add(new FlagState(flag.getId(), flag.getName(), false, flag.getTargeting()));
+                    continue;
+                }
+            }
+            served.add(flag);
+        }
+        return new FlagSnapshot(version, served, segments, objectMapper, previous, provisional);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            // Not confirmed any more, so the next verification rebuilds it
+            log.warn("Could not rebuild the flag snapshot after a kill ended: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot once a flag or segment mutation has been committed.
+     *
+     * @param event The flag change event
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onFlagChanged(FlagChangedEvent event) {
+        latestCommittedVersion.accumulateAndGet(event.getVersion(), Math::max);
+        refresh();
+    }
+
+    /**
+     * Rebuilds the snapshot if it is older than a version committed elsewhere,
+     * e.g. by another node. Nothing is loaded if no snapshot was loaded yet.
+     *
+     * @param version The committed version
+     */
+    public void refreshIfOlderThan(long version) {
+        latestCommittedVersion.accumulateAndGet(version, Math::max);
+        FlagSnapshot snapshot = current;
+        if (snapshot != null && snapshot.getVersion() < version) {
+            refresh();
+        }
+    }
+
+    /**
+     * Publishes a snapshot restored from local storage, if no snapshot was
+     * loaded yet. It is served as stale until reconciled with the database.
+     *
+     * @param snapshot    The restored snapshot
+     * @param confirmedAt When the snapshot was last known to match the database, in epoch milliseconds
+     */
+    public void restore(FlagSnapshot snapshot, long confirmedAt) {
+        rebuildLock.lock();
+        try {
+            if (current == null) {
+                this.confirmedAt = confirmedAt;
+                this.confirmed = false;
+                current = snapshot;
+                latestCommittedVersion.accumulateAndGet(snapshot.getVersion(), Math::max);
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Loads the first snapshot eagerly so the first public request does not
+     * pay for it. A failure here is not fatal; the snapshot is loaded lazily.
+     * A restored snapshot is served meanwhile, and reconciled in the
+     * background instead so that a slow database does not delay readiness.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (current != null) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            log.warn("Could not load the initial flag snapshot: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Checks the published snapshot against the database: a restored
+     * snapshot is rebuilt, and so is one whose version is no longer the
+     * committed one, e.g. because a change notification was missed. While
+     * the database cannot be reached the snapshot keeps being served, as
+     * stale.
+     */
+    @Scheduled(fixedDelayString = "${controltower.snapshot.verify-interval:5000}")
+    public void verify() {
+        FlagSnapshot snapshot = current;
+        if (snapshot == null) {
+            return;
+        }
+        boolean wasConfirmed = confirmed;
+        try {
+            if (wasConfirmed) {
+                Long version = ReadReplicaRoutingDataSource.onPrimary(() ->
+                        readTransaction.execute(status -> flagSetVersionRepository.findCurrentVersion()));
+                if ((version != null ? version : 0L) == snapshot.getVersion()) {
+                    confirmedAt = System.currentTimeMillis();
+                    return;
+                }
+            }
+            refresh();
+        } catch (RuntimeException ex) {
+            if (wasConfirmed) {
+                log.warn("Serving flag snapshot {} as stale, the database cannot be reached: {}",
+                        snapshot.getVersion(), ex.getMessage());
+            }
+            confirmed = false;
+        }
+    }
+
+    /**
+     * Gets how long the published snapshot has not been known to match the
+     * database, while it cannot be checked.
+     *
+     * @return The staleness in seconds, or -1 if the snapshot is up to date
+     */
+    public long getStalenessSeconds() {
+        if (confirmed || current == null) {
+            return -1;
+        }
+        return Math.max(0, (System.currentTimeMillis() - confirmedAt) / 1000);
+    }
+
+    /**
+     * Gets the number of reads served by an already published snapshot.
+     *
+     * @return The hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of reads that had to load the snapshot first.
+     *
+     * @return The miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of snapshots built since startup.
+     *
+     * @return The rebuild count
+     */
+    public long getRebuildCount() {
+        return rebuilds.sum();
+    }
+
+    /**
+     * Gets the total time spent building snapshots.
+     *
+     * @return The total rebuild time in nanoseconds
+     */
+    public long getRebuildNanos() {
+        return rebuildNanos.sum();
+    }
+
+    /**
+     * Gets how many versions the published snapshot is behind the latest
+     * committed change seen by this node. Non-zero only while a rebuild is
+     * pending or after one failed.
+     *
+     * @return The version lag, zero when up to date or nothing is loaded yet
+     */
+    public long getVersionLag() {
+        FlagSnapshot snapshot = current;
+        if (snapshot == null) {
+            return 0;
+        }
+        return Math.max(0, latestCommittedVersion.get() - snapshot.getVersion());
+    }
+
+    /**
+     * A kill switch held in memory until persisted.
+     */
+    private static final class Kill {
+
+        private final long startedAt = System.currentTimeMillis();
+        // The version the kill was persisted with, MAX_VALUE until known
+        private long persistedVersion = Long.MAX_VALUE;
+        private boolean local;
+    }
+
+    /**
+     * Gets the published snapshot without loading it.
+     *
+     * @return The current snapshot, or null if none was loaded yet
+     */
+    public FlagSnapshot peek() {
+        return current;
+    }
+}
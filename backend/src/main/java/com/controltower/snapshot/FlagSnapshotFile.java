@@ -0,0 +1,280 @@
+package com.controltower.snapshot;
+
+import com.controltower.config.BackgroundThreads;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the latest default flag snapshot in a local file, so that a node
+ * restarting while the database is slow or down serves the last known flags
+ * right away.
+ *
+ * Every published snapshot is written in the background, the latest one
+ * first when several are waiting, to a temporary file that is synced and
+ * renamed over the previous one: the file always holds a complete snapshot.
+ * The format is binary: a header (magic, format, database URL, flag set
+ * version, write time), the flags and segments as length-prefixed UTF-8, and
+ * a CRC-32 of all of it. At startup the file is mapped into memory and
+ * restored into {@link FlagSnapshotCache}, unless it is damaged or was written
+ * for another database; the cache then reconciles it with the database in
+ * the background.
+ */
+@Component
+public class FlagSnapshotFile {
+
+    private static final Logger log = LoggerFactory.getLogger(FlagSnapshotFile.class);
+
+    private static final int MAGIC = 0x43544653; // "CTFS"
+    private static final int FORMAT = 1;
+
+    private final FlagSnapshotCache flagSnapshotCache;
+    private final ObjectMapper objectMapper;
+    private final Path path;
+    private final String source;
+    private final ExecutorService writer;
+    private final AtomicReference<FlagSnapshot> pending = new AtomicReference<>();
+
+    @Autowired
+    public FlagSnapshotFile(FlagSnapshotCache flagSnapshotCache,
+            ObjectMapper objectMapper,
+            DataSourceProperties dataSourceProperties,
+            BackgroundThreads backgroundThreads,
+            @Value("${controltower.snapshot.file:}") String file) {
+        this.flagSnapshotCache = flagSnapshotCache;
+        this.objectMapper = objectMapper;
+        this.path = file.isBlank() ? null : Path.of(file).toAbsolutePath();
+        this.source = String.valueOf(dataSourceProperties.determineUrl());
+        this.writer = Executors.newSingleThreadExecutor(backgroundThreads.factory("flag-snapshot-writer"));
+    }
+
+    /**
+     * Restores the stored snapshot, before the application serves requests.
+     */
+    @PostConstruct
+    public void restore() {
+        if (path == null) {
+            return;
+        }
+        StoredSnapshot stored = read();
+        if (stored != null) {
+            flagSnapshotCache.restore(stored.snapshot, stored.writtenAt);
+            log.info("Restored flag snapshot {} written at {} from {}", stored.snapshot.getVersion(),
+                    Instant.ofEpochMilli(stored.writtenAt), path);
+        }
+    }
+
+    /**
+     * Schedules the write of a newly published snapshot.
+     *
+     * @param event The snapshot published event
+     */
+    @EventListener
+    public void onSnapshotPublished(FlagSnapshotPublishedEvent event) {
+        // A kill not yet persisted could outlive itself if restored
+        if (event.getCurrent().isProvisional()) {
+            return;
+        }
+        if (path != null && pending.getAndSet(event.getCurrent()) == null) {
+            writer.execute(this::writePending);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Let the latest write finish, a partial one would only leave a temporary file
+        writer.shutdown();
+        writer.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private StoredSnapshot read() {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer);
+        } catch (NoSuchFileException ex) {
+            log.debug("No stored flag snapshot at {}", path);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not read the stored flag snapshot {}: {}", path, ex.toString());
+        }
+        return null;
+    }
+
+    private void writePending() {
+        FlagSnapshot snapshot = pending.getAndSet(null);
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            write(snapshot);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not store flag snapshot {} to {}: {}", snapshot.getVersion(), path, ex.toString());
+        }
+    }
+
+    private void write(FlagSnapshot snapshot) throws IOException {
+        byte[] content = encode(snapshot, System.currentTimeMillis());
+        Path directory = path.getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        syncDirectory(directory);
+        log.debug("Stored flag snapshot {} to {}", snapshot.getVersion(), path);
+    }
+
+    /**
+     * Makes the rename durable: until the directory entry is synced, a crash
+     * can leave the previous file, or none, in place of the new one.
+     */
+    private void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            // Directories cannot be opened on every platform, e.g. Windows
+            log.debug("Could not sync directory {}: {}", directory, ex.toString());
+        }
+    }
+
+    private byte[] encode(FlagSnapshot snapshot, long writtenAt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + snapshot.getFlags().size() * 48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        writeString(out, source);
+        out.writeLong(snapshot.getVersion());
+        out.writeLong(writtenAt);
+        out.writeInt(snapshot.getFlags().size());
+        for (FlagState flag : snapshot.getFlags()) {
+            out.writeLong(flag.getId());
+            out.writeBoolean(flag.isActive());
+            writeString(out, flag.getName());
+            writeString(out, flag.getTargeting());
+        }
+        out.writeInt(snapshot.getSegments().size());
+        for (SegmentState segment : snapshot.getSegments()) {
+            writeString(out, segment.getName());
+            writeString(out, segment.getDefinition());
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes.toByteArray());
+        out.writeInt((int) checksum.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private StoredSnapshot decode(ByteBuffer buffer) {
+        if (buffer.remaining() < Integer.BYTES * 3) {
+            throw new IllegalStateException("truncated file");
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate().limit(buffer.limit() - Integer.BYTES));
+        if ((int) checksum.getValue() != buffer.getInt(buffer.limit() - Integer.BYTES)) {
+            throw new IllegalStateException("checksum mismatch");
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+                throw new IllegalStateException("unknown format");
+            }
+            String storedSource = readString(buffer);
+            if (!source.equals(storedSource)) {
+                log.info("Ignored the stored flag snapshot, written for another database: {}", storedSource);
+                return null;
+            }
+            long version = buffer.getLong();
+            long writtenAt = buffer.getLong();
+            int flagCount = buffer.getInt();
+            List<FlagState> flags = new ArrayList<>(flagCount);
+            for (int i = 0; i < flagCount; i++) {
+                long id = buffer.getLong();
+                boolean active = buffer.get() != 0;
+                flags.add(new FlagState(id, readString(buffer), active, readString(buffer)));
+            }
+            int segmentCount = buffer.getInt();
+            List<SegmentState> segments = new ArrayList<>(segmentCount);
+            for (int i = 0; i < segmentCount; i++) {
+                segments.add(new SegmentState(readString(buffer), readString(buffer)));
+            }
+            return new StoredSnapshot(new FlagSnapshot(version, flags, segments, objectMapper, null), writtenAt);
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalStateException("truncated file", ex);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A snapshot read from the file, with the time it was written.
+     */
+    private static final class StoredSnapshot {
+
+        private final FlagSnapshot snapshot;
+        private final long writtenAt;
+
+        private StoredSnapshot(FlagSnapshot snapshot, long writtenAt) {
+            this.snapshot = snapshot;
+            this.writtenAt = writtenAt;
+        }
+    }
+}
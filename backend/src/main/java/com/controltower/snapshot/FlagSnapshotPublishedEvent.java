@@ -0,0 +1,32 @@
+package com.controltower.snapshot;
+
+/**
+ * Application event published by {@link FlagSnapshotCache} each time a new
+ * snapshot replaces the current one.
+ * 
+ * Events are published in version order, while the rebuild lock is held, so
+ * listeners must hand any slow work off to another thread.
+ */
+public class FlagSnapshotPublishedEvent {
+
+    private final FlagSnapshot previous;
+    private final FlagSnapshot current;
+
+    public FlagSnapshotPublishedEvent(FlagSnapshot previous, FlagSnapshot current) {
+        this.previous = previous;
+        this.current = current;
+    }
+
+    /**
+     * Gets the snapshot that was replaced.
+     * 
+     * @return The previous snapshot, or null for the first snapshot
+     */
+    public FlagSnapshot getPrevious() {
+        return previous;
+    }
+
+    public FlagSnapshot getCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,76 @@
+package com.controltower.snapshot;
+
+import java.util.Objects;
+
+/**
+ * Immutable view of a single feature flag as held in a {@link FlagSnapshot}.
+ * 
+ * Only the fields needed to serve the public API are kept here, so building
+ * a snapshot never hydrates full JPA entities.
+ */
+public final class FlagState {
+
+    private final long id;
+    private final String name;
+    private final boolean active;
+    private final String targeting;
+
+    public FlagState(Long id, String name, Boolean active) {
+        this(id, name, active, null);
+    }
+
+    public FlagState(Long id, String name, Boolean active, String targeting) {
+        this.id = id;
+        this.name = name;
+        this.active = Boolean.TRUE.equals(active);
+        this.targeting = targeting;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Gets the targeting rules of the flag, as stored.
+     * 
+     * @return The targeting rules as JSON, or null if the flag has none
+     */
+    public String getTargeting() {
+        return targeting;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FlagState)) {
+            return false;
+        }
+        FlagState other = (FlagState) o;
+        return id == other.id && active == other.active && Objects.equals(name, other.name)
+                && Objects.equals(targeting, other.targeting);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, active, targeting);
+    }
+
+    @Override
+    public String toString() {
+        return "FlagState{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", active=" + active +
+                '}';
+    }
+}
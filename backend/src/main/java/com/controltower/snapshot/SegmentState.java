@@ -0,0 +1,54 @@
+package com.controltower.snapshot;
+
+import java.util.Objects;
+
+/**
+ * Immutable view of a segment as held in a {@link FlagSnapshot}.
+ */
+public final class SegmentState {
+
+    private final String name;
+    private final String definition;
+
+    public SegmentState(String name, String definition) {
+        this.name = name;
+        this.definition = definition;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the segment definition, as stored.
+     * 
+     * @return The definition as JSON
+     */
+    public String getDefinition() {
+        return definition;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SegmentState)) {
+            return false;
+        }
+        SegmentState other = (SegmentState) o;
+        return Objects.equals(name, other.name) && Objects.equals(definition, other.definition);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, definition);
+    }
+
+    @Override
+    public String toString() {
+        return "SegmentState{" +
+                "name='" + name + '\'' +
+                '}';
+    }
+}
@@ -3,11 +3,15 @@
 
 CREATE TABLE feature_flags (
     id          BIGSERIAL PRIMARY KEY,  -- BIGSERIAL is an auto-incrementable BIGINT, ideal for primary keys.
-    name        VARCHAR(100) NOT NULL UNIQUE, -- The flag key name, must be unique. Ex: "new-checkout-beta".
+    name        VARCHAR(100) NOT NULL, -- The flag key name, unique within its project. Ex: "new-checkout-beta".
+    project     VARCHAR(50) NOT NULL DEFAULT 'default', -- The project the flag belongs to.
     is_active   BOOLEAN NOT NULL DEFAULT FALSE, -- The flag state, default to off (safer).
     description VARCHAR(255), -- An optional description to explain what the flag controls.
+    targeting   TEXT, -- Targeting rules as JSON, NULL when the flag is on or off for everyone.
     created_at  TIMESTAMPTZ NOT NULL DEFAULT NOW(), -- Timestamp with timezone for record creation.
-    updated_at  TIMESTAMPTZ NOT NULL DEFAULT NOW()  -- Timestamp with timezone for last update.
+    updated_at  TIMESTAMPTZ NOT NULL DEFAULT NOW(), -- Timestamp with timezone for last update.
+    revision    BIGINT NOT NULL DEFAULT 0, -- Incremented by every change, sent as the flag's ETag.
+    CONSTRAINT uk_feature_flags_project_name UNIQUE (project, name)
 );
 
 -- Optional, but good practice: create a function to automatically update 'updated_at'.
@@ -23,3 +27,149 @@ CREATE TRIGGER set_timestamp
 BEFORE UPDATE ON feature_flags
 FOR EACH ROW
 EXECUTE PROCEDURE trigger_set_timestamp();
+
+-- Reusable groups of contexts referenced by flag targeting rules.
+CREATE TABLE segments (
+    id          BIGSERIAL PRIMARY KEY,
+    name        VARCHAR(100) NOT NULL UNIQUE, -- Referenced by name from targeting rules.
+    description VARCHAR(255),
+    definition  TEXT NOT NULL, -- Included keys and clauses as JSON.
+    created_at  TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at  TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE TRIGGER set_segments_timestamp
+BEFORE UPDATE ON segments
+FOR EACH ROW
+EXECUTE PROCEDURE trigger_set_timestamp();
+
+-- Single-row counter holding the version of the flag set.
+-- Every mutation increments it in its own transaction; the row lock is held until commit,
+-- so versions are committed in order and clients can sync "changes since version N".
+CREATE TABLE flag_set_version (
+    id      SMALLINT PRIMARY KEY CHECK (id = 1), -- Only one row is allowed.
+    version BIGINT NOT NULL                      -- The version of the last committed mutation.
+);
+
+INSERT INTO flag_set_version (id, version) VALUES (1, 0);
+
+-- Append-only log of flag mutations, used for delta sync.
+-- Rows keep the state before and after each change; old rows are pruned by the application.
+CREATE TABLE flag_changes (
+    id            BIGSERIAL PRIMARY KEY,
+    version       BIGINT NOT NULL,       -- The flag set version the change was committed with.
+    flag_id       BIGINT NOT NULL,       -- No foreign key: deleted flags keep their history.
+    change_type   VARCHAR(16) NOT NULL,  -- CREATED, TOGGLED, UPDATED or DELETED.
+    previous_name VARCHAR(100),          -- Name before the change, NULL when created.
+    was_active    BOOLEAN,               -- State before the change, NULL when created.
+    name          VARCHAR(100),          -- Name after the change, NULL when deleted.
+    is_active     BOOLEAN,               -- State after the change, NULL when deleted.
+    created_at    TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_flag_changes_version ON flag_changes (version);
+
+-- Flag evaluation counts, one row per evaluated flag and flush period of a node.
+-- Rows are inserted in batches by the application and summed over a time window when read.
+CREATE TABLE flag_evaluation_rollups (
+    id             BIGSERIAL PRIMARY KEY,
+    flag_id        BIGINT NOT NULL,        -- No foreign key: counts outlive deleted flags until pruned.
+    period_start   TIMESTAMPTZ NOT NULL,   -- Start of the flush period.
+    period_end     TIMESTAMPTZ NOT NULL,   -- End of the flush period.
+    enabled_count  BIGINT NOT NULL,        -- Evaluations that returned true.
+    disabled_count BIGINT NOT NULL         -- Evaluations that returned false.
+);
+
+CREATE INDEX idx_flag_evaluation_rollups_period_end ON flag_evaluation_rollups (period_end);
+
+-- Flag changes scheduled for a given time, executed by the leading node (see FlagScheduler).
+CREATE TABLE flag_schedules (
+    id           BIGSERIAL PRIMARY KEY,
+    flag_id      BIGINT NOT NULL REFERENCES feature_flags (id) ON DELETE CASCADE,
+    action       VARCHAR(16) NOT NULL,   -- ENABLE or DISABLE.
+    execute_at   TIMESTAMPTZ NOT NULL,
+    status       VARCHAR(16) NOT NULL,   -- PENDING, EXECUTED, CANCELLED or FAILED.
+    created_by   VARCHAR(100) NOT NULL,
+    created_at   TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    completed_at TIMESTAMPTZ,            -- When it was executed, cancelled or failed.
+    error        VARCHAR(255),           -- Why it failed.
+    attempts     INTEGER NOT NULL DEFAULT 0  -- Executions that failed with an unexpected error.
+);
+
+CREATE INDEX idx_flag_schedules_status_execute_at ON flag_schedules (status, execute_at);
+CREATE INDEX idx_flag_schedules_flag_id ON flag_schedules (flag_id);
+
+-- Flag audit log: who created, toggled, updated or deleted a flag, when, and the flag before
+-- and after as JSON. Rows are only ever inserted, in batches, after the change committed.
+-- Partitioned by month: the application creates the partition of a month when it first writes
+-- to it, and old months can be detached or dropped as a whole.
+CREATE TABLE flag_audit_log (
+    id           BIGSERIAL,
+    occurred_at  TIMESTAMPTZ NOT NULL,
+    actor        VARCHAR(100) NOT NULL,  -- Authenticated admin user, "system" otherwise.
+    action       VARCHAR(16) NOT NULL,   -- CREATED, TOGGLED, UPDATED or DELETED.
+    flag_id      BIGINT NOT NULL,        -- No foreign key: entries outlive deleted flags.
+    flag_name    VARCHAR(100),
+    version      BIGINT NOT NULL,        -- Flag set version the change was committed with.
+    before_state TEXT,                   -- Null when the flag was created.
+    after_state  TEXT,                   -- Null when the flag was deleted.
+    PRIMARY KEY (id, occurred_at)
+) PARTITION BY RANGE (occurred_at);
+
+CREATE INDEX idx_flag_audit_log_occurred_at ON flag_audit_log (occurred_at);
+CREATE INDEX idx_flag_audit_log_flag_id ON flag_audit_log (flag_id, occurred_at);
+
+-- Environments of a project, each with its own flag states, version and SDK key.
+CREATE TABLE environments (
+    id         BIGSERIAL PRIMARY KEY,
+    project    VARCHAR(50) NOT NULL,
+    env_key    VARCHAR(50) NOT NULL, -- Ex: "staging", "production".
+    name       VARCHAR(100),
+    sdk_key    VARCHAR(64) NOT NULL UNIQUE, -- Sent by SDKs in the X-SDK-Key header.
+    version    BIGINT NOT NULL DEFAULT 0, -- Incremented by every change to the environment's flags.
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT uk_environments_project_key UNIQUE (project, env_key)
+);
+
+-- Active state of flags per environment; flags without a row are inactive there.
+CREATE TABLE flag_environment_states (
+    id             BIGSERIAL PRIMARY KEY,
+    environment_id BIGINT NOT NULL REFERENCES environments (id) ON DELETE CASCADE,
+    flag_id        BIGINT NOT NULL REFERENCES feature_flags (id) ON DELETE CASCADE,
+    is_active      BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at     TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT uk_flag_environment_states UNIQUE (environment_id, flag_id)
+);
+
+CREATE INDEX idx_flag_environment_states_flag ON flag_environment_states (flag_id);
+
+-- Change notifications: every committed mutation increments a version counter, and the
+-- update notifies the other nodes, which rebuild their in-memory snapshots.
+-- Notifications are only delivered on commit, and identical ones sent by a transaction are
+-- delivered once.
+CREATE OR REPLACE FUNCTION notify_flag_set_version()
+RETURNS TRIGGER AS $$
+BEGIN
+  PERFORM pg_notify('controltower_changes', 'flags:' || NEW.version);
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER notify_flag_set_version
+AFTER UPDATE OF version ON flag_set_version
+FOR EACH ROW
+EXECUTE PROCEDURE notify_flag_set_version();
+
+-- New environments are notified too, so that every node knows their SDK keys.
+CREATE OR REPLACE FUNCTION notify_environment_version()
+RETURNS TRIGGER AS $$
+BEGIN
+  PERFORM pg_notify('controltower_changes', 'environment:' || NEW.id || ':' || NEW.version);
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER notify_environment_version
+AFTER INSERT OR UPDATE OF version ON environments
+FOR EACH ROW
+EXECUTE PROCEDURE notify_environment_version();
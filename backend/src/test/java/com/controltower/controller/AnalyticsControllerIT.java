@@ -0,0 +1,182 @@
+package com.controltower.controller;
+
+import com.controltower.repository.EnvironmentRepository;
+import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.repository.FlagEnvironmentStateRepository;
+import com.controltower.repository.FlagEvaluationRollupRepository;
+import com.controltower.service.AnalyticsService;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the AnalyticsController and the flush of evaluation
+ * counts.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.properties")
+class AnalyticsControllerIT {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private FeatureFlagRepository featureFlagRepository;
+
+  @Autowired
+  private EnvironmentRepository environmentRepository;
+
+  @Autowired
+  private FlagEnvironmentStateRepository stateRepository;
+
+  @Autowired
+  private FlagEvaluationRollupRepository rollupRepository;
+
+  @Autowired
+  private FlagSnapshotCache flagSnapshotCache;
+
+  @Autowired
+  private AnalyticsService analyticsService;
+
+  @BeforeEach
+  void setup() {
+    stateRepository.deleteAll();
+    environmentRepository.deleteAll();
+    featureFlagRepository.deleteAll();
+    flagSnapshotCache.refresh();
+    analyticsService.flush();
+    rollupRepository.deleteAll();
+  }
+
+  @Test
+  void shouldReportFlushedEvaluationCounts() throws Exception {
+    String used = createFlag("analytics-used");
+    toggleFlag(used);
+    createFlag("analytics-unused");
+
+    evaluate("analytics-used", 3);
+    assertEquals(1, analyticsService.flush());
+    evaluate("analytics-used", 2);
+    assertEquals(1, analyticsService.flush());
+    assertEquals(0, analyticsService.flush());
+    assertEquals(2, rollupRepository.count());
+
+    mockMvc.perform(get("/admin/analytics/flags")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(2))
+        .andExpect(jsonPath("$[0].name").value("analytics-unused"))
+        .andExpect(jsonPath("$[0].evaluationCount").value(0))
+        .andExpect(jsonPath("$[0].lastEvaluatedAt").doesNotExist())
+        .andExpect(jsonPath("$[1].name").value("analytics-used"))
+        .andExpect(jsonPath("$[1].isActive").value(true))
+        .andExpect(jsonPath("$[1].enabledCount").value(5))
+        .andExpect(jsonPath("$[1].disabledCount").value(0))
+        .andExpect(jsonPath("$[1].evaluationCount").value(5))
+        .andExpect(jsonPath("$[1].lastEvaluatedAt").exists());
+  }
+
+  @Test
+  void shouldReportFlagsOfEveryProject() throws Exception {
+    createFlag("analytics-default");
+    mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"analytics-shop\", \"project\": \"shop\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated());
+    String environment = mockMvc.perform(post("/admin/environments")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"project\": \"shop\", \"key\": \"production\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    String sdkKey = JsonPath.parse(environment).read("$.sdkKey");
+
+    // Only evaluated with the SDK key of the project's environment
+    for (int i = 0; i < 2; i++) {
+      mockMvc.perform(post("/api/v1/evaluate")
+              .header(PublicFlagController.SDK_KEY_HEADER, sdkKey)
+              .contentType(MediaType.APPLICATION_JSON)
+              .content("{\"key\": \"user-" + i + "\", \"flags\": [\"analytics-shop\"]}"))
+          .andExpect(status().isOk());
+    }
+    assertEquals(1, analyticsService.flush());
+
+    mockMvc.perform(get("/admin/analytics/flags")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(2))
+        .andExpect(jsonPath("$[0].name").value("analytics-default"))
+        .andExpect(jsonPath("$[0].project").value("default"))
+        .andExpect(jsonPath("$[0].evaluationCount").value(0))
+        .andExpect(jsonPath("$[1].name").value("analytics-shop"))
+        .andExpect(jsonPath("$[1].project").value("shop"))
+        .andExpect(jsonPath("$[1].disabledCount").value(2))
+        .andExpect(jsonPath("$[1].evaluationCount").value(2));
+  }
+
+  @Test
+  void shouldFlushCountsOfDeletedFlags() throws Exception {
+    String id = createFlag("analytics-deleted");
+    evaluate("analytics-deleted", 4);
+
+    mockMvc.perform(delete("/admin/flags/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isNoContent());
+
+    assertEquals(1, analyticsService.flush());
+    assertEquals(4L, rollupRepository.findAll().get(0).getDisabledCount());
+    assertEquals(0, analyticsService.flush());
+  }
+
+  @Test
+  void shouldRequireAuthentication() throws Exception {
+    mockMvc.perform(get("/admin/analytics/flags"))
+        .andExpect(status().isUnauthorized());
+  }
+
+  private void evaluate(String flag, int times) throws Exception {
+    for (int i = 0; i < times; i++) {
+      mockMvc.perform(post("/api/v1/evaluate")
+              .contentType(MediaType.APPLICATION_JSON)
+              .content("{\"key\": \"user-" + i + "\", \"flags\": [\"" + flag + "\"]}"))
+          .andExpect(status().isOk());
+    }
+  }
+
+  private String createFlag(String name) throws Exception {
+    String response = mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"" + name + "\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    return response.substring(response.indexOf("\"id\":") + 5, response.indexOf(",")).trim();
+  }
+
+  private void toggleFlag(String id) throws Exception {
+    mockMvc.perform(patch("/admin/flags/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+  }
+}
@@ -0,0 +1,234 @@
+package com.controltower.controller;
+
+import com.controltower.dto.FlagAuditState;
+import com.controltower.entity.FlagChangeEntry.ChangeType;
+import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.repository.FlagAuditEntryRepository;
+import com.controltower.service.AuditLogService;
+import com.controltower.service.FlagAuditEvent;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the AuditController and the background writes of the
+ * audit log.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+    "spring.datasource.url=jdbc:h2:mem:audittestdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    // Flushed by the tests only
+    "controltower.audit.flush-interval=3600000",
+    "controltower.audit.queue-capacity=5",
+    "controltower.audit.max-failures=2"
+})
+class AuditControllerIT {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private FeatureFlagRepository featureFlagRepository;
+
+  @Autowired
+  private FlagAuditEntryRepository auditRepository;
+
+  @Autowired
+  private FlagSnapshotCache flagSnapshotCache;
+
+  @Autowired
+  private AuditLogService auditLogService;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @BeforeEach
+  void setup() {
+    featureFlagRepository.deleteAll();
+    flagSnapshotCache.refresh();
+    auditLogService.flush();
+    auditRepository.deleteAll();
+  }
+
+  @Test
+  void shouldRecordEveryChangeOfAFlag() throws Exception {
+    String id = createFlag("audit-flag");
+    mockMvc.perform(patch("/admin/flags/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+    mockMvc.perform(put("/admin/flags/" + id)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"audit-renamed\", \"description\": \"Renamed\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+    mockMvc.perform(delete("/admin/flags/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isNoContent());
+    createFlag("audit-other");
+
+    assertEquals(5, auditLogService.flush());
+    assertEquals(0, auditLogService.flush());
+
+    mockMvc.perform(get("/admin/audit")
+            .param("flagId", id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.entries.length()").value(4))
+        .andExpect(jsonPath("$.nextCursor").doesNotExist())
+        .andExpect(jsonPath("$.entries[*].action").value(
+            contains("CREATED", "TOGGLED", "UPDATED", "DELETED")))
+        .andExpect(jsonPath("$.entries[0].actor").value("admin"))
+        .andExpect(jsonPath("$.entries[0].before").doesNotExist())
+        .andExpect(jsonPath("$.entries[0].after.name").value("audit-flag"))
+        .andExpect(jsonPath("$.entries[0].after.isActive").value(false))
+        .andExpect(jsonPath("$.entries[1].before.isActive").value(false))
+        .andExpect(jsonPath("$.entries[1].after.isActive").value(true))
+        .andExpect(jsonPath("$.entries[2].flagName").value("audit-renamed"))
+        .andExpect(jsonPath("$.entries[2].before.name").value("audit-flag"))
+        .andExpect(jsonPath("$.entries[2].after.description").value("Renamed"))
+        .andExpect(jsonPath("$.entries[3].before.name").value("audit-renamed"))
+        .andExpect(jsonPath("$.entries[3].after").doesNotExist());
+  }
+
+  @Test
+  void shouldPageThroughATimeRange() throws Exception {
+    createFlag("audit-page-1");
+    createFlag("audit-page-2");
+    createFlag("audit-page-3");
+    assertEquals(3, auditLogService.flush());
+
+    String first = mockMvc.perform(get("/admin/audit")
+            .param("limit", "2")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.entries.length()").value(2))
+        .andExpect(jsonPath("$.entries[0].flagName").value("audit-page-1"))
+        .andExpect(jsonPath("$.entries[1].flagName").value("audit-page-2"))
+        .andExpect(jsonPath("$.nextCursor").exists())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+
+    mockMvc.perform(get("/admin/audit")
+            .param("limit", "2")
+            .param("after", JsonPath.<String>read(first, "$.nextCursor"))
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.entries.length()").value(1))
+        .andExpect(jsonPath("$.entries[0].flagName").value("audit-page-3"))
+        .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+    OffsetDateTime tomorrow = OffsetDateTime.now(ZoneOffset.UTC).plusDays(1);
+    mockMvc.perform(get("/admin/audit")
+            .param("from", tomorrow.toString())
+            .param("to", tomorrow.plusDays(1).toString())
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.entries.length()").value(0));
+  }
+
+  @Test
+  void shouldRejectChangesWhileTheQueueIsFull() throws Exception {
+    for (int i = 1; i <= 5; i++) {
+      createFlag("audit-queued-" + i);
+    }
+
+    // Rolled back rather than committed without its entry
+    mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"audit-rejected\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(jsonPath("$.error").value("Audit log backlogged"));
+    mockMvc.perform(get("/admin/flags")
+            .param("prefix", "audit-rejected")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(0));
+
+    assertEquals(5, auditLogService.flush());
+    createFlag("audit-rejected");
+    assertEquals(1, auditLogService.flush());
+  }
+
+  @Test
+  void shouldDropAnEntryTheDatabaseRejects() throws Exception {
+    long dropped = auditLogService.getDroppedCount();
+    // Longer than the flag_name column, queued ahead of a regular change
+    FlagAuditState state = new FlagAuditState("x".repeat(101), "default", true, null, null);
+    eventPublisher.publishEvent(new FlagAuditEvent(OffsetDateTime.now(ZoneOffset.UTC), "admin", 1L,
+        List.of(new FlagAuditEvent.Change(ChangeType.CREATED, 1L, null, state))));
+    createFlag("audit-behind-rejected");
+
+    // The batch fails as a whole, then is written entry by entry
+    assertThrows(RuntimeException.class, () -> auditLogService.flush());
+    assertThrows(RuntimeException.class, () -> auditLogService.flush());
+    assertEquals(1, auditLogService.flush());
+    assertEquals(dropped + 1, auditLogService.getDroppedCount());
+    mockMvc.perform(get("/admin/audit")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.entries.length()").value(1))
+        .andExpect(jsonPath("$.entries[0].flagName").value("audit-behind-rejected"));
+
+    // The queue has room again for every change
+    for (int i = 1; i <= 5; i++) {
+      createFlag("audit-unblocked-" + i);
+    }
+    assertEquals(5, auditLogService.flush());
+  }
+
+  @Test
+  void shouldRejectInvalidQueries() throws Exception {
+    mockMvc.perform(get("/admin/audit")
+            .param("after", "not-a-cursor")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/admin/audit")
+            .param("limit", "0")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void shouldRequireAuthentication() throws Exception {
+    mockMvc.perform(get("/admin/audit"))
+        .andExpect(status().isUnauthorized());
+  }
+
+  private String createFlag(String name) throws Exception {
+    String response = mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"" + name + "\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    return response.substring(response.indexOf("\"id\":") + 5, response.indexOf(",")).trim();
+  }
+}
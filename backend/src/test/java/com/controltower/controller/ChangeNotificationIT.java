@@ -0,0 +1,155 @@
+package com.controltower.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.testcontainers.containers.Container.ExecResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the propagation of changes committed by other nodes,
+ * against a PostgreSQL database initialized with schema.sql.
+ *
+ * The other node is simulated by committing changes over plain JDBC, the way
+ * the application does: version counter first, then the flags. Skipped when
+ * Docker is not available.
+ */
+@SpringBootTest(properties = {
+    "spring.jpa.hibernate.ddl-auto=none",
+    "spring.sql.init.mode=never",
+    "controltower.snapshot.file=",
+    "controltower.notify.poll-timeout=1000"
+})
+@AutoConfigureMockMvc
+@Testcontainers(disabledWithoutDocker = true)
+class ChangeNotificationIT {
+
+  private static final long TIMEOUT_MILLIS = 10_000;
+
+  private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @BeforeAll
+  static void startDatabase() throws Exception {
+    postgres.start();
+    postgres.copyFileToContainer(MountableFile.forClasspathResource("schema.sql"), "/tmp/schema.sql");
+    ExecResult result = postgres.execInContainer("psql", "-v", "ON_ERROR_STOP=1",
+        "-U", postgres.getUsername(), "-d", postgres.getDatabaseName(), "-f", "/tmp/schema.sql");
+    assertEquals(0, result.getExitCode(), result.getStderr());
+  }
+
+  @DynamicPropertySource
+  static void database(DynamicPropertyRegistry registry) {
+    registry.add("spring.datasource.url", postgres::getJdbcUrl);
+    registry.add("spring.datasource.username", postgres::getUsername);
+    registry.add("spring.datasource.password", postgres::getPassword);
+  }
+
+  @Test
+  void shouldServeFlagsToggledByAnotherNode() throws Exception {
+    createFlag("{\"name\": \"remote-toggle\"}");
+    mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(0));
+
+    commitAsOtherNode(
+        "UPDATE flag_set_version SET version = version + 1 WHERE id = 1",
+        "UPDATE feature_flags SET is_active = TRUE WHERE name = 'remote-toggle'");
+
+    awaitActiveFlags(null, List.of("remote-toggle"));
+  }
+
+  @Test
+  void shouldServeEnvironmentFlagsToggledByAnotherNode() throws Exception {
+    long flagId = createFlag("{\"name\": \"remote-env-toggle\", \"project\": \"remote\"}");
+    String environment = mockMvc.perform(post("/admin/environments")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"project\": \"remote\", \"key\": \"production\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    long environmentId = JsonPath.parse(environment).read("$.id", Long.class);
+    String sdkKey = JsonPath.parse(environment).read("$.sdkKey");
+    awaitActiveFlags(sdkKey, List.of());
+
+    commitAsOtherNode(
+        "UPDATE environments SET version = version + 1 WHERE id = " + environmentId,
+        "INSERT INTO flag_environment_states (environment_id, flag_id, is_active)"
+            + " VALUES (" + environmentId + ", " + flagId + ", TRUE)");
+
+    awaitActiveFlags(sdkKey, List.of("remote-env-toggle"));
+  }
+
+  private long createFlag(String body) throws Exception {
+    String response = mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    return JsonPath.parse(response).read("$.id", Long.class);
+  }
+
+  private void commitAsOtherNode(String... statements) throws Exception {
+    try (Connection connection = DriverManager.getConnection(postgres.getJdbcUrl(),
+        postgres.getUsername(), postgres.getPassword())) {
+      connection.setAutoCommit(false);
+      for (String sql : statements) {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+          statement.executeUpdate();
+        }
+      }
+      connection.commit();
+    }
+  }
+
+  private void awaitActiveFlags(String sdkKey, List<String> expected) throws Exception {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+    List<String> active;
+    do {
+      MockHttpServletRequestBuilder request = get("/api/v1/flags/active");
+      if (sdkKey != null) {
+        request.header(PublicFlagController.SDK_KEY_HEADER, sdkKey);
+      }
+      String body = mockMvc.perform(request)
+          .andExpect(status().isOk())
+          .andReturn()
+          .getResponse()
+          .getContentAsString();
+      active = JsonPath.parse(body).read("$");
+      if (active.equals(expected)) {
+        return;
+      }
+      Thread.sleep(50);
+    } while (System.currentTimeMillis() < deadline);
+    fail("Active flags are still " + active + ", expected " + expected);
+  }
+}
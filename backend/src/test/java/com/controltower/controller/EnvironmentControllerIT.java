@@ -0,0 +1,248 @@
+package com.controltower.controller;
+
+import com.controltower.repository.EnvironmentRepository;
+import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.repository.FlagEnvironmentStateRepository;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the EnvironmentController and the public API served
+ * per environment.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.properties")
+class EnvironmentControllerIT {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private FeatureFlagRepository featureFlagRepository;
+
+  @Autowired
+  private EnvironmentRepository environmentRepository;
+
+  @Autowired
+  private FlagEnvironmentStateRepository stateRepository;
+
+  @Autowired
+  private FlagSnapshotCache flagSnapshotCache;
+
+  @BeforeEach
+  void setup() {
+    stateRepository.deleteAll();
+    environmentRepository.deleteAll();
+    featureFlagRepository.deleteAll();
+    flagSnapshotCache.refresh();
+  }
+
+  @Test
+  void shouldServeFlagsPerEnvironment() throws Exception {
+    String checkout = createFlag("shop", "new-checkout");
+    createFlag("shop", "dark-mode");
+    String legacy = createFlag(null, "legacy-flag");
+    mockMvc.perform(patch("/admin/flags/" + legacy)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+
+    String staging = createEnvironment("shop", "staging");
+    String production = createEnvironment("shop", "production");
+    String stagingId = JsonPath.parse(staging).read("$.id", Long.class).toString();
+    String stagingKey = JsonPath.parse(staging).read("$.sdkKey");
+    String productionKey = JsonPath.parse(production).read("$.sdkKey");
+
+    mockMvc.perform(patch("/admin/environments/" + stagingId + "/flags/" + checkout)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.name").value("new-checkout"))
+        .andExpect(jsonPath("$.isActive").value(true));
+
+    mockMvc.perform(get("/api/v1/flags/active")
+            .header(PublicFlagController.SDK_KEY_HEADER, stagingKey))
+        .andExpect(status().isOk())
+        .andExpect(header().string(PublicFlagController.VERSION_HEADER, "1"))
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0]").value("new-checkout"));
+    mockMvc.perform(get("/api/v1/flags/active")
+            .header(PublicFlagController.SDK_KEY_HEADER, productionKey))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(0));
+    mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0]").value("legacy-flag"));
+
+    mockMvc.perform(post("/api/v1/evaluate")
+            .header(PublicFlagController.SDK_KEY_HEADER, stagingKey)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"key\": \"user-1\"}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.flags['new-checkout']").value(true))
+        .andExpect(jsonPath("$.flags['dark-mode']").value(false))
+        .andExpect(jsonPath("$.flags['legacy-flag']").doesNotExist());
+    // Counted apart from the evaluations without an SDK key
+    mockMvc.perform(get("/actuator/metrics/controltower.flag.evaluations")
+            .param("tag", "flag:new-checkout", "result:enabled", "environment:shop/staging"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.measurements[0].value").value(1.0));
+    mockMvc.perform(get("/actuator/metrics/controltower.flag.evaluations")
+            .param("tag", "flag:new-checkout", "environment:base"))
+        .andExpect(status().isNotFound());
+
+    mockMvc.perform(get("/api/v1/flags/changes")
+            .param("since", "0")
+            .header(PublicFlagController.SDK_KEY_HEADER, stagingKey))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.full").value(true))
+        .andExpect(jsonPath("$.version").value(1))
+        .andExpect(jsonPath("$.active[0]").value("new-checkout"));
+
+    mockMvc.perform(get("/admin/environments/" + stagingId + "/flags")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(2))
+        .andExpect(jsonPath("$[0].name").value("new-checkout"))
+        .andExpect(jsonPath("$[0].isActive").value(true))
+        .andExpect(jsonPath("$[1].name").value("dark-mode"))
+        .andExpect(jsonPath("$[1].isActive").value(false));
+  }
+
+  @Test
+  void shouldRebuildEnvironmentsWhenProjectFlagsChange() throws Exception {
+    String environment = createEnvironment("shop", "staging");
+    String sdkKey = JsonPath.parse(environment).read("$.sdkKey");
+
+    mockMvc.perform(get("/api/v1/flags/changes")
+            .param("since", "0")
+            .header(PublicFlagController.SDK_KEY_HEADER, sdkKey))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.full").value(false));
+
+    String id = createFlag("shop", "new-search");
+    mockMvc.perform(post("/api/v1/evaluate")
+            .header(PublicFlagController.SDK_KEY_HEADER, sdkKey)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"key\": \"user-1\"}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.version").value(1))
+        .andExpect(jsonPath("$.flags['new-search']").value(false));
+
+    mockMvc.perform(delete("/admin/flags/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isNoContent());
+    mockMvc.perform(post("/api/v1/evaluate")
+            .header(PublicFlagController.SDK_KEY_HEADER, sdkKey)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"key\": \"user-1\"}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.version").value(2))
+        .andExpect(jsonPath("$.flags['new-search']").doesNotExist());
+  }
+
+  @Test
+  void shouldScopeFlagNamesToProjects() throws Exception {
+    createFlag("shop", "shared-name");
+    createFlag("blog", "shared-name");
+    createFlag(null, "shared-name");
+
+    mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"shared-name\", \"project\": \"shop\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isConflict());
+
+    mockMvc.perform(get("/admin/flags")
+            .param("project", "blog")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].project").value("blog"));
+  }
+
+  @Test
+  void shouldRejectInvalidEnvironmentRequests() throws Exception {
+    String defaultFlag = createFlag(null, "default-only");
+    String environment = createEnvironment("shop", "staging");
+    String id = JsonPath.parse(environment).read("$.id", Long.class).toString();
+    String sdkKey = JsonPath.parse(environment).read("$.sdkKey");
+
+    mockMvc.perform(post("/admin/environments")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"project\": \"shop\", \"key\": \"staging\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isConflict())
+        .andExpect(jsonPath("$.error").value("Environment already exists"));
+    mockMvc.perform(post("/admin/environments")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"project\": \"shop\", \"key\": \"Not Valid\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isBadRequest());
+
+    mockMvc.perform(patch("/admin/environments/" + id + "/flags/" + defaultFlag)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.error").value("Flag not found"));
+
+    mockMvc.perform(get("/api/v1/flags/stream")
+            .header(PublicFlagController.SDK_KEY_HEADER, sdkKey))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/v1/flags/active")
+            .header(PublicFlagController.SDK_KEY_HEADER, "ct-unknown"))
+        .andExpect(status().isUnauthorized())
+        .andExpect(jsonPath("$.error").value("Invalid SDK key"));
+
+    mockMvc.perform(delete("/admin/environments/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isNoContent());
+    mockMvc.perform(get("/api/v1/flags/active")
+            .header(PublicFlagController.SDK_KEY_HEADER, sdkKey))
+        .andExpect(status().isUnauthorized());
+    mockMvc.perform(delete("/admin/environments/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isNotFound());
+  }
+
+  private String createFlag(String project, String name) throws Exception {
+    String body = project != null
+        ? "{\"name\": \"" + name + "\", \"project\": \"" + project + "\"}"
+        : "{\"name\": \"" + name + "\"}";
+    String response = mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    return JsonPath.parse(response).read("$.id", Long.class).toString();
+  }
+
+  private String createEnvironment(String project, String key) throws Exception {
+    return mockMvc.perform(post("/admin/environments")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"project\": \"" + project + "\", \"key\": \"" + key + "\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.sdkKey").exists())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+  }
+}
@@ -0,0 +1,347 @@
+package com.controltower.controller;
+
+import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.repository.SegmentRepository;
+import com.controltower.snapshot.FlagSnapshotCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the EvaluationController and the targeting
+ * endpoints of the admin API.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.properties")
+class EvaluationControllerIT {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private FeatureFlagRepository featureFlagRepository;
+
+  @Autowired
+  private SegmentRepository segmentRepository;
+
+  @Autowired
+  private FlagSnapshotCache flagSnapshotCache;
+
+  @BeforeEach
+  void setup() {
+    featureFlagRepository.deleteAll();
+    segmentRepository.deleteAll();
+    flagSnapshotCache.refresh();
+  }
+
+  @Test
+  void shouldEvaluateFlagsWithoutTargeting() throws Exception {
+    String active = createFlag("eval-active");
+    toggleFlag(active);
+    createFlag("eval-inactive");
+
+    mockMvc.perform(post("/api/v1/evaluate")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"key\": \"user-1\"}"))
+        .andExpect(status().isOk())
+        .andExpect(header().exists(PublicFlagController.VERSION_HEADER))
+        .andExpect(jsonPath("$.flags['eval-active']").value(true))
+        .andExpect(jsonPath("$.flags['eval-inactive']").value(false));
+
+    mockMvc.perform(post("/api/v1/evaluate")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"key\": \"user-1\", \"flags\": [\"eval-active\", \"eval-unknown\"]}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.flags.length()").value(2))
+        .andExpect(jsonPath("$.flags['eval-active']").value(true))
+        .andExpect(jsonPath("$.flags['eval-unknown']").value(false));
+  }
+
+  @Test
+  void shouldApplyTargetingRulesAndSegments() throws Exception {
+    mockMvc.perform(post("/admin/segments")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"beta-testers\", \"included\": [\"alice\"],"
+                + " \"clauses\": [{\"attribute\": \"email\", \"operator\": \"REGEX\","
+                + " \"values\": [\".*@controltower\\\\.dev\"]}]}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.name").value("beta-testers"));
+
+    String id = createFlag("eval-targeted");
+    toggleFlag(id);
+    mockMvc.perform(put("/admin/flags/" + id + "/targeting")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"rules\": ["
+                + "{\"clauses\": [{\"operator\": \"SEGMENT\", \"values\": [\"beta-testers\"]}]},"
+                + "{\"clauses\": [{\"attribute\": \"country\", \"operator\": \"IN\", \"values\": [\"BR\", \"PT\"]},"
+                + " {\"attribute\": \"plan\", \"operator\": \"EQUALS\", \"values\": [\"free\"], \"negate\": true}]}"
+                + "], \"defaultRollout\": 0}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.targeting.rules.length()").value(2));
+
+    assertEquals(true, evaluate("alice", "{}"));
+    assertEquals(true, evaluate("bob", "{\"email\": \"bob@controltower.dev\"}"));
+    assertEquals(false, evaluate("bob", "{\"email\": \"bob@example.com\"}"));
+    // Too long to be matched against a regular expression
+    assertEquals(false, evaluate("bob", "{\"email\": \"" + "b".repeat(1100) + "@controltower.dev\"}"));
+    assertEquals(true, evaluate("carol", "{\"country\": \"BR\", \"plan\": \"pro\"}"));
+    assertEquals(false, evaluate("carol", "{\"country\": \"BR\", \"plan\": \"free\"}"));
+    assertEquals(false, evaluate("dave", "{\"country\": \"US\"}"));
+
+    // Without targeting the flag is on for everyone again
+    mockMvc.perform(delete("/admin/flags/" + id + "/targeting")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.targeting").doesNotExist());
+    assertEquals(true, evaluate("dave", "{\"country\": \"US\"}"));
+  }
+
+  @Test
+  void shouldKeepPercentageRolloutsSticky() throws Exception {
+    String id = createFlag("eval-rollout");
+    toggleFlag(id);
+    mockMvc.perform(put("/admin/flags/" + id + "/targeting")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"defaultRollout\": 30}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+
+    int enabled = 0;
+    boolean[] first = new boolean[200];
+    for (int i = 0; i < first.length; i++) {
+      first[i] = evaluate("eval-rollout", "user-" + i, "{}");
+      if (first[i]) {
+        enabled++;
+      }
+    }
+    assertTrue(enabled > 30 && enabled < 90, "Expected about 30% of users, got " + enabled + " of 200");
+
+    // Renaming the flag keeps every user in the same bucket
+    mockMvc.perform(put("/admin/flags/" + id)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"eval-rollout-renamed\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+    for (int i = 0; i < first.length; i++) {
+      assertEquals(first[i], evaluate("eval-rollout-renamed", "user-" + i, "{}"));
+    }
+  }
+
+  @Test
+  void shouldRejectInvalidTargeting() throws Exception {
+    String id = createFlag("eval-invalid");
+
+    mockMvc.perform(put("/admin/flags/" + id + "/targeting")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"rules\": [{\"clauses\": [{\"attribute\": \"email\", \"operator\": \"REGEX\","
+                + " \"values\": [\"[unclosed\"]}]}]}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error").value("Invalid targeting"));
+
+    // Exponential backtracking on crafted values
+    mockMvc.perform(put("/admin/flags/" + id + "/targeting")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"rules\": [{\"clauses\": [{\"attribute\": \"email\", \"operator\": \"REGEX\","
+                + " \"values\": [\"([a-z]+\\\\.?)+@example\\\\.com\"]}]}]}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error").value("Invalid targeting"));
+
+    for (String regex : List.of("(a|a)+$", "(a|aa)*b")) {
+      mockMvc.perform(put("/admin/flags/" + id + "/targeting")
+              .contentType(MediaType.APPLICATION_JSON)
+              .content("{\"rules\": [{\"clauses\": [{\"attribute\": \"email\", \"operator\": \"REGEX\","
+                  + " \"values\": [\"" + regex + "\"]}]}]}")
+              .with(httpBasic("admin", "admin123")))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value("Regular expression repeats a group with alternatives: " + regex));
+    }
+
+    // A bound too large for an int
+    mockMvc.perform(put("/admin/flags/" + id + "/targeting")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"rules\": [{\"clauses\": [{\"attribute\": \"email\", \"operator\": \"REGEX\","
+                + " \"values\": [\"(a+){1,99999999999}\"]}]}]}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error").value("Invalid targeting"));
+
+    // Bounded alternatives and property escapes are fine
+    mockMvc.perform(put("/admin/flags/" + id + "/targeting")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"rules\": [{\"clauses\": [{\"attribute\": \"email\", \"operator\": \"REGEX\","
+                + " \"values\": [\"(\\\\p{L}|-){1,10}@example\\\\.com\"]}]}]}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(put("/admin/flags/" + id + "/targeting")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"rules\": [{\"clauses\": [{\"attribute\": \"plan\", \"operator\": \"EQUALS\","
+                + " \"values\": [\"pro\", \"team\"]}]}]}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Operator EQUALS takes a single value, use IN for several"));
+
+    mockMvc.perform(put("/admin/flags/" + id + "/targeting")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"rules\": [{\"clauses\": [{\"operator\": \"SEGMENT\", \"values\": [\"missing\"]}]}]}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Unknown segment: missing"));
+
+    mockMvc.perform(put("/admin/flags/" + id + "/targeting")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"defaultRollout\": 150}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void shouldEvaluateBatchesInInputOrder() throws Exception {
+    String id = createFlag("eval-batch");
+    toggleFlag(id);
+    mockMvc.perform(put("/admin/flags/" + id + "/targeting")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"rules\": [{\"clauses\": [{\"attribute\": \"plan\", \"operator\": \"EQUALS\","
+                + " \"values\": [\"pro\"]}]}], \"defaultRollout\": 0}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+
+    StringBuilder array = new StringBuilder("[");
+    StringBuilder ndjson = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      String context = "{\"key\": \"user-" + i + "\", \"attributes\": {\"plan\": \""
+          + (i % 2 == 0 ? "pro" : "free") + "\"}}";
+      array.append(i > 0 ? "," : "").append(context);
+      ndjson.append(context).append('\n');
+    }
+    array.append(']');
+
+    MvcResult arrayResult = mockMvc.perform(post("/api/v1/evaluate/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(array.toString()))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    mockMvc.perform(asyncDispatch(arrayResult))
+        .andExpect(status().isOk())
+        .andExpect(header().exists(PublicFlagController.VERSION_HEADER))
+        .andExpect(jsonPath("$.length()").value(1000))
+        .andExpect(jsonPath("$[0].key").value("user-0"))
+        .andExpect(jsonPath("$[0].flags['eval-batch']").value(true))
+        .andExpect(jsonPath("$[999].key").value("user-999"))
+        .andExpect(jsonPath("$[999].flags['eval-batch']").value(false));
+
+    MvcResult ndjsonResult = mockMvc.perform(post("/api/v1/evaluate/batch")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .content(ndjson.toString()))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    String[] lines = mockMvc.perform(asyncDispatch(ndjsonResult))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+        .andReturn()
+        .getResponse()
+        .getContentAsString()
+        .split("\n");
+    assertEquals(1000, lines.length);
+    for (int i = 0; i < lines.length; i++) {
+      assertTrue(lines[i].startsWith("{\"key\":\"user-" + i + "\","), lines[i]);
+      assertTrue(lines[i].contains("\"eval-batch\":" + (i % 2 == 0)), lines[i]);
+    }
+  }
+
+  @Test
+  void shouldCountEvaluationsPerFlag() throws Exception {
+    String id = createFlag("eval-counted");
+    toggleFlag(id);
+    evaluate("eval-counted", "user-1", "{}");
+    evaluate("eval-counted", "user-2", "{}");
+    toggleFlag(id);
+    evaluate("eval-counted", "user-3", "{}");
+
+    // Counts survive the flag being recompiled after each change
+    mockMvc.perform(get("/actuator/metrics/controltower.flag.evaluations")
+            .param("tag", "flag:eval-counted", "result:enabled"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.measurements[0].value").value(2.0));
+    mockMvc.perform(get("/actuator/metrics/controltower.flag.evaluations")
+            .param("tag", "flag:eval-counted", "result:disabled"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.measurements[0].value").value(1.0));
+
+    mockMvc.perform(put("/admin/flags/" + id)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"eval-recounted\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(get("/actuator/metrics/controltower.flag.evaluations")
+            .param("tag", "flag:eval-counted"))
+        .andExpect(status().isNotFound());
+    mockMvc.perform(get("/actuator/metrics/controltower.flag.evaluations")
+            .param("tag", "flag:eval-recounted", "result:enabled"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.measurements[0].value").value(2.0));
+    mockMvc.perform(get("/actuator/metrics/controltower.snapshot.version.lag"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.measurements[0].value").value(0.0));
+  }
+
+  private boolean evaluate(String key, String attributes) throws Exception {
+    return evaluate("eval-targeted", key, attributes);
+  }
+
+  private boolean evaluate(String flag, String key, String attributes) throws Exception {
+    String response = mockMvc.perform(post("/api/v1/evaluate")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"key\": \"" + key + "\", \"attributes\": " + attributes
+                + ", \"flags\": [\"" + flag + "\"]}"))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    return response.contains("\"" + flag + "\":true");
+  }
+
+  private String createFlag(String name) throws Exception {
+    String response = mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"" + name + "\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    return response.substring(response.indexOf("\"id\":") + 5, response.indexOf(",")).trim();
+  }
+
+  private void toggleFlag(String id) throws Exception {
+    mockMvc.perform(patch("/admin/flags/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+  }
+}
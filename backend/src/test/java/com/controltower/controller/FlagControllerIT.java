@@ -1,6 +1,13 @@
 package com.controltower.controller;
 
+import com.controltower.entity.FeatureFlag;
+import com.controltower.entity.FlagChangeEntry;
 import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.repository.FlagChangeEntryRepository;
+import com.controltower.service.FlagChangeLogService;
+import com.controltower.service.FlagService;
+import com.jayway.jsonpath.JsonPath;
+import com.controltower.snapshot.FlagSnapshotCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +17,17 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -29,9 +47,23 @@ class FlagControllerIT {
     @Autowired
     private FeatureFlagRepository featureFlagRepository;
 
+    @Autowired
+    private FlagSnapshotCache flagSnapshotCache;
+
+    @Autowired
+    private FlagService flagService;
+
+    @Autowired
+    private FlagChangeLogService flagChangeLogService;
+
+    @Autowired
+    private FlagChangeEntryRepository flagChangeEntryRepository;
+
     @BeforeEach
     void setup() {
         featureFlagRepository.deleteAll();
+        // deleteAll bypasses the service, so rebuild the public snapshot by hand
+        flagSnapshotCache.refresh();
     }
 
     @Test
@@ -369,4 +401,232 @@ class FlagControllerIT {
             .andExpect(jsonPath("$.error").value("Flag already exists"))
             .andExpect(jsonPath("$.message").value("A flag with the name already exists: existing-flag"));
     }
+
+    @Test
+    void shouldPageFilterAndProjectFlagList() throws Exception {
+        for (String name : new String[] {"page-a", "page-b", "page-c", "other-d", "page_e"}) {
+            mockMvc.perform(post("/admin/flags")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"name\": \"" + name + "\", \"description\": \"Flag " + name + "\"}")
+                    .with(httpBasic("admin", "admin123")))
+                .andExpect(status().isCreated());
+        }
+
+        // First page of the flags named "page-...": the underscore is not a wildcard
+        String link = mockMvc.perform(get("/admin/flags")
+                .param("prefix", "page-")
+                .param("limit", "2")
+                .param("fields", "name")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2))
+            .andExpect(jsonPath("$[0].id").exists())
+            .andExpect(jsonPath("$[0].name").value("page-a"))
+            .andExpect(jsonPath("$[0].description").doesNotExist())
+            .andExpect(jsonPath("$[0].isActive").doesNotExist())
+            .andExpect(jsonPath("$[1].name").value("page-b"))
+            .andExpect(header().string("Link", containsString("rel=\"next\"")))
+            .andReturn()
+            .getResponse()
+            .getHeader("Link");
+
+        String next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        mockMvc.perform(get(next)
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].name").value("page-c"))
+            .andExpect(header().doesNotExist("Link"));
+
+        mockMvc.perform(get("/admin/flags")
+                .param("active", "true")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(get("/admin/flags")
+                .param("fields", "name,secret")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("Unknown field: secret"));
+
+        mockMvc.perform(get("/admin/flags")
+                .param("limit", "0")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldApplyBulkOperationsAsOneVersion() throws Exception {
+        String created = mockMvc.perform(post("/admin/flags/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"create\": [{\"name\": \"bulk-a\"}, {\"name\": \"bulk-b\"}, {\"name\": \"bulk-c\"}]}")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created.length()").value(3))
+            .andExpect(jsonPath("$.created[0].name").value("bulk-a"))
+            .andExpect(jsonPath("$.created[0].isActive").value(false))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+        long version = JsonPath.parse(created).read("$.version", Long.class);
+        Long a = JsonPath.parse(created).read("$.created[0].id", Long.class);
+        Long b = JsonPath.parse(created).read("$.created[1].id", Long.class);
+        Long c = JsonPath.parse(created).read("$.created[2].id", Long.class);
+
+        mockMvc.perform(post("/admin/flags/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"toggle\": [" + a + ", " + b + "], \"delete\": [" + c + "],"
+                    + " \"create\": [{\"name\": \"bulk-c\", \"description\": \"Recreated\"}]}")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.version").value(version + 1))
+            .andExpect(jsonPath("$.toggled.length()").value(2))
+            .andExpect(jsonPath("$.toggled[0].isActive").value(true))
+            .andExpect(jsonPath("$.deleted[0]").value(c))
+            .andExpect(jsonPath("$.created[0].description").value("Recreated"));
+
+        // Clients holding the first version get every change in one delta
+        mockMvc.perform(get("/api/v1/flags/changes").param("since", String.valueOf(version)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.version").value(version + 1))
+            .andExpect(jsonPath("$.added.length()").value(2));
+
+        // A missing flag rolls the whole request back
+        mockMvc.perform(post("/admin/flags/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"toggle\": [" + a + ", 999999], \"delete\": [" + b + "]}")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isNotFound())
+            .andExpect(jsonPath("$.message").value("Flags not found with IDs: [999999]"));
+        mockMvc.perform(get("/api/v1/flags/active"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2));
+
+        mockMvc.perform(post("/admin/flags/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"toggle\": [" + a + "], \"delete\": [" + a + "]}")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("Invalid bulk request"));
+        mockMvc.perform(post("/admin/flags/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"create\": [{\"name\": \"bulk-a\"}]}")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isConflict());
+    }
+
+    @Test
+    void shouldRejectChangesToAnOutdatedRevision() throws Exception {
+        String created = mockMvc.perform(post("/admin/flags")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"guarded-flag\"}")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.revision").value(0))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+        String id = JsonPath.parse(created).read("$.id", Long.class).toString();
+
+        mockMvc.perform(get("/admin/flags/" + id)
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"0\""));
+
+        // The toggle is applied to the stored state and returns the new revision
+        mockMvc.perform(patch("/admin/flags/" + id)
+                .header("If-Match", "\"0\"")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"1\""))
+            .andExpect(jsonPath("$.isActive").value(true))
+            .andExpect(jsonPath("$.revision").value(1));
+
+        // Another admin still holding revision 0 cannot overwrite that change
+        mockMvc.perform(patch("/admin/flags/" + id)
+                .header("If-Match", "\"0\"")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isPreconditionFailed())
+            .andExpect(jsonPath("$.error").value("Precondition failed"));
+        mockMvc.perform(put("/admin/flags/" + id)
+                .header("If-Match", "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"renamed-flag\"}")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/admin/flags/" + id)
+                .header("If-Match", "not-a-revision")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(put("/admin/flags/" + id)
+                .header("If-Match", "\"1\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"renamed-flag\"}")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"2\""))
+            .andExpect(jsonPath("$.name").value("renamed-flag"))
+            .andExpect(jsonPath("$.isActive").value(true));
+        mockMvc.perform(delete("/admin/flags/" + id)
+                .header("If-Match", "*")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isNoContent());
+        mockMvc.perform(patch("/admin/flags/" + id)
+                .header("If-Match", "\"2\"")
+                .with(httpBasic("admin", "admin123")))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldCommitConcurrentTogglesInVersionOrderAtTheRateOfOneWriter() throws Exception {
+        // Every mutation takes the next flag set version from one counter row,
+        // locked until commit: toggles of different flags commit one at a time,
+        // in version order, at about the rate of a single writer.
+        int writers = 8;
+        int togglesPerWriter = 25;
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            ids.add(featureFlagRepository.save(new FeatureFlag("concurrent-" + i, null, false)).getId());
+        }
+
+        long sequentialStart = System.nanoTime();
+        for (int i = 0; i < writers * togglesPerWriter; i++) {
+            flagService.toggleFlag(ids.get(0), null);
+        }
+        long sequentialNanos = System.nanoTime() - sequentialStart;
+
+        long before = flagChangeLogService.getCurrentVersion();
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            long concurrentStart = System.nanoTime();
+            List<Future<?>> results = new ArrayList<>();
+            for (Long id : ids) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < togglesPerWriter; i++) {
+                        flagService.toggleFlag(id, null);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            long concurrentNanos = System.nanoTime() - concurrentStart;
+            assertTrue(concurrentNanos < sequentialNanos * 3 + 1_000_000_000L,
+                    "Concurrent toggles took " + concurrentNanos / 1_000_000 + " ms, one writer "
+                            + sequentialNanos / 1_000_000 + " ms");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // One version per toggle, none shared
+        long after = flagChangeLogService.getCurrentVersion();
+        assertEquals(writers * togglesPerWriter, after - before);
+        Set<Long> versions = new HashSet<>();
+        for (FlagChangeEntry change : flagChangeEntryRepository.findChangesBetween(before, after)) {
+            versions.add(change.getVersion());
+        }
+        assertEquals(writers * togglesPerWriter, versions.size());
+    }
 }
@@ -0,0 +1,212 @@
+package com.controltower.controller;
+
+import com.controltower.entity.FlagSchedule;
+import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.repository.FlagScheduleRepository;
+import com.controltower.scheduling.FlagScheduler;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the FlagScheduleController and the execution of
+ * schedules by the FlagScheduler.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+    "spring.datasource.url=jdbc:h2:mem:scheduletestdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "controltower.schedules.poll-interval=500",
+    "controltower.schedules.max-failures=2"
+})
+class FlagScheduleControllerIT {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private FeatureFlagRepository featureFlagRepository;
+
+  @Autowired
+  private FlagScheduleRepository scheduleRepository;
+
+  @Autowired
+  private FlagSnapshotCache flagSnapshotCache;
+
+  @Autowired
+  private FlagScheduler flagScheduler;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void setup() {
+    scheduleRepository.deleteAll();
+    featureFlagRepository.deleteAll();
+    flagSnapshotCache.refresh();
+  }
+
+  @Test
+  void shouldExecuteScheduleThroughTheFlagService() throws Exception {
+    assertTrue(flagScheduler.isLeader());
+    String id = createFlag("scheduled-flag");
+
+    mockMvc.perform(post("/admin/flags/" + id + "/schedules")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"action\": \"ENABLE\", \"delay\": \"PT0.5S\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.action").value("ENABLE"))
+        .andExpect(jsonPath("$.status").value("PENDING"))
+        .andExpect(jsonPath("$.createdBy").value("admin"));
+
+    // Served by the public API once executed, so the snapshot was rebuilt
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!flagSnapshotCache.current().getActiveFlagNames().contains("scheduled-flag")
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+    mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0]").value("scheduled-flag"));
+
+    mockMvc.perform(get("/admin/flags/" + id + "/schedules")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].status").value("EXECUTED"))
+        .andExpect(jsonPath("$[0].completedAt").exists());
+    mockMvc.perform(get("/admin/flags/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.isActive").value(true))
+        .andExpect(jsonPath("$.revision").value(1));
+  }
+
+  @Test
+  void shouldFailScheduleAfterRepeatedErrors() throws Exception {
+    String id = createFlag("failing-schedule-flag");
+    mockMvc.perform(post("/admin/flags/" + id + "/schedules")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"action\": \"ENABLE\", \"delay\": \"PT0.2S\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated());
+
+    // Flag changes fail, while the schedule itself can still be updated
+    jdbcTemplate.execute("ALTER TABLE flag_set_version RENAME TO flag_set_version_broken");
+    try {
+      long deadline = System.currentTimeMillis() + 10_000;
+      while (scheduleRepository.findByFlagIdOrderByExecuteAtAscIdAsc(Long.valueOf(id)).get(0).getStatus()
+          == FlagSchedule.Status.PENDING && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+    } finally {
+      jdbcTemplate.execute("ALTER TABLE flag_set_version_broken RENAME TO flag_set_version");
+    }
+
+    mockMvc.perform(get("/admin/flags/" + id + "/schedules")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].status").value("FAILED"))
+        .andExpect(jsonPath("$[0].error").exists());
+    assertEquals(2, scheduleRepository.findByFlagIdOrderByExecuteAtAscIdAsc(Long.valueOf(id)).get(0).getAttempts());
+    mockMvc.perform(get("/admin/flags/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.isActive").value(false));
+  }
+
+  @Test
+  void shouldCancelPendingSchedule() throws Exception {
+    String id = createFlag("cancelled-flag");
+    String executeAt = OffsetDateTime.now(ZoneOffset.UTC).plusHours(2).toString();
+
+    String response = mockMvc.perform(post("/admin/flags/" + id + "/schedules")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"action\": \"DISABLE\", \"executeAt\": \"" + executeAt + "\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    Integer scheduleId = JsonPath.read(response, "$.id");
+
+    mockMvc.perform(delete("/admin/schedules/" + scheduleId)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isNoContent());
+    mockMvc.perform(delete("/admin/schedules/" + scheduleId)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.error").value("Schedule not found"));
+
+    mockMvc.perform(get("/admin/flags/" + id + "/schedules")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].status").value("CANCELLED"));
+  }
+
+  @Test
+  void shouldRejectInvalidSchedules() throws Exception {
+    String id = createFlag("invalid-schedule-flag");
+    String past = OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(1).toString();
+
+    mockMvc.perform(post("/admin/flags/" + id + "/schedules")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"action\": \"ENABLE\", \"executeAt\": \"" + past + "\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.error").value("Invalid schedule"));
+    mockMvc.perform(post("/admin/flags/" + id + "/schedules")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"action\": \"ENABLE\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(post("/admin/flags/" + id + "/schedules")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"delay\": \"PT1H\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isBadRequest());
+    mockMvc.perform(post("/admin/flags/999999/schedules")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"action\": \"ENABLE\", \"delay\": \"PT1H\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  void shouldRequireAuthentication() throws Exception {
+    mockMvc.perform(get("/admin/flags/1/schedules"))
+        .andExpect(status().isUnauthorized());
+  }
+
+  private String createFlag(String name) throws Exception {
+    String response = mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"" + name + "\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    return response.substring(response.indexOf("\"id\":") + 5, response.indexOf(",")).trim();
+  }
+}
@@ -0,0 +1,209 @@
+package com.controltower.controller;
+
+import com.controltower.ControlTowerApplication;
+import com.controltower.config.BackgroundThreads;
+import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.repository.FlagSetVersionRepository;
+import com.controltower.repository.SegmentRepository;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.controltower.snapshot.FlagSnapshotFile;
+import com.controltower.snapshot.FlagSnapshotPublishedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.FileSystemUtils;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the local snapshot file and for serving the last
+ * known flags while the database cannot be reached.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+    "spring.datasource.url=jdbc:h2:mem:snapshotfiletestdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "controltower.snapshot.file=target/snapshot-file-it/flags.snapshot",
+    "controltower.snapshot.verify-interval=3600000"
+})
+class FlagSnapshotFileIT {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private FlagSnapshotCache flagSnapshotCache;
+
+  @Autowired
+  private FeatureFlagRepository featureFlagRepository;
+
+  @Autowired
+  private FlagSetVersionRepository flagSetVersionRepository;
+
+  @Autowired
+  private SegmentRepository segmentRepository;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private DataSourceProperties dataSourceProperties;
+
+  @Autowired
+  private BackgroundThreads backgroundThreads;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeAll
+  static void removeStoredSnapshot() {
+    // A snapshot of a previous run would be restored into the new database
+    FileSystemUtils.deleteRecursively(Path.of("target/snapshot-file-it").toFile());
+  }
+
+  @Test
+  void shouldStoreAndRestoreTheLatestSnapshot() throws Exception {
+    String id = createFlag("stored-flag");
+    mockMvc.perform(patch("/admin/flags/" + id).with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+    long version = flagSnapshotCache.current().getVersion();
+
+    // Written in the background; a restarting node serves it before reaching the database
+    FlagSnapshotCache restarted = restoreStoredSnapshot();
+    for (int i = 0; i < 100 && (restarted.peek() == null || restarted.peek().getVersion() != version); i++) {
+      Thread.sleep(50);
+      restarted = restoreStoredSnapshot();
+    }
+    assertNotNull(restarted.peek());
+    assertEquals(version, restarted.peek().getVersion());
+    assertTrue(restarted.peek().getActiveFlagNames().contains("stored-flag"));
+    assertTrue(restarted.getStalenessSeconds() >= 0);
+
+    // Until it is reconciled with the database
+    restarted.verify();
+    assertEquals(-1, restarted.getStalenessSeconds());
+  }
+
+  @Test
+  void shouldServeTheLastKnownFlagsWhileTheDatabaseIsDown() throws Exception {
+    String id = createFlag("outage-flag");
+    mockMvc.perform(patch("/admin/flags/" + id).with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(PublicFlagController.STALE_HEADER));
+
+    jdbcTemplate.execute("ALTER TABLE flag_set_version RENAME TO flag_set_version_offline");
+    try {
+      flagSnapshotCache.verify();
+
+      mockMvc.perform(get("/api/v1/flags/active"))
+          .andExpect(status().isOk())
+          .andExpect(header().exists(PublicFlagController.STALE_HEADER))
+          .andExpect(jsonPath("$[?(@ == 'outage-flag')]").exists());
+      mockMvc.perform(get("/api/v1/flags/changes").param("since", "0"))
+          .andExpect(status().isOk())
+          .andExpect(header().exists(PublicFlagController.STALE_HEADER));
+    } finally {
+      jdbcTemplate.execute("ALTER TABLE flag_set_version_offline RENAME TO flag_set_version");
+    }
+
+    flagSnapshotCache.verify();
+    mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(PublicFlagController.STALE_HEADER));
+  }
+
+  @Test
+  void shouldStartFromTheStoredSnapshotWhileTheDatabaseIsDown() throws Exception {
+    String id = createFlag("boot-flag");
+    mockMvc.perform(patch("/admin/flags/" + id).with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+
+    // Stored by a node of a database that is now down
+    String offlineUrl = "jdbc:h2:tcp://127.0.0.1:1/offline";
+    DataSourceProperties offline = new DataSourceProperties();
+    offline.setUrl(offlineUrl);
+    FlagSnapshotFile file = new FlagSnapshotFile(flagSnapshotCache, objectMapper, offline,
+        backgroundThreads, "target/snapshot-file-it/offline.snapshot");
+    file.onSnapshotPublished(new FlagSnapshotPublishedEvent(null, flagSnapshotCache.current()));
+    file.stop();
+
+    try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ControlTowerApplication.class)
+        .run("--server.port=0",
+            "--spring.datasource.url=" + offlineUrl,
+            "--spring.datasource.username=sa",
+            "--spring.datasource.hikari.connection-timeout=250",
+            "--spring.sql.init.mode=never",
+            "--spring.jpa.hibernate.ddl-auto=none",
+            "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+            "--spring.jpa.properties.hibernate.temp.use_jdbc_metadata_defaults=false",
+            "--controltower.snapshot.file=target/snapshot-file-it/offline.snapshot")) {
+      String port = context.getEnvironment().getProperty("local.server.port");
+      HttpResponse<String> response = HttpClient.newHttpClient().send(
+          HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/flags/active")).build(),
+          HttpResponse.BodyHandlers.ofString());
+
+      assertEquals(200, response.statusCode());
+      assertTrue(response.body().contains("\"boot-flag\""));
+      assertTrue(response.headers().firstValue(PublicFlagController.STALE_HEADER).isPresent());
+    }
+  }
+
+  private FlagSnapshotCache restoreStoredSnapshot() throws InterruptedException {
+    FlagSnapshotCache restarted = new FlagSnapshotCache(featureFlagRepository, flagSetVersionRepository,
+        segmentRepository, objectMapper, eventPublisher, transactionManager);
+    FlagSnapshotFile file = new FlagSnapshotFile(restarted, objectMapper, dataSourceProperties,
+        backgroundThreads, "target/snapshot-file-it/flags.snapshot");
+    try {
+      file.restore();
+    } finally {
+      file.stop();
+    }
+    return restarted;
+  }
+
+  private String createFlag(String name) throws Exception {
+    String response = mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"" + name + "\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    return JsonPath.parse(response).read("$.id", Long.class).toString();
+  }
+}
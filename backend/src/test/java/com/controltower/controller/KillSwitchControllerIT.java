@@ -0,0 +1,139 @@
+package com.controltower.controller;
+
+import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.snapshot.FlagSnapshot;
+import com.controltower.snapshot.FlagSnapshotCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the KillSwitchController and the kills held by the
+ * FlagSnapshotCache until persisted.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.properties")
+class KillSwitchControllerIT {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private FeatureFlagRepository featureFlagRepository;
+
+  @Autowired
+  private FlagSnapshotCache flagSnapshotCache;
+
+  @BeforeEach
+  void setup() {
+    featureFlagRepository.deleteAll();
+    flagSnapshotCache.refresh();
+  }
+
+  @Test
+  void shouldServeKilledFlagAsOffAndPersistIt() throws Exception {
+    String id = createActiveFlag("killed-flag");
+
+    mockMvc.perform(post("/admin/flags/" + id + "/kill")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isAccepted())
+        .andExpect(jsonPath("$.name").value("killed-flag"))
+        .andExpect(jsonPath("$.active").value(false));
+    // Off as soon as the request returned, persisted or not
+    mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(0));
+
+    long deadline = System.currentTimeMillis() + 10_000;
+    while ((!flagSnapshotCache.getPendingKills().isEmpty() || flagSnapshotCache.current().isProvisional())
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+    assertTrue(flagSnapshotCache.getPendingKills().isEmpty());
+    assertFalse(flagSnapshotCache.current().isProvisional());
+    mockMvc.perform(get("/admin/flags/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.isActive").value(false))
+        .andExpect(jsonPath("$.revision").value(2));
+  }
+
+  @Test
+  void shouldOverrideChangesCommittedBeforeTheKillIsPersisted() throws Exception {
+    String id = createActiveFlag("overridden-flag");
+    long flagId = Long.parseLong(id);
+
+    // A kill pulled on another node, not persisted yet
+    assertFalse(flagSnapshotCache.kill(flagId, false).isActive());
+    mockMvc.perform(patch("/admin/flags/" + id).with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+    mockMvc.perform(patch("/admin/flags/" + id).with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.isActive").value(true));
+    FlagSnapshot snapshot = flagSnapshotCache.current();
+    assertTrue(snapshot.isProvisional());
+    assertEquals(List.of(), snapshot.getActiveFlagNames());
+
+    // Persisted with the next version: changes from that version on apply
+    flagSnapshotCache.confirmKill(flagId, snapshot.getVersion() + 1);
+    assertEquals(List.of(), flagSnapshotCache.current().getActiveFlagNames());
+    createActiveFlag("later-flag");
+    snapshot = flagSnapshotCache.current();
+    assertFalse(snapshot.isProvisional());
+    assertEquals(List.of("overridden-flag", "later-flag"), snapshot.getActiveFlagNames());
+  }
+
+  @Test
+  void shouldDropUnpersistedKillsOfOtherNodes() throws Exception {
+    long flagId = Long.parseLong(createActiveFlag("expired-kill-flag"));
+
+    flagSnapshotCache.kill(flagId, false);
+    assertEquals(List.of(), flagSnapshotCache.current().getActiveFlagNames());
+    Thread.sleep(5);
+
+    assertEquals(List.of(flagId), flagSnapshotCache.expireKills(0));
+    assertFalse(flagSnapshotCache.current().isProvisional());
+    assertEquals(List.of("expired-kill-flag"), flagSnapshotCache.current().getActiveFlagNames());
+  }
+
+  @Test
+  void shouldRejectUnknownFlagsAndAnonymousKills() throws Exception {
+    mockMvc.perform(post("/admin/flags/999999/kill")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isNotFound());
+    mockMvc.perform(post("/admin/flags/1/kill"))
+        .andExpect(status().isUnauthorized());
+  }
+
+  private String createActiveFlag(String name) throws Exception {
+    String response = mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"" + name + "\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    String id = response.substring(response.indexOf("\"id\":") + 5, response.indexOf(",")).trim();
+    mockMvc.perform(patch("/admin/flags/" + id).with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+    return id;
+  }
+}
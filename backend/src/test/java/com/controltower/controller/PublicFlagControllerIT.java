@@ -1,13 +1,55 @@
 package com.controltower.controller;
 
+import com.aayushatharva.brotli4j.decoder.Decoder;
+import com.controltower.entity.FeatureFlag;
+import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.snapshot.BinaryFlagSet;
+import com.controltower.snapshot.BinaryFlagSetDecoder;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import jakarta.servlet.Filter;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 /**
@@ -17,12 +59,27 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  */
 @SpringBootTest
 @AutoConfigureMockMvc
-@TestPropertySource(locations = "classpath:application-test.properties")
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+    // Its own context, because of StallingFilter, so its own database
+    "spring.datasource.url=jdbc:h2:mem:publictestdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
 class PublicFlagControllerIT {
 
   @Autowired
   private MockMvc mockMvc;
 
+  @Autowired
+  private FeatureFlagRepository featureFlagRepository;
+
+  @Autowired
+  private FlagSnapshotCache flagSnapshotCache;
+
+  @BeforeEach
+  void setup() {
+    featureFlagRepository.deleteAll();
+    flagSnapshotCache.refresh();
+  }
+
   @Test
   void shouldReturnActiveFlagsWithoutAuthentication() throws Exception {
     // Act & Assert: Get active flags without authentication
@@ -62,4 +119,503 @@ class PublicFlagControllerIT {
     // environment)
     assert responseTime < 100 : "Response time should be under 100ms, was: " + responseTime + "ms";
   }
+
+  @Test
+  void shouldReflectAdminChangesInActiveFlags() throws Exception {
+    // Arrange: Create a flag and activate it through the admin API
+    String response = mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("""
+                {
+                    "name": "cached-flag",
+                    "description": "Flag served from the snapshot"
+                }
+            """)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    String id = response.substring(response.indexOf("\"id\":") + 5, response.indexOf(",")).trim();
+
+    mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(0));
+
+    mockMvc.perform(patch("/admin/flags/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+
+    // Act & Assert: The toggle is visible as soon as the admin call returns
+    mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0]").value("cached-flag"));
+
+    // Renames and deletes are reflected as well
+    mockMvc.perform(put("/admin/flags/" + id)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("""
+                {
+                    "name": "renamed-flag",
+                    "description": "Flag served from the snapshot"
+                }
+            """)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(jsonPath("$[0]").value("renamed-flag"));
+
+    mockMvc.perform(delete("/admin/flags/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isNoContent());
+
+    mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(jsonPath("$.length()").value(0));
+  }
+
+  @Test
+  void shouldServeCompressedPayloadWhenAccepted() throws Exception {
+    // Arrange: Enough active flags for compression to pay off
+    List<FeatureFlag> flags = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      flags.add(new FeatureFlag("compressed-flag-" + i, null, true));
+    }
+    featureFlagRepository.saveAll(flags);
+    flagSnapshotCache.refresh();
+
+    String plain = mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+        .andExpect(jsonPath("$.length()").value(50))
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+
+    // Act & Assert: gzip is served when it is the only accepted coding
+    MvcResult gzipped = mockMvc.perform(get("/api/v1/flags/active")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/json"))
+        .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+        .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+        .andReturn();
+    try (GZIPInputStream in = new GZIPInputStream(
+        new ByteArrayInputStream(gzipped.getResponse().getContentAsByteArray()))) {
+      assertEquals(plain, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    // Brotli is preferred over gzip when both are accepted
+    MvcResult brotli = mockMvc.perform(get("/api/v1/flags/active")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "br"))
+        .andReturn();
+    byte[] decoded = Decoder.decompress(brotli.getResponse().getContentAsByteArray()).getDecompressedData();
+    assertEquals(plain, new String(decoded, StandardCharsets.UTF_8));
+
+    // A coding refused with q=0 is never served
+    mockMvc.perform(get("/api/v1/flags/active")
+            .header(HttpHeaders.ACCEPT_ENCODING, "br;q=0, gzip;q=0.5"))
+        .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+  }
+
+  @Test
+  void shouldReturnNotModifiedWhenETagMatches() throws Exception {
+    // Arrange: An active flag and the ETag of the current list
+    FeatureFlag flag = featureFlagRepository.save(new FeatureFlag("etag-flag", "Before", true));
+    flagSnapshotCache.refresh();
+
+    String etag = mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(status().isOk())
+        .andExpect(header().exists(HttpHeaders.ETAG))
+        .andReturn()
+        .getResponse()
+        .getHeader(HttpHeaders.ETAG);
+
+    // Act & Assert: The same ETag yields 304 with an empty body
+    mockMvc.perform(get("/api/v1/flags/active")
+            .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, etag))
+        .andExpect(content().string(""));
+
+    // A change that does not affect the active list keeps the ETag
+    mockMvc.perform(put("/admin/flags/" + flag.getId())
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("""
+                {
+                    "name": "etag-flag",
+                    "description": "After"
+                }
+            """)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+
+    mockMvc.perform(get("/api/v1/flags/active")
+            .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified());
+
+    // Toggling the flag invalidates it
+    mockMvc.perform(patch("/admin/flags/" + flag.getId())
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+
+    String newEtag = mockMvc.perform(get("/api/v1/flags/active")
+            .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(0))
+        .andReturn()
+        .getResponse()
+        .getHeader(HttpHeaders.ETAG);
+    assertNotEquals(etag, newEtag);
+  }
+
+  @Test
+  void shouldStreamSnapshotAndChanges() throws Exception {
+    // Arrange: One active flag before the client connects
+    FeatureFlag flag = featureFlagRepository.save(new FeatureFlag("streamed-flag", null, true));
+    long connectedVersion = flagSnapshotCache.refresh().getVersion();
+
+    // Act: Connect to the stream
+    MvcResult stream = mockMvc.perform(get("/api/v1/flags/stream"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    // Assert: The stream opens with the full list of active flags
+    String opening = stream.getResponse().getContentAsString();
+    assertTrue(opening.contains("id:" + connectedVersion + "\nevent:snapshot\ndata:[\"streamed-flag\"]"), opening);
+
+    // A toggle is pushed to the open stream
+    mockMvc.perform(patch("/admin/flags/" + flag.getId())
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+    String toggled = awaitContent(stream, "event:toggled");
+    assertTrue(toggled.contains("\"name\":\"streamed-flag\""), toggled);
+    assertTrue(toggled.contains("\"active\":false"), toggled);
+
+    // A client resuming from the version it saw only gets the missed event
+    String resumed = mockMvc.perform(get("/api/v1/flags/stream")
+            .header("Last-Event-ID", String.valueOf(connectedVersion)))
+        .andExpect(request().asyncStarted())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    assertTrue(resumed.contains("event:toggled"), resumed);
+    assertFalse(resumed.contains("event:snapshot"), resumed);
+
+    // An unknown event ID falls back to a full snapshot
+    mockMvc.perform(get("/api/v1/flags/stream")
+            .header("Last-Event-ID", String.valueOf(Long.MAX_VALUE)))
+        .andExpect(request().asyncStarted())
+        .andExpect(content().string(containsString("event:snapshot\ndata:[]")));
+  }
+
+  @Test
+  void shouldResumeStreamInTheMiddleOfAVersion() throws Exception {
+    // Arrange: Two inactive flags, and an open stream
+    FeatureFlag first = featureFlagRepository.save(new FeatureFlag("resumed-first", null, false));
+    FeatureFlag second = featureFlagRepository.save(new FeatureFlag("resumed-second", null, false));
+    flagSnapshotCache.refresh();
+    mockMvc.perform(get("/api/v1/flags/stream"))
+        .andExpect(request().asyncStarted());
+
+    // Act: Toggle both in one version, and resume after its first change
+    String bulk = mockMvc.perform(post("/admin/flags/bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"toggle\": [" + first.getId() + ", " + second.getId() + "]}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    String version = JsonPath.read(bulk, "$.version").toString();
+    String resumed = mockMvc.perform(get("/api/v1/flags/stream")
+            .header("Last-Event-ID", version + ".0"))
+        .andExpect(request().asyncStarted())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+
+    // Assert: Only the rest of the version is sent
+    assertTrue(resumed.contains("id:" + version + ".1\nevent:toggled"), resumed);
+    assertFalse(resumed.contains("id:" + version + ".0\n"), resumed);
+    assertFalse(resumed.contains("event:snapshot"), resumed);
+  }
+
+  @Test
+  void shouldKeepStreamingWhileOtherClientsStopReading() throws Exception {
+    // Arrange: Eight streams whose writes will block, and one reading client
+    FeatureFlag flag = featureFlagRepository.save(new FeatureFlag("unstalled-flag", null, false));
+    flagSnapshotCache.refresh();
+    for (int i = 0; i < 8; i++) {
+      mockMvc.perform(get("/api/v1/flags/stream").header(StallingFilter.HEADER, "true"))
+          .andExpect(request().asyncStarted());
+    }
+    MvcResult reading = mockMvc.perform(get("/api/v1/flags/stream"))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    StallingFilter.stall = new CountDownLatch(1);
+    try {
+      // Act: A change every stream has to write
+      mockMvc.perform(patch("/admin/flags/" + flag.getId())
+              .with(httpBasic("admin", "admin123")))
+          .andExpect(status().isOk());
+
+      // Assert: The reading client gets it while the others' writes block
+      String toggled = awaitContent(reading, "event:toggled");
+      assertTrue(toggled.contains("\"name\":\"unstalled-flag\""), toggled);
+    } finally {
+      StallingFilter.stall.countDown();
+      StallingFilter.stall = null;
+    }
+  }
+
+  @Test
+  void shouldReturnOnlyChangesSinceVersion() throws Exception {
+    // Arrange: An active flag, and the version the client holds
+    String first = createFlag("delta-first");
+    mockMvc.perform(patch("/admin/flags/" + first).with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+    String version = mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(jsonPath("$[0]").value("delta-first"))
+        .andReturn()
+        .getResponse()
+        .getHeader(PublicFlagController.VERSION_HEADER);
+
+    // Changes after that version: a new active flag, the first one turned off
+    String second = createFlag("delta-second");
+    mockMvc.perform(patch("/admin/flags/" + second).with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+    createFlag("delta-inactive");
+    mockMvc.perform(patch("/admin/flags/" + first).with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+
+    // Act & Assert: Only the net changes are returned
+    mockMvc.perform(get("/api/v1/flags/changes").param("since", version))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.full").value(false))
+        .andExpect(jsonPath("$.version").value(Long.parseLong(version) + 4))
+        .andExpect(jsonPath("$.added.length()").value(1))
+        .andExpect(jsonPath("$.added[0]").value("delta-second"))
+        .andExpect(jsonPath("$.removed.length()").value(1))
+        .andExpect(jsonPath("$.removed[0]").value("delta-first"))
+        .andExpect(jsonPath("$.active").doesNotExist());
+
+    // A version the server does not know falls back to the full list
+    mockMvc.perform(get("/api/v1/flags/changes").param("since", String.valueOf(Long.MAX_VALUE)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.full").value(true))
+        .andExpect(jsonPath("$.active.length()").value(1))
+        .andExpect(jsonPath("$.active[0]").value("delta-second"));
+
+    mockMvc.perform(get("/api/v1/flags/changes").param("since", "not-a-version"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void shouldLookUpFlagsByName() throws Exception {
+    // Arrange
+    String on = createFlag("lookup-on");
+    mockMvc.perform(patch("/admin/flags/" + on).with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+    createFlag("lookup-off");
+
+    // Act & Assert: A single flag, revalidated by its own ETag
+    String etag = mockMvc.perform(get("/api/v1/flags/lookup-on"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/json"))
+        .andExpect(content().json("{\"name\": \"lookup-on\", \"active\": true}", true))
+        .andExpect(header().exists(HttpHeaders.ETAG))
+        .andReturn()
+        .getResponse()
+        .getHeader(HttpHeaders.ETAG);
+    mockMvc.perform(get("/api/v1/flags/lookup-on").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified());
+
+    // Changes to other flags keep the ETag, changes to the flag do not
+    createFlag("lookup-other");
+    mockMvc.perform(get("/api/v1/flags/lookup-on").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified());
+    mockMvc.perform(patch("/admin/flags/" + on).with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/api/v1/flags/lookup-on").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.active").value(false))
+        .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+
+    mockMvc.perform(get("/api/v1/flags/lookup-missing"))
+        .andExpect(status().isNotFound())
+        .andExpect(jsonPath("$.error").value("Flag not found"));
+
+    // Several flags at once, in the order requested
+    mockMvc.perform(get("/api/v1/flags").param("names", "lookup-off,lookup-on,lookup-missing,lookup-off"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(2))
+        .andExpect(jsonPath("$[0].name").value("lookup-off"))
+        .andExpect(jsonPath("$[0].active").value(false))
+        .andExpect(jsonPath("$[1].name").value("lookup-on"))
+        .andExpect(header().exists(HttpHeaders.ETAG));
+    String statusesEtag = mockMvc.perform(get("/api/v1/flags").param("names", "lookup-off,lookup-on"))
+        .andReturn()
+        .getResponse()
+        .getHeader(HttpHeaders.ETAG);
+    createFlag("lookup-another");
+    mockMvc.perform(get("/api/v1/flags").param("names", "lookup-off,lookup-on")
+            .header(HttpHeaders.IF_NONE_MATCH, statusesEtag))
+        .andExpect(status().isNotModified());
+    mockMvc.perform(get("/api/v1/flags").param("names", "lookup-on,lookup-off")
+            .header(HttpHeaders.IF_NONE_MATCH, statusesEtag))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].name").value("lookup-on"));
+  }
+
+  @Test
+  void shouldServeBinaryFlagSetMatchingJson() throws Exception {
+    // Arrange: Names sharing prefixes, some of them active
+    List<FeatureFlag> flags = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      flags.add(new FeatureFlag("checkout.step-" + i, null, i % 3 == 0));
+    }
+    flags.add(new FeatureFlag("checkout", null, true));
+    flags.add(new FeatureFlag("café-menü", null, true));
+    featureFlagRepository.saveAll(flags);
+    flagSnapshotCache.refresh();
+
+    MvcResult json = mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(status().isOk())
+        .andReturn();
+    List<String> activeNames = JsonPath.parse(json.getResponse().getContentAsString(StandardCharsets.UTF_8)).read("$");
+
+    // Act: The binary representation, uncompressed and gzipped
+    MvcResult binary = mockMvc.perform(get("/api/v1/flags/active")
+            .header(HttpHeaders.ACCEPT, BinaryFlagSet.MEDIA_TYPE_VALUE + ", application/json;q=0.5"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(BinaryFlagSet.MEDIA_TYPE_VALUE))
+        .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+        .andReturn();
+    MvcResult gzipped = mockMvc.perform(get("/api/v1/flags/active")
+            .header(HttpHeaders.ACCEPT, BinaryFlagSet.MEDIA_TYPE_VALUE)
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+        .andReturn();
+
+    // Assert: Both decode to the JSON content, inactive flags included
+    BinaryFlagSetDecoder decoded = BinaryFlagSetDecoder.decode(binary.getResponse().getContentAsByteArray());
+    assertEquals(Long.parseLong(json.getResponse().getHeader(PublicFlagController.VERSION_HEADER)),
+        decoded.getVersion());
+    assertEquals(new HashSet<>(activeNames), new HashSet<>(decoded.getActiveFlagNames()));
+    assertEquals(activeNames.size(), decoded.getActiveFlagNames().size());
+    assertEquals(302, decoded.getFlags().size());
+    assertEquals(false, decoded.getFlags().get("checkout.step-1"));
+    assertTrue(decoded.getFlags().get("café-menü"));
+    try (GZIPInputStream in = new GZIPInputStream(
+        new ByteArrayInputStream(gzipped.getResponse().getContentAsByteArray()))) {
+      assertEquals(decoded.getFlags(), BinaryFlagSetDecoder.decode(in.readAllBytes()).getFlags());
+    }
+    assertTrue(binary.getResponse().getContentAsByteArray().length
+        < json.getResponse().getContentAsByteArray().length);
+
+    // Each representation is revalidated with its own ETag
+    String etag = binary.getResponse().getHeader(HttpHeaders.ETAG);
+    assertNotEquals(json.getResponse().getHeader(HttpHeaders.ETAG), etag);
+    mockMvc.perform(get("/api/v1/flags/active")
+            .header(HttpHeaders.ACCEPT, BinaryFlagSet.MEDIA_TYPE_VALUE)
+            .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified());
+    mockMvc.perform(get("/api/v1/flags/active")
+            .header(HttpHeaders.ACCEPT, "application/json")
+            .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/json"));
+  }
+
+  private String createFlag(String name) throws Exception {
+    String response = mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"" + name + "\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    return response.substring(response.indexOf("\"id\":") + 5, response.indexOf(",")).trim();
+  }
+
+  /**
+   * Makes the response writes of requests with the stall header block while
+   * a stall is in progress, like a client whose TCP window is full.
+   */
+  @TestConfiguration
+  static class StallingFilter {
+
+    static final String HEADER = "X-Test-Stall";
+
+    static volatile CountDownLatch stall;
+
+    @Bean
+    Filter stallingFilter() {
+      return (request, response, chain) -> {
+        if (((HttpServletRequest) request).getHeader(HEADER) == null) {
+          chain.doFilter(request, response);
+          return;
+        }
+        HttpServletResponse servletResponse = (HttpServletResponse) response;
+        ServletOutputStream out = servletResponse.getOutputStream();
+        chain.doFilter(request, new HttpServletResponseWrapper(servletResponse) {
+          @Override
+          public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+              @Override
+              public void write(int b) throws IOException {
+                awaitStall();
+                out.write(b);
+              }
+
+              @Override
+              public void write(byte[] b, int off, int len) throws IOException {
+                awaitStall();
+                out.write(b, off, len);
+              }
+
+              @Override
+              public boolean isReady() {
+                return true;
+              }
+
+              @Override
+              public void setWriteListener(WriteListener writeListener) {
+                out.setWriteListener(writeListener);
+              }
+            };
+          }
+        });
+      };
+    }
+
+    private static void awaitStall() throws IOException {
+      CountDownLatch latch = stall;
+      if (latch != null) {
+        try {
+          latch.await();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new IOException(ex);
+        }
+      }
+    }
+  }
+
+  private static String awaitContent(MvcResult result, String expected) throws Exception {
+    long deadline = System.currentTimeMillis() + 5000;
+    String content = result.getResponse().getContentAsString();
+    while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+      content = result.getResponse().getContentAsString();
+    }
+    return content;
+  }
 }
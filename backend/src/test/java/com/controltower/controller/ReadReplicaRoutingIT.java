@@ -0,0 +1,248 @@
+package com.controltower.controller;
+
+import com.controltower.datasource.ReadReplicaRoutingDataSource;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the routing of read-only transactions.
+ *
+ * Two replicas are configured: one that cannot be reached, and an H2
+ * database standing in for a streaming replica, whose PostgreSQL status
+ * functions are aliases to the static methods of ReplicaStatus. The replica
+ * has the schema of the primary but its own rows, so a read tells which
+ * database served it.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+    "spring.datasource.url=jdbc:h2:mem:replicatestdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+    "controltower.replicas.urls=jdbc:postgresql://127.0.0.1:1/controltower," + ReadReplicaRoutingIT.REPLICA_URL,
+    "controltower.replicas.connection-timeout=250",
+    "controltower.replicas.health-check-interval=3600000",
+    "controltower.replicas.max-lag=1000"
+})
+class ReadReplicaRoutingIT {
+
+  static final String REPLICA_URL = "jdbc:h2:mem:replicadb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+  private static final String FUNCTIONS = ReplicaStatus.class.getName();
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private DataSource dataSource;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private ReadReplicaRoutingDataSource routingDataSource;
+
+  @BeforeEach
+  void setup() throws Exception {
+    jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS pg_current_wal_lsn FOR \"" + FUNCTIONS + ".primaryPosition\"");
+    try (Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+        Statement statement = replica.createStatement()) {
+      statement.execute("DROP ALL OBJECTS");
+      List<String> schema = jdbcTemplate.queryForList("SCRIPT NODATA NOPASSWORDS NOSETTINGS", String.class);
+      for (String sql : schema) {
+        if (!sql.startsWith("CREATE USER")) {
+          statement.execute(sql);
+        }
+      }
+      statement.execute("CREATE ALIAS pg_is_in_recovery FOR \"" + FUNCTIONS + ".inRecovery\"");
+      statement.execute("CREATE ALIAS pg_last_wal_replay_lsn FOR \"" + FUNCTIONS + ".replayPosition\"");
+      statement.execute("CREATE ALIAS pg_last_xact_replay_timestamp FOR \"" + FUNCTIONS + ".replayTimestamp\"");
+      statement.execute("INSERT INTO feature_flags (name, project, is_active, revision, created_at, updated_at)"
+          + " VALUES ('replica-only-flag', 'default', TRUE, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)");
+    }
+    // A replica that replayed everything the primary wrote
+    ReplicaStatus.inRecovery = true;
+    ReplicaStatus.primaryPosition = "0/100";
+    ReplicaStatus.replayPosition = "0/100";
+    ReplicaStatus.replayTimestamp = new Timestamp(System.currentTimeMillis());
+    routingDataSource.checkReplicas();
+  }
+
+  @Test
+  void shouldServeReadsFromThePrimaryWhenNoReplicaIsAvailable() throws Exception {
+    assertInstanceOf(LazyConnectionDataSourceProxy.class, dataSource);
+    // Promoted: no longer a replica
+    ReplicaStatus.inRecovery = false;
+    routingDataSource.checkReplicas();
+
+    String created = mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"routed-flag\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andReturn()
+        .getResponse()
+        .getContentAsString();
+    String id = JsonPath.parse(created).read("$.id", Long.class).toString();
+    mockMvc.perform(patch("/admin/flags/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk());
+
+    // Read-only transactions, which would go to a healthy replica
+    mockMvc.perform(get("/admin/flags/" + id)
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.isActive").value(true));
+    mockMvc.perform(get("/admin/flags")
+            .param("prefix", "routed-")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1));
+    mockMvc.perform(get("/admin/flags")
+            .param("prefix", "replica-only-")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(0));
+    mockMvc.perform(get("/api/v1/flags/active"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0]").value("routed-flag"));
+  }
+
+  @Test
+  void shouldServeReadOnlyTransactionsFromAHealthyReplica() throws Exception {
+    mockMvc.perform(get("/admin/flags")
+            .param("prefix", "replica-only-")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].name").value("replica-only-flag"));
+  }
+
+  @Test
+  void shouldServeReadsFromThePrimaryWhenTheReplicaLags() throws Exception {
+    ReplicaStatus.primaryPosition = "0/180";
+    ReplicaStatus.replayTimestamp = new Timestamp(System.currentTimeMillis() - 10_000);
+    routingDataSource.checkReplicas();
+
+    mockMvc.perform(get("/admin/flags")
+            .param("prefix", "replica-only-")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(0));
+
+    // Caught up again
+    ReplicaStatus.replayPosition = "0/180";
+    routingDataSource.checkReplicas();
+    mockMvc.perform(get("/admin/flags")
+            .param("prefix", "replica-only-")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1));
+  }
+
+  @Test
+  void shouldReadOwnWritesUntilTheReplicaReplayedThem() throws Exception {
+    ReplicaStatus.primaryPosition = "0/200";
+    mockMvc.perform(post("/admin/flags")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"name\": \"written-flag\"}")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isCreated())
+        .andExpect(header().string(ReadReplicaRoutingDataSource.WRITE_POSITION_HEADER, "0/200"));
+
+    // The replica has not replayed the write: read from the primary
+    mockMvc.perform(get("/admin/flags")
+            .param("prefix", "written-")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1));
+
+    // Replayed: back on the replica, which lacks the row in this test
+    ReplicaStatus.replayPosition = "0/200";
+    routingDataSource.checkReplicas();
+    mockMvc.perform(get("/admin/flags")
+            .param("prefix", "replica-only-")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(1));
+
+    // A write acknowledged by another node, as told by the client
+    mockMvc.perform(get("/admin/flags")
+            .param("prefix", "replica-only-")
+            .header(ReadReplicaRoutingDataSource.WRITE_POSITION_HEADER, "0/300")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(0));
+  }
+
+  @Test
+  void shouldServeReadsFromThePrimaryWhenTheReplicaStoppedReceiving() throws Exception {
+    // Replayed everything it received, but received nothing of the last writes
+    ReplicaStatus.primaryPosition = "0/300";
+    ReplicaStatus.replayTimestamp = new Timestamp(System.currentTimeMillis() - 10_000);
+    routingDataSource.checkReplicas();
+
+    mockMvc.perform(get("/admin/flags")
+            .param("prefix", "replica-only-")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(0));
+
+    // Never replayed anything
+    ReplicaStatus.replayTimestamp = null;
+    routingDataSource.checkReplicas();
+    mockMvc.perform(get("/admin/flags")
+            .param("prefix", "replica-only-")
+            .with(httpBasic("admin", "admin123")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()").value(0));
+  }
+
+  /**
+   * The replication status reported by the functions of the databases.
+   */
+  public static final class ReplicaStatus {
+
+    private static volatile boolean inRecovery;
+    private static volatile String primaryPosition;
+    private static volatile String replayPosition;
+    private static volatile Timestamp replayTimestamp;
+
+    public static boolean inRecovery() {
+      return inRecovery;
+    }
+
+    public static String primaryPosition() {
+      return primaryPosition;
+    }
+
+    public static String replayPosition() {
+      return replayPosition;
+    }
+
+    public static Timestamp replayTimestamp() {
+      return replayTimestamp;
+    }
+  }
+}
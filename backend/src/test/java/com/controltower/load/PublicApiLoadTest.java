@@ -0,0 +1,245 @@
+package com.controltower.load;
+
+import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load test of the public and admin APIs over real HTTP, against the
+ * application running on an embedded server with H2.
+ * 
+ * Each client thread sends one request at a time: mostly
+ * GET /api/v1/flags/active, and a configurable share of flag toggles through
+ * the admin API. Latencies are recorded in HdrHistograms and reported per
+ * operation, both on the console and as JSON in target/load-test-result.json.
+ * 
+ * Only runs with the load-test Maven profile: mvn test -Pload-test
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// A profile rather than @TestPropertySource, so -Dloadtest.* system properties still win
+@ActiveProfiles("loadtest")
+class PublicApiLoadTest {
+
+  private static final String AUTHORIZATION = "Basic "
+      + Base64.getEncoder().encodeToString("admin:admin123".getBytes(StandardCharsets.UTF_8));
+
+  @LocalServerPort
+  private int port;
+
+  @Autowired
+  private FeatureFlagRepository featureFlagRepository;
+
+  @Autowired
+  private FlagSnapshotCache flagSnapshotCache;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${loadtest.concurrency}")
+  private int concurrency;
+
+  @Value("${loadtest.flags}")
+  private int flagCount;
+
+  @Value("${loadtest.write-ratio}")
+  private double writeRatio;
+
+  @Value("${loadtest.rate}")
+  private double rate;
+
+  @Value("${loadtest.warmup-seconds}")
+  private int warmupSeconds;
+
+  @Value("${loadtest.duration-seconds}")
+  private int durationSeconds;
+
+  @Value("${loadtest.max-read-p99-ms}")
+  private double maxReadP99Millis;
+
+  private final HttpClient http = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .connectTimeout(Duration.ofSeconds(5))
+      .build();
+
+  @Test
+  void shouldServeMixedLoadWithinLatencyBudget() throws Exception {
+    featureFlagRepository.deleteAll();
+    flagSnapshotCache.refresh();
+    List<Long> flagIds = new ArrayList<>();
+    for (int i = 0; i < flagCount; i++) {
+      String body = send(admin("POST", "/admin/flags", "{\"name\": \"load-flag-" + i + "\"}"));
+      flagIds.add(objectMapper.readTree(body).get("id").asLong());
+    }
+
+    run(flagIds, warmupSeconds);
+    Run run = run(flagIds, durationSeconds);
+
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("concurrency", concurrency);
+    report.put("flags", flagCount);
+    report.put("writeRatio", writeRatio);
+    report.put("ratePerClient", rate);
+    report.put("durationSeconds", durationSeconds);
+    report.put("errors", run.errors);
+    report.put("read", summarize("GET /api/v1/flags/active", run.reads, run.elapsedNanos));
+    report.put("write", summarize("PATCH /admin/flags/{id}", run.writes, run.elapsedNanos));
+    File output = new File("target/load-test-result.json");
+    output.getParentFile().mkdirs();
+    objectMapper.writerWithDefaultPrettyPrinter().writeValue(output, report);
+    System.out.println("Load test report written to " + output.getAbsolutePath());
+
+    assertEquals(0, run.errors, "Requests failed during the run");
+    if (writeRatio < 1.0) {
+      assertTrue(run.reads.getTotalCount() > 0, "No reads were sent");
+      double readP99Millis = run.reads.getValueAtPercentile(99.0) / 1000.0;
+      assertTrue(readP99Millis <= maxReadP99Millis,
+          "Read p99 of " + readP99Millis + " ms exceeds " + maxReadP99Millis + " ms");
+    }
+  }
+
+  private Run run(List<Long> flagIds, int seconds) throws InterruptedException {
+    Recorder reads = new Recorder(3);
+    Recorder writes = new Recorder(3);
+    AtomicLong errors = new AtomicLong();
+    HttpRequest read = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/flags/active"))
+        .header("Accept-Encoding", "gzip")
+        .build();
+    long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+
+    List<Thread> clients = new ArrayList<>();
+    for (int c = 0; c < concurrency; c++) {
+      Thread client = new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long intended = start;
+        while (true) {
+          if (intervalNanos > 0) {
+            // Latency counts from when the request was due, so a stalled
+            // server is charged for the requests it delayed
+            intended += intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+              sleepNanos(wait);
+            }
+          } else {
+            intended = System.nanoTime();
+          }
+          if (intended >= deadline) {
+            return;
+          }
+
+          boolean write = random.nextDouble() < writeRatio;
+          HttpRequest request = write
+              ? admin("PATCH", "/admin/flags/" + flagIds.get(random.nextInt(flagIds.size())), null)
+              : read;
+          try {
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+              errors.incrementAndGet();
+            }
+          } catch (Exception ex) {
+            errors.incrementAndGet();
+          }
+          long micros = (System.nanoTime() - intended) / 1000;
+          (write ? writes : reads).recordValue(micros);
+        }
+      }, "load-client-" + c);
+      clients.add(client);
+      client.start();
+    }
+    for (Thread client : clients) {
+      client.join();
+    }
+    return new Run(reads.getIntervalHistogram(), writes.getIntervalHistogram(), errors.get(),
+        System.nanoTime() - start);
+  }
+
+  private Map<String, Object> summarize(String operation, Histogram histogram, long elapsedNanos) {
+    double throughput = histogram.getTotalCount() / (elapsedNanos / 1e9);
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("operation", operation);
+    summary.put("requests", histogram.getTotalCount());
+    summary.put("throughputPerSecond", Math.round(throughput * 10) / 10.0);
+    summary.put("p50Ms", histogram.getValueAtPercentile(50.0) / 1000.0);
+    summary.put("p90Ms", histogram.getValueAtPercentile(90.0) / 1000.0);
+    summary.put("p99Ms", histogram.getValueAtPercentile(99.0) / 1000.0);
+    summary.put("p999Ms", histogram.getValueAtPercentile(99.9) / 1000.0);
+    summary.put("maxMs", histogram.getMaxValue() / 1000.0);
+    System.out.printf("%-28s %9d req %10.1f req/s  p50 %7.3f ms  p99 %7.3f ms  p99.9 %7.3f ms  max %7.3f ms%n",
+        operation, histogram.getTotalCount(), throughput,
+        summary.get("p50Ms"), summary.get("p99Ms"), summary.get("p999Ms"), summary.get("maxMs"));
+    return summary;
+  }
+
+  private HttpRequest admin(String method, String path, String json) {
+    return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+        .header("Authorization", AUTHORIZATION)
+        .header("Content-Type", "application/json")
+        .method(method, json != null
+            ? HttpRequest.BodyPublishers.ofString(json)
+            : HttpRequest.BodyPublishers.noBody())
+        .build();
+  }
+
+  private String send(HttpRequest request) throws Exception {
+    HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+    assertTrue(response.statusCode() < 300, request.uri() + " returned " + response.statusCode());
+    return response.body();
+  }
+
+  private static void sleepNanos(long nanos) {
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Latencies and errors of one timed run.
+   */
+  private static final class Run {
+
+    private final Histogram reads;
+    private final Histogram writes;
+    private final long errors;
+    private final long elapsedNanos;
+
+    private Run(Histogram reads, Histogram writes, long errors, long elapsedNanos) {
+      this.reads = reads;
+      this.writes = writes;
+      this.errors = errors;
+      this.elapsedNanos = elapsedNanos;
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.controltower.snapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decoder of the {@link BinaryFlagSet} format, written from its documented
+ * layout only, as a client would.
+ */
+public final class BinaryFlagSetDecoder {
+
+  private static final byte[] MAGIC = {'C', 'T', 'F', 'B'};
+
+  private final long version;
+  private final Map<String, Boolean> flags;
+
+  private BinaryFlagSetDecoder(long version, Map<String, Boolean> flags) {
+    this.version = version;
+    this.flags = flags;
+  }
+
+  /**
+   * Decodes an uncompressed binary flag set.
+   *
+   * @param bytes The encoded flag set
+   * @return The decoded flag set
+   */
+  public static BinaryFlagSetDecoder decode(byte[] bytes) {
+    ByteBuffer in = ByteBuffer.wrap(bytes);
+    byte[] magic = new byte[MAGIC.length];
+    in.get(magic);
+    if (!Arrays.equals(magic, MAGIC) || in.get() != 1) {
+      throw new IllegalArgumentException("Not a binary flag set");
+    }
+    long version = readVarint(in);
+    int count = (int) readVarint(in);
+
+    List<String> names = new ArrayList<>(count);
+    byte[] previous = new byte[0];
+    for (int i = 0; i < count; i++) {
+      int shared = (int) readVarint(in);
+      int rest = (int) readVarint(in);
+      byte[] name = Arrays.copyOf(previous, shared + rest);
+      in.get(name, shared, rest);
+      names.add(new String(name, StandardCharsets.UTF_8));
+      previous = name;
+    }
+    byte[] active = new byte[(count + 7) / 8];
+    in.get(active);
+    if (in.hasRemaining()) {
+      throw new IllegalArgumentException("Trailing bytes after the flag set");
+    }
+
+    Map<String, Boolean> flags = new LinkedHashMap<>();
+    for (int i = 0; i < count; i++) {
+      flags.put(names.get(i), (active[i >>> 3] & (1 << (i & 7))) != 0);
+    }
+    return new BinaryFlagSetDecoder(version, flags);
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Gets every flag with its active state, in table order.
+   */
+  public Map<String, Boolean> getFlags() {
+    return flags;
+  }
+
+  /**
+   * Gets the names of the active flags, in table order.
+   */
+  public List<String> getActiveFlagNames() {
+    List<String> active = new ArrayList<>();
+    flags.forEach((name, isActive) -> {
+      if (isActive) {
+        active.add(name);
+      }
+    });
+    return active;
+  }
+
+  private static long readVarint(ByteBuffer in) {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = in.get();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+  }
+}
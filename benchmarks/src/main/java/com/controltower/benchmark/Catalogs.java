@@ -0,0 +1,156 @@
+package com.controltower.benchmark;
+
+import com.controltower.repository.FeatureFlagRepository;
+import com.controltower.repository.FlagSetVersionRepository;
+import com.controltower.repository.SegmentRepository;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.controltower.snapshot.FlagState;
+import com.controltower.snapshot.SegmentState;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Synthetic flag catalogs, and the wiring needed to run the service layer
+ * over them without Spring or a database.
+ */
+final class Catalogs {
+
+    static final String SEGMENT = "beta-testers";
+
+    private Catalogs() {
+    }
+
+    /**
+     * Builds a catalog without targeting, every other flag active.
+     * 
+     * @param size The number of flags
+     * @return The flag states, ordered by ID
+     */
+    static List<FlagState> plainFlags(int size) {
+        List<FlagState> flags = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            flags.add(new FlagState((long) i + 1, name(i), i % 2 == 0));
+        }
+        return flags;
+    }
+
+    /**
+     * Builds an active catalog mixing the targeting shapes seen in practice:
+     * untargeted flags, percentage rollouts, attribute rules, and segment or
+     * regular expression rules.
+     * 
+     * @param size The number of flags
+     * @return The flag states, ordered by ID
+     */
+    static List<FlagState> targetedFlags(int size) {
+        List<FlagState> flags = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String targeting;
+            switch (i % 4) {
+                case 1:
+                    targeting = "{\"defaultRollout\": 50}";
+                    break;
+                case 2:
+                    targeting = "{\"rules\": [{\"clauses\": [{\"attribute\": \"country\", \"operator\": \"IN\","
+                            + " \"values\": [\"BR\", \"PT\", \"AO\"]}]}], \"defaultRollout\": 0}";
+                    break;
+                case 3:
+                    targeting = "{\"rules\": [{\"clauses\": [{\"operator\": \"SEGMENT\", \"values\": [\"" + SEGMENT + "\"]}]},"
+                            + " {\"clauses\": [{\"attribute\": \"email\", \"operator\": \"REGEX\","
+                            + " \"values\": [\".*@example\\\\.com\"]}], \"rollout\": 25}], \"defaultRollout\": 0}";
+                    break;
+                default:
+                    targeting = null;
+                    break;
+            }
+            flags.add(new FlagState((long) i + 1, name(i), true, targeting));
+        }
+        return flags;
+    }
+
+    /**
+     * Builds the segment referenced by {@link #targetedFlags(int)}.
+     * 
+     * @return The segment states
+     */
+    static List<SegmentState> segments() {
+        StringBuilder included = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            included.append(i > 0 ? "," : "").append("\"user-").append(i * 7).append('"');
+        }
+        return List.of(new SegmentState(SEGMENT, "{\"included\": [" + included + "], \"clauses\": [{\"attribute\":"
+                + " \"plan\", \"operator\": \"EQUALS\", \"values\": [\"enterprise\"]}]}"));
+    }
+
+    static String name(int index) {
+        return "feature-" + index;
+    }
+
+    /**
+     * Creates a snapshot cache over a fixed catalog, loaded once.
+     * 
+     * @param flags        The flags returned by the repository
+     * @param segments     The segments returned by the repository
+     * @param objectMapper The mapper used to serialize payloads
+     * @return The loaded cache
+     */
+    static FlagSnapshotCache snapshotCache(List<FlagState> flags, List<SegmentState> segments,
+            ObjectMapper objectMapper) {
+        FlagSnapshotCache cache = new FlagSnapshotCache(
+                repository(FeatureFlagRepository.class, Map.of("findAllFlagStates", flags)),
+                repository(FlagSetVersionRepository.class, Map.of("findCurrentVersion", 1L)),
+                repository(SegmentRepository.class, Map.of("findAllSegmentStates", segments)),
+                objectMapper,
+                event -> { },
+                new NoOpTransactionManager());
+        cache.refresh();
+        return cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T repository(Class<T> type, Map<String, Object> results) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            if (results.containsKey(method.getName())) {
+                return results.get(method.getName());
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return type.getSimpleName() + " stub";
+                }
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    /**
+     * Transaction manager for repositories that need no transaction.
+     */
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.controltower.benchmark;
+
+import com.controltower.dto.EvaluationRequest;
+import com.controltower.dto.EvaluationResponse;
+import com.controltower.evaluation.CompiledFlag;
+import com.controltower.evaluation.EvaluationContext;
+import com.controltower.evaluation.MapEvaluationContext;
+import com.controltower.service.EvaluationService;
+import com.controltower.snapshot.FlagSnapshot;
+import com.controltower.snapshot.FlagState;
+import com.controltower.snapshot.SegmentState;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of targeting evaluation: single flag checks, whole-catalog
+ * evaluation as done by POST /api/v1/evaluate, and rule compilation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EvaluationBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    private int flags;
+
+    private ObjectMapper objectMapper;
+    private List<FlagState> states;
+    private List<SegmentState> segments;
+    private FlagSnapshot snapshot;
+    private EvaluationService evaluationService;
+    private EvaluationRequest request;
+    private EvaluationContext context;
+    private CompiledFlag[] evaluators;
+    private String lookedUpName;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        states = Catalogs.targetedFlags(flags);
+        segments = Catalogs.segments();
+        snapshot = new FlagSnapshot(1L, states, segments, objectMapper, null);
+        evaluationService = new EvaluationService(null);
+
+        Map<String, String> attributes = Map.of("country", "BR", "plan", "pro", "email", "someone@example.com");
+        request = new EvaluationRequest("user-42", attributes);
+        context = new MapEvaluationContext("user-42", attributes);
+        evaluators = snapshot.getEvaluators().toArray(new CompiledFlag[0]);
+        lookedUpName = Catalogs.name(flags / 2);
+    }
+
+    /**
+     * Evaluating one flag, cycling through the flag shapes.
+     */
+    @Benchmark
+    public boolean evaluateFlag() {
+        CompiledFlag evaluator = evaluators[(next++ & 3) % evaluators.length];
+        return evaluator.evaluate(context);
+    }
+
+    /**
+     * Looking a flag up by name and evaluating it.
+     */
+    @Benchmark
+    public boolean evaluateFlagByName() {
+        return snapshot.getEvaluator(lookedUpName).evaluate(context);
+    }
+
+    /**
+     * Evaluating every flag for one context, as done by POST /api/v1/evaluate.
+     */
+    @Benchmark
+    public EvaluationResponse evaluateAllFlags() {
+        return evaluationService.evaluate(snapshot, request);
+    }
+
+    /**
+     * Compiling every flag's targeting into a new snapshot.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public FlagSnapshot compileSnapshot() {
+        return new FlagSnapshot(2L, states, segments, objectMapper, null);
+    }
+}
@@ -0,0 +1,102 @@
+package com.controltower.benchmark;
+
+import com.controltower.service.FlagService;
+import com.controltower.snapshot.BinaryFlagSet;
+import com.controltower.snapshot.ContentCoding;
+import com.controltower.snapshot.EncodedPayload;
+import com.controltower.snapshot.FlagSnapshot;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.controltower.snapshot.FlagState;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the public read path: what GET /api/v1/flags/active costs
+ * per request, and what a snapshot rebuild costs per mutation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlagReadBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    private int flags;
+
+    private ObjectMapper objectMapper;
+    private List<FlagState> states;
+    private FlagService flagService;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        states = Catalogs.plainFlags(flags);
+        FlagSnapshotCache cache = Catalogs.snapshotCache(states, List.of(), objectMapper);
+        flagService = new FlagService(null, null, null, null, null, cache, null, objectMapper);
+    }
+
+    /**
+     * Reading the active flag names through the service.
+     */
+    @Benchmark
+    public List<String> activeFlagNames() {
+        return flagService.getActiveFlagNames();
+    }
+
+    /**
+     * What the controller does per request: pick the pre-encoded body for the
+     * client's Accept-Encoding.
+     */
+    @Benchmark
+    public byte[] activeFlagsResponse() {
+        EncodedPayload payload = flagService.getCurrentSnapshot().getActiveFlagsPayload();
+        ContentCoding coding = payload.negotiate("gzip, deflate, br");
+        return payload.bytes(coding);
+    }
+
+    /**
+     * Serializing the active flag names on every request, as a baseline for
+     * the pre-encoded payload.
+     */
+    @Benchmark
+    public byte[] serializeActiveFlagNames() throws Exception {
+        return objectMapper.writeValueAsBytes(flagService.getActiveFlagNames());
+    }
+
+    /**
+     * Encoding every flag in the binary format, done once per snapshot on
+     * the first request asking for it (compression not included).
+     */
+    @Benchmark
+    public byte[] encodeBinaryFlagSet() {
+        return BinaryFlagSet.encode(2L, states);
+    }
+
+    /**
+     * Building a snapshot from scratch, including serialization and every
+     * compressed variant of the payload.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public FlagSnapshot rebuildSnapshot() {
+        return new FlagSnapshot(2L, states, List.of(), objectMapper, null);
+    }
+}
@@ -0,0 +1,180 @@
+package com.controltower.benchmark;
+
+import com.controltower.snapshot.ContentCoding;
+import com.controltower.snapshot.EncodedPayload;
+import com.controltower.snapshot.FlagSnapshotCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Synthetic model of request handling on the default platform thread pool
+ * and on virtual threads (spring.threads.virtual.enabled), under a burst of
+ * concurrent requests while the database is slow.
+ *
+ * No HTTP server or database is involved. Tasks submitted to an executor
+ * stand for requests: most are public reads of the snapshot payload, the
+ * real in-memory path; the others stand for database requests, modelled as
+ * a fair semaphore the size of the connection pool held for a fixed sleep.
+ * On the platform pool, sized like Tomcat's default, those take every
+ * worker and the in-memory reads queue behind them; on virtual threads the
+ * reads only wait for a carrier.
+ *
+ * It shows that head-of-line blocking, and how it grows with the share of
+ * slow requests and the size of the burst. It does not measure Tomcat,
+ * Hikari or a JDBC driver: socket handling, connection acquisition, driver
+ * code pinning virtual threads to their carriers and the database itself
+ * are left out, so its times are not those of a node. Only the platform
+ * mode runs by default; the virtual mode needs Java 21, where it is run with
+ * -p threading=platform,virtual.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThreadingBenchmark {
+
+    // Defaults of server.tomcat.threads.max and spring.datasource.hikari.maximum-pool-size
+    private static final int WORKER_THREADS = 200;
+    private static final int CONNECTIONS = 10;
+
+    @Param({ "platform" })
+    private String threading;
+
+    @Param({ "1000", "10000" })
+    private int requests;
+
+    @Param({ "10" })
+    private int databasePercent;
+
+    @Param({ "10" })
+    private int queryMillis;
+
+    private FlagSnapshotCache snapshotCache;
+    private Executor executor;
+    private Semaphore connections;
+    private CountDownLatch databaseRequests;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        snapshotCache = Catalogs.snapshotCache(Catalogs.plainFlags(1000), List.of(), objectMapper);
+        connections = new Semaphore(CONNECTIONS, true);
+        if (threading.equals("virtual")) {
+            executor = new VirtualThreadTaskExecutor("request-");
+        } else {
+            executor = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor instanceof ThreadPoolExecutor) {
+            ((ThreadPoolExecutor) executor).shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for the slow requests of the previous burst outside of the
+     * measurement, so that bursts do not overlap.
+     */
+    @TearDown(Level.Invocation)
+    public void awaitDatabaseRequests() throws InterruptedException {
+        if (databaseRequests != null) {
+            databaseRequests.await();
+        }
+    }
+
+    /**
+     * Time until every in-memory read of a burst is answered.
+     */
+    @Benchmark
+    public long inMemoryReads() throws InterruptedException {
+        return burst(false);
+    }
+
+    /**
+     * Time until every request of a burst is answered, slow ones included.
+     */
+    @Benchmark
+    public long allRequests() throws InterruptedException {
+        return burst(true);
+    }
+
+    private long burst(boolean awaitDatabase) throws InterruptedException {
+        int slow = 0;
+        for (int i = 0; i < requests; i++) {
+            if (i % 100 < databasePercent) {
+                slow++;
+            }
+        }
+        CountDownLatch reads = new CountDownLatch(requests - slow);
+        databaseRequests = new CountDownLatch(slow);
+        CountDownLatch queries = databaseRequests;
+        LongAdder bytes = new LongAdder();
+
+        for (int i = 0; i < requests; i++) {
+            if (i % 100 < databasePercent) {
+                executor.execute(() -> {
+                    try {
+                        query();
+                    } finally {
+                        queries.countDown();
+                    }
+                });
+            } else {
+                executor.execute(() -> {
+                    EncodedPayload payload = snapshotCache.current().getActiveFlagsPayload();
+                    bytes.add(payload.bytes(ContentCoding.GZIP).length);
+                    reads.countDown();
+                });
+            }
+        }
+        reads.await();
+        if (awaitDatabase) {
+            queries.await();
+        }
+        return bytes.sum();
+    }
+
+    /**
+     * Stands for a request waiting for a pooled connection, then for a slow
+     * query.
+     */
+    private void query() {
+        try {
+            connections.acquire();
+            try {
+                Thread.sleep(queryMillis);
+            } finally {
+                connections.release();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
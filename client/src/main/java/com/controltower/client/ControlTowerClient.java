@@ -0,0 +1,431 @@
+package com.controltower.client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Client for the ControlTower public API that answers flag checks from a
+ * local copy of the active flags.
+ * 
+ * The copy is an immutable table published through a volatile field and
+ * replaced by a single background thread, either by polling
+ * GET /api/v1/flags/active with If-None-Match, or by following the
+ * /api/v1/flags/stream event stream. {@link #isEnabled(String)} therefore
+ * never blocks, never performs I/O and never allocates. When the server
+ * cannot be reached the last known flags keep being served.
+ * 
+ * <pre>
+ * ControlTowerClient client = ControlTowerClient.builder("https://flags.example.com")
+ *         .syncMode(SyncMode.STREAMING)
+ *         .build();
+ * client.awaitInitialization(Duration.ofSeconds(5));
+ * if (client.isEnabled("new-checkout")) { ... }
+ * </pre>
+ */
+public final class ControlTowerClient implements AutoCloseable {
+
+    private static final System.Logger log = System.getLogger(ControlTowerClient.class.getName());
+
+    private static final String VERSION_HEADER = "X-Flags-Version";
+
+    private final URI activeFlagsUri;
+    private final URI streamUri;
+    private final SyncMode syncMode;
+    private final Duration pollInterval;
+    private final Duration requestTimeout;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService scheduler;
+    private final CountDownLatch initialized = new CountDownLatch(1);
+
+    private volatile FlagTable table = FlagTable.EMPTY;
+    private volatile InputStream openStream;
+    // ID of the last stream event applied, "<version>" or "<version>.<index>"
+    private volatile String lastEventId;
+    private volatile boolean closed;
+    // Only touched by the sync thread
+    private long reconnectDelayMillis;
+
+    private ControlTowerClient(Builder builder) {
+        String base = builder.baseUrl.endsWith("/")
+                ? builder.baseUrl.substring(0, builder.baseUrl.length() - 1)
+                : builder.baseUrl;
+        this.activeFlagsUri = URI.create(base + "/api/v1/flags/active");
+        this.streamUri = URI.create(base + "/api/v1/flags/stream");
+        this.syncMode = builder.syncMode;
+        this.pollInterval = builder.pollInterval;
+        this.requestTimeout = builder.requestTimeout;
+        this.reconnectDelayMillis = builder.reconnectDelay.toMillis();
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(builder.connectTimeout)
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "controltower-client-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts building a client.
+     * 
+     * @param baseUrl The base URL of the ControlTower service, e.g. http://localhost:8080
+     * @return The builder
+     */
+    public static Builder builder(String baseUrl) {
+        return new Builder(baseUrl);
+    }
+
+    /**
+     * Checks whether a flag is active, from the local copy only.
+     * 
+     * @param name The flag name
+     * @return true if the flag is active; false if it is inactive, unknown,
+     *         or the client has not synced yet
+     */
+    public boolean isEnabled(String name) {
+        return name != null && table.contains(name);
+    }
+
+    /**
+     * Gets the names of the active flags in the local copy.
+     * 
+     * @return Unmodifiable set of active flag names
+     */
+    public Set<String> getActiveFlags() {
+        return table.names();
+    }
+
+    /**
+     * Gets the flag set version of the local copy.
+     * 
+     * @return The version, or -1 before the first successful sync
+     */
+    public long getVersion() {
+        return table.version();
+    }
+
+    /**
+     * Waits until the first sync succeeded.
+     * 
+     * @param timeout The maximum time to wait
+     * @return true if the client holds flags from the server, false on timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitInitialization(Duration timeout) throws InterruptedException {
+        return initialized.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops syncing. Flags keep being answered from the last local copy.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        closeStream();
+    }
+
+    private void start() {
+        if (syncMode == SyncMode.STREAMING) {
+            scheduler.execute(this::stream);
+        } else {
+            scheduler.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void poll() {
+        FlagTable current = table;
+        HttpRequest.Builder request = HttpRequest.newBuilder(activeFlagsUri)
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip");
+        if (current.entityTag() != null) {
+            request.header("If-None-Match", current.entityTag());
+        }
+
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request.build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = decode(response)) {
+                if (response.statusCode() == 304) {
+                    body.readAllBytes();
+                    return;
+                }
+                if (response.statusCode() != 200) {
+                    log.log(System.Logger.Level.WARNING, "Unexpected status polling flags: {0}",
+                            response.statusCode());
+                    return;
+                }
+                String json = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                long version = response.headers().firstValueAsLong(VERSION_HEADER).orElse(-1);
+                publish(new FlagTable(Json.parseStringArray(json), version,
+                        response.headers().firstValue("ETag").orElse(null)));
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            log.log(System.Logger.Level.WARNING, "Could not poll flags: {0}", ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void stream() {
+        if (closed) {
+            return;
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(streamUri)
+                .header("Accept", "text/event-stream");
+        long version = table.version();
+        String resumeFrom = lastEventId;
+        if (resumeFrom != null && versionOf(resumeFrom) == version) {
+            // Possibly cut off in the middle of a version
+            request.header("Last-Event-ID", resumeFrom);
+        } else if (version >= 0) {
+            request.header("Last-Event-ID", Long.toString(version));
+        }
+
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request.build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            openStream = response.body();
+            if (response.statusCode() != 200) {
+                log.log(System.Logger.Level.WARNING, "Unexpected status opening flag stream: {0}",
+                        response.statusCode());
+            } else {
+                readEvents(response.body());
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            if (!closed) {
+                log.log(System.Logger.Level.WARNING, "Flag stream interrupted: {0}", ex.getMessage());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            closeStream();
+        }
+
+        if (!closed) {
+            scheduler.schedule(this::stream, reconnectDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void readEvents(InputStream body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String id = null;
+        String event = "message";
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                if (data.length() > 0) {
+                    onEvent(id, event, data.toString());
+                }
+                id = null;
+                event = "message";
+                data.setLength(0);
+                continue;
+            }
+            if (line.startsWith(":")) {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            String field = colon >= 0 ? line.substring(0, colon) : line;
+            String value = colon >= 0 ? line.substring(colon + 1) : "";
+            if (value.startsWith(" ")) {
+                value = value.substring(1);
+            }
+            switch (field) {
+                case "id":
+                    id = value;
+                    break;
+                case "event":
+                    event = value;
+                    break;
+                case "data":
+                    if (data.length() > 0) {
+                        data.append('\n');
+                    }
+                    data.append(value);
+                    break;
+                case "retry":
+                    try {
+                        reconnectDelayMillis = Long.parseLong(value.trim());
+                    } catch (NumberFormatException ex) {
+                        // Keep the current delay
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void onEvent(String id, String event, String data) {
+        long version = id != null ? versionOf(id.trim()) : table.version();
+        if ("snapshot".equals(event)) {
+            publish(new FlagTable(Json.parseStringArray(data), version, null));
+            lastEventId = id != null ? id.trim() : null;
+            return;
+        }
+
+        Map<String, Object> change = Json.parseObject(data);
+        String name = change.get("name") instanceof String ? (String) change.get("name") : null;
+        String previousName = change.get("previousName") instanceof String
+                ? (String) change.get("previousName")
+                : null;
+        boolean active = Boolean.TRUE.equals(change.get("active"));
+
+        Set<String> names = new LinkedHashSet<>(table.names());
+        switch (event.toLowerCase(Locale.ROOT)) {
+            case "renamed":
+                names.remove(previousName);
+                // Fall through, the flag keeps its state under the new name
+            case "created":
+            case "toggled":
+                if (active) {
+                    names.add(name);
+                } else {
+                    names.remove(name);
+                }
+                break;
+            case "deleted":
+                names.remove(name);
+                break;
+            default:
+                return;
+        }
+        publish(new FlagTable(names, version, null));
+        lastEventId = id != null ? id.trim() : null;
+    }
+
+    private static long versionOf(String eventId) {
+        int dot = eventId.indexOf('.');
+        return Long.parseLong(dot < 0 ? eventId : eventId.substring(0, dot));
+    }
+
+    private void publish(FlagTable next) {
+        table = next;
+        initialized.countDown();
+    }
+
+    private void closeStream() {
+        InputStream stream = openStream;
+        openStream = null;
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException ex) {
+                // Already broken
+            }
+        }
+    }
+
+    private static InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        boolean gzip = response.headers().firstValue("Content-Encoding")
+                .map(coding -> coding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        return gzip ? new GZIPInputStream(response.body()) : response.body();
+    }
+
+    /**
+     * Builder for {@link ControlTowerClient}.
+     */
+    public static final class Builder {
+
+        private final String baseUrl;
+        private SyncMode syncMode = SyncMode.STREAMING;
+        private Duration pollInterval = Duration.ofSeconds(30);
+        private Duration reconnectDelay = Duration.ofSeconds(3);
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration requestTimeout = Duration.ofSeconds(10);
+
+        private Builder(String baseUrl) {
+            this.baseUrl = Objects.requireNonNull(baseUrl, "baseUrl");
+        }
+
+        /**
+         * Sets how flags are kept up to date. Defaults to streaming.
+         * 
+         * @param syncMode The sync mode
+         * @return This builder
+         */
+        public Builder syncMode(SyncMode syncMode) {
+            this.syncMode = Objects.requireNonNull(syncMode, "syncMode");
+            return this;
+        }
+
+        /**
+         * Sets the delay between two polls. Defaults to 30 seconds.
+         * 
+         * @param pollInterval The poll interval
+         * @return This builder
+         */
+        public Builder pollInterval(Duration pollInterval) {
+            this.pollInterval = Objects.requireNonNull(pollInterval, "pollInterval");
+            return this;
+        }
+
+        /**
+         * Sets the delay before reconnecting a dropped stream, until the
+         * server suggests another one. Defaults to 3 seconds.
+         * 
+         * @param reconnectDelay The reconnect delay
+         * @return This builder
+         */
+        public Builder reconnectDelay(Duration reconnectDelay) {
+            this.reconnectDelay = Objects.requireNonNull(reconnectDelay, "reconnectDelay");
+            return this;
+        }
+
+        /**
+         * Sets the connection timeout. Defaults to 5 seconds.
+         * 
+         * @param connectTimeout The connection timeout
+         * @return This builder
+         */
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = Objects.requireNonNull(connectTimeout, "connectTimeout");
+            return this;
+        }
+
+        /**
+         * Sets the timeout of a poll request. Defaults to 10 seconds.
+         * 
+         * @param requestTimeout The request timeout
+         * @return This builder
+         */
+        public Builder requestTimeout(Duration requestTimeout) {
+            this.requestTimeout = Objects.requireNonNull(requestTimeout, "requestTimeout");
+            return this;
+        }
+
+        /**
+         * Builds the client and starts syncing in the background.
+         * 
+         * @return The client
+         */
+        public ControlTowerClient build() {
+            ControlTowerClient client = new ControlTowerClient(this);
+            client.start();
+            return client;
+        }
+    }
+}
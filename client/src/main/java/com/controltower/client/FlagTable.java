@@ -0,0 +1,81 @@
+package com.controltower.client;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Immutable set of active flag names, as of one flag set version.
+ * 
+ * Names are kept in an open-addressing table with linear probing, sized to
+ * stay at most half full, so a lookup is a few array reads and one
+ * {@link String#equals} on the matching slot. Looking a name up never
+ * allocates; String hash codes are cached by the JVM.
+ */
+final class FlagTable {
+
+    static final FlagTable EMPTY = new FlagTable(Set.of(), -1, null);
+
+    private final String[] slots;
+    private final int mask;
+    private final Set<String> names;
+    private final long version;
+    private final String entityTag;
+
+    FlagTable(Collection<String> activeNames, long version, String entityTag) {
+        Set<String> unique = new LinkedHashSet<>(activeNames);
+        int capacity = Integer.highestOneBit(Math.max(2, unique.size()) * 2 - 1) << 1;
+        this.slots = new String[capacity];
+        this.mask = capacity - 1;
+        for (String name : unique) {
+            int index = spread(name.hashCode()) & mask;
+            while (slots[index] != null) {
+                index = (index + 1) & mask;
+            }
+            slots[index] = name;
+        }
+        this.names = Collections.unmodifiableSet(unique);
+        this.version = version;
+        this.entityTag = entityTag;
+    }
+
+    boolean contains(String name) {
+        int index = spread(name.hashCode()) & mask;
+        String candidate;
+        while ((candidate = slots[index]) != null) {
+            if (candidate.equals(name)) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    Set<String> names() {
+        return names;
+    }
+
+    /**
+     * Gets the flag set version the table was built from.
+     * 
+     * @return The version, or -1 if unknown
+     */
+    long version() {
+        return version;
+    }
+
+    /**
+     * Gets the entity tag of the response the table was built from.
+     * 
+     * @return The entity tag, or null when it came from the event stream
+     */
+    String entityTag() {
+        return entityTag;
+    }
+
+    private static int spread(int hash) {
+        // Mix the high bits in, since only the low bits select a slot
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,19 @@
+package com.controltower.client;
+
+/**
+ * How a {@link ControlTowerClient} keeps its local flags up to date.
+ */
+public enum SyncMode {
+
+    /**
+     * Conditional GET of the active flags at a fixed interval. A poll that
+     * finds nothing new costs a 304 response with an empty body.
+     */
+    POLLING,
+
+    /**
+     * Server-Sent Events stream of flag changes, resumed with Last-Event-ID
+     * after a disconnect. Changes are applied as soon as they are committed.
+     */
+    STREAMING
+}
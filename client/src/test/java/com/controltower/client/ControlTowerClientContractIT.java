@@ -0,0 +1,162 @@
+package com.controltower.client;
+
+import com.controltower.ControlTowerApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Contract tests running the client against the backend started in-process
+ * on a random port, with an in-memory database.
+ */
+class ControlTowerClientContractIT {
+
+  private static final String AUTHORIZATION = "Basic "
+      + Base64.getEncoder().encodeToString("admin:admin123".getBytes(StandardCharsets.UTF_8));
+
+  private static ConfigurableApplicationContext backend;
+  private static String baseUrl;
+  private static final HttpClient http = HttpClient.newHttpClient();
+
+  @BeforeAll
+  static void startBackend() {
+    // Command line arguments take precedence over the packaged application.properties
+    backend = new SpringApplicationBuilder(ControlTowerApplication.class).run(
+        "--server.port=0",
+        "--spring.profiles.active=contract",
+        "--spring.datasource.url=jdbc:h2:mem:contract;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "--spring.datasource.driver-class-name=org.h2.Driver",
+        "--spring.datasource.username=sa",
+        "--spring.datasource.password=",
+        "--spring.jpa.hibernate.ddl-auto=create-drop",
+        "--spring.sql.init.mode=never",
+        "--controltower.snapshot.file=");
+    baseUrl = "http://localhost:" + backend.getEnvironment().getProperty("local.server.port");
+  }
+
+  @AfterAll
+  static void stopBackend() {
+    if (backend != null) {
+      backend.close();
+    }
+  }
+
+  @Test
+  void shouldSyncByConditionalPolling() throws Exception {
+    String id = createFlag("contract-polled");
+    toggleFlag(id);
+
+    try (ControlTowerClient client = ControlTowerClient.builder(baseUrl)
+        .syncMode(SyncMode.POLLING)
+        .pollInterval(Duration.ofMillis(100))
+        .build()) {
+      assertTrue(client.awaitInitialization(Duration.ofSeconds(10)));
+      assertTrue(client.isEnabled("contract-polled"));
+      assertFalse(client.isEnabled("contract-unknown"));
+      assertEquals(currentVersion(), client.getVersion());
+
+      toggleFlag(id);
+      await(() -> !client.isEnabled("contract-polled"));
+      assertEquals(currentVersion(), client.getVersion());
+    }
+  }
+
+  @Test
+  void shouldFollowTheFlagStream() throws Exception {
+    try (ControlTowerClient client = ControlTowerClient.builder(baseUrl)
+        .syncMode(SyncMode.STREAMING)
+        .build()) {
+      assertTrue(client.awaitInitialization(Duration.ofSeconds(10)));
+
+      String id = createFlag("contract-streamed");
+      toggleFlag(id);
+      await(() -> client.isEnabled("contract-streamed"));
+
+      admin("PUT", "/admin/flags/" + id, "{\"name\": \"contract-renamed\"}");
+      await(() -> client.isEnabled("contract-renamed") && !client.isEnabled("contract-streamed"));
+
+      admin("DELETE", "/admin/flags/" + id, null);
+      await(() -> !client.isEnabled("contract-renamed"));
+      assertEquals(currentVersion(), client.getVersion());
+    }
+  }
+
+  @Test
+  void shouldCheckFlagsWithoutAllocating() throws Exception {
+    String id = createFlag("contract-hot");
+    toggleFlag(id);
+
+    try (ControlTowerClient client = ControlTowerClient.builder(baseUrl)
+        .syncMode(SyncMode.POLLING)
+        .build()) {
+      assertTrue(client.awaitInitialization(Duration.ofSeconds(10)));
+      String[] names = { "contract-hot", "contract-cold", new String("contract-hot") };
+      com.sun.management.ThreadMXBean threads =
+          (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+      int hits = 0;
+      for (int i = 0; i < 100_000; i++) {
+        hits += client.isEnabled(names[i % names.length]) ? 1 : 0;
+      }
+      long before = threads.getCurrentThreadAllocatedBytes();
+      for (int i = 0; i < 1_000_000; i++) {
+        hits += client.isEnabled(names[i % names.length]) ? 1 : 0;
+      }
+      long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+      assertTrue(hits > 0);
+      assertTrue(allocated < 1024, "isEnabled allocated " + allocated + " bytes");
+    }
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the client to sync");
+      Thread.sleep(20);
+    }
+  }
+
+  private static String createFlag(String name) throws Exception {
+    String response = admin("POST", "/admin/flags", "{\"name\": \"" + name + "\"}");
+    return response.substring(response.indexOf("\"id\":") + 5, response.indexOf(",")).trim();
+  }
+
+  private static void toggleFlag(String id) throws Exception {
+    admin("PATCH", "/admin/flags/" + id, null);
+  }
+
+  private static long currentVersion() throws Exception {
+    HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/flags/active"))
+        .build(), HttpResponse.BodyHandlers.ofString());
+    return Long.parseLong(response.headers().firstValue("X-Flags-Version").orElseThrow());
+  }
+
+  private static String admin(String method, String path, String json) throws Exception {
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+        .header("Authorization", AUTHORIZATION)
+        .header("Content-Type", "application/json")
+        .method(method, json != null
+            ? HttpRequest.BodyPublishers.ofString(json)
+            : HttpRequest.BodyPublishers.noBody());
+    HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    assertTrue(response.statusCode() < 300, method + " " + path + " returned " + response.statusCode());
+    return response.body();
+  }
+}